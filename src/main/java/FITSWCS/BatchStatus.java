@@ -0,0 +1,50 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS;
+
+/**
+ * an interface containing the per-position status codes written by the
+ * status-mask forms of the batch transformations.  Wherever the
+ * single-position form of a transformation would throw an exception,
+ * the status-mask form instead sets both outputs for that position to
+ * NaN and records one of the non-zero codes below.
+ */
+public interface BatchStatus {
+
+    /**
+     * the position was transformed successfully
+     */
+    public static final byte OK = 0;
+
+    /**
+     * the projection has no solution for the position (the condition
+     * signaled by PixelBeyondProjectionException)
+     */
+    public static final byte PIXEL_BEYOND_PROJECTION = 1;
+
+    /**
+     * the celestial coordinates are invalid for the projection (the
+     * condition signaled by InvalidCelestialCoordException)
+     */
+    public static final byte INVALID_CELESTIAL_COORD = 2;
+
+    /**
+     * the coordinates in the plane of projection are invalid (the
+     * condition signaled by InvalidMapCoordException)
+     */
+    public static final byte INVALID_MAP_COORD = 3;
+
+    /**
+     * the input position was undefined (NaN), usually because an earlier
+     * stage of a transformation had already flagged it
+     */
+    public static final byte UNDEFINED = 4;
+}
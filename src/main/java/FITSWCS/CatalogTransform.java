@@ -0,0 +1,331 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * a class for transforming binary catalogs of positions with a
+ * 2-dimensional WCS.  A catalog is a file (or ByteBuffer) of consecutive
+ * pairs of 8-byte IEEE doubles in either byte order: pixel (x,y) pairs
+ * when transforming to world coordinates (reverse), or world (lng,lat)
+ * pairs when transforming to pixel coordinates (forward).  The output is
+ * a catalog of the same size and byte order holding the transformed
+ * pairs; positions that cannot be transformed are written as NaN. <p>
+ *
+ * Files are memory-mapped a window at a time, and each window is split
+ * into slices that are transformed in parallel on a ForkJoinPool.  Each
+ * slice copies its positions a chunk at a time into a double[] with a
+ * bulk get from a DoubleBuffer view of the mapping, hands the chunk to the
+ * batch form of WCS.fwd() or WCS.rev(), and writes the results back with
+ * a bulk put, so that no position passes through an object or a stream.
+ * The results are identical to those of the sequential batch methods. <p>
+ *
+ * The class may also be run as a program: <pre>
+ *   java FITSWCS.CatalogTransform [-f|-r] [-le|-be] [-threads n]
+ *                                 [-chunk n] header in out
+ * </pre>
+ * where header is a FITS file whose primary header describes the WCS
+ * (see HeaderParser), in the input catalog and out the output catalog;
+ * -f transforms world to pixel coordinates and -r (the default) pixel to
+ * world; -le and -be select little- or big-endian (the default) data.
+ */
+public class CatalogTransform {
+
+    /**
+     * the default number of positions in a chunk
+     */
+    public final static int DEFAULT_CHUNK = 4096;
+
+    /**
+     * the number of bytes of a file mapped at a time
+     */
+    public final static int WINDOW = 1 << 26;
+
+    /**
+     * the number of bytes per position
+     */
+    public final static int POSITION = 16;
+
+    protected final WCS wcs;
+    protected final boolean reverse;
+    protected final ByteOrder order;
+    protected final ForkJoinPool pool;
+    protected final int chunk;
+
+    /**
+     * create a CatalogTransform for big-endian data that uses the pool
+     * shared by ParallelBatch and the default chunk size
+     * @param wcs      the 2-dimensional WCS to apply
+     * @param reverse  true to transform pixel to world coordinates, false
+     *                 for world to pixel coordinates
+     */
+    public CatalogTransform(WCS wcs, boolean reverse) {
+	this(wcs, reverse, ByteOrder.BIG_ENDIAN,
+	     ParallelBatch.getDefaultPool(), DEFAULT_CHUNK);
+    }
+
+    /**
+     * create a CatalogTransform
+     * @param wcs      the 2-dimensional WCS to apply
+     * @param reverse  true to transform pixel to world coordinates, false
+     *                 for world to pixel coordinates
+     * @param order    the byte order of the input and output data
+     * @param pool     the pool to run slices on, or null to work in the
+     *                 calling thread only
+     * @param chunk    the number of positions transformed in each batch
+     * @exception IllegalArgumentException if wcs does not have 2 axes or
+     *               chunk < 1
+     */
+    public CatalogTransform(WCS wcs, boolean reverse, ByteOrder order,
+			    ForkJoinPool pool, int chunk)
+    {
+	if (wcs.getNaxis() != 2) throw new IllegalArgumentException(
+	    "catalog WCS must have 2 axes, not " + wcs.getNaxis());
+	if (chunk < 1)
+	    throw new IllegalArgumentException("chunk: " + chunk);
+	if (order == null) throw new NullPointerException("null byte order");
+	this.wcs = wcs;
+	this.reverse = reverse;
+	this.order = order;
+	this.pool = pool;
+	this.chunk = chunk;
+    }
+
+    public WCS getWCS() { return wcs; }
+    public boolean isReverse() { return reverse; }
+    public ByteOrder getByteOrder() { return order; }
+    public ForkJoinPool getPool() { return pool; }
+    public int getChunkSize() { return chunk; }
+
+    /**
+     * transform the catalog in the file in, writing the results to the
+     * file out, which is created or replaced.
+     * @return the number of positions that could not be transformed
+     * @exception IOException if either file cannot be mapped, or the
+     *               length of in is not a multiple of 16 bytes
+     */
+    public long transform(File in, File out) throws IOException {
+	RandomAccessFile src = new RandomAccessFile(in, "r");
+	try {
+	    RandomAccessFile dst = new RandomAccessFile(out, "rw");
+	    try {
+		return transform(src.getChannel(), dst.getChannel());
+	    } finally {
+		dst.close();
+	    }
+	} finally {
+	    src.close();
+	}
+    }
+
+    /**
+     * transform the whole of the catalog in the channel in, writing the
+     * results to the start of the channel out, whose size is set to that
+     * of in.  in must be readable and out readable and writable.
+     * @return the number of positions that could not be transformed
+     * @exception IOException if either channel cannot be mapped, or the
+     *               size of in is not a multiple of 16 bytes
+     */
+    public long transform(FileChannel in, FileChannel out) throws IOException {
+	long size = in.size(), failed = 0;
+	if (size % POSITION != 0) throw new IOException(
+	    "catalog size is not a multiple of " + POSITION + ": " + size);
+
+	if (out.size() > size) out.truncate(size);
+	for (long pos = 0; pos < size; pos += WINDOW) {
+	    long n = Math.min(WINDOW, size - pos);
+	    ByteBuffer src = in.map(FileChannel.MapMode.READ_ONLY, pos, n);
+	    ByteBuffer dst = out.map(FileChannel.MapMode.READ_WRITE, pos, n);
+	    failed += transform(src, dst);
+	}
+	return failed;
+    }
+
+    /**
+     * transform the positions remaining in in, writing the results to out
+     * from its position.  The positions of both buffers are advanced past
+     * the data used; their own byte orders are ignored in favor of that
+     * of this CatalogTransform.
+     * @return the number of positions that could not be transformed
+     * @exception IllegalArgumentException if in.remaining() is not a
+     *               multiple of 16 or out has too little room
+     */
+    public long transform(ByteBuffer in, ByteBuffer out) {
+	if (in.remaining() % POSITION != 0) throw new IllegalArgumentException(
+	    "catalog size is not a multiple of " + POSITION + ": " +
+	    in.remaining());
+	int npos = in.remaining() / POSITION;
+	if (out.remaining() < npos*POSITION) throw new IllegalArgumentException(
+	    "output has room for " + out.remaining()/POSITION + " of " +
+	    npos + " positions");
+
+	int nchunk = (npos + chunk - 1)/chunk;
+	int nslice = (pool == null) ? 1 :
+	    Math.min(pool.getParallelism(), nchunk);
+	long failed = 0;
+
+	if (nslice <= 1) {
+	    failed = new Slice(in, out, 0, npos).call().longValue();
+	} else {
+	    List<Slice> slices = new ArrayList<Slice>(nslice);
+	    for (int s = 0; s < nslice; s++) {
+		int first = (int) ((long) nchunk*s/nslice) * chunk;
+		int last = Math.min((int) ((long) nchunk*(s+1)/nslice) * chunk,
+				    npos);
+		slices.add(new Slice(in, out, first, last - first));
+	    }
+
+	    try {
+		for (Future<Long> f : pool.invokeAll(slices))
+		    failed += f.get().longValue();
+	    }
+	    catch (InterruptedException ex) {
+		Thread.currentThread().interrupt();
+		throw new IllegalStateException("interrupted");
+	    }
+	    catch (ExecutionException ex) {
+		Throwable cause = ex.getCause();
+		if (cause instanceof RuntimeException)
+		    throw (RuntimeException) cause;
+		if (cause instanceof Error) throw (Error) cause;
+		throw new InternalError(cause.toString());
+	    }
+	}
+
+	in.position(in.position() + npos*POSITION);
+	out.position(out.position() + npos*POSITION);
+	return failed;
+    }
+
+    /**
+     * npos consecutive positions, starting first positions beyond the
+     * current positions of the input and output buffers
+     */
+    class Slice implements Callable<Long> {
+	final DoubleBuffer src, dst;
+	final int npos;
+
+	Slice(ByteBuffer in, ByteBuffer out, int first, int npos) {
+	    this.npos = npos;
+	    src = view(in, first, npos);
+	    dst = view(out, first, npos);
+	}
+
+	public Long call() {
+	    int n = Math.min(chunk, npos);
+	    double[] ibuf = new double[2*n], obuf = new double[2*n];
+	    byte[] stat = new byte[n];
+	    long failed = 0;
+
+	    for (int k = 0; k < npos; k += n) {
+		n = Math.min(chunk, npos - k);
+		src.get(ibuf, 0, 2*n);
+		if (reverse) {
+		    wcs.rev(n, ibuf, 0, 2, obuf, 0, 2, stat, 0);
+		} else {
+		    wcs.fwd(n, ibuf, 0, 2, obuf, 0, 2, stat, 0);
+		}
+		for (int i = 0; i < n; i++) {
+		    if (stat[i] != BatchStatus.OK) failed++;
+		}
+		dst.put(obuf, 0, 2*n);
+	    }
+	    return Long.valueOf(failed);
+	}
+    }
+
+    /**
+     * return a view of npos positions of buf, starting first positions
+     * beyond its current position, in the byte order in use
+     */
+    private DoubleBuffer view(ByteBuffer buf, int first, int npos) {
+	ByteBuffer b = buf.duplicate();
+	b.position(buf.position() + first*POSITION);
+	b.limit(b.position() + npos*POSITION);
+	return b.slice().order(order).asDoubleBuffer();
+    }
+
+    public static void main(String args[]) {
+	boolean reverse = true;
+	ByteOrder order = ByteOrder.BIG_ENDIAN;
+	int nthreads = Runtime.getRuntime().availableProcessors();
+	int chunk = DEFAULT_CHUNK;
+	int i;
+
+	try {
+	    for (i = 0; i < args.length && args[i].startsWith("-"); i++) {
+		if (args[i].equals("-f")) {
+		    reverse = false;
+		} else if (args[i].equals("-r")) {
+		    reverse = true;
+		} else if (args[i].equals("-le")) {
+		    order = ByteOrder.LITTLE_ENDIAN;
+		} else if (args[i].equals("-be")) {
+		    order = ByteOrder.BIG_ENDIAN;
+		} else if (args[i].equals("-threads")) {
+		    nthreads = Integer.parseInt(args[++i]);
+		} else if (args[i].equals("-chunk")) {
+		    chunk = Integer.parseInt(args[++i]);
+		} else {
+		    throw new IllegalArgumentException(args[i]);
+		}
+	    }
+	    if (args.length - i != 3) throw new IllegalArgumentException(
+		"need header, input and output files");
+	}
+	catch (RuntimeException ex) {
+	    System.err.println("Usage: java FITSWCS.CatalogTransform " +
+			       "[-f|-r] [-le|-be] [-threads n] [-chunk n] " +
+			       "header in out");
+	    System.exit(1);
+	    return;
+	}
+
+	try {
+	    WCS wcs = new HeaderParser().parse(new File(args[i]));
+	    if (wcs == null) throw new IllegalArgumentException(
+		"no WCS in " + args[i]);
+
+	    ForkJoinPool pool = (nthreads > 1) ? new ForkJoinPool(nthreads)
+		                               : null;
+	    CatalogTransform cat =
+		new CatalogTransform(wcs, reverse, order, pool, chunk);
+
+	    File in = new File(args[i+1]);
+	    long t = System.nanoTime();
+	    long failed = cat.transform(in, new File(args[i+2]));
+	    t = System.nanoTime() - t;
+
+	    long npos = in.length() / POSITION;
+	    System.out.println(npos + " positions (" + failed +
+			       " not transformed) in " + t/1.0e9 + " s: " +
+			       (long) (npos/(t/1.0e9)) + " positions/s");
+	    if (pool != null) pool.shutdown();
+	}
+	catch (Exception ex) {
+	    System.err.println(ex.getMessage());
+	    System.exit(1);
+	}
+    }
+}
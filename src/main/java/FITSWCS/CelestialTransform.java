@@ -105,53 +105,39 @@ import FITSWCS.projections.*;
  *---------------------------------------------------------------------------*/
 public class CelestialTransform {
 
+    /**
+     * the largest number of positions passed through each stage at a
+     * time by the batch methods
+     */
+    protected final static int CHUNK = 256;
+
     /**
      * The projection type code (used only for error messages)
      */
-    protected String pcode;
+    protected final String pcode;
 
     /**
      * a double array containing the coordinate system reference parameters.
      * See the above section on <a href="#refdat">reference parameters</a> for
      * more details.
      */
-    protected double[] ref;
+    protected final double[] ref;
 
     /**
      * Euler angles and associated intermediaries derived from the
      * coordinate reference values.
      */
-    protected double[] euler;
+    protected final double[] euler;
 
     /**
      * The Projection transform object to use
      */
-    protected Projection prj;
+    protected final Projection prj;
 
     /**
-     * Construct a CelestialTransform object
-     * @param pcode  3-character code indicating desired projection
-     * @param ref    4-element array containing coordinate reference 
-     *               parameters (see <a href="#refdat">above</a> for 
-     *               more details).
-     * @param r0     sphere radius, if 0 defaults to 180/PI.
-     * @param p      array containing projection parameters (up to 
-     *               10 elements may be used, depending on pcode).
-     * @exception ArrayIndexOutOfBoundsException if ref.length < 4 or if 
-     *               p.length < number needed for particular pcode.
-     * @exception BadProjectionParameterException if p contains one or more
-     *               bad values for the given pcode
-     * @exception UnsupportedProjectionException if pcode is refers to an 
-     *               unrecognized projection type.
-     * @exception BadReferenceParameterException if ref contains one or more
-     *               bad values for the given pcode
+     * the trigonometric functions used by the transformations
      */
-    public CelestialTransform(String pcode, double[] ref, double r0, double[] p)
-	throws ArrayIndexOutOfBoundsException, BadProjectionParameterException,
-	       UnsupportedProjectionException, BadReferenceParameterException
-    {
-	init(pcode, ref, r0, p);
-    }
+    protected final TrigProvider trig;
 
     /**
      * Construct a CelestialTransform object
@@ -174,7 +160,7 @@ public class CelestialTransform {
 	throws ArrayIndexOutOfBoundsException, BadProjectionParameterException,
 	       UnsupportedProjectionException, BadReferenceParameterException
     {
-	init(pcode, ref, 0, p);
+	this(pcode, ref, 0, p);
     }
 
     /**
@@ -213,11 +199,57 @@ public class CelestialTransform {
 	throws ArrayIndexOutOfBoundsException, BadProjectionParameterException,
 	       UnsupportedProjectionException, BadReferenceParameterException
     {
-	double[] use = { reflong, reflat, longpole, latpole };
-	init(pcode, use, 0, p);
+	this(pcode, new double[] { reflong, reflat, longpole, latpole }, 0, p);
+    }
+
+    /**
+     * Construct a CelestialTransform with the same projection code,
+     * reference parameters and Euler angles as another, but applying
+     * the given (equivalent) Projection object.  This is used by
+     * ImmutableCelestialTransform.
+     */
+    protected CelestialTransform(CelestialTransform cel, Projection prj) {
+	pcode = cel.pcode;
+	ref = cel.getRefParm();
+	euler = cel.getEuler();
+	this.prj = prj;
+	trig = cel.trig;
+    }
+
+    /**
+     * same as CelestialTransform(pcode, refdat, r0, p, TrigProvider.EXACT)
+     */
+    public CelestialTransform(String pcode, double[] refdat, double r0,
+			      double[] p)
+	throws ArrayIndexOutOfBoundsException, BadProjectionParameterException,
+	       UnsupportedProjectionException, BadReferenceParameterException
+    {
+	this(pcode, refdat, r0, p, TrigProvider.EXACT);
     }
 
-    private void init(String pcode, double[] refdat, double r0, double[] p)
+    /**
+     * Construct a CelestialTransform object
+     * @param pcode  3-character code indicating desired projection
+     * @param refdat 4-element array containing coordinate reference
+     *               parameters (see <a href="#refdat">above</a> for 
+     *               more details).
+     * @param r0     sphere radius, if 0 defaults to 180/PI.
+     * @param p      array containing projection parameters (up to 
+     *               10 elements may be used, depending on pcode).
+     * @param trig   the trigonometric functions to be used by the
+     *               transformations (but not in deriving the Euler
+     *               angles); if null, TrigProvider.EXACT is used.
+     * @exception ArrayIndexOutOfBoundsException if refdat.length < 4 or if
+     *               p.length < number needed for particular pcode.
+     * @exception BadProjectionParameterException if p contains one or more
+     *               bad values for the given pcode
+     * @exception UnsupportedProjectionException if pcode is refers to an 
+     *               unrecognized projection type.
+     * @exception BadReferenceParameterException if refdat contains one or more
+     *               bad values for the given pcode
+     */
+    public CelestialTransform(String pcode, double[] refdat, double r0,
+			      double[] p, TrigProvider trig)
 	throws ArrayIndexOutOfBoundsException, BadProjectionParameterException,
 	       UnsupportedProjectionException, BadReferenceParameterException
     {
@@ -245,88 +277,16 @@ public class CelestialTransform {
 	}
 
 	// Determine the proper projection to apply
-	try {
-	    if (pcode.equalsIgnoreCase("AZP")) {
-		prj = new AZPProjection(r0, p);
-		theta0 = 90.0;
-	    } else if (pcode.equalsIgnoreCase("TAN")) {
-		prj = new TANProjection(r0, p);
-		theta0 = 90.0;
-	    } else if (pcode.equalsIgnoreCase("SIN")) {
-		prj = new SINProjection(r0, p);
-		theta0 = 90.0;
-	    } else if (pcode.equalsIgnoreCase("STG")) {
-		prj = new STGProjection(r0, p);
-		theta0 = 90.0;
-	    } else if (pcode.equalsIgnoreCase("ARC")) {
-		prj = new ARCProjection(r0, p);
-		theta0 = 90.0;
-	    } else if (pcode.equalsIgnoreCase("ZPN")) {
-		prj = new ZPNProjection(r0, p);
-		theta0 = 90.0;
-	    } else if (pcode.equalsIgnoreCase("ZEA")) {
-		prj = new ZEAProjection(r0, p);
-		theta0 = 90.0;
-	    } else if (pcode.equalsIgnoreCase("AIR")) {
-		prj = new AIRProjection(r0, p);
-		theta0 = 90.0;
-	    } else if (pcode.equalsIgnoreCase("CYP")) {
-		prj = new CYPProjection(r0, p);
-		theta0 = 0.0;
-	    } else if (pcode.equalsIgnoreCase("CAR")) {
-		prj = new CARProjection(r0, p);
-		theta0 = 0.0;
-	    } else if (pcode.equalsIgnoreCase("MER")) {
-		prj = new MERProjection(r0, p);
-		theta0 = 0.0;
-	    } else if (pcode.equalsIgnoreCase("CEA")) {
-		prj = new CEAProjection(r0, p);
-		theta0 = 0.0;
-	    } else if (pcode.equalsIgnoreCase("COP")) {
-		prj = new COPProjection(r0, p);
-		theta0 = p[1];
-	    } else if (pcode.equalsIgnoreCase("COD")) {
-		prj = new CODProjection(r0, p);
-		theta0 = p[1];
-	    } else if (pcode.equalsIgnoreCase("COE")) {
-		prj = new COEProjection(r0, p);
-		theta0 = p[1];
-	    } else if (pcode.equalsIgnoreCase("COO")) {
-		prj = new COOProjection(r0, p);
-		theta0 = p[1];
-	    } else if (pcode.equalsIgnoreCase("BON")) {
-		prj = new BONProjection(r0, p);
-		theta0 = 0.0;
-	    } else if (pcode.equalsIgnoreCase("PCO")) {
-		prj = new PCOProjection(r0, p);
-		theta0 = 0.0;
-	    } else if (pcode.equalsIgnoreCase("GLS")) {
-		prj = new GLSProjection(r0, p);
-		theta0 = 0.0;
-	    } else if (pcode.equalsIgnoreCase("PAR")) {
-		prj = new PARProjection(r0, p);
-		theta0 = 0.0;
-	    } else if (pcode.equalsIgnoreCase("AIT")) {
-		prj = new AITProjection(r0, p);
-		theta0 = 0.0;
-	    } else if (pcode.equalsIgnoreCase("MOL")) {
-		prj = new MOLProjection(r0, p);
-		theta0 = 0.0;
-	    } else if (pcode.equalsIgnoreCase("CSC")) {
-		prj = new CSCProjection(r0, p);
-		theta0 = 0.0;
-	    } else if (pcode.equalsIgnoreCase("QSC")) {
-		prj = new QSCProjection(r0, p);
-		theta0 = 0.0;
-	    } else if (pcode.equalsIgnoreCase("TSC")) {
-		prj = new TSCProjection(r0, p);
-		theta0 = 0.0;
-	    } else {
+	ProjectionRegistry.Entry type = ProjectionRegistry.lookup(pcode);
+	if (type == null || type.getFactory() == null) {
 
-		// Unrecognized projection code. 
-		throw new UnsupportedProjectionException(
-		    "Unrecognized Projection code: " + pcode);
-	    }
+	    // Unrecognized projection code. 
+	    throw new UnsupportedProjectionException(
+		"Unrecognized Projection code: " + pcode);
+	}
+	try {
+	    prj = type.getFactory().create(r0, p);
+	    theta0 = type.getTheta0(p);
 	}
 	catch(BadProjectionParameterException ex) {
 	    throw new BadProjectionParameterException(pcode + ": "  +
@@ -336,6 +296,8 @@ public class CelestialTransform {
 	    throw new ArrayIndexOutOfBoundsException(pcode  + ": "  +
 						      ex.getMessage());
 	}
+	this.trig = (trig == null) ? TrigProvider.EXACT : trig;
+	prj.setTrigProvider(this.trig);
 
 	// Set default for native longitude of the celestial pole? 
 	dophip = (ref[2] == 999.0);
@@ -486,7 +448,7 @@ public class CelestialTransform {
 	double[] out, phitheta;
 
 	// Compute native coordinates. 
-	phitheta = SphericalTransform.fwd(lng, lat, euler);
+	phitheta = SphericalTransform.fwd(lng, lat, euler, trig);
 
 	// Apply forward projection. 
 	try {
@@ -513,10 +475,253 @@ public class CelestialTransform {
 	}
 
 	// Compute native coordinates. 
-	out = SphericalTransform.rev(phitheta[0], phitheta[1], euler);
+	out = SphericalTransform.rev(phitheta[0], phitheta[1], euler, trig);
 	return out;
     }
 
+    /**
+     * Compute (x,y) coordinates in the plane of projection for ncoord
+     * celestial positions without allocating an array for each position.
+     * The k-th position is read from lng[lngoff+k*instride] and
+     * lat[latoff+k*instride], and its result is written to
+     * x[xoff+k*outstride] and y[yoff+k*outstride].  The output may
+     * overwrite the input.
+     * @exception InvalidCelestialTransformException if any position is
+     *              invalid for this system; the results for the positions
+     *              preceding it will have been written.
+     */
+    public void fwd(int ncoord, double[] lng, int lngoff,
+		    double[] lat, int latoff, int instride,
+		    double[] x, int xoff, double[] y, int yoff, int outstride)
+	throws InvalidCelestialTransformException
+    {
+	fwdBatch(ncoord, lng, lngoff, lat, latoff, instride,
+		 x, xoff, y, yoff, outstride, null, 0);
+    }
+
+    /**
+     * same as fwd(lng.length, lng, 0, lat, 0, 1, x, 0, y, 0, 1)
+     */
+    public void fwd(double[] lng, double[] lat, double[] x, double[] y)
+	throws InvalidCelestialTransformException
+    {
+	fwdBatch(lng.length, lng, 0, lat, 0, 1, x, 0, y, 0, 1, null, 0);
+    }
+
+    /**
+     * Compute (x,y) coordinates in the plane of projection for ncoord
+     * celestial positions without throwing exceptions.  This behaves like
+     * fwd(int, double[], int, double[], int, int, double[], int, double[],
+     * int, int) except that a position that is invalid for this system
+     * has its x and y set to NaN and INVALID_CELESTIAL_COORD written to
+     * stat[statoff+k]; an undefined (NaN) input position is marked
+     * UNDEFINED, and all others OK (see BatchStatus).
+     */
+    public void fwd(int ncoord, double[] lng, int lngoff,
+		    double[] lat, int latoff, int instride,
+		    double[] x, int xoff, double[] y, int yoff, int outstride,
+		    byte[] stat, int statoff)
+    {
+	if (stat == null) throw new NullPointerException("null stat array");
+	try {
+	    fwdBatch(ncoord, lng, lngoff, lat, latoff, instride,
+		     x, xoff, y, yoff, outstride, stat, statoff);
+	}
+	catch (InvalidCelestialTransformException ex) {
+	    throw Projection.statusError(ex);
+	}
+    }
+
+    /**
+     * same as fwd(lng.length, lng, 0, lat, 0, 1, x, 0, y, 0, 1, stat, 0)
+     */
+    public void fwd(double[] lng, double[] lat, double[] x, double[] y,
+		    byte[] stat)
+    {
+	fwd(lng.length, lng, 0, lat, 0, 1, x, 0, y, 0, 1, stat, 0);
+    }
+
+    /**
+     * Compute celestial coordinates (lng,lat) for ncoord positions in the
+     * plane of projection without allocating an array for each position.
+     * The k-th position is read from x[xoff+k*instride] and
+     * y[yoff+k*instride], and its result is written to
+     * lng[lngoff+k*outstride] and lat[latoff+k*outstride].  The output
+     * may overwrite the input.
+     * @exception InvalidCelestialTransformException if any position is
+     *              invalid for this system; the results for the positions
+     *              preceding it will have been written.
+     */
+    public void rev(int ncoord, double[] x, int xoff,
+		    double[] y, int yoff, int instride,
+		    double[] lng, int lngoff, double[] lat, int latoff,
+		    int outstride)
+	throws InvalidCelestialTransformException
+    {
+	revBatch(ncoord, x, xoff, y, yoff, instride,
+		 lng, lngoff, lat, latoff, outstride, null, 0);
+    }
+
+    /**
+     * same as rev(x.length, x, 0, y, 0, 1, lng, 0, lat, 0, 1)
+     */
+    public void rev(double[] x, double[] y, double[] lng, double[] lat)
+	throws InvalidCelestialTransformException
+    {
+	revBatch(x.length, x, 0, y, 0, 1, lng, 0, lat, 0, 1, null, 0);
+    }
+
+    /**
+     * Compute celestial coordinates (lng,lat) for ncoord positions in the
+     * plane of projection without throwing exceptions.  This behaves like
+     * rev(int, double[], int, double[], int, int, double[], int, double[],
+     * int, int) except that a position that is invalid for this system
+     * has its lng and lat set to NaN and INVALID_MAP_COORD written to
+     * stat[statoff+k]; an undefined (NaN) input position is marked
+     * UNDEFINED, and all others OK (see BatchStatus).
+     */
+    public void rev(int ncoord, double[] x, int xoff,
+		    double[] y, int yoff, int instride,
+		    double[] lng, int lngoff, double[] lat, int latoff,
+		    int outstride, byte[] stat, int statoff)
+    {
+	if (stat == null) throw new NullPointerException("null stat array");
+	try {
+	    revBatch(ncoord, x, xoff, y, yoff, instride,
+		     lng, lngoff, lat, latoff, outstride, stat, statoff);
+	}
+	catch (InvalidCelestialTransformException ex) {
+	    throw Projection.statusError(ex);
+	}
+    }
+
+    /**
+     * same as rev(x.length, x, 0, y, 0, 1, lng, 0, lat, 0, 1, stat, 0)
+     */
+    public void rev(double[] x, double[] y, double[] lng, double[] lat,
+		    byte[] stat)
+    {
+	rev(x.length, x, 0, y, 0, 1, lng, 0, lat, 0, 1, stat, 0);
+    }
+
+    /**
+     * the engine behind the batch forms of fwd().  If stat is null, the
+     * first invalid position causes an exception to be thrown; otherwise,
+     * failures are recorded in stat.  The positions are taken a chunk at
+     * a time through the spherical transformation and then the
+     * projection, so that each stage is applied to the whole chunk.
+     */
+    private void fwdBatch(int ncoord, double[] lng, int lngoff,
+			  double[] lat, int latoff, int instride,
+			  double[] x, int xoff, double[] y, int yoff,
+			  int outstride, byte[] stat, int statoff)
+	throws InvalidCelestialTransformException
+    {
+	if (ncoord <= 0) return;
+
+	int size = Math.min(ncoord, CHUNK), m, k, i, j;
+	double[] phi = new double[size], theta = new double[size];
+	byte[] pst = new byte[size];
+	double lngv, latv;
+
+	for (int done = 0; done < ncoord; done += m) {
+	    m = Math.min(size, ncoord - done);
+
+	    // Compute native coordinates.
+	    SphericalTransform.fwd(m, lng, lngoff, lat, latoff, instride,
+				   phi, 0, theta, 0, 1, euler, trig, null, 0);
+
+	    // Apply forward projection.
+	    prj.fwd(m, phi, 0, theta, 0, 1, phi, 0, theta, 0, 1, pst, 0);
+
+	    for (k = 0, i = 0, j = 0; k < m; k++, i += instride,
+		     j += outstride)
+	    {
+		lngv = lng[lngoff+i];
+		latv = lat[latoff+i];
+
+		if (stat != null && (Double.isNaN(lngv) || Double.isNaN(latv))) {
+		    x[xoff+j] = y[yoff+j] = Double.NaN;
+		    stat[statoff+k] = BatchStatus.UNDEFINED;
+		}
+		else if (pst[k] != BatchStatus.OK) {
+		    if (stat == null)
+			throw new InvalidCelestialCoordException(pcode,
+								 lngv, latv);
+		    x[xoff+j] = y[yoff+j] = Double.NaN;
+		    stat[statoff+k] = BatchStatus.INVALID_CELESTIAL_COORD;
+		}
+		else {
+		    x[xoff+j] = phi[k];
+		    y[yoff+j] = theta[k];
+		    if (stat != null) stat[statoff+k] = BatchStatus.OK;
+		}
+	    }
+
+	    lngoff += m*instride;  latoff += m*instride;
+	    xoff += m*outstride;   yoff += m*outstride;
+	    statoff += m;
+	}
+    }
+
+    /**
+     * the engine behind the batch forms of rev().  If stat is null, the
+     * first invalid position causes an exception to be thrown; otherwise,
+     * failures are recorded in stat.  As for fwd(), each stage is applied
+     * to a chunk of positions at a time.
+     */
+    private void revBatch(int ncoord, double[] x, int xoff,
+			  double[] y, int yoff, int instride,
+			  double[] lng, int lngoff, double[] lat, int latoff,
+			  int outstride, byte[] stat, int statoff)
+	throws InvalidCelestialTransformException
+    {
+	if (ncoord <= 0) return;
+
+	int size = Math.min(ncoord, CHUNK), m, k, i, j;
+	double[] phi = new double[size], theta = new double[size];
+	byte[] pst = new byte[size];
+	double xv, yv;
+
+	for (int done = 0; done < ncoord; done += m) {
+	    m = Math.min(size, ncoord - done);
+
+	    // Apply reverse projection.
+	    prj.rev(m, x, xoff, y, yoff, instride, phi, 0, theta, 0, 1, pst, 0);
+
+	    // Compute celestial coordinates.
+	    SphericalTransform.rev(m, phi, 0, theta, 0, 1, phi, 0, theta, 0, 1,
+				   euler, trig, null, 0);
+
+	    for (k = 0, i = 0, j = 0; k < m; k++, i += instride,
+		     j += outstride)
+	    {
+		xv = x[xoff+i];
+		yv = y[yoff+i];
+
+		if (stat != null && (Double.isNaN(xv) || Double.isNaN(yv))) {
+		    lng[lngoff+j] = lat[latoff+j] = Double.NaN;
+		    stat[statoff+k] = BatchStatus.UNDEFINED;
+		}
+		else if (pst[k] != BatchStatus.OK) {
+		    if (stat == null)
+			throw new InvalidMapCoordException(pcode, xv, yv);
+		    lng[lngoff+j] = lat[latoff+j] = Double.NaN;
+		    stat[statoff+k] = BatchStatus.INVALID_MAP_COORD;
+		}
+		else {
+		    lng[lngoff+j] = phi[k];
+		    lat[latoff+j] = theta[k];
+		    if (stat != null) stat[statoff+k] = BatchStatus.OK;
+		}
+	    }
+
+	    xoff += m*instride;     yoff += m*instride;
+	    lngoff += m*outstride;  latoff += m*outstride;
+	    statoff += m;
+	}
+    }
+
     /**
      * return a copy of the projection code
      */
@@ -527,6 +732,11 @@ public class CelestialTransform {
      */
     public Projection getProjection() { return prj; }
 
+    /**
+     * return the trigonometric functions used by the transformations
+     */
+    public TrigProvider getTrigProvider() { return trig; }
+
     /**
      * return a copy of the reference system parameters 
      */
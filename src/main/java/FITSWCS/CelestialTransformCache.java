@@ -0,0 +1,262 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS;
+
+import FITSWCS.exceptions.*;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * a bounded cache of ImmutableCelestialTransform objects keyed on the
+ * projection code, reference parameters, sphere radius, projection
+ * parameters and trigonometric functions from which they were created.
+ * Many images share a pointing (e.g. the tiles of a mosaic), and get()
+ * returns the transform already made for such a combination rather than
+ * computing the Euler angles and setting up the projection again. <p>
+ *
+ * The key is canonicalized so that trivially different but equivalent
+ * arguments share an entry: the code is matched without regard to case,
+ * an r0 of 0 is taken as 180/pi, -0 as 0, and p as though padded with
+ * zeros to its full 10 elements, so that a null p, { 0 } and an array of
+ * 10 zeros are the same.  The transform for an entry is always created
+ * from the padded p, so a shortened p gives the same result whichever
+ * form of it is seen first.  When the cache is full, the least recently
+ * used entry is discarded. <p>
+ *
+ * A CelestialTransformCache may be used by any number of threads.  A
+ * single lock guards the entries and counts; it is held only while an
+ * entry is looked up or added, never while a transform is created, so
+ * it suits a cache consulted once per image rather than once per
+ * position.  The transforms it returns are immutable and may be shared
+ * between threads.
+ * A transform that fails to construct is not cached; each get() for it
+ * throws afresh.
+ */
+public class CelestialTransformCache {
+
+    /**
+     * the default maximum number of entries
+     */
+    public final static int DEFAULT_CAPACITY = 256;
+
+    private final int capacity;
+    private final LinkedHashMap<Key, ImmutableCelestialTransform> map;
+    private long hits = 0, misses = 0, evictions = 0;
+
+    /**
+     * create a cache holding up to DEFAULT_CAPACITY transforms
+     */
+    public CelestialTransformCache() { this(DEFAULT_CAPACITY); }
+
+    /**
+     * create a cache holding up to capacity transforms
+     * @exception IllegalArgumentException if capacity < 1
+     */
+    public CelestialTransformCache(int capacity) {
+	if (capacity < 1) throw new IllegalArgumentException(
+	    "cache capacity must be positive: " + capacity);
+	this.capacity = capacity;
+	map = new LinkedHashMap<Key, ImmutableCelestialTransform>(16, 0.75f,
+								  true) {
+	    protected boolean removeEldestEntry(
+		Map.Entry<Key, ImmutableCelestialTransform> eldest)
+	    {
+		if (size() <= CelestialTransformCache.this.capacity)
+		    return false;
+		evictions++;
+		return true;
+	    }
+	};
+    }
+
+    /**
+     * return a transform for the given parameters, creating it if it is
+     * not already cached; the arguments are as for the corresponding
+     * CelestialTransform constructor.
+     * @see CelestialTransform#CelestialTransform(String, double[], double, double[], TrigProvider)
+     */
+    public ImmutableCelestialTransform get(String pcode, double[] ref,
+					   double r0, double[] p,
+					   TrigProvider trig)
+	throws ArrayIndexOutOfBoundsException, BadProjectionParameterException,
+	       UnsupportedProjectionException, BadReferenceParameterException
+    {
+	if (trig == null) trig = TrigProvider.EXACT;
+	Key key = new Key(pcode, ref, r0, p, trig);
+
+	ImmutableCelestialTransform out;
+	synchronized (this) {
+	    out = map.get(key);
+	    if (out != null) {
+		hits++;
+		return out;
+	    }
+	    misses++;
+	}
+
+	// Construct outside the lock so that other threads are not held
+	// up; if another thread made the same transform meanwhile, the
+	// one already cached wins.
+	ImmutableCelestialTransform made =
+	    ImmutableCelestialTransform.create(pcode, ref, r0, key.padded(),
+					       trig);
+	synchronized (this) {
+	    out = map.get(key);
+	    if (out == null) {
+		map.put(key, made);
+		out = made;
+	    }
+	}
+	return out;
+    }
+
+    /**
+     * same as get(pcode, ref, r0, p, TrigProvider.EXACT)
+     */
+    public ImmutableCelestialTransform get(String pcode, double[] ref,
+					   double r0, double[] p)
+	throws ArrayIndexOutOfBoundsException, BadProjectionParameterException,
+	       UnsupportedProjectionException, BadReferenceParameterException
+    {
+	return get(pcode, ref, r0, p, TrigProvider.EXACT);
+    }
+
+    /**
+     * same as get(pcode, ref, 0, p)
+     */
+    public ImmutableCelestialTransform get(String pcode, double[] ref,
+					   double[] p)
+	throws ArrayIndexOutOfBoundsException, BadProjectionParameterException,
+	       UnsupportedProjectionException, BadReferenceParameterException
+    {
+	return get(pcode, ref, 0, p);
+    }
+
+    /**
+     * return the maximum number of entries
+     */
+    public int getCapacity() { return capacity; }
+
+    /**
+     * return the number of entries now cached
+     */
+    public synchronized int size() { return map.size(); }
+
+    /**
+     * return the number of calls to get() answered from the cache
+     */
+    public synchronized long getHits() { return hits; }
+
+    /**
+     * return the number of calls to get() that had to create a transform
+     * (including those that failed)
+     */
+    public synchronized long getMisses() { return misses; }
+
+    /**
+     * return the number of entries discarded to make room for others
+     */
+    public synchronized long getEvictions() { return evictions; }
+
+    /**
+     * return the fraction of calls to get() answered from the cache, or
+     * 0 if there have been none
+     */
+    public synchronized double getHitRate() {
+	long n = hits + misses;
+	return (n == 0) ? 0.0 : (double) hits / n;
+    }
+
+    /**
+     * discard all entries and set the counts to zero
+     */
+    public synchronized void clear() {
+	map.clear();
+	hits = misses = evictions = 0;
+    }
+
+    public synchronized String toString() {
+	return map.size() + "/" + capacity + " transforms, " + hits +
+	    " hits, " + misses + " misses, " + evictions + " evictions";
+    }
+
+    /**
+     * the canonical form of the arguments to get()
+     */
+    static final class Key {
+	/**
+	 * the number of projection parameters that p is taken to have
+	 */
+	final static int NPARAM = 10;
+
+	final String pcode;
+	final double[] ref, p;
+	final double r0;
+	final TrigProvider trig;
+	final int hash;
+
+	Key(String pcode, double[] ref, double r0, double[] p,
+	    TrigProvider trig)
+	{
+	    this.pcode = pcode.toUpperCase();
+	    this.ref = canonical(ref);
+	    this.r0 = (r0 == 0.0) ? Projection.R2D : r0;
+	    this.p = trimmed(p);
+	    this.trig = trig;
+
+	    int h = this.pcode.hashCode();
+	    h = 31*h + Arrays.hashCode(this.ref);
+	    h = 31*h + Arrays.hashCode(this.p);
+	    long bits = Double.doubleToLongBits(this.r0);
+	    h = 31*h + (int) (bits ^ (bits >>> 32));
+	    hash = 31*h + trig.hashCode();
+	}
+
+	/**
+	 * return a copy of a with -0 replaced by 0
+	 */
+	static double[] canonical(double[] a) {
+	    double[] out = new double[a.length];
+	    for (int i = 0; i < a.length; i++) out[i] = a[i] + 0.0;
+	    return out;
+	}
+
+	/**
+	 * return a copy of a with -0 replaced by 0 and without its trailing
+	 * zeros; a null a is taken as empty
+	 */
+	static double[] trimmed(double[] a) {
+	    if (a == null) return new double[0];
+	    int n = a.length;
+	    while (n > 0 && a[n-1] == 0.0) n--;
+	    return canonical(Arrays.copyOf(a, n));
+	}
+
+	/**
+	 * return p padded with zeros to NPARAM elements
+	 */
+	double[] padded() {
+	    return Arrays.copyOf(p, Math.max(p.length, NPARAM));
+	}
+
+	public int hashCode() { return hash; }
+
+	public boolean equals(Object o) {
+	    if (! (o instanceof Key)) return false;
+	    Key k = (Key) o;
+	    return hash == k.hash && pcode.equals(k.pcode) &&
+		Double.doubleToLongBits(r0) == Double.doubleToLongBits(k.r0) &&
+		trig.equals(k.trig) &&
+		Arrays.equals(ref, k.ref) && Arrays.equals(p, k.p);
+	}
+    }
+}
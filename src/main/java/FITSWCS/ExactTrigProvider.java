@@ -0,0 +1,28 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS;
+
+/**
+ * the TrigProvider that hands every function to TrigD.  Results are
+ * identical to calling TrigD directly.
+ * @see TrigProvider#EXACT
+ */
+public class ExactTrigProvider extends TrigProvider {
+
+    public void sincos(double angle, double[] sc) { TrigD.sincos(angle, sc); }
+    public double atan2(double y, double x) { return TrigD.atan2(y, x); }
+    public double sin(double angle) { return TrigD.sin(angle); }
+    public double cos(double angle) { return TrigD.cos(angle); }
+    public double tan(double angle) { return TrigD.tan(angle); }
+    public double asin(double v) { return TrigD.asin(v); }
+    public double acos(double v) { return TrigD.acos(v); }
+    public double atan(double v) { return TrigD.atan(v); }
+}
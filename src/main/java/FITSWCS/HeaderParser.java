@@ -0,0 +1,584 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS;
+
+import FITSWCS.exceptions.*;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * reads the WCS keywords from a FITS header and builds the WCS they
+ * describe.  The header is read directly from its 2880-byte blocks of
+ * 80-character cards in a ByteBuffer, such as one mapped from a file;
+ * the keyword of each card is examined in place, and only the values of
+ * the keywords below are ever converted to Strings or numbers: <pre>
+ *   NAXIS, WCSAXES           number of axes (WCSAXES takes precedence,
+ *                              otherwise the larger of NAXIS and the
+ *                              highest axis number used)
+ *   CTYPEn, CRVALn, CRPIXn,  axis types, reference values, reference
+ *   CDELTn, CROTAn             pixels, increments and rotation angles
+ *   PCi_j or PC00i00j        the PC matrix
+ *   CDi_j or CD00i00j        the CD matrix, used when there is no PC
+ *                              matrix, with all CDELTn taken as 1
+ *   PROJPn                   projection parameters, n = 0 to 9
+ *   LONPOLE or LONGPOLE,     native longitude and latitude of the
+ *   LATPOLE                    celestial pole (default 999.0)
+ *   BITPIX, NAXISn, PCOUNT,  the size of the data that follows the
+ *   GCOUNT                     header (see getDataSize())
+ * </pre>
+ * If there is neither a PC nor a CD matrix, the CROTAn of the latitude
+ * axis, if given, is converted to a PC matrix in the usual way.  Missing
+ * values take the defaults of the FITS WCS convention: CRPIXn and CRVALn
+ * 0, CDELTn 1, and the unit PC matrix. <p>
+ *
+ * A HeaderParser may be reused for any number of headers, but is not
+ * thread-safe; give each thread its own.  If it is given a
+ * CelestialTransformCache, the celestial transforms of headers that share
+ * a pointing are shared as well.
+ */
+public class HeaderParser {
+
+    /**
+     * the length of a FITS card
+     */
+    public final static int CARD = 80;
+
+    /**
+     * the length of a FITS block
+     */
+    public final static int BLOCK = 2880;
+
+    private final static byte[] NAXIS = bytes("NAXIS"),
+	WCSAXES = bytes("WCSAXES "), BITPIX = bytes("BITPIX  "),
+	PCOUNT = bytes("PCOUNT  "), GCOUNT = bytes("GCOUNT  "),
+	CTYPE = bytes("CTYPE"), CRVAL = bytes("CRVAL"), CRPIX = bytes("CRPIX"),
+	CDELT = bytes("CDELT"), CROTA = bytes("CROTA"), PROJP = bytes("PROJP"),
+	LONPOLE = bytes("LONPOLE "), LONGPOLE = bytes("LONGPOLE"),
+	LATPOLE = bytes("LATPOLE "), END = bytes("END     ");
+
+    private final static int CTYPE_KEY = 0, CRVAL_KEY = 1, CRPIX_KEY = 2,
+	CDELT_KEY = 3, CROTA_KEY = 4;
+
+    private final CelestialTransformCache cache;
+    private final char[] text = new char[CARD];
+    private int i1, i2;
+
+    // the keyword values of the current header
+    private int cap, naxis, wcsaxes, maxaxis, bitpix;
+    private long pcount, gcount;
+    private long[] naxisn;
+    private String[] ctype;
+    private double[] crval, crpix, cdelt, crota, pc, cd;
+    private boolean havePC, haveCD, haveCROTA;
+    private final double[] projp = new double[10];
+    private double longpole, latpole;
+    private int ncards;
+
+    /**
+     * create a HeaderParser that creates each celestial transform afresh
+     */
+    public HeaderParser() { this(null); }
+
+    /**
+     * create a HeaderParser that gets its celestial transforms from a
+     * cache
+     * @param cache  the cache, or null to create each transform afresh
+     */
+    public HeaderParser(CelestialTransformCache cache) {
+	this.cache = cache;
+	grow(4);
+    }
+
+    /**
+     * read the FITS header starting at the current position of buf and
+     * return the WCS it describes, leaving the position of buf at the end
+     * of the block that holds the END card (or at its limit, if that
+     * comes first), where the data, if any, begin.
+     * @return the WCS, or null if the header has no axes
+     * @exception BadHeaderException if there is no END card before the
+     *               limit of buf, or a WCS keyword has a missing or
+     *               malformed value
+     * @exception BadReferenceParameterException if the celestial axes
+     *               are ambiguous, unpaired, or of inconsistent projection
+     *               type, or the reference values are bad
+     * @exception UnsupportedProjectionException if the projection code is
+     *               not recognized
+     * @exception BadProjectionParameterException if the PROJPn values are
+     *               bad for the projection
+     * @exception SingularMatrixException if the PC or CD matrix is
+     *               singular
+     */
+    public WCS parse(ByteBuffer buf)
+	throws BadHeaderException, BadReferenceParameterException,
+	       UnsupportedProjectionException, BadProjectionParameterException,
+	       SingularMatrixException
+    {
+	int start = buf.position(), limit = buf.limit(), o;
+
+	reset();
+	for (o = start; ; o += CARD) {
+	    if (o + CARD > limit) throw new BadHeaderException(
+		"No END card in header (" + ncards + " cards read)");
+	    ncards++;
+	    if (matches(buf, o, END)) break;
+	    card(buf, o);
+	}
+
+	// skip the rest of the block
+	o += CARD;
+	o = start + ((o - start + BLOCK - 1)/BLOCK)*BLOCK;
+	buf.position(Math.min(o, limit));
+
+	return build();
+    }
+
+    /**
+     * read the primary header of a FITS file, which is mapped into memory
+     * rather than read, and return the WCS it describes.
+     * @return the WCS, or null if the header has no axes
+     * @exception IOException if the file cannot be mapped
+     * @see #parse(ByteBuffer)
+     */
+    public WCS parse(File file)
+	throws IOException, BadHeaderException, BadReferenceParameterException,
+	       UnsupportedProjectionException, BadProjectionParameterException,
+	       SingularMatrixException
+    {
+	return parse(map(file));
+    }
+
+    /**
+     * map a file read-only into memory.  The mapping remains valid after
+     * the file is closed.
+     */
+    public static MappedByteBuffer map(File file) throws IOException {
+	FileInputStream in = new FileInputStream(file);
+	try {
+	    FileChannel ch = in.getChannel();
+	    return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+	} finally {
+	    in.close();
+	}
+    }
+
+    /**
+     * return the number of cards, including the END card, in the last
+     * header read
+     */
+    public int getCardCount() { return ncards; }
+
+    /**
+     * return the number of bytes of data, padded to a whole number of
+     * blocks, that follow the last header read.  Adding this to the
+     * position of the buffer after parse() gives the start of the next
+     * header.
+     */
+    public long getDataSize() {
+	long size = 0;
+	if (naxis > 0) {
+	    size = 1;
+	    for (int i = 0; i < naxis; i++) size *= naxisn[i];
+	}
+	size = Math.abs(bitpix)/8 * gcount * (pcount + size);
+	return ((size + BLOCK - 1)/BLOCK)*BLOCK;
+    }
+
+    /**
+     * clear the keyword values for a new header
+     */
+    private void reset() {
+	naxis = wcsaxes = maxaxis = bitpix = 0;
+	pcount = 0;
+	gcount = 1;
+	ncards = 0;
+	havePC = haveCD = haveCROTA = false;
+	for (int i = 0; i < projp.length; i++) projp[i] = 0.0;
+	longpole = latpole = 999.0;
+
+	for (int i = 0; i < cap; i++) {
+	    naxisn[i] = 0;
+	    ctype[i] = "";
+	    crval[i] = crpix[i] = crota[i] = 0.0;
+	    cdelt[i] = 1.0;
+	}
+	for (int i = 0; i < cap*cap; i++) {
+	    pc[i] = (i % (cap+1) == 0) ? 1.0 : 0.0;
+	    cd[i] = 0.0;
+	}
+    }
+
+    /**
+     * make room for n axes, keeping the values already read
+     */
+    private void grow(int n) {
+	int old = cap;
+	if (n <= old) return;
+	cap = Math.max(n, 2*old);
+
+	naxisn = copy(naxisn, cap);
+	String[] s = new String[cap];
+	for (int i = 0; i < cap; i++) s[i] = (i < old) ? ctype[i] : "";
+	ctype = s;
+	crval = copy(crval, cap, 0.0);
+	crpix = copy(crpix, cap, 0.0);
+	cdelt = copy(cdelt, cap, 1.0);
+	crota = copy(crota, cap, 0.0);
+
+	double[] p = new double[cap*cap], d = new double[cap*cap];
+	for (int i = 0; i < cap; i++) {
+	    for (int j = 0; j < cap; j++) {
+		if (i < old && j < old) {
+		    p[i*cap+j] = pc[i*old+j];
+		    d[i*cap+j] = cd[i*old+j];
+		} else {
+		    p[i*cap+j] = (i == j) ? 1.0 : 0.0;
+		}
+	    }
+	}
+	pc = p;
+	cd = d;
+    }
+
+    private static long[] copy(long[] a, int n) {
+	long[] out = new long[n];
+	if (a != null) System.arraycopy(a, 0, out, 0, a.length);
+	return out;
+    }
+
+    private static double[] copy(double[] a, int n, double fill) {
+	double[] out = new double[n];
+	int m = (a == null) ? 0 : a.length;
+	if (m > 0) System.arraycopy(a, 0, out, 0, m);
+	for (int i = m; i < n; i++) out[i] = fill;
+	return out;
+    }
+
+    /**
+     * note the use of axis i (counting from 1)
+     */
+    private void axis(int i) {
+	if (i > cap) grow(i);
+	if (i > maxaxis) maxaxis = i;
+    }
+
+    /**
+     * handle the card at offset o, if it is one we want
+     */
+    private void card(ByteBuffer buf, int o) throws BadHeaderException {
+	int i;
+
+	switch (buf.get(o)) {
+	  case 'N':
+	      if (! matches(buf, o, NAXIS)) return;
+	      if (buf.get(o+5) == ' ') {
+		  if (! blank(buf, o+5, o+8)) return;
+		  naxis = (int) integer(buf, o);
+		  if (naxis > cap) grow(naxis);
+	      } else if ((i = index(buf, o+5, o+8)) > 0) {
+		  if (i > cap) grow(i);
+		  naxisn[i-1] = integer(buf, o);
+	      }
+	      return;
+
+	  case 'W':
+	      if (matches(buf, o, WCSAXES)) {
+		  wcsaxes = (int) integer(buf, o);
+		  if (wcsaxes > cap) grow(wcsaxes);
+	      }
+	      return;
+
+	  case 'B':
+	      if (matches(buf, o, BITPIX)) bitpix = (int) integer(buf, o);
+	      return;
+
+	  case 'G':
+	      if (matches(buf, o, GCOUNT)) gcount = integer(buf, o);
+	      return;
+
+	  case 'L':
+	      if (matches(buf, o, LONPOLE) || matches(buf, o, LONGPOLE)) {
+		  longpole = number(buf, o);
+	      } else if (matches(buf, o, LATPOLE)) {
+		  latpole = number(buf, o);
+	      }
+	      return;
+
+	  case 'C':
+	      if (buf.get(o+1) == 'D' && buf.get(o+2) != 'E') {
+		  if (matrix(buf, o)) {
+		      axis(i1);
+		      axis(i2);
+		      cd[(i1-1)*cap + i2-1] = number(buf, o);
+		      haveCD = true;
+		  }
+		  return;
+	      }
+	      int key;
+	      if (matches(buf, o, CTYPE)) {
+		  key = CTYPE_KEY;
+	      } else if (matches(buf, o, CRVAL)) {
+		  key = CRVAL_KEY;
+	      } else if (matches(buf, o, CRPIX)) {
+		  key = CRPIX_KEY;
+	      } else if (matches(buf, o, CDELT)) {
+		  key = CDELT_KEY;
+	      } else if (matches(buf, o, CROTA)) {
+		  key = CROTA_KEY;
+	      } else {
+		  return;
+	      }
+	      if ((i = index(buf, o+5, o+8)) <= 0) return;
+	      axis(i);
+	      switch (key) {
+		case CTYPE_KEY: ctype[i-1] = string(buf, o);  break;
+		case CRVAL_KEY: crval[i-1] = number(buf, o);  break;
+		case CRPIX_KEY: crpix[i-1] = number(buf, o);  break;
+		case CDELT_KEY: cdelt[i-1] = number(buf, o);  break;
+		case CROTA_KEY: crota[i-1] = number(buf, o);
+				haveCROTA = true;             break;
+	      }
+	      return;
+
+	  case 'P':
+	      if (buf.get(o+1) == 'C') {
+		  if (matrix(buf, o)) {
+		      axis(i1);
+		      axis(i2);
+		      pc[(i1-1)*cap + i2-1] = number(buf, o);
+		      havePC = true;
+		  } else if (matches(buf, o, PCOUNT)) {
+		      pcount = integer(buf, o);
+		  }
+	      } else if (matches(buf, o, PROJP) &&
+			 buf.get(o+5) >= '0' && buf.get(o+5) <= '9' &&
+			 blank(buf, o+6, o+8)) {
+		  projp[buf.get(o+5) - '0'] = number(buf, o);
+	      }
+	      return;
+
+	  default:
+	      return;
+	}
+    }
+
+    /**
+     * build the WCS from the keyword values read
+     */
+    private WCS build()
+	throws BadReferenceParameterException, UnsupportedProjectionException,
+	       BadProjectionParameterException, SingularMatrixException
+    {
+	int n = (wcsaxes > 0) ? wcsaxes : Math.max(naxis, maxaxis);
+	if (n == 0) return null;
+
+	String[] ct = new String[n];
+	System.arraycopy(ctype, 0, ct, 0, n);
+	double[] rv = new double[n], rp = new double[n], dl = new double[n];
+	System.arraycopy(crval, 0, rv, 0, n);
+	System.arraycopy(crpix, 0, rp, 0, n);
+	System.arraycopy(cdelt, 0, dl, 0, n);
+
+	double[] m = null;
+	if (havePC) {
+	    m = submatrix(pc, n);
+	} else if (haveCD) {
+	    m = submatrix(cd, n);
+	    for (int i = 0; i < n; i++) dl[i] = 1.0;
+	} else if (haveCROTA) {
+	    m = rotation(ct, dl, n);
+	}
+
+	return new WCS(ct, rv, rp, m, dl, longpole, latpole,
+		       projp.clone(), cache);
+    }
+
+    private double[] submatrix(double[] a, int n) {
+	double[] out = new double[n*n];
+	for (int i = 0; i < n; i++)
+	    System.arraycopy(a, i*cap, out, i*n, n);
+	return out;
+    }
+
+    /**
+     * return the PC matrix equivalent to the CROTAn of the latitude axis,
+     * or null if there is none
+     */
+    private double[] rotation(String[] ct, double[] dl, int n) {
+	int lng = -1, lat = -1;
+	for (int j = 0; j < n; j++) {
+	    if (ct[j].length() < 8 || ct[j].charAt(4) != '-') continue;
+	    String type = ct[j].substring(0, 4);
+	    if (type.equals("RA--") || type.substring(1).equals("LON") ||
+		type.substring(2).equals("LN")) {
+		lng = j;
+	    } else if (type.equals("DEC-") || type.substring(1).equals("LAT") ||
+		       type.substring(2).equals("LT")) {
+		lat = j;
+	    }
+	}
+	if (lng < 0 || lat < 0 || crota[lat] == 0.0) return null;
+
+	double[] out = new double[n*n];
+	for (int i = 0; i < n; i++) out[i*n+i] = 1.0;
+	double c = TrigD.cos(crota[lat]), s = TrigD.sin(crota[lat]);
+	out[lng*n+lng] = c;
+	out[lat*n+lat] = c;
+	out[lng*n+lat] = -s*dl[lat]/dl[lng];
+	out[lat*n+lng] =  s*dl[lng]/dl[lat];
+	return out;
+    }
+
+    /**
+     * return true if the card at offset o starts with the bytes of kw
+     */
+    private static boolean matches(ByteBuffer buf, int o, byte[] kw) {
+	for (int k = 0; k < kw.length; k++)
+	    if (buf.get(o+k) != kw[k]) return false;
+	return true;
+    }
+
+    private static boolean blank(ByteBuffer buf, int from, int to) {
+	for (int k = from; k < to; k++)
+	    if (buf.get(k) != ' ') return false;
+	return true;
+    }
+
+    /**
+     * return the axis number written in bytes from to to (padded with
+     * blanks), or -1 if there is none
+     */
+    private static int index(ByteBuffer buf, int from, int to) {
+	int n = 0, k;
+	for (k = from; k < to; k++) {
+	    byte b = buf.get(k);
+	    if (b < '0' || b > '9') break;
+	    n = 10*n + (b - '0');
+	}
+	if (k == from || ! blank(buf, k, to)) return -1;
+	return n;
+    }
+
+    /**
+     * parse the axis numbers of a PCi_j, PC00i00j, CDi_j or CD00i00j
+     * keyword into i1 and i2, returning false if the keyword is not one
+     * of these forms
+     */
+    private boolean matrix(ByteBuffer buf, int o) {
+	int k, n = 0;
+
+	// PCi_j
+	for (k = o+2; k < o+8; k++) {
+	    byte b = buf.get(k);
+	    if (b < '0' || b > '9') break;
+	    n = 10*n + (b - '0');
+	}
+	if (k > o+2 && k < o+7 && buf.get(k) == '_') {
+	    i1 = n;
+	    i2 = index(buf, k+1, o+8);
+	    return i1 > 0 && i2 > 0;
+	}
+
+	// PC00i00j
+	if (k == o+8) {
+	    i1 = n / 1000;
+	    i2 = n % 1000;
+	    return i1 > 0 && i2 > 0;
+	}
+	return false;
+    }
+
+    /**
+     * copy the value of the card at offset o into text, returning its
+     * length; strings are returned without their quotes and trailing
+     * blanks, and other values up to the first blank or '/'.
+     */
+    private int value(ByteBuffer buf, int o) throws BadHeaderException {
+	int k = o+10, end = o+CARD, n = 0;
+
+	if (buf.get(o+8) != '=' || buf.get(o+9) != ' ')
+	    throw new BadHeaderException("No value for " + keyword(buf, o));
+	while (k < end && buf.get(k) == ' ') k++;
+	if (k == end)
+	    throw new BadHeaderException("No value for " + keyword(buf, o));
+
+	if (buf.get(k) == '\'') {
+	    for (k++; k < end; k++) {
+		char c = (char) (buf.get(k) & 0xff);
+		if (c == '\'') {
+		    if (k+1 < end && buf.get(k+1) == '\'') {
+			k++;
+		    } else {
+			while (n > 0 && text[n-1] == ' ') n--;
+			return n;
+		    }
+		}
+		text[n++] = c;
+	    }
+	    throw new BadHeaderException("Unterminated string for " +
+					 keyword(buf, o));
+	}
+
+	for (; k < end; k++) {
+	    char c = (char) (buf.get(k) & 0xff);
+	    if (c == ' ' || c == '/') break;
+	    text[n++] = (c == 'D' || c == 'd') ? 'E' : c;
+	}
+	return n;
+    }
+
+    private String string(ByteBuffer buf, int o) throws BadHeaderException {
+	return new String(text, 0, value(buf, o));
+    }
+
+    private double number(ByteBuffer buf, int o) throws BadHeaderException {
+	int n = value(buf, o);
+	try {
+	    return Double.parseDouble(new String(text, 0, n));
+	} catch (NumberFormatException ex) {
+	    throw new BadHeaderException("Bad value for " + keyword(buf, o) +
+					 ": " + new String(text, 0, n));
+	}
+    }
+
+    private long integer(ByteBuffer buf, int o) throws BadHeaderException {
+	int n = value(buf, o), k = 0;
+	long out = 0;
+	boolean neg = false;
+
+	if (n > 0 && (text[0] == '-' || text[0] == '+')) neg = text[k++] == '-';
+	if (k == n) throw new BadHeaderException("Bad value for " +
+						 keyword(buf, o));
+	for (; k < n; k++) {
+	    char c = text[k];
+	    if (c < '0' || c > '9') throw new BadHeaderException(
+		"Bad value for " + keyword(buf, o) + ": " +
+		new String(text, 0, n));
+	    out = 10*out + (c - '0');
+	}
+	return (neg) ? -out : out;
+    }
+
+    private static String keyword(ByteBuffer buf, int o) {
+	char[] c = new char[8];
+	for (int k = 0; k < 8; k++) c[k] = (char) (buf.get(o+k) & 0xff);
+	return new String(c).trim();
+    }
+
+    private static byte[] bytes(String s) {
+	byte[] out = new byte[s.length()];
+	for (int k = 0; k < out.length; k++) out[k] = (byte) s.charAt(k);
+	return out;
+    }
+}
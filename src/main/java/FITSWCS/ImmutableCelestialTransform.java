@@ -0,0 +1,88 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS;
+
+import FITSWCS.exceptions.*;
+
+/**
+ * a CelestialTransform that may be shared freely between threads.  The
+ * fields of CelestialTransform are final and its reference parameters
+ * and Euler angles are never modified after construction; this class
+ * adds the guarantee that the Projection in use cannot be changed
+ * either, since getProjection() returns an ImmutableProjection. <p>
+ *
+ * ImmutableCelestialTransform objects are obtained from the static
+ * create() and copyOf() methods, which take the same arguments as the
+ * CelestialTransform constructors.
+ */
+public final class ImmutableCelestialTransform extends CelestialTransform {
+
+    private ImmutableCelestialTransform(CelestialTransform cel,
+					ImmutableProjection prj)
+    {
+	super(cel, prj);
+    }
+
+    /**
+     * create an ImmutableCelestialTransform; the arguments are as for
+     * the corresponding CelestialTransform constructor.
+     * @see CelestialTransform#CelestialTransform(String, double[], double, double[], TrigProvider)
+     */
+    public static ImmutableCelestialTransform create(String pcode,
+						     double[] ref, double r0,
+						     double[] p,
+						     TrigProvider trig)
+	throws ArrayIndexOutOfBoundsException, BadProjectionParameterException,
+	       UnsupportedProjectionException, BadReferenceParameterException
+    {
+	// the new CelestialTransform is never seen by any other code, so
+	// its Projection need not be copied
+	CelestialTransform cel = new CelestialTransform(pcode, ref, r0, p, trig);
+	return new ImmutableCelestialTransform(
+	    cel, ImmutableProjection.wrap(cel.getProjection()));
+    }
+
+    /**
+     * same as create(pcode, ref, r0, p, TrigProvider.EXACT)
+     */
+    public static ImmutableCelestialTransform create(String pcode,
+						     double[] ref, double r0,
+						     double[] p)
+	throws ArrayIndexOutOfBoundsException, BadProjectionParameterException,
+	       UnsupportedProjectionException, BadReferenceParameterException
+    {
+	return create(pcode, ref, r0, p, TrigProvider.EXACT);
+    }
+
+    /**
+     * same as create(pcode, ref, 0, p)
+     */
+    public static ImmutableCelestialTransform create(String pcode,
+						     double[] ref, double[] p)
+	throws ArrayIndexOutOfBoundsException, BadProjectionParameterException,
+	       UnsupportedProjectionException, BadReferenceParameterException
+    {
+	return create(pcode, ref, 0, p);
+    }
+
+    /**
+     * return an ImmutableCelestialTransform equivalent to the given
+     * CelestialTransform as it is now; later changes to its Projection
+     * do not affect the result.  If cel is already an
+     * ImmutableCelestialTransform, it is returned as is.
+     */
+    public static ImmutableCelestialTransform copyOf(CelestialTransform cel) {
+	if (cel instanceof ImmutableCelestialTransform)
+	    return (ImmutableCelestialTransform) cel;
+	return new ImmutableCelestialTransform(
+	    cel, ImmutableProjection.copyOf(cel.getProjection()));
+    }
+}
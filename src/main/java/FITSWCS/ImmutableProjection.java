@@ -0,0 +1,319 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS;
+
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+
+/**
+ * a Projection whose sphere radius and projection parameters cannot be
+ * changed once it is created.  An ImmutableProjection holds a private
+ * Projection of the requested type, to which it hands all
+ * transformations; setR0(), setProjParm() and setTrigProvider() throw
+ * UnsupportedOperationException.  Because the private Projection is
+ * only reachable through a final field and is never modified after
+ * construction, a single ImmutableProjection may be shared by any
+ * number of threads without synchronization. <p>
+ *
+ * ImmutableProjection objects are obtained from the static create() and
+ * copyOf() methods.  The forms of the transformations that are
+ * particular to some types of projection (fwdGrid() and revGrid(), and
+ * the forms taking a SolverStats) are handed on to the private
+ * Projection where it provides them.
+ */
+public final class ImmutableProjection extends Projection {
+
+    private final Projection prj;
+
+    private ImmutableProjection(Projection prj) {
+	this.prj = prj;
+    }
+
+    /**
+     * create an ImmutableProjection
+     * @param pcode  3-character code indicating desired projection
+     * @param r0     sphere radius, if 0 defaults to 180/PI.
+     * @param p      array containing projection parameters (up to
+     *               10 elements may be used, depending on pcode).
+     * @param trig   the trigonometric functions to use; if null,
+     *               TrigProvider.EXACT is used.
+     * @exception ArrayIndexOutOfBoundsException if p.length < number
+     *               needed for particular pcode.
+     * @exception BadProjectionParameterException if p contains one or more
+     *               bad values for the given pcode
+     * @exception UnsupportedProjectionException if pcode is refers to an
+     *               unrecognized projection type.
+     */
+    public static ImmutableProjection create(String pcode, double r0,
+					     double[] p, TrigProvider trig)
+	throws ArrayIndexOutOfBoundsException, BadProjectionParameterException,
+	       UnsupportedProjectionException
+    {
+	if (p == null) p = new double[1];
+	Projection prj = Projection.getProjection(pcode, r0, p);
+	prj.setTrigProvider(trig);
+	return new ImmutableProjection(prj);
+    }
+
+    /**
+     * same as create(pcode, r0, p, TrigProvider.EXACT)
+     */
+    public static ImmutableProjection create(String pcode, double r0,
+					     double[] p)
+	throws ArrayIndexOutOfBoundsException, BadProjectionParameterException,
+	       UnsupportedProjectionException
+    {
+	return create(pcode, r0, p, TrigProvider.EXACT);
+    }
+
+    /**
+     * same as create(pcode, 0, p)
+     */
+    public static ImmutableProjection create(String pcode, double[] p)
+	throws ArrayIndexOutOfBoundsException, BadProjectionParameterException,
+	       UnsupportedProjectionException
+    {
+	return create(pcode, 0, p);
+    }
+
+    /**
+     * return an ImmutableProjection equivalent to the given Projection
+     * as it is now, including the choices made on it that its parameters
+     * do not determine (see Projection.copyOptions()); later changes to
+     * prj do not affect the result.  If prj is already an
+     * ImmutableProjection, it is returned as is.
+     * @exception IllegalArgumentException if prj is not of the class
+     *               registered for its projection code, and so cannot
+     *               be reproduced
+     */
+    public static ImmutableProjection copyOf(Projection prj) {
+	if (prj instanceof ImmutableProjection)
+	    return (ImmutableProjection) prj;
+
+	Projection copy;
+	try {
+	    copy = Projection.getProjection(prj.getProjectionCode(),
+					    prj.getR0(), (prj.p == null) ?
+					    new double[1] : prj.getProjParm());
+	}
+	catch (FITSWCSException ex) {
+	    throw new IllegalArgumentException(ex.getMessage());
+	}
+	if (copy.getClass() != prj.getClass())
+	    throw new IllegalArgumentException("cannot copy " +
+					       prj.getClass().getName());
+
+	copy.setTrigProvider(prj.getTrigProvider());
+	prj.copyOptions(copy);
+	return new ImmutableProjection(copy);
+    }
+
+    /**
+     * return an ImmutableProjection that hands its transformations to
+     * prj itself, which must not be reachable by any other code
+     */
+    static ImmutableProjection wrap(Projection prj) {
+	return new ImmutableProjection(prj);
+    }
+
+    public double[] fwd(double phi, double theta)
+	throws PixelBeyondProjectionException
+    {
+	return prj.fwd(phi, theta);
+    }
+
+    public double[] rev(double x, double y)
+	throws PixelBeyondProjectionException
+    {
+	return prj.rev(x, y);
+    }
+
+    protected void fwdBatch(int ncoord, double[] phi, int phioff,
+			    double[] theta, int thetaoff, int instride,
+			    double[] x, int xoff, double[] y, int yoff,
+			    int outstride, byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	prj.fwdBatch(ncoord, phi, phioff, theta, thetaoff, instride,
+		     x, xoff, y, yoff, outstride, stat, statoff);
+    }
+
+    protected void revBatch(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	prj.revBatch(ncoord, x, xoff, y, yoff, instride,
+		     phi, phioff, theta, thetaoff, outstride, stat, statoff);
+    }
+
+    /**
+     * same as fwdGrid() of a CylindricalProjection or a
+     * PseudocylindricalProjection
+     * @exception UnsupportedOperationException if the projection is
+     *               neither
+     */
+    public void fwdGrid(int nphi, double[] phi, int phioff,
+			int ntheta, double[] theta, int thetaoff,
+			double[] x, int xoff, double[] y, int yoff)
+	throws PixelBeyondProjectionException
+    {
+	if (prj instanceof CylindricalProjection) {
+	    ((CylindricalProjection) prj).fwdGrid(nphi, phi, phioff,
+		ntheta, theta, thetaoff, x, xoff, y, yoff);
+	} else if (prj instanceof PseudocylindricalProjection) {
+	    ((PseudocylindricalProjection) prj).fwdGrid(nphi, phi, phioff,
+		ntheta, theta, thetaoff, x, xoff, y, yoff);
+	} else {
+	    throw unsupported("fwdGrid");
+	}
+    }
+
+    /**
+     * same as CylindricalProjection.fwdGrid(int, double[], int, int,
+     * double[], int, double[], int, double[], int, byte[], int)
+     * @exception UnsupportedOperationException if the projection is not
+     *               cylindrical
+     */
+    public void fwdGrid(int nphi, double[] phi, int phioff,
+			int ntheta, double[] theta, int thetaoff,
+			double[] x, int xoff, double[] y, int yoff,
+			byte[] stat, int statoff)
+    {
+	if (! (prj instanceof CylindricalProjection))
+	    throw unsupported("fwdGrid");
+	((CylindricalProjection) prj).fwdGrid(nphi, phi, phioff,
+	    ntheta, theta, thetaoff, x, xoff, y, yoff, stat, statoff);
+    }
+
+    /**
+     * same as CylindricalProjection.revGrid(int, double[], int, int,
+     * double[], int, double[], int, double[], int)
+     * @exception UnsupportedOperationException if the projection is not
+     *               cylindrical
+     */
+    public void revGrid(int nx, double[] x, int xoff,
+			int ny, double[] y, int yoff,
+			double[] phi, int phioff, double[] theta, int thetaoff)
+	throws PixelBeyondProjectionException
+    {
+	if (! (prj instanceof CylindricalProjection))
+	    throw unsupported("revGrid");
+	((CylindricalProjection) prj).revGrid(nx, x, xoff, ny, y, yoff,
+					      phi, phioff, theta, thetaoff);
+    }
+
+    /**
+     * same as CylindricalProjection.revGrid(int, double[], int, int,
+     * double[], int, double[], int, double[], int, byte[], int)
+     * @exception UnsupportedOperationException if the projection is not
+     *               cylindrical
+     */
+    public void revGrid(int nx, double[] x, int xoff,
+			int ny, double[] y, int yoff,
+			double[] phi, int phioff, double[] theta, int thetaoff,
+			byte[] stat, int statoff)
+    {
+	if (! (prj instanceof CylindricalProjection))
+	    throw unsupported("revGrid");
+	((CylindricalProjection) prj).revGrid(nx, x, xoff, ny, y, yoff,
+					      phi, phioff, theta, thetaoff,
+					      stat, statoff);
+    }
+
+    /**
+     * same as the form of MOLProjection.fwd() that takes a SolverStats
+     * @exception UnsupportedOperationException if the projection is not
+     *               MOL
+     */
+    public void fwd(int ncoord, double[] phi, int phioff,
+		    double[] theta, int thetaoff, int instride,
+		    double[] x, int xoff, double[] y, int yoff, int outstride,
+		    byte[] stat, int statoff, boolean seed, SolverStats stats)
+    {
+	if (! (prj instanceof MOLProjection)) throw unsupported("fwd");
+	((MOLProjection) prj).fwd(ncoord, phi, phioff, theta, thetaoff,
+				  instride, x, xoff, y, yoff, outstride,
+				  stat, statoff, seed, stats);
+    }
+
+    /**
+     * same as the form of rev() that takes a SolverStats, as provided by
+     * AIRProjection, ZPNProjection and PCOProjection
+     * @exception UnsupportedOperationException if the projection is not
+     *               one of these
+     */
+    public void rev(int ncoord, double[] x, int xoff,
+		    double[] y, int yoff, int instride,
+		    double[] phi, int phioff, double[] theta, int thetaoff,
+		    int outstride, byte[] stat, int statoff,
+		    boolean seed, SolverStats stats)
+	throws PixelBeyondProjectionException
+    {
+	if (prj instanceof AIRProjection) {
+	    ((AIRProjection) prj).rev(ncoord, x, xoff, y, yoff, instride,
+				      phi, phioff, theta, thetaoff, outstride,
+				      stat, statoff, seed, stats);
+	} else if (prj instanceof ZPNProjection) {
+	    ((ZPNProjection) prj).rev(ncoord, x, xoff, y, yoff, instride,
+				      phi, phioff, theta, thetaoff, outstride,
+				      stat, statoff, seed, stats);
+	} else if (prj instanceof PCOProjection) {
+	    ((PCOProjection) prj).rev(ncoord, x, xoff, y, yoff, instride,
+				      phi, phioff, theta, thetaoff, outstride,
+				      stat, statoff, seed, stats);
+	} else {
+	    throw unsupported("rev");
+	}
+    }
+
+    private UnsupportedOperationException unsupported(String method) {
+	return new UnsupportedOperationException(
+	    getProjectionCode() + " does not support this form of " + method);
+    }
+
+    public double getR0() { return prj.getR0(); }
+
+    public double[] getProjParm() { return prj.getProjParm(); }
+
+    public String getProjectionCode() { return prj.getProjectionCode(); }
+
+    public TrigProvider getTrigProvider() { return prj.getTrigProvider(); }
+
+    /**
+     * not supported:  an ImmutableProjection cannot be changed
+     * @exception UnsupportedOperationException always
+     */
+    public void setR0(double r0) {
+	throw new UnsupportedOperationException(
+	    "ImmutableProjection cannot be changed");
+    }
+
+    /**
+     * not supported:  an ImmutableProjection cannot be changed
+     * @exception UnsupportedOperationException always
+     */
+    public void setProjParm(double[] p) {
+	throw new UnsupportedOperationException(
+	    "ImmutableProjection cannot be changed");
+    }
+
+    /**
+     * not supported:  an ImmutableProjection cannot be changed
+     * @exception UnsupportedOperationException always
+     */
+    public void setTrigProvider(TrigProvider trig) {
+	throw new UnsupportedOperationException(
+	    "ImmutableProjection cannot be changed");
+    }
+}
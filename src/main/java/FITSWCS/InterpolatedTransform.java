@@ -0,0 +1,554 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS;
+
+import FITSWCS.exceptions.*;
+
+/**
+ * an approximation to one direction of a 2-dimensional WCS over a
+ * rectangular region, for applications such as resampling that transform
+ * very many closely spaced positions.  The region is divided into a
+ * quadtree of cells; in each cell the exact transformation is sampled at
+ * a small set of nodes and positions within it are interpolated from
+ * them. <p>
+ *
+ * A cell is accepted only if the interpolation agrees with the exact
+ * transformation to within half the tolerance at a set of test points
+ * placed midway between the nodes (for a BILINEAR cell, the midpoints of
+ * its edges and its center); otherwise it is split into four, down to a
+ * maximum depth.  Cells that still fail at the maximum depth, or in which
+ * any node or test point cannot be transformed (as around a discontinuity
+ * or the edge of the projection), are evaluated exactly, as are positions
+ * outside the region.  Four such cells sharing a parent are merged into
+ * it, so that regions that cannot be interpolated cost little to keep.
+ * For pixel-to-world approximations the error is measured as an angle on
+ * the sky in degrees, and for world-to-pixel approximations as a distance
+ * in pixels. <p>
+ *
+ * Since the error is checked only at the test points, the tolerance
+ * is not a strict bound, but the halving of it allows for the error
+ * between test points of a smooth transformation, for which the
+ * interpolation error varies smoothly across a cell. <p>
+ *
+ * An InterpolatedTransform is not modified once built and may be used by
+ * any number of threads; the WCS must not be modified while it is in
+ * use.
+ */
+public class InterpolatedTransform {
+
+    /**
+     * interpolation from the 4 corners of each cell
+     */
+    public final static int BILINEAR = 1;
+
+    /**
+     * interpolation from a 3 by 3 grid of nodes in each cell: its corners,
+     * the midpoints of its edges and its center
+     */
+    public final static int BIQUADRATIC = 2;
+
+    /**
+     * interpolation from a 4 by 4 grid of nodes in each cell, spaced by a
+     * third of its width
+     */
+    public final static int BICUBIC = 3;
+
+    /**
+     * the default maximum depth of the quadtree, at which the region is
+     * divided into at most 256 by 256 cells
+     */
+    public final static int DEFAULT_MAX_DEPTH = 8;
+
+    /**
+     * the depth to which the region is always divided, so that the test
+     * points sample it adequately
+     */
+    private final static int MIN_DEPTH = 2;
+
+    protected final WCS wcs;
+    protected final boolean reverse;
+    protected final int order;
+    protected final double u0, v0, u1, v1, tol;
+
+    // the index of the longitude in the output, or -1, and the sign of
+    // the range to which output longitudes are normalized
+    private final int lngout, latout;
+    private final boolean negative;
+
+    // the quadtree: the first of the four children of each cell (0 for a
+    // leaf), and the offset of each leaf's node values (-1 if exact)
+    private int[] child = new int[64], coef = new int[64];
+    private double[] values = new double[1024];
+    private int ncell = 0, nvalue = 0, nleaf = 0, nexact = 0, depth = 0;
+    private long nsample = 0;
+
+    // scratch space used while building
+    private final int nnode, ncheck;
+    private final double[] nodein, nodeout, checkin, checkout, interp;
+    private final double[] ws, wt;
+    private final byte[] nodestat, checkstat;
+
+    // the denominators of the Lagrange weights of the nodes along one
+    // side of a cell
+    private final double[] denom;
+
+    /**
+     * create an approximation to wcs.rev() over a region of pixel
+     * coordinates, using BICUBIC interpolation and the default maximum
+     * depth.
+     * @param wcs   a WCS with 2 axes
+     * @param x0    the lower limit of the first pixel coordinate
+     * @param y0    the lower limit of the second pixel coordinate
+     * @param x1    the upper limit of the first pixel coordinate
+     * @param y1    the upper limit of the second pixel coordinate
+     * @param tol   the tolerance, in degrees (or in the units of the world
+     *              coordinates, if they are not celestial)
+     */
+    public static InterpolatedTransform reverse(WCS wcs, double x0, double y0,
+						double x1, double y1,
+						double tol)
+    {
+	return new InterpolatedTransform(wcs, true, x0, y0, x1, y1, tol,
+					 BICUBIC, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * create an approximation to wcs.fwd() over a region of world
+     * coordinates, using BICUBIC interpolation and the default maximum
+     * depth.
+     * @param wcs   a WCS with 2 axes
+     * @param w0    the lower limit of the first world coordinate
+     * @param w1    the lower limit of the second world coordinate
+     * @param w2    the upper limit of the first world coordinate
+     * @param w3    the upper limit of the second world coordinate
+     * @param tol   the tolerance, in pixels
+     */
+    public static InterpolatedTransform forward(WCS wcs, double w0, double w1,
+						double w2, double w3,
+						double tol)
+    {
+	return new InterpolatedTransform(wcs, false, w0, w1, w2, w3, tol,
+					 BICUBIC, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * create an approximation to one direction of a WCS
+     * @param wcs       a WCS with 2 axes
+     * @param reverse   true to approximate wcs.rev() over a region of
+     *                  pixel coordinates, false for wcs.fwd() over a
+     *                  region of world coordinates
+     * @param u0, v0    the lower limits of the first and second input
+     *                  coordinates
+     * @param u1, v1    the upper limits of the first and second input
+     *                  coordinates
+     * @param tol       the tolerance, in degrees for reverse (or the
+     *                  units of the world coordinates, if they are not
+     *                  celestial) and in pixels for forward
+     * @param order     BILINEAR, BIQUADRATIC or BICUBIC
+     * @param maxdepth  the maximum depth of the quadtree
+     * @exception IllegalArgumentException if wcs does not have 2 axes,
+     *               the region is empty, tol is not positive, or order
+     *               is not recognized
+     */
+    public InterpolatedTransform(WCS wcs, boolean reverse,
+				 double u0, double v0, double u1, double v1,
+				 double tol, int order, int maxdepth)
+    {
+	if (wcs.getNaxis() != 2) throw new IllegalArgumentException(
+	    "WCS must have 2 axes, not " + wcs.getNaxis());
+	if (! (u0 < u1 && v0 < v1)) throw new IllegalArgumentException(
+	    "empty region");
+	if (! (tol > 0.0))
+	    throw new IllegalArgumentException("tolerance: " + tol);
+	if (order != BILINEAR && order != BIQUADRATIC && order != BICUBIC)
+	    throw new IllegalArgumentException("order: " + order);
+
+	this.wcs = wcs;
+	this.reverse = reverse;
+	this.order = order;
+	this.u0 = u0;
+	this.v0 = v0;
+	this.u1 = u1;
+	this.v1 = v1;
+	this.tol = tol;
+
+	if (reverse && wcs.getLngAxis() >= 0) {
+	    lngout = wcs.getLngAxis();
+	    latout = wcs.getLatAxis();
+	    negative = wcs.getSphericalTransform().getEuler()[0] < 0.0;
+	} else {
+	    lngout = latout = -1;
+	    negative = false;
+	}
+
+	nnode = (order+1)*(order+1);
+	ncheck = 2*order*(order+1) + order*order;
+	nodein = new double[2*nnode];
+	nodeout = new double[2*nnode];
+	nodestat = new byte[nnode];
+	checkin = new double[2*ncheck];
+	checkout = new double[2*ncheck];
+	checkstat = new byte[ncheck];
+	interp = new double[2];
+	ws = new double[order+1];
+	wt = new double[order+1];
+
+	denom = new double[order+1];
+	for (int i = 0; i <= order; i++) {
+	    denom[i] = 1.0;
+	    for (int j = 0; j <= order; j++)
+		if (j != i) denom[i] *= (double) (i - j)/order;
+	}
+
+	ncell = 1;
+	build(0, u0, v0, u1, v1, 0, maxdepth);
+    }
+
+    public WCS getWCS() { return wcs; }
+    public boolean isReverse() { return reverse; }
+    public int getOrder() { return order; }
+    public double getTolerance() { return tol; }
+
+    /**
+     * return the number of cells in which positions are interpolated
+     */
+    public int getCellCount() { return nleaf - nexact; }
+
+    /**
+     * return the number of cells in which positions are evaluated exactly
+     */
+    public int getExactCellCount() { return nexact; }
+
+    /**
+     * return the depth of the deepest cell
+     */
+    public int getDepth() { return depth; }
+
+    /**
+     * return the number of exact evaluations made in building the
+     * approximation
+     */
+    public long getSampleCount() { return nsample; }
+
+    /**
+     * build the subtree for cell c, covering [ua,ub] by [va,vb] at the
+     * given level, and return true if it is a single exact leaf
+     */
+    private boolean build(int c, double ua, double va, double ub, double vb,
+			  int level, int maxdepth)
+    {
+	if (level > depth) depth = level;
+	boolean ok = level >= MIN_DEPTH && sample(ua, va, ub, vb);
+
+	if (! ok && level < maxdepth) {
+	    int first = ncell;
+	    ensure(ncell + 4);
+	    ncell += 4;
+	    child[c] = first;
+	    coef[c] = -1;
+
+	    double um = 0.5*(ua + ub), vm = 0.5*(va + vb);
+	    boolean exact =
+		build(first,   ua, va, um, vm, level+1, maxdepth) &
+		build(first+1, um, va, ub, vm, level+1, maxdepth) &
+		build(first+2, ua, vm, um, vb, level+1, maxdepth) &
+		build(first+3, um, vm, ub, vb, level+1, maxdepth);
+	    if (! exact) return false;
+
+	    // merge four exact children; being exact leaves, they were
+	    // the last cells allocated
+	    ncell = first;
+	    nleaf -= 3;
+	    nexact -= 3;
+	    child[c] = 0;
+	    return true;
+	}
+
+	child[c] = 0;
+	nleaf++;
+	if (! ok) {
+	    coef[c] = -1;
+	    nexact++;
+	    return true;
+	}
+
+	// keep the node values
+	if (nvalue + 2*nnode > values.length) {
+	    double[] v = new double[2*values.length];
+	    System.arraycopy(values, 0, v, 0, nvalue);
+	    values = v;
+	}
+	System.arraycopy(nodeout, 0, values, nvalue, 2*nnode);
+	coef[c] = nvalue;
+	nvalue += 2*nnode;
+	return false;
+    }
+
+    private void ensure(int n) {
+	if (n <= child.length) return;
+	int size = Math.max(n, 2*child.length);
+	int[] a = new int[size], b = new int[size];
+	System.arraycopy(child, 0, a, 0, ncell);
+	System.arraycopy(coef, 0, b, 0, ncell);
+	child = a;
+	coef = b;
+    }
+
+    /**
+     * sample the exact transformation at the nodes and test points of a
+     * cell, leaving the node values in nodeout, and return true if the
+     * interpolation meets the tolerance at every test point.
+     */
+    private boolean sample(double ua, double va, double ub, double vb) {
+	int n = order;
+	double du = ub - ua, dv = vb - va;
+
+	for (int j = 0, k = 0; j <= n; j++) {
+	    for (int i = 0; i <= n; i++, k++) {
+		nodein[2*k]   = ua + du*i/n;
+		nodein[2*k+1] = va + dv*j/n;
+	    }
+	}
+	if (! exact(nnode, nodein, nodeout, nodestat)) return false;
+	unwrap(nodeout, nnode);
+
+	// the test points, on a grid of half the node spacing, at the
+	// places not occupied by nodes
+	int m = 0;
+	for (int j = 0; j <= 2*n; j++) {
+	    for (int i = 0; i <= 2*n; i++) {
+		if (i % 2 == 0 && j % 2 == 0) continue;
+		checkin[2*m]   = ua + du*i/(2*n);
+		checkin[2*m+1] = va + dv*j/(2*n);
+		m++;
+	    }
+	}
+	if (! exact(ncheck, checkin, checkout, checkstat)) return false;
+
+	for (int j = 0, k = 0; j <= 2*n; j++) {
+	    for (int i = 0; i <= 2*n; i++) {
+		if (i % 2 == 0 && j % 2 == 0) continue;
+		interpolate(nodeout, 0, 0.5*i/n, 0.5*j/n, interp, ws, wt);
+		if (! (error(interp, checkout, 2*k) <= 0.5*tol)) return false;
+		k++;
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * transform n positions exactly, returning false if any fails
+     */
+    private boolean exact(int n, double[] in, double[] out, byte[] stat) {
+	nsample += n;
+	if (reverse) {
+	    wcs.rev(n, in, 0, 2, out, 0, 2, stat, 0);
+	} else {
+	    wcs.fwd(n, in, 0, 2, out, 0, 2, stat, 0);
+	}
+	for (int k = 0; k < n; k++)
+	    if (stat[k] != BatchStatus.OK) return false;
+	return true;
+    }
+
+    /**
+     * make the output longitudes of n nodes continuous with the first
+     */
+    private void unwrap(double[] out, int n) {
+	if (lngout < 0) return;
+	double ref = out[lngout];
+	for (int k = 1; k < n; k++) {
+	    double d = out[2*k+lngout] - ref;
+	    if (d > 180.0) {
+		out[2*k+lngout] -= 360.0;
+	    } else if (d < -180.0) {
+		out[2*k+lngout] += 360.0;
+	    }
+	}
+    }
+
+    /**
+     * return the difference between the interpolated position a and the
+     * exact position b[k], b[k+1]
+     */
+    private double error(double[] a, double[] b, int k) {
+	if (lngout < 0) {
+	    double dx = a[0] - b[k], dy = a[1] - b[k+1];
+	    return Math.sqrt(dx*dx + dy*dy);
+	}
+
+	double dlng = a[lngout] - b[k+lngout];
+	dlng -= 360.0*Math.floor(dlng/360.0 + 0.5);
+	dlng *= Math.cos(b[k+latout]*Projection.D2R);
+	double dlat = a[latout] - b[k+latout];
+	return Math.sqrt(dlng*dlng + dlat*dlat);
+    }
+
+    /**
+     * interpolate the values of a cell's nodes, starting at v[off], at
+     * the fractional position (s,t) within it, using ws and wt as scratch
+     * space for the weights
+     */
+    private void interpolate(double[] v, int off, double s, double t,
+			     double[] out, double[] ws, double[] wt)
+    {
+	if (order == BILINEAR) {
+	    double w00 = (1.0-s)*(1.0-t), w10 = s*(1.0-t),
+		   w01 = (1.0-s)*t,       w11 = s*t;
+	    out[0] = w00*v[off]   + w10*v[off+2] + w01*v[off+4] + w11*v[off+6];
+	    out[1] = w00*v[off+1] + w10*v[off+3] + w01*v[off+5] + w11*v[off+7];
+	    return;
+	}
+
+	weights(s, ws);
+	weights(t, wt);
+	double a0 = 0.0, a1 = 0.0;
+	for (int j = 0; j <= order; j++) {
+	    double b0 = 0.0, b1 = 0.0;
+	    for (int i = 0; i <= order; i++, off += 2) {
+		b0 += ws[i]*v[off];
+		b1 += ws[i]*v[off+1];
+	    }
+	    a0 += wt[j]*b0;
+	    a1 += wt[j]*b1;
+	}
+	out[0] = a0;
+	out[1] = a1;
+    }
+
+    /**
+     * set w to the Lagrange weights of the nodes along one side of a cell
+     * at the fractional position s
+     */
+    private void weights(double s, double[] w) {
+	for (int i = 0; i <= order; i++) {
+	    double p = 1.0;
+	    for (int j = 0; j <= order; j++)
+		if (j != i) p *= s - (double) j/order;
+	    w[i] = p/denom[i];
+	}
+    }
+
+    /**
+     * transform ncoord positions, as wcs.rev() or wcs.fwd() (according
+     * to the direction approximated) would with the same arguments, but
+     * interpolating where possible.
+     * @param in     array holding the input positions, as pairs
+     * @param inoff  the index of the first input position
+     * @param instride  the distance between input positions
+     * @param out    array to hold the output positions
+     * @param outoff the index of the first output position
+     * @param outstride the distance between output positions
+     * @param stat   array to receive the status of each position (see
+     *               BatchStatus)
+     * @param statoff the index of the first position's status
+     */
+    public void transform(int ncoord, double[] in, int inoff, int instride,
+			  double[] out, int outoff, int outstride,
+			  byte[] stat, int statoff)
+    {
+	if (stat == null) throw new NullPointerException("null stat array");
+	double[] a = new double[2];
+	double[] ws = new double[order+1], wt = new double[order+1];
+
+	for (int k = 0; k < ncoord; k++, inoff += instride,
+		 outoff += outstride)
+	{
+	    double u = in[inoff], v = in[inoff+1];
+	    int c = leaf(u, v, a);
+	    if (c < 0 || coef[c] < 0) {
+		if (reverse) {
+		    wcs.rev(1, in, inoff, 0, out, outoff, 0, stat, statoff+k);
+		} else {
+		    wcs.fwd(1, in, inoff, 0, out, outoff, 0, stat, statoff+k);
+		}
+		continue;
+	    }
+
+	    interpolate(values, coef[c], a[0], a[1], a, ws, wt);
+	    out[outoff]   = a[0];
+	    out[outoff+1] = a[1];
+	    if (lngout >= 0) out[outoff+lngout] = normalize(a[lngout]);
+	    stat[statoff+k] = BatchStatus.OK;
+	}
+    }
+
+    /**
+     * same as transform(in.length/2, in, 0, 2, out, 0, 2, stat, 0)
+     */
+    public void transform(double[] in, double[] out, byte[] stat) {
+	transform(in.length/2, in, 0, 2, out, 0, 2, stat, 0);
+    }
+
+    /**
+     * transform one position
+     * @exception InvalidCelestialTransformException if the position
+     *               cannot be transformed
+     */
+    public double[] transform(double[] in)
+	throws InvalidCelestialTransformException
+    {
+	double[] a = new double[2];
+	int c = leaf(in[0], in[1], a);
+	if (c < 0 || coef[c] < 0) return (reverse) ? wcs.rev(in) : wcs.fwd(in);
+
+	interpolate(values, coef[c], a[0], a[1], a,
+		    new double[order+1], new double[order+1]);
+	if (lngout >= 0) a[lngout] = normalize(a[lngout]);
+	return a;
+    }
+
+    /**
+     * return the leaf containing (u,v), setting st to the fractional
+     * position within it, or -1 if (u,v) is outside the region
+     */
+    private int leaf(double u, double v, double[] st) {
+	if (! (u >= u0 && u <= u1 && v >= v0 && v <= v1)) return -1;
+
+	double ua = u0, va = v0, ub = u1, vb = v1;
+	int c = 0;
+	while (child[c] != 0) {
+	    double um = 0.5*(ua + ub), vm = 0.5*(va + vb);
+	    int q = 0;
+	    if (u >= um) {
+		q = 1;
+		ua = um;
+	    } else {
+		ub = um;
+	    }
+	    if (v >= vm) {
+		q += 2;
+		va = vm;
+	    } else {
+		vb = vm;
+	    }
+	    c = child[c] + q;
+	}
+	st[0] = (u - ua)/(ub - ua);
+	st[1] = (v - va)/(vb - va);
+	return c;
+    }
+
+    /**
+     * bring an interpolated longitude into the range used by
+     * SphericalTransform
+     */
+    private double normalize(double lng) {
+	if (negative) {
+	    if (lng > 0.0) lng -= 360.0;
+	    if (lng < -360.0) lng += 360.0;
+	} else {
+	    if (lng < 0.0) lng += 360.0;
+	    if (lng > 360.0) lng -= 360.0;
+	}
+	return lng;
+    }
+}
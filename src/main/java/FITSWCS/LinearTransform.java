@@ -77,12 +77,12 @@ import FITSWCS.exceptions.SingularMatrixException;
  *---------------------------------------------------------------------------*/
 public class LinearTransform {
 
-    protected int naxis=0;
-    protected double[] crpix, pc, cdelt;
+    protected final int naxis;
+    protected final double[] crpix, pc, cdelt;
 
     // Intermediates
-    protected double[] piximg;
-    protected double[] imgpix;
+    protected final double[] piximg;
+    protected final double[] imgpix;
 
     /**
      * create a LinearTransform object given the matrices describing the 
@@ -105,6 +105,16 @@ public class LinearTransform {
     public LinearTransform(int naxis, double[] crpix, double[][] pc, 
 			   double[] cdelt) 
 	throws ArrayIndexOutOfBoundsException, SingularMatrixException
+    {
+	this(naxis, crpix, flatten(naxis, pc), cdelt);
+    }
+
+    /**
+     * return the (naxis*naxis)-length form of a 2D PC matrix, filling
+     * missing elements from the unit matrix
+     */
+    private static double[] flatten(int naxis, double[][] pc)
+	throws ArrayIndexOutOfBoundsException
     {
 	int i, j;
 	if (naxis < 1) throw new ArrayIndexOutOfBoundsException("naxis: " +
@@ -129,7 +139,7 @@ public class LinearTransform {
 	    }
 	}
 
-	init(naxis, crpix, use, cdelt);
+	return use;
     }
 	
     /**
@@ -138,10 +148,6 @@ public class LinearTransform {
      * @param naxis Number of image axes
      * @param crpix naxis-length array containing the coordinate 
      *              reference pixel (CRPIXn).
-     * @param pc    (naxis*naxis)-length array containing the elements 
-     *              of the PC (pixel coordinate) transformation matrix;
-     *              the elements should be arranged such that the first 
-     *              axis is the most rapidly varying.  
      * @param cdelt naxis-length array containing the coordinate 
      *              increments (CDELTn).<p>
      * @exception ArrayIndexOutOfBoundsException if naxis < 1, 
@@ -150,11 +156,10 @@ public class LinearTransform {
      * @exception SingularMatrixException if pc represents a singular
      *              matrix.
      */
-    public LinearTransform(int naxis, double[] crpix, double[] pc, 
-			   double[] cdelt) 
+    public LinearTransform(int naxis, double[] crpix, double[] cdelt) 
 	throws ArrayIndexOutOfBoundsException, SingularMatrixException
     {
-	init(naxis, crpix, pc, cdelt);
+	this(naxis, crpix, (double[][])null, cdelt);
     }
 
     /**
@@ -163,6 +168,10 @@ public class LinearTransform {
      * @param naxis Number of image axes
      * @param crpix naxis-length array containing the coordinate 
      *              reference pixel (CRPIXn).
+     * @param pc    (naxis*naxis)-length array containing the elements 
+     *              of the PC (pixel coordinate) transformation matrix;
+     *              the elements should be arranged such that the first 
+     *              axis is the most rapidly varying.  
      * @param cdelt naxis-length array containing the coordinate 
      *              increments (CDELTn).<p>
      * @exception ArrayIndexOutOfBoundsException if naxis < 1, 
@@ -171,13 +180,7 @@ public class LinearTransform {
      * @exception SingularMatrixException if pc represents a singular
      *              matrix.
      */
-    public LinearTransform(int naxis, double[] crpix, double[] cdelt) 
-	throws ArrayIndexOutOfBoundsException, SingularMatrixException
-    {
-	this(naxis, crpix, (double[][])null, cdelt);
-    }
-
-    private void init(int naxis, double[] crpix, double[] pc, 
+    public LinearTransform(int naxis, double[] crpix, double[] pc, 
 			   double[] cdelt) 
 	throws ArrayIndexOutOfBoundsException, SingularMatrixException
     {
@@ -453,5 +456,119 @@ public class LinearTransform {
 
 	return imgcrd;
     }
+
+    /**
+     * Compute pixel coordinates from image coordinates for ncoord
+     * positions without allocating an array for each position.  The
+     * naxis image coordinates of the k-th position are read from
+     * consecutive elements of imgcrd starting at imgoff+k*imgstride,
+     * and its pixel coordinates are written to consecutive elements of
+     * pixcrd starting at pixoff+k*pixstride.  The output may overwrite
+     * the input.
+     */
+    public void fwd(int ncoord, double[] imgcrd, int imgoff, int imgstride,
+		    double[] pixcrd, int pixoff, int pixstride)
+    {
+	fwdBatch(ncoord, imgcrd, imgoff, imgstride, pixcrd, pixoff, pixstride,
+		 new double[naxis]);
+    }
+
+    /**
+     * same as fwd(imgcrd.length/naxis, imgcrd, 0, naxis, pixcrd, 0, naxis)
+     */
+    public void fwd(double[] imgcrd, double[] pixcrd) {
+	fwdBatch(imgcrd.length/naxis, imgcrd, 0, naxis, pixcrd, 0, naxis,
+		 new double[naxis]);
+    }
+
+    /**
+     * Compute image coordinates from pixel coordinates for ncoord
+     * positions without allocating an array for each position.  The
+     * naxis pixel coordinates of the k-th position are read from
+     * consecutive elements of pixcrd starting at pixoff+k*pixstride,
+     * and its image coordinates are written to consecutive elements of
+     * imgcrd starting at imgoff+k*imgstride.  The output may overwrite
+     * the input.
+     */
+    public void rev(int ncoord, double[] pixcrd, int pixoff, int pixstride,
+		    double[] imgcrd, int imgoff, int imgstride)
+    {
+	revBatch(ncoord, pixcrd, pixoff, pixstride, imgcrd, imgoff, imgstride,
+		 new double[naxis]);
+    }
+
+    /**
+     * same as rev(pixcrd.length/naxis, pixcrd, 0, naxis, imgcrd, 0, naxis)
+     */
+    public void rev(double[] pixcrd, double[] imgcrd) {
+	revBatch(pixcrd.length/naxis, pixcrd, 0, naxis, imgcrd, 0, naxis,
+		 new double[naxis]);
+    }
+
+    /**
+     * the engine behind the batch forms of fwd().  tmp is a scratch
+     * array of at least naxis elements which holds a copy of each input
+     * position so that the output may overwrite it.
+     */
+    protected void fwdBatch(int ncoord, double[] imgcrd, int imgoff,
+			    int imgstride, double[] pixcrd, int pixoff,
+			    int pixstride, double[] tmp)
+    {
+	int i, ij, j;
+	double s;
+
+	for (int k = 0; k < ncoord; k++) {
+	    for (j = 0; j < naxis; j++) {
+		tmp[j] = imgcrd[imgoff+j];
+	    }
+
+	    for (i = 0, ij = 0; i < naxis; i++) {
+		s = 0.0;
+		for (j = 0; j < naxis; j++, ij++) {
+		    s += imgpix[ij] * tmp[j];
+		}
+		pixcrd[pixoff+i] = s + crpix[i];
+	    }
+
+	    imgoff += imgstride;
+	    pixoff += pixstride;
+	}
+    }
+
+    /**
+     * the engine behind the batch forms of rev().  tmp is a scratch
+     * array of at least naxis elements which holds the offsets of each
+     * input position from the reference pixel so that the output may
+     * overwrite it.
+     */
+    protected void revBatch(int ncoord, double[] pixcrd, int pixoff,
+			    int pixstride, double[] imgcrd, int imgoff,
+			    int imgstride, double[] tmp)
+    {
+	int i, ij, j;
+	double s;
+
+	for (int k = 0; k < ncoord; k++) {
+	    for (j = 0; j < naxis; j++) {
+		tmp[j] = pixcrd[pixoff+j] - crpix[j];
+	    }
+
+	    for (i = 0, ij = 0; i < naxis; i++) {
+		s = 0.0;
+		for (j = 0; j < naxis; j++, ij++) {
+		    s += piximg[ij] * tmp[j];
+		}
+		imgcrd[imgoff+i] = s;
+	    }
+
+	    pixoff += pixstride;
+	    imgoff += imgstride;
+	}
+    }
+
+    /**
+     * return the number of axes handled by this transform
+     */
+    public int getNaxis() { return naxis; }
 	
 }
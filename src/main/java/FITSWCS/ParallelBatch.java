@@ -0,0 +1,372 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS;
+
+import FITSWCS.exceptions.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * a class for applying the batch transformations of CelestialTransform,
+ * LinearTransform and WCS to very large arrays of positions using
+ * several threads.  The positions are split into chunks of consecutive
+ * positions which are transformed in parallel on a ForkJoinPool; since
+ * each chunk is handed to the ordinary batch method, the results are
+ * identical to those of the sequential path. <p>
+ *
+ * Three parameters control the splitting:  the pool on which the chunks
+ * are run; the chunk size, which should be small enough that a chunk's
+ * input and output fit comfortably in cache; and the sequential cutoff,
+ * the number of positions below which the whole batch is simply done in
+ * the calling thread. <p>
+ *
+ * The methods take the same arguments as the batch methods they wrap,
+ * preceded by the transform object to use; the transform must not be
+ * modified while a parallel batch is in progress.  When a batch form
+ * that throws exceptions encounters invalid positions, the exception
+ * thrown is the one the sequential path would have thrown (that for the
+ * first invalid position), though the outputs for positions following
+ * it may have been written.
+ */
+public class ParallelBatch {
+
+    /**
+     * the default number of positions in a chunk
+     */
+    public final static int DEFAULT_CHUNK = 4096;
+
+    /**
+     * the default number of positions below which a batch is not split
+     */
+    public final static int DEFAULT_CUTOFF = 16384;
+
+    private static ForkJoinPool defaultPool = null;
+
+    protected ForkJoinPool pool;
+    protected int chunk, cutoff;
+
+    /**
+     * create a ParallelBatch that uses a shared pool with one thread for
+     * each available processor and the default chunk size and cutoff
+     */
+    public ParallelBatch() {
+	this(getDefaultPool(), DEFAULT_CHUNK, DEFAULT_CUTOFF);
+    }
+
+    /**
+     * create a ParallelBatch
+     * @param pool    the pool to run chunks on
+     * @param chunk   the number of positions in a chunk
+     * @param cutoff  the number of positions below which a batch is done
+     *                sequentially in the calling thread
+     * @exception IllegalArgumentException if chunk < 1 or cutoff < 0
+     */
+    public ParallelBatch(ForkJoinPool pool, int chunk, int cutoff) {
+	if (pool == null) throw new NullPointerException("null pool");
+	if (chunk < 1)
+	    throw new IllegalArgumentException("chunk: " + chunk);
+	if (cutoff < 0)
+	    throw new IllegalArgumentException("cutoff: " + cutoff);
+	this.pool = pool;
+	this.chunk = chunk;
+	this.cutoff = cutoff;
+    }
+
+    /**
+     * return the shared pool used by the default constructor
+     */
+    public synchronized static ForkJoinPool getDefaultPool() {
+	if (defaultPool == null) defaultPool = new ForkJoinPool();
+	return defaultPool;
+    }
+
+    public ForkJoinPool getPool() { return pool; }
+    public int getChunkSize() { return chunk; }
+    public int getCutoff() { return cutoff; }
+
+    /**
+     * same as cel.fwd(ncoord, lng, lngoff, lat, latoff, instride, x,
+     * xoff, y, yoff, outstride), done in parallel
+     */
+    public void fwd(final CelestialTransform cel, int ncoord,
+		    final double[] lng, final int lngoff,
+		    final double[] lat, final int latoff, final int instride,
+		    final double[] x, final int xoff,
+		    final double[] y, final int yoff, final int outstride)
+	throws InvalidCelestialTransformException
+    {
+	try {
+	    run(ncoord, new Chunk() {
+		public void run(int k, int n) throws FITSWCSException {
+		    cel.fwd(n, lng, lngoff+k*instride, lat, latoff+k*instride,
+			    instride, x, xoff+k*outstride, y, yoff+k*outstride,
+			    outstride);
+		}
+	    });
+	}
+	catch (InvalidCelestialTransformException ex) { throw ex; }
+	catch (FITSWCSException ex) { throw new InternalError(ex.getMessage()); }
+    }
+
+    /**
+     * same as cel.fwd(ncoord, lng, lngoff, lat, latoff, instride, x,
+     * xoff, y, yoff, outstride, stat, statoff), done in parallel
+     */
+    public void fwd(final CelestialTransform cel, int ncoord,
+		    final double[] lng, final int lngoff,
+		    final double[] lat, final int latoff, final int instride,
+		    final double[] x, final int xoff,
+		    final double[] y, final int yoff, final int outstride,
+		    final byte[] stat, final int statoff)
+    {
+	if (stat == null) throw new NullPointerException("null stat array");
+	runQuietly(ncoord, new Chunk() {
+	    public void run(int k, int n) {
+		cel.fwd(n, lng, lngoff+k*instride, lat, latoff+k*instride,
+			instride, x, xoff+k*outstride, y, yoff+k*outstride,
+			outstride, stat, statoff+k);
+	    }
+	});
+    }
+
+    /**
+     * same as cel.rev(ncoord, x, xoff, y, yoff, instride, lng, lngoff,
+     * lat, latoff, outstride), done in parallel
+     */
+    public void rev(final CelestialTransform cel, int ncoord,
+		    final double[] x, final int xoff,
+		    final double[] y, final int yoff, final int instride,
+		    final double[] lng, final int lngoff,
+		    final double[] lat, final int latoff, final int outstride)
+	throws InvalidCelestialTransformException
+    {
+	try {
+	    run(ncoord, new Chunk() {
+		public void run(int k, int n) throws FITSWCSException {
+		    cel.rev(n, x, xoff+k*instride, y, yoff+k*instride, instride,
+			    lng, lngoff+k*outstride, lat, latoff+k*outstride,
+			    outstride);
+		}
+	    });
+	}
+	catch (InvalidCelestialTransformException ex) { throw ex; }
+	catch (FITSWCSException ex) { throw new InternalError(ex.getMessage()); }
+    }
+
+    /**
+     * same as cel.rev(ncoord, x, xoff, y, yoff, instride, lng, lngoff,
+     * lat, latoff, outstride, stat, statoff), done in parallel
+     */
+    public void rev(final CelestialTransform cel, int ncoord,
+		    final double[] x, final int xoff,
+		    final double[] y, final int yoff, final int instride,
+		    final double[] lng, final int lngoff,
+		    final double[] lat, final int latoff, final int outstride,
+		    final byte[] stat, final int statoff)
+    {
+	if (stat == null) throw new NullPointerException("null stat array");
+	runQuietly(ncoord, new Chunk() {
+	    public void run(int k, int n) {
+		cel.rev(n, x, xoff+k*instride, y, yoff+k*instride, instride,
+			lng, lngoff+k*outstride, lat, latoff+k*outstride,
+			outstride, stat, statoff+k);
+	    }
+	});
+    }
+
+    /**
+     * same as lin.fwd(ncoord, imgcrd, imgoff, imgstride, pixcrd, pixoff,
+     * pixstride), done in parallel
+     */
+    public void fwd(final LinearTransform lin, int ncoord,
+		    final double[] imgcrd, final int imgoff,
+		    final int imgstride, final double[] pixcrd,
+		    final int pixoff, final int pixstride)
+    {
+	runQuietly(ncoord, new Chunk() {
+	    public void run(int k, int n) {
+		lin.fwd(n, imgcrd, imgoff+k*imgstride, imgstride,
+			pixcrd, pixoff+k*pixstride, pixstride);
+	    }
+	});
+    }
+
+    /**
+     * same as lin.rev(ncoord, pixcrd, pixoff, pixstride, imgcrd, imgoff,
+     * imgstride), done in parallel
+     */
+    public void rev(final LinearTransform lin, int ncoord,
+		    final double[] pixcrd, final int pixoff,
+		    final int pixstride, final double[] imgcrd,
+		    final int imgoff, final int imgstride)
+    {
+	runQuietly(ncoord, new Chunk() {
+	    public void run(int k, int n) {
+		lin.rev(n, pixcrd, pixoff+k*pixstride, pixstride,
+			imgcrd, imgoff+k*imgstride, imgstride);
+	    }
+	});
+    }
+
+    /**
+     * same as wcs.fwd(ncoord, world, woff, wstride, pixcrd, pixoff,
+     * pixstride), done in parallel
+     */
+    public void fwd(final WCS wcs, int ncoord,
+		    final double[] world, final int woff, final int wstride,
+		    final double[] pixcrd, final int pixoff,
+		    final int pixstride)
+	throws InvalidCelestialTransformException
+    {
+	try {
+	    run(ncoord, new Chunk() {
+		public void run(int k, int n) throws FITSWCSException {
+		    wcs.fwd(n, world, woff+k*wstride, wstride,
+			    pixcrd, pixoff+k*pixstride, pixstride);
+		}
+	    });
+	}
+	catch (InvalidCelestialTransformException ex) { throw ex; }
+	catch (FITSWCSException ex) { throw new InternalError(ex.getMessage()); }
+    }
+
+    /**
+     * same as wcs.fwd(ncoord, world, woff, wstride, pixcrd, pixoff,
+     * pixstride, stat, statoff), done in parallel
+     */
+    public void fwd(final WCS wcs, int ncoord,
+		    final double[] world, final int woff, final int wstride,
+		    final double[] pixcrd, final int pixoff,
+		    final int pixstride, final byte[] stat, final int statoff)
+    {
+	if (stat == null) throw new NullPointerException("null stat array");
+	runQuietly(ncoord, new Chunk() {
+	    public void run(int k, int n) {
+		wcs.fwd(n, world, woff+k*wstride, wstride,
+			pixcrd, pixoff+k*pixstride, pixstride, stat, statoff+k);
+	    }
+	});
+    }
+
+    /**
+     * same as wcs.rev(ncoord, pixcrd, pixoff, pixstride, world, woff,
+     * wstride), done in parallel
+     */
+    public void rev(final WCS wcs, int ncoord,
+		    final double[] pixcrd, final int pixoff,
+		    final int pixstride, final double[] world,
+		    final int woff, final int wstride)
+	throws InvalidCelestialTransformException
+    {
+	try {
+	    run(ncoord, new Chunk() {
+		public void run(int k, int n) throws FITSWCSException {
+		    wcs.rev(n, pixcrd, pixoff+k*pixstride, pixstride,
+			    world, woff+k*wstride, wstride);
+		}
+	    });
+	}
+	catch (InvalidCelestialTransformException ex) { throw ex; }
+	catch (FITSWCSException ex) { throw new InternalError(ex.getMessage()); }
+    }
+
+    /**
+     * same as wcs.rev(ncoord, pixcrd, pixoff, pixstride, world, woff,
+     * wstride, stat, statoff), done in parallel
+     */
+    public void rev(final WCS wcs, int ncoord,
+		    final double[] pixcrd, final int pixoff,
+		    final int pixstride, final double[] world,
+		    final int woff, final int wstride,
+		    final byte[] stat, final int statoff)
+    {
+	if (stat == null) throw new NullPointerException("null stat array");
+	runQuietly(ncoord, new Chunk() {
+	    public void run(int k, int n) {
+		wcs.rev(n, pixcrd, pixoff+k*pixstride, pixstride,
+			world, woff+k*wstride, wstride, stat, statoff+k);
+	    }
+	});
+    }
+
+    /**
+     * a unit of work:  transform n positions starting with position k
+     */
+    protected interface Chunk {
+	public void run(int k, int n) throws FITSWCSException;
+    }
+
+    /**
+     * run a batch of ncoord positions, splitting it into chunks if it
+     * is large enough.  If any chunk throws an exception, the one from
+     * the chunk with the lowest starting position is rethrown.
+     */
+    protected void run(int ncoord, Chunk job) throws FITSWCSException {
+	if (ncoord < cutoff || ncoord <= chunk) {
+	    job.run(0, ncoord);
+	    return;
+	}
+
+	Split task = new Split(job, chunk, 0, ncoord);
+	pool.invoke(task);
+	if (task.failure != null) throw task.failure;
+    }
+
+    /**
+     * run a batch whose chunks cannot fail
+     */
+    protected void runQuietly(int ncoord, Chunk job) {
+	try {
+	    run(ncoord, job);
+	}
+	catch (FITSWCSException ex) {
+	    throw new InternalError(ex.getMessage());
+	}
+    }
+
+    /**
+     * a task that splits its range of positions in two, on a boundary
+     * between chunks of the given size, until it is no bigger than a
+     * chunk
+     */
+    static class Split extends RecursiveAction {
+	private final static long serialVersionUID = 1L;
+
+	final transient Chunk job;
+	final int chunk, start, n;
+	FITSWCSException failure = null;
+
+	Split(Chunk job, int chunk, int start, int n) {
+	    this.job = job;
+	    this.chunk = chunk;
+	    this.start = start;
+	    this.n = n;
+	}
+
+	protected void compute() {
+	    if (n <= chunk) {
+		try {
+		    job.run(start, n);
+		}
+		catch (FITSWCSException ex) {
+		    failure = ex;
+		}
+		return;
+	    }
+
+	    int nleft = ((n/chunk + 1)/2) * chunk;
+	    Split left = new Split(job, chunk, start, nleft);
+	    Split right = new Split(job, chunk, start+nleft, n-nleft);
+	    invokeAll(left, right);
+	    failure = (left.failure != null) ? left.failure : right.failure;
+	}
+    }
+}
@@ -0,0 +1,116 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS;
+
+/**
+ * a TrigProvider which evaluates short polynomials in place of the
+ * library functions. <p>
+ *
+ * The sine and cosine are reduced to the range [-45,45] degrees and
+ * evaluated from their Taylor series to the x^9 and x^10 terms; the
+ * absolute error is below 2e-9.  The arctangent is reduced to
+ * |u| <= 1/16 about one of nine tabulated points in [0,1] and evaluated
+ * from its series to the u^7 term; the error in the angles returned by
+ * atan2(), asin(), acos() and atan() is below 1e-10 degrees, except
+ * that asin() and acos() lose accuracy as the argument approaches 1 in
+ * the usual way.  Multiples of 90 degrees give exact results.
+ * @see TrigProvider#FAST
+ */
+public class PolynomialTrigProvider extends TrigProvider {
+
+    private final static double PI = Math.PI;
+
+    private final static double S1 = -1.0/6.0,
+				S2 =  1.0/120.0,
+				S3 = -1.0/5040.0,
+				S4 =  1.0/362880.0;
+    private final static double C1 = -1.0/2.0,
+				C2 =  1.0/24.0,
+				C3 = -1.0/720.0,
+				C4 =  1.0/40320.0,
+				C5 = -1.0/3628800.0;
+
+    /**
+     * atan(k/8) in radians for k = 0..8
+     */
+    private final static double[] ATAN = new double[9];
+    static {
+	for (int k = 0; k < ATAN.length; k++) ATAN[k] = Math.atan(k/8.0);
+    }
+
+    public void sincos(double angle, double[] sc) {
+
+	double c, s, x, x2;
+	long q;
+
+	q = (long) Math.rint(angle*(1.0/90.0));
+	x = (angle - 90.0*q)*d2r;
+	x2 = x*x;
+
+	s = x*(1.0 + x2*(S1 + x2*(S2 + x2*(S3 + x2*S4))));
+	c = 1.0 + x2*(C1 + x2*(C2 + x2*(C3 + x2*(C4 + x2*C5))));
+
+	switch ((int) (q & 3)) {
+	case 0:
+	    sc[0] =  s;
+	    sc[1] =  c;
+	    break;
+	case 1:
+	    sc[0] =  c;
+	    sc[1] = -s;
+	    break;
+	case 2:
+	    sc[0] = -s;
+	    sc[1] = -c;
+	    break;
+	default:
+	    sc[0] = -c;
+	    sc[1] =  s;
+	}
+    }
+
+    public double atan2(double y, double x) {
+
+	double a, ax, ay, t, tk, u, u2;
+	int k;
+
+	if (y == 0.0) {
+	    if (x >= 0.0) {
+		return 0.0;
+	    } else if (x < 0.0) {
+		return 180.0;
+	    }
+	} else if (x == 0.0) {
+	    if (y > 0.0) {
+		return 90.0;
+	    } else if (y < 0.0) {
+		return -90.0;
+	    }
+	}
+
+	ax = Math.abs(x);
+	ay = Math.abs(y);
+	t = (ay <= ax) ? ay/ax : ax/ay;
+
+	k = (int) (t*8.0 + 0.5);
+	tk = k/8.0;
+	u = (t - tk)/(1.0 + t*tk);
+	u2 = u*u;
+	a = ATAN[k] +
+	    u*(1.0 + u2*(-1.0/3.0 + u2*(1.0/5.0 - u2/7.0)));
+
+	if (ay > ax) a = PI/2.0 - a;
+	if (x < 0.0) a = PI - a;
+	if (y < 0.0) a = -a;
+
+	return a*r2d;
+    }
+}
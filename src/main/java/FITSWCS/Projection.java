@@ -79,7 +79,7 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public abstract class Projection implements ProjectionType {
+public abstract class Projection implements ProjectionType, BatchStatus {
 
     /**
      * The radius of the generating sphere for the projection, a linear
@@ -106,6 +106,12 @@ public abstract class Projection implements ProjectionType {
      */
     protected int n;
 
+    /**
+     * the trigonometric functions used by the transformations; the
+     * projection parameters themselves are always set up with TrigD.
+     */
+    protected TrigProvider trig = TrigProvider.EXACT;
+
     public final static double PI = Math.PI;
     public final static double D2R = PI / 180.0;
     public final static double R2D = 180.0 / PI;
@@ -162,6 +168,301 @@ public abstract class Projection implements ProjectionType {
     public double[] rev(double[] xy)
 	throws PixelBeyondProjectionException { return rev(xy[0], xy[1]); }
 
+    /**
+     * Compute (x,y) coordinates in the plane of projection for a set of
+     * ncoord native spherical coordinates (phi,theta) without allocating
+     * a result array for each position. <p>
+     *
+     * The k-th input position is read from phi[phioff+k*instride] and
+     * theta[thetaoff+k*instride], and its result is written to
+     * x[xoff+k*outstride] and y[yoff+k*outstride].  Thus, coordinates may
+     * be stored either in separate arrays or interleaved in a single array
+     * (e.g. phi = theta, thetaoff = phioff+1, and instride = 2).  Each
+     * position is read completely before its result is written, so the
+     * output may overwrite the input.
+     *
+     * @param ncoord    the number of positions to transform
+     * @param phi       array containing the native longitudes
+     * @param phioff    index of the first native longitude in phi
+     * @param theta     array containing the native latitudes
+     * @param thetaoff  index of the first native latitude in theta
+     * @param instride  index increment between successive input positions
+     * @param x         array to receive the projected x values
+     * @param xoff      index of the first x value in x
+     * @param y         array to receive the projected y values
+     * @param yoff      index of the first y value in y
+     * @param outstride index increment between successive output positions
+     * @exception PixelBeyondProjectionException if any position cannot
+     *             be projected; the results for the positions preceding
+     *             it will have been written.
+     */
+    public void fwd(int ncoord, double[] phi, int phioff,
+		    double[] theta, int thetaoff, int instride,
+		    double[] x, int xoff, double[] y, int yoff, int outstride)
+	throws PixelBeyondProjectionException
+    {
+	fwdBatch(ncoord, phi, phioff, theta, thetaoff, instride,
+		 x, xoff, y, yoff, outstride, null, 0);
+    }
+
+    /**
+     * same as fwd(phi.length, phi, 0, theta, 0, 1, x, 0, y, 0, 1)
+     */
+    public void fwd(double[] phi, double[] theta, double[] x, double[] y)
+	throws PixelBeyondProjectionException
+    {
+	fwdBatch(phi.length, phi, 0, theta, 0, 1, x, 0, y, 0, 1, null, 0);
+    }
+
+    /**
+     * Compute (x,y) coordinates in the plane of projection for a set of
+     * ncoord native spherical coordinates (phi,theta) without throwing
+     * exceptions.  This behaves like
+     * fwd(int, double[], int, double[], int, int, double[], int, double[],
+     * int, int) except that a position that cannot be projected has
+     * its x and y set to NaN and PIXEL_BEYOND_PROJECTION written to
+     * stat[statoff+k]; successfully projected positions have OK written
+     * there instead (see BatchStatus).
+     * @param stat      array to receive a status code for each position
+     * @param statoff   index of the first status code in stat
+     */
+    public void fwd(int ncoord, double[] phi, int phioff,
+		    double[] theta, int thetaoff, int instride,
+		    double[] x, int xoff, double[] y, int yoff, int outstride,
+		    byte[] stat, int statoff)
+    {
+	if (stat == null) throw new NullPointerException("null stat array");
+	try {
+	    fwdBatch(ncoord, phi, phioff, theta, thetaoff, instride,
+		     x, xoff, y, yoff, outstride, stat, statoff);
+	}
+	catch (PixelBeyondProjectionException ex) {
+	    throw statusError(ex);
+	}
+    }
+
+    /**
+     * same as fwd(phi.length, phi, 0, theta, 0, 1, x, 0, y, 0, 1, stat, 0)
+     */
+    public void fwd(double[] phi, double[] theta, double[] x, double[] y,
+		    byte[] stat)
+    {
+	fwd(phi.length, phi, 0, theta, 0, 1, x, 0, y, 0, 1, stat, 0);
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for a set of
+     * ncoord (x,y) positions in the plane of projection without allocating
+     * a result array for each position. <p>
+     *
+     * The k-th input position is read from x[xoff+k*instride] and
+     * y[yoff+k*instride], and its result is written to
+     * phi[phioff+k*outstride] and theta[thetaoff+k*outstride].  As with
+     * fwd(int, double[], int, double[], int, int, double[], int, double[],
+     * int, int), the output may overwrite the input.
+     *
+     * @param ncoord    the number of positions to transform
+     * @param x         array containing the projected x values
+     * @param xoff      index of the first x value in x
+     * @param y         array containing the projected y values
+     * @param yoff      index of the first y value in y
+     * @param instride  index increment between successive input positions
+     * @param phi       array to receive the native longitudes
+     * @param phioff    index of the first native longitude in phi
+     * @param theta     array to receive the native latitudes
+     * @param thetaoff  index of the first native latitude in theta
+     * @param outstride index increment between successive output positions
+     * @exception PixelBeyondProjectionException if any position cannot
+     *             be deprojected; the results for the positions preceding
+     *             it will have been written.
+     */
+    public void rev(int ncoord, double[] x, int xoff,
+		    double[] y, int yoff, int instride,
+		    double[] phi, int phioff, double[] theta, int thetaoff,
+		    int outstride)
+	throws PixelBeyondProjectionException
+    {
+	revBatch(ncoord, x, xoff, y, yoff, instride,
+		 phi, phioff, theta, thetaoff, outstride, null, 0);
+    }
+
+    /**
+     * same as rev(x.length, x, 0, y, 0, 1, phi, 0, theta, 0, 1)
+     */
+    public void rev(double[] x, double[] y, double[] phi, double[] theta)
+	throws PixelBeyondProjectionException
+    {
+	revBatch(x.length, x, 0, y, 0, 1, phi, 0, theta, 0, 1, null, 0);
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for a set of
+     * ncoord (x,y) positions in the plane of projection without throwing
+     * exceptions.  This behaves like
+     * rev(int, double[], int, double[], int, int, double[], int, double[],
+     * int, int) except that a position that cannot be deprojected has
+     * its phi and theta set to NaN and PIXEL_BEYOND_PROJECTION written to
+     * stat[statoff+k]; successfully deprojected positions have OK written
+     * there instead (see BatchStatus).
+     * @param stat      array to receive a status code for each position
+     * @param statoff   index of the first status code in stat
+     */
+    public void rev(int ncoord, double[] x, int xoff,
+		    double[] y, int yoff, int instride,
+		    double[] phi, int phioff, double[] theta, int thetaoff,
+		    int outstride, byte[] stat, int statoff)
+    {
+	if (stat == null) throw new NullPointerException("null stat array");
+	try {
+	    revBatch(ncoord, x, xoff, y, yoff, instride,
+		     phi, phioff, theta, thetaoff, outstride, stat, statoff);
+	}
+	catch (PixelBeyondProjectionException ex) {
+	    throw statusError(ex);
+	}
+    }
+
+    /**
+     * same as rev(x.length, x, 0, y, 0, 1, phi, 0, theta, 0, 1, stat, 0)
+     */
+    public void rev(double[] x, double[] y, double[] phi, double[] theta,
+		    byte[] stat)
+    {
+	rev(x.length, x, 0, y, 0, 1, phi, 0, theta, 0, 1, stat, 0);
+    }
+
+    /**
+     * the engine behind the batch forms of fwd().  If stat is null, the
+     * first position that cannot be projected causes an exception to be
+     * thrown; otherwise, failures are recorded in stat and no exception
+     * is thrown.  <p>
+     *
+     * The subclasses in FITSWCS.projections override this method with
+     * loops that do not allocate any memory; this default implementation
+     * simply calls fwd(double, double) for each position.
+     */
+    protected void fwdBatch(int ncoord, double[] phi, int phioff,
+			    double[] theta, int thetaoff, int instride,
+			    double[] x, int xoff, double[] y, int yoff,
+			    int outstride, byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	double[] out;
+
+	for (int k = 0; k < ncoord; k++) {
+	    try {
+		out = fwd(phi[phioff], theta[thetaoff]);
+		x[xoff] = out[0];
+		y[yoff] = out[1];
+		if (stat != null) stat[statoff+k] = OK;
+	    }
+	    catch (PixelBeyondProjectionException ex) {
+		if (stat == null) throw ex;
+		reject(stat, statoff+k, x, xoff, y, yoff);
+	    }
+
+	    phioff += instride;  thetaoff += instride;
+	    xoff += outstride;   yoff += outstride;
+	}
+    }
+
+    /**
+     * the engine behind the batch forms of rev().  If stat is null, the
+     * first position that cannot be deprojected causes an exception to be
+     * thrown; otherwise, failures are recorded in stat and no exception
+     * is thrown.  <p>
+     *
+     * The subclasses in FITSWCS.projections override this method with
+     * loops that do not allocate any memory; this default implementation
+     * simply calls rev(double, double) for each position.
+     */
+    protected void revBatch(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	double[] out;
+
+	for (int k = 0; k < ncoord; k++) {
+	    try {
+		out = rev(x[xoff], y[yoff]);
+		phi[phioff]     = out[0];
+		theta[thetaoff] = out[1];
+		if (stat != null) stat[statoff+k] = OK;
+	    }
+	    catch (PixelBeyondProjectionException ex) {
+		if (stat == null) throw ex;
+		reject(stat, statoff+k, phi, phioff, theta, thetaoff);
+	    }
+
+	    xoff += instride;    yoff += instride;
+	    phioff += outstride; thetaoff += outstride;
+	}
+    }
+
+    /**
+     * mark a position that could not be transformed in batch mode:
+     * set both outputs to NaN and record PIXEL_BEYOND_PROJECTION in the
+     * status array.
+     */
+    protected static void reject(byte[] stat, int statidx,
+				 double[] a, int aidx, double[] b, int bidx)
+    {
+	a[aidx] = Double.NaN;
+	b[bidx] = Double.NaN;
+	stat[statidx] = PIXEL_BEYOND_PROJECTION;
+    }
+
+    /**
+     * deal with a position (phi,theta) that a batch form of fwd() found
+     * it cannot project:  if stat is null, throw the exception that
+     * fwd(phi, theta) throws for it; otherwise reject it as reject()
+     * does.
+     */
+    protected void fwdFailed(double phi, double theta, byte[] stat,
+			     int statidx, double[] x, int xidx,
+			     double[] y, int yidx)
+	throws PixelBeyondProjectionException
+    {
+	if (stat == null) {
+	    fwd(phi, theta);
+	    throw new InternalError(getProjectionCode() +
+		": batch failed where fwd() does not at (phi,theta) = (" +
+		phi + ", " + theta + ")");
+	}
+	reject(stat, statidx, x, xidx, y, yidx);
+    }
+
+    /**
+     * deal with a position (x,y) that a batch form of rev() found it
+     * cannot deproject, as fwdFailed() does for fwd()
+     */
+    protected void revFailed(double x, double y, byte[] stat, int statidx,
+			     double[] phi, int phiidx,
+			     double[] theta, int thetaidx)
+	throws PixelBeyondProjectionException
+    {
+	if (stat == null) {
+	    rev(x, y);
+	    throw new InternalError(getProjectionCode() +
+		": batch failed where rev() does not at (x,y) = (" +
+		x + ", " + y + ")");
+	}
+	reject(stat, statidx, phi, phiidx, theta, thetaidx);
+    }
+
+    /**
+     * return the error to throw when a batch method that was given a
+     * status array throws an exception anyway.  Such a method records
+     * its failures in the array instead, so this can only happen if it
+     * is broken.
+     */
+    protected static InternalError statusError(Exception ex) {
+	return new InternalError(ex.getMessage());
+    }
+
     /**
      * return the value of r0
      */
@@ -187,49 +488,69 @@ public abstract class Projection implements ProjectionType {
 	return out;
     }
 
+    /**
+     * return the provider of the trigonometric functions used by the
+     * transformations
+     */
+    public TrigProvider getTrigProvider() { return trig; }
+
+    /**
+     * set the provider of the trigonometric functions used by the
+     * transformations.  A null value restores TrigProvider.EXACT.
+     */
+    public void setTrigProvider(TrigProvider trig) {
+	this.trig = (trig == null) ? TrigProvider.EXACT : trig;
+    }
+
+    /**
+     * copy to prj, a projection of the same class with the same sphere
+     * radius, parameters and trigonometric functions, any choices made
+     * on this projection that these do not determine (such as the use of
+     * radial tables by the zenithal projections).  Subclasses that offer
+     * such choices override this; by default there are none to copy.
+     * ImmutableProjection.copyOf() relies on it.
+     */
+    protected void copyOptions(Projection prj) { }
+
+    /**
+     * return the 3-character code for this projection (e.g. "TAN"),
+     * derived from the name of its class
+     */
+    public String getProjectionCode() {
+	String name = getClass().getName();
+	name = name.substring(name.lastIndexOf('.')+1);
+	return (name.endsWith("Projection")) ?
+	    name.substring(0, name.length()-10) : name;
+    }
+
     public final static Projection getProjection(String pcode, 
 						 double[] projparm) 
 	throws ArrayIndexOutOfBoundsException, BadProjectionParameterException,
 	       UnsupportedProjectionException
     {
-	int i;
-	Projection out;
-	String pkg = "FITSWCS.projections.";
-
-	for(i=1; 
-	    i < NTYPES && 
-		! pcode.equalsIgnoreCase(code[i]); 
-	    i++);
-	if (i >= NTYPES) throw new UnsupportedProjectionException(pcode);
-
-	String classname = new String(pkg + code[i] + "Projection");
-	try {
-	    out = (Projection) Class.forName(classname).newInstance();
-	}
-	catch (ClassNotFoundException ex) {
-	    throw new UnsupportedProjectionException(pcode + 
-						     "(class not found)");
-	}
-	catch (IllegalAccessException ex) {
-	    throw new UnsupportedProjectionException(pcode + 
-						     "(unable to instantiate)");
-	}
-	catch (InstantiationException ex) {
-	    throw new UnsupportedProjectionException(pcode + 
-						     "(unable to instantiate)");
-	}
+	return getProjection(pcode, 0, projparm);
+    }
 
+    /**
+     * create a Projection of the given type with a given sphere radius,
+     * r0 (0 for the default of 180/pi), and projection parameters.  The
+     * type is looked up in the ProjectionRegistry.
+     */
+    public final static Projection getProjection(String pcode, double r0,
+						 double[] projparm) 
+	throws ArrayIndexOutOfBoundsException, BadProjectionParameterException,
+	       UnsupportedProjectionException
+    {
+	ProjectionRegistry.Entry type = ProjectionRegistry.get(pcode);
 	try {
-	    out.setProjParm(projparm);
+	    return type.getFactory().create(r0, projparm);
 	} catch (ArrayIndexOutOfBoundsException ex) {
 	    throw new ArrayIndexOutOfBoundsException(
-		code[i] + ex.getMessage());
+		type.getCode() + ex.getMessage());
 	} catch (BadProjectionParameterException ex) {
 	    throw new BadProjectionParameterException(
-		code[i] + ex.getMessage());
+		type.getCode() + ex.getMessage());
 	}
-
-	return out;
     }
 
     /**
@@ -238,12 +559,8 @@ public abstract class Projection implements ProjectionType {
      * name is not recognized.
      */
     public final static int projectionType(String name) {
-	int i;
-	for(i=0; i < NTYPES && 
-		! name.equalsIgnoreCase(code[i]); 
-	    i++);
-	if (i == NTYPES) i = -1;
-	return i;
+	ProjectionRegistry.Entry type = ProjectionRegistry.lookup(name);
+	return (type == null) ? -1 : type.getType();
     }
 
 }
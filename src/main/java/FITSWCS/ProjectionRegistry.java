@@ -0,0 +1,316 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS;
+
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+
+/**
+ * the table of projection types, keyed by their 3-character codes,
+ * through which Projection.getProjection(), CelestialTransform and
+ * SphericalTransform.getTheta0() find a projection.  Each entry holds a
+ * Factory that constructs the projection directly and the native latitude
+ * of the reference point, theta0, for that projection. <p>
+ *
+ * All of the standard projections (see ProjectionType) are registered
+ * when the class is loaded.  Other projections may be added with
+ * register(); a Projection subclass named XXXProjection should be
+ * registered under the code XXX so that getProjectionCode() agrees with
+ * it.  <p>
+ *
+ * Codes are matched without regard to case.  Lookups do not allocate
+ * memory or take a lock, and may proceed while another thread registers
+ * a projection.
+ */
+public final class ProjectionRegistry implements ProjectionType {
+
+    /**
+     * constructs a projection
+     */
+    public interface Factory {
+
+	/**
+	 * create a projection with sphere radius r0 (0 for the default of
+	 * 180/pi) and projection parameters p.  If p is null, the projection
+	 * is created without parameters, as by its no-argument constructor,
+	 * and setProjParm() must be called before it is used.
+	 */
+	public Projection create(double r0, double[] p)
+	    throws ArrayIndexOutOfBoundsException,
+		   BadProjectionParameterException;
+    }
+
+    /**
+     * a registered projection type
+     */
+    public static final class Entry {
+	final String code;
+	final int key, type, theta0parm;
+	final double theta0;
+	final Factory factory;
+
+	Entry(String code, int key, int type, double theta0, int theta0parm,
+	      Factory factory)
+	{
+	    this.code = code;
+	    this.key = key;
+	    this.type = type;
+	    this.theta0 = theta0;
+	    this.theta0parm = theta0parm;
+	    this.factory = factory;
+	}
+
+	/**
+	 * return the projection code, in upper case
+	 */
+	public String getCode() { return code; }
+
+	/**
+	 * return the index of this type in ProjectionType.code, or -1 if
+	 * it is not one of the standard types
+	 */
+	public int getType() { return type; }
+
+	/**
+	 * return the native latitude of the reference point without regard
+	 * to the projection parameters
+	 */
+	public double getTheta0() { return theta0; }
+
+	/**
+	 * return the native latitude of the reference point for the
+	 * projection parameters p; for the conic projections this is p[1].
+	 */
+	public double getTheta0(double[] p) {
+	    return (theta0parm >= 0 && p != null && p.length > theta0parm) ?
+		p[theta0parm] : theta0;
+	}
+
+	/**
+	 * return the factory for this type, or null if it has none (as
+	 * for NON)
+	 */
+	public Factory getFactory() { return factory; }
+    }
+
+    /**
+     * the hash table of entries, replaced as a whole on each registration
+     */
+    private static volatile Entry[] table = new Entry[64];
+
+    static {
+	for (int i = 0; i < NTYPES; i++) {
+	    double theta0 = (i <= AIR) ? 90.0 : 0.0;
+	    int parm = (i >= COP && i <= COO) ? 1 : -1;
+	    add(code[i], i, theta0, parm, (i == NON) ? null : new Builtin(i));
+	}
+    }
+
+    private ProjectionRegistry() { }
+
+    /**
+     * register a projection type, replacing any already registered
+     * under the same code.
+     * @param code     the 3-character projection code
+     * @param theta0   the native latitude of the reference point
+     * @param factory  the factory that constructs the projection
+     * @exception IllegalArgumentException if code is not 3 characters
+     *               long or factory is null
+     */
+    public static void register(String code, double theta0, Factory factory) {
+	register(code, theta0, -1, factory);
+    }
+
+    /**
+     * register a projection type whose reference point is at the native
+     * latitude given by a projection parameter, as for the conics,
+     * replacing any already registered under the same code.
+     * @param code       the 3-character projection code
+     * @param theta0     the native latitude of the reference point when
+     *                     the parameters are not known
+     * @param theta0parm the index of the projection parameter that gives
+     *                     the native latitude of the reference point, or
+     *                     -1 if it is always theta0
+     * @param factory    the factory that constructs the projection
+     * @exception IllegalArgumentException if code is not 3 characters
+     *               long or factory is null
+     */
+    public static void register(String code, double theta0, int theta0parm,
+				Factory factory)
+    {
+	if (factory == null)
+	    throw new IllegalArgumentException("null projection factory");
+	add(code, -1, theta0, theta0parm, factory);
+    }
+
+    /**
+     * return the entry for a projection code, or null if none is
+     * registered
+     */
+    public static Entry lookup(String code) {
+	int key = key(code);
+	if (key < 0) return null;
+
+	Entry[] t = table;
+	int mask = t.length - 1;
+	for (int i = hash(key) & mask; t[i] != null; i = (i+1) & mask) {
+	    if (t[i].key == key) return t[i];
+	}
+	return null;
+    }
+
+    /**
+     * return the entry for a projection code that has a factory
+     * @exception UnsupportedProjectionException if there is none
+     */
+    public static Entry get(String code)
+	throws UnsupportedProjectionException
+    {
+	Entry e = lookup(code);
+	if (e == null || e.factory == null)
+	    throw new UnsupportedProjectionException(code);
+	return e;
+    }
+
+    private static synchronized void add(String code, int type,
+					 double theta0, int theta0parm,
+					 Factory factory)
+    {
+	int key = key(code);
+	if (key < 0) throw new IllegalArgumentException(
+	    "projection code must be 3 characters: " + code);
+	Entry e = new Entry(code.toUpperCase(), key, type, theta0, theta0parm,
+			    factory);
+
+	// Copy the table, growing it to keep it at most a quarter full.
+	Entry[] old = table;
+	int n = 1;
+	for (int i = 0; i < old.length; i++)
+	    if (old[i] != null && old[i].key != key) n++;
+	int size = old.length;
+	while (size < 4*n) size *= 2;
+
+	Entry[] t = new Entry[size];
+	insert(t, e);
+	for (int i = 0; i < old.length; i++)
+	    if (old[i] != null && old[i].key != key) insert(t, old[i]);
+	table = t;
+    }
+
+    private static void insert(Entry[] t, Entry e) {
+	int mask = t.length - 1;
+	int i = hash(e.key) & mask;
+	while (t[i] != null) i = (i+1) & mask;
+	t[i] = e;
+    }
+
+    /**
+     * pack a 3-character code, in upper case, into an int, or return -1
+     * if it is not a 3-character code of 8-bit characters
+     */
+    private static int key(String code) {
+	if (code == null || code.length() != 3) return -1;
+	int key = 0;
+	for (int i = 0; i < 3; i++) {
+	    char c = code.charAt(i);
+	    if (c >= 'a' && c <= 'z') {
+		c -= 'a' - 'A';
+	    } else if (c > 0xff) {
+		return -1;
+	    }
+	    key = (key << 8) | c;
+	}
+	return key;
+    }
+
+    private static int hash(int key) {
+	int h = key * 0x9E3779B1;
+	return h ^ (h >>> 16);
+    }
+
+    /**
+     * the factory for the standard projections
+     */
+    static final class Builtin implements Factory {
+	final int type;
+
+	Builtin(int type) { this.type = type; }
+
+	public Projection create(double r0, double[] p)
+	    throws ArrayIndexOutOfBoundsException,
+		   BadProjectionParameterException
+	{
+	    Projection out;
+
+	    if (p == null) {
+		switch (type) {
+		  case AZP: out = new AZPProjection(); break;
+		  case TAN: out = new TANProjection(); break;
+		  case SIN: out = new SINProjection(); break;
+		  case STG: out = new STGProjection(); break;
+		  case ARC: out = new ARCProjection(); break;
+		  case ZPN: out = new ZPNProjection(); break;
+		  case ZEA: out = new ZEAProjection(); break;
+		  case AIR: out = new AIRProjection(); break;
+		  case CYP: out = new CYPProjection(); break;
+		  case CAR: out = new CARProjection(); break;
+		  case MER: out = new MERProjection(); break;
+		  case CEA: out = new CEAProjection(); break;
+		  case COP: out = new COPProjection(); break;
+		  case COD: out = new CODProjection(); break;
+		  case COE: out = new COEProjection(); break;
+		  case COO: out = new COOProjection(); break;
+		  case BON: out = new BONProjection(); break;
+		  case PCO: out = new PCOProjection(); break;
+		  case GLS: out = new GLSProjection(); break;
+		  case PAR: out = new PARProjection(); break;
+		  case AIT: out = new AITProjection(); break;
+		  case MOL: out = new MOLProjection(); break;
+		  case CSC: out = new CSCProjection(); break;
+		  case QSC: out = new QSCProjection(); break;
+		  case TSC: out = new TSCProjection(); break;
+		  default: return null;
+		}
+		out.setR0(r0);
+		return out;
+	    }
+
+	    switch (type) {
+	      case AZP: return new AZPProjection(r0, p);
+	      case TAN: return new TANProjection(r0, p);
+	      case SIN: return new SINProjection(r0, p);
+	      case STG: return new STGProjection(r0, p);
+	      case ARC: return new ARCProjection(r0, p);
+	      case ZPN: return new ZPNProjection(r0, p);
+	      case ZEA: return new ZEAProjection(r0, p);
+	      case AIR: return new AIRProjection(r0, p);
+	      case CYP: return new CYPProjection(r0, p);
+	      case CAR: return new CARProjection(r0, p);
+	      case MER: return new MERProjection(r0, p);
+	      case CEA: return new CEAProjection(r0, p);
+	      case COP: return new COPProjection(r0, p);
+	      case COD: return new CODProjection(r0, p);
+	      case COE: return new COEProjection(r0, p);
+	      case COO: return new COOProjection(r0, p);
+	      case BON: return new BONProjection(r0, p);
+	      case PCO: return new PCOProjection(r0, p);
+	      case GLS: return new GLSProjection(r0, p);
+	      case PAR: return new PARProjection(r0, p);
+	      case AIT: return new AITProjection(r0, p);
+	      case MOL: return new MOLProjection(r0, p);
+	      case CSC: return new CSCProjection(r0, p);
+	      case QSC: return new QSCProjection(r0, p);
+	      case TSC: return new TSCProjection(r0, p);
+	      default: return null;
+	    }
+	}
+    }
+}
@@ -0,0 +1,87 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS;
+
+/**
+ * counts of the work done by the iterative solutions in the batch
+ * transformations of the ZPN, AIR and PCO (reverse) and MOL (forward)
+ * projections.  A SolverStats object may be passed to the seeded batch
+ * forms of those transformations, which add to it one solution per
+ * position that needed an iterative solution.  Comparing the mean number
+ * of iterations with and without seeding shows what seeding saves. <p>
+ *
+ * A SolverStats object is not thread-safe; give each thread its own.
+ */
+public class SolverStats {
+
+    protected long solves = 0;
+    protected long iterations = 0;
+    protected long seeded = 0;
+    protected long fallbacks = 0;
+
+    /**
+     * record one solution that took niter iterations; seeded is true if
+     * it started from the solution for the previous position.
+     */
+    public void record(int niter, boolean seeded) {
+	solves++;
+	iterations += niter;
+	if (seeded) this.seeded++;
+    }
+
+    /**
+     * record that the starting point predicted from the previous position
+     * fell outside the interval known to contain the solution, so that
+     * the solution started as though unseeded.
+     */
+    public void recordFallback() { fallbacks++; }
+
+    /**
+     * return the number of iterative solutions recorded
+     */
+    public long getSolves() { return solves; }
+
+    /**
+     * return the total number of iterations over all solutions
+     */
+    public long getIterations() { return iterations; }
+
+    /**
+     * return the number of solutions that started from the previous one
+     */
+    public long getSeeded() { return seeded; }
+
+    /**
+     * return the number of solutions for which the seed was rejected
+     */
+    public long getFallbacks() { return fallbacks; }
+
+    /**
+     * return the mean number of iterations per solution, or 0 if none
+     * have been recorded
+     */
+    public double getMeanIterations() {
+	return (solves == 0) ? 0.0 : (double) iterations / solves;
+    }
+
+    /**
+     * set all counts to zero
+     */
+    public void reset() {
+	solves = iterations = seeded = fallbacks = 0;
+    }
+
+    public String toString() {
+	return solves + " solutions, " + iterations + " iterations (" +
+	    getMeanIterations() + " each), " + seeded + " seeded, " +
+	    fallbacks + " fallbacks";
+    }
+}
@@ -74,7 +74,18 @@ public class SphericalTransform {
 
     static final double tol = 1.0e-5;
 
-    protected double[] euler;
+    protected final double[] euler;
+
+    /**
+     * the rotation matrix derived from the Euler angles (see
+     * getRotationMatrix())
+     */
+    protected final double[] rot;
+
+    /**
+     * the trigonometric functions used by the transformations
+     */
+    protected final TrigProvider trig;
 
     /**
      * Create a SphericalTransform object (storing euler angles internally)
@@ -90,6 +101,8 @@ public class SphericalTransform {
 	throws BadReferenceParameterException
     {
 	euler = getEuler(reflong, reflat, 999.0, true, 90.0);
+	rot = getRotationMatrix(euler);
+	trig = TrigProvider.EXACT;
     }
 
     /**
@@ -107,6 +120,8 @@ public class SphericalTransform {
     {
 	double theta0 = getTheta0(pcode);
 	euler = getEuler(reflong, reflat, 999.0, true, theta0);
+	rot = getRotationMatrix(euler);
+	trig = TrigProvider.EXACT;
     }
 
     /**
@@ -123,6 +138,8 @@ public class SphericalTransform {
 	throws BadReferenceParameterException
     {
 	euler = getEuler(reflong, reflat, 999.0, true, theta0);
+	rot = getRotationMatrix(euler);
+	trig = TrigProvider.EXACT;
     }
 
     /**
@@ -145,6 +162,8 @@ public class SphericalTransform {
 	throws BadReferenceParameterException
     {
 	euler = getEuler(reflong, reflat, poleref, islongpole, theta0);
+	rot = getRotationMatrix(euler);
+	trig = TrigProvider.EXACT;
     }
 
     /**
@@ -177,6 +196,8 @@ public class SphericalTransform {
 	}
 	
 	euler = getEuler(ref[0], ref[1], poleref, islongpole, theta0);
+	rot = getRotationMatrix(euler);
+	trig = TrigProvider.EXACT;
     }
 
     /**
@@ -191,6 +212,21 @@ public class SphericalTransform {
 		"input Euler array must have at least 5 elements");
 	this.euler = new double[euler.length];
 	System.arraycopy(euler, 0, this.euler, 0, euler.length);
+	rot = getRotationMatrix(this.euler);
+	trig = TrigProvider.EXACT;
+    }
+
+    /**
+     * Create a SphericalTransform object with the same Euler angles as
+     * another but using the given trigonometric functions
+     * @param sph   the transform to copy
+     * @param trig  the trigonometric functions to use; if null,
+     *              TrigProvider.EXACT is used.
+     */
+    public SphericalTransform(SphericalTransform sph, TrigProvider trig) {
+	euler = sph.euler;
+	rot = sph.rot;
+	this.trig = (trig == null) ? TrigProvider.EXACT : trig;
     }
 
     /**
@@ -202,6 +238,11 @@ public class SphericalTransform {
 	return out;
     }
 
+    /**
+     * return the trigonometric functions used by this object
+     */
+    public TrigProvider getTrigProvider() { return trig; }
+
     /**
      * Do a forward transformation, returning the result, phi and theta, 
      * as a double
@@ -212,14 +253,14 @@ public class SphericalTransform {
      *            as a two element array
      */
     public double[] fwd(double lng, double lat) {
-	return SphericalTransform.fwd(lng, lat, euler);
+	return SphericalTransform.fwd(lng, lat, euler, trig);
     }
 
     /**
      * same as fwd(lnglat[0], lnglat[1])
      */
     public double[] fwd(double[] lnglat) {
-	return SphericalTransform.fwd(lnglat[0], lnglat[1], euler);
+	return SphericalTransform.fwd(lnglat[0], lnglat[1], euler, trig);
     }
 
     /**
@@ -232,14 +273,175 @@ public class SphericalTransform {
      *            two element array
      */
     public double[] rev(double phi, double theta) {
-	return SphericalTransform.rev(phi, theta, euler);
+	return SphericalTransform.rev(phi, theta, euler, trig);
     }
 
     /**
      * same as rev(phitheta[0], phitheta[1])
      */
     public double[] rev(double[] phitheta) {
-	return SphericalTransform.rev(phitheta[0], phitheta[1], euler);
+	return SphericalTransform.rev(phitheta[0], phitheta[1], euler, trig);
+    }
+
+    /**
+     * Do a forward transformation on ncoord positions without allocating
+     * any arrays.  The k-th position is read from lng[lngoff+k*instride]
+     * and lat[latoff+k*instride]; its native coordinates are written to
+     * phi[phioff+k*outstride] and theta[thetaoff+k*outstride].  The
+     * output may overwrite the input.
+     * @see #fwd(int, double[], int, double[], int, int, double[], int, double[], int, int, double[], byte[], int)
+     */
+    public void fwd(int ncoord, double[] lng, int lngoff,
+		    double[] lat, int latoff, int instride,
+		    double[] phi, int phioff, double[] theta, int thetaoff,
+		    int outstride)
+    {
+	SphericalTransform.fwd(ncoord, lng, lngoff, lat, latoff, instride,
+			       phi, phioff, theta, thetaoff, outstride,
+			       euler, trig, null, 0);
+    }
+
+    /**
+     * same as fwd(ncoord, lng, lngoff, lat, latoff, instride, phi, phioff,
+     * theta, thetaoff, outstride), but recording a status code for each
+     * position in stat (see BatchStatus).
+     */
+    public void fwd(int ncoord, double[] lng, int lngoff,
+		    double[] lat, int latoff, int instride,
+		    double[] phi, int phioff, double[] theta, int thetaoff,
+		    int outstride, byte[] stat, int statoff)
+    {
+	if (stat == null) throw new NullPointerException("null stat array");
+	SphericalTransform.fwd(ncoord, lng, lngoff, lat, latoff, instride,
+			       phi, phioff, theta, thetaoff, outstride,
+			       euler, trig, stat, statoff);
+    }
+
+    /**
+     * same as fwd(lng.length, lng, 0, lat, 0, 1, phi, 0, theta, 0, 1)
+     */
+    public void fwd(double[] lng, double[] lat, double[] phi, double[] theta)
+    {
+	SphericalTransform.fwd(lng.length, lng, 0, lat, 0, 1,
+			       phi, 0, theta, 0, 1, euler, trig, null, 0);
+    }
+
+    /**
+     * Do a reverse transformation on ncoord positions without allocating
+     * any arrays.  The k-th position is read from phi[phioff+k*instride]
+     * and theta[thetaoff+k*instride]; its celestial coordinates are
+     * written to lng[lngoff+k*outstride] and lat[latoff+k*outstride].
+     * The output may overwrite the input.
+     * @see #rev(int, double[], int, double[], int, int, double[], int, double[], int, int, double[], byte[], int)
+     */
+    public void rev(int ncoord, double[] phi, int phioff,
+		    double[] theta, int thetaoff, int instride,
+		    double[] lng, int lngoff, double[] lat, int latoff,
+		    int outstride)
+    {
+	SphericalTransform.rev(ncoord, phi, phioff, theta, thetaoff, instride,
+			       lng, lngoff, lat, latoff, outstride,
+			       euler, trig, null, 0);
+    }
+
+    /**
+     * same as rev(ncoord, phi, phioff, theta, thetaoff, instride, lng,
+     * lngoff, lat, latoff, outstride), but recording a status code for
+     * each position in stat (see BatchStatus).
+     */
+    public void rev(int ncoord, double[] phi, int phioff,
+		    double[] theta, int thetaoff, int instride,
+		    double[] lng, int lngoff, double[] lat, int latoff,
+		    int outstride, byte[] stat, int statoff)
+    {
+	if (stat == null) throw new NullPointerException("null stat array");
+	SphericalTransform.rev(ncoord, phi, phioff, theta, thetaoff, instride,
+			       lng, lngoff, lat, latoff, outstride,
+			       euler, trig, stat, statoff);
+    }
+
+    /**
+     * same as rev(phi.length, phi, 0, theta, 0, 1, lng, 0, lat, 0, 1)
+     */
+    public void rev(double[] phi, double[] theta, double[] lng, double[] lat)
+    {
+	SphericalTransform.rev(phi.length, phi, 0, theta, 0, 1,
+			       lng, 0, lat, 0, 1, euler, trig, null, 0);
+    }
+
+    /**
+     * return a copy of the rotation matrix equivalent to the Euler
+     * angles in use by this object (see getRotationMatrix(double[]))
+     */
+    public double[] getRotationMatrix() {
+	double[] out = new double[9];
+	System.arraycopy(rot, 0, out, 0, 9);
+	return out;
+    }
+
+    /**
+     * same as fwd(ncoord, lng, lngoff, lat, latoff, instride, phi,
+     * phioff, theta, thetaoff, outstride), but using the rotation
+     * matrix engine (see fwdMatrix())
+     */
+    public void fwdMatrix(int ncoord, double[] lng, int lngoff,
+			  double[] lat, int latoff, int instride,
+			  double[] phi, int phioff, double[] theta,
+			  int thetaoff, int outstride)
+    {
+	SphericalTransform.fwdMatrix(ncoord, lng, lngoff, lat, latoff,
+				     instride, phi, phioff, theta, thetaoff,
+				     outstride, rot, trig, null, 0);
+    }
+
+    /**
+     * same as rev(ncoord, phi, phioff, theta, thetaoff, instride, lng,
+     * lngoff, lat, latoff, outstride), but using the rotation matrix
+     * engine (see revMatrix())
+     */
+    public void revMatrix(int ncoord, double[] phi, int phioff,
+			  double[] theta, int thetaoff, int instride,
+			  double[] lng, int lngoff, double[] lat, int latoff,
+			  int outstride)
+    {
+	SphericalTransform.revMatrix(ncoord, phi, phioff, theta, thetaoff,
+				     instride, lng, lngoff, lat, latoff,
+				     outstride, rot, euler[0], trig, null, 0);
+    }
+
+    /**
+     * compute native coordinates for ncoord celestial unit vectors (see
+     * fwdCosines(int, double[], int, int, double[], int, double[], int,
+     * int, double[], byte[], int))
+     */
+    public void fwdCosines(int ncoord, double[] cel, int celoff,
+			   int instride, double[] phi, int phioff,
+			   double[] theta, int thetaoff, int outstride)
+    {
+	SphericalTransform.fwdCosines(ncoord, cel, celoff, instride,
+				      phi, phioff, theta, thetaoff, outstride,
+				      rot, trig, null, 0);
+    }
+
+    /**
+     * compute celestial unit vectors for ncoord native positions (see
+     * revCosines(int, double[], int, double[], int, int, double[], int,
+     * int, double[], byte[], int))
+     */
+    public void revCosines(int ncoord, double[] phi, int phioff,
+			   double[] theta, int thetaoff, int instride,
+			   double[] cel, int celoff, int outstride)
+    {
+	SphericalTransform.revCosines(ncoord, phi, phioff, theta, thetaoff,
+				      instride, cel, celoff, outstride,
+				      rot, trig, null, 0);
+    }
+
+    /**
+     * same as fwd(lng, lat, eul, TrigProvider.EXACT)
+     */
+    public static double[] fwd(double lng, double lat, double[] eul) {
+	return fwd(lng, lat, eul, TrigProvider.EXACT);
     }
 
     /**
@@ -259,33 +461,38 @@ public class SphericalTransform {
      *                  3: cos(eul[1])
      *                  4: sin(eul[1])
      *               </pre>
+     * @param trig the trigonometric functions to use
      * @return phi and theta, the longitude and latitude in the native 
      *            coordinate system of the projection in degrees, returned 
      *            as a two element array
      * @exception ArrayIndexOutOfBoundsException if eul has less than 5
      *               elements
      */
-    public static double[] fwd(double lng, double lat, double[] eul) {
+    public static double[] fwd(double lng, double lat, double[] eul,
+				   TrigProvider trig) {
 	double coslat, coslng, dlng, dphi, sinlat, sinlng, x, y, z;
 	double phi, theta;
+	double[] sc = new double[2];
 			   
-	coslat = TrigD.cos(lat);
-	sinlat = TrigD.sin(lat);
+	trig.sincos(lat, sc);
+	coslat = sc[1];
+	sinlat = sc[0];
 
 	dlng = lng - eul[0];
-	coslng = TrigD.cos(dlng);
-	sinlng = TrigD.sin(dlng);
+	trig.sincos(dlng, sc);
+	coslng = sc[1];
+	sinlng = sc[0];
 
 	// Compute the native longitude.
 	x = sinlat*eul[4] - coslat*eul[3]*coslng;
 	if (Math.abs(x) < tol) {
 
 	    // Rearange formula to reduce roundoff errors.
-	    x = -TrigD.cos(lat+eul[1]) + coslat*eul[3]*(1.0 - coslng);
+	    x = -trig.cos(lat+eul[1]) + coslat*eul[3]*(1.0 - coslng);
 	}
 	y = -coslat*sinlng;
 	if (x != 0.0 || y != 0.0) {
-	    dphi = TrigD.atan2(y,x);
+	    dphi = trig.atan2(y,x);
 	} else {
 
 	    // Change of origin of longitude.
@@ -310,10 +517,10 @@ public class SphericalTransform {
 	    if (Math.abs(z) > 0.99) {
 
 		// Use an alternative formula for greater numerical accuracy. 
-		double tmp = TrigD.acos(Math.sqrt(x*x+y*y));
+		double tmp = trig.acos(Math.sqrt(x*x+y*y));
 		theta = (z < 0.0) ? -Math.abs(tmp) : Math.abs(tmp);
 	    } else {
-		theta = TrigD.asin(z);
+		theta = trig.asin(z);
 	    }
 	}
 
@@ -322,6 +529,13 @@ public class SphericalTransform {
 	return out;
     }
 
+    /**
+     * same as rev(phi, theta, eul, TrigProvider.EXACT)
+     */
+    public static double[] rev(double phi, double theta, double[] eul) {
+	return rev(phi, theta, eul, TrigProvider.EXACT);
+    }
+
     /**
      * Do a reverse transformation
      * @param phi Longitude in the native coordinate system of the 
@@ -340,34 +554,39 @@ public class SphericalTransform {
      *                  3: cos(eul[1])
      *                  4: sin(eul[1])
      *               </pre>
+     * @param trig the trigonometric functions to use
      * @return spherical longitude and latitude in degrees, returned as a 
      *            two element array
      * @exception ArrayIndexOutOfBoundsException if eul has less than 5
      *               elements
      */
-    public static double[] rev(double phi, double theta, double[] eul) {
+    public static double[] rev(double phi, double theta, double[] eul,
+				   TrigProvider trig) {
 
 	double cosphi, costhe, dlng, dphi, sinphi, sinthe, x, y, z;
 	double lng, lat;
+	double[] sc = new double[2];
 
-	costhe = TrigD.cos(theta);
-	sinthe = TrigD.sin(theta);
+	trig.sincos(theta, sc);
+	costhe = sc[1];
+	sinthe = sc[0];
 
 	dphi = phi - eul[2];
-	cosphi = TrigD.cos(dphi);
-	sinphi = TrigD.sin(dphi);
+	trig.sincos(dphi, sc);
+	cosphi = sc[1];
+	sinphi = sc[0];
 
 	// Compute the celestial longitude. 
 	x = sinthe*eul[4] - costhe*eul[3]*cosphi;
 	if (Math.abs(x) < tol) {
 
 	    // Rearrange formula to reduce roundoff errors. 
-	    x = - TrigD.cos(theta+eul[1]) + 
+	    x = - trig.cos(theta+eul[1]) +
 		costhe*eul[3]*(1.0 - cosphi);
 	}
 	y = -costhe*sinphi;
 	if (x != 0.0 || y != 0.0) {
-	    dlng = TrigD.atan2(y, x);
+	    dlng = trig.atan2(y, x);
 	} else {
 
 	    // Change of origin of longitude. 
@@ -398,10 +617,10 @@ public class SphericalTransform {
 	    if (Math.abs(z) > 0.99) {
 
 		// Use an alternative formula for greater numerical accuracy. 
-		double tmp = TrigD.acos(Math.sqrt(x*x+y*y));
+		double tmp = trig.acos(Math.sqrt(x*x+y*y));
 		lat = (z < 0.0) ? -Math.abs(tmp) : Math.abs(tmp);
 	    } else {
-		lat = TrigD.asin(z);
+		lat = trig.asin(z);
 	    }
 	}
 
@@ -410,6 +629,587 @@ public class SphericalTransform {
 	return out;
     }
 
+    /**
+     * same as fwd(ncoord, lng, lngoff, lat, latoff, instride, phi, phioff,
+     * theta, thetaoff, outstride, eul, TrigProvider.EXACT, stat, statoff)
+     */
+    public static void fwd(int ncoord, double[] lng, int lngoff,
+			   double[] lat, int latoff, int instride,
+			   double[] phi, int phioff,
+			   double[] theta, int thetaoff, int outstride,
+			   double[] eul, byte[] stat, int statoff)
+    {
+	fwd(ncoord, lng, lngoff, lat, latoff, instride, phi, phioff,
+	    theta, thetaoff, outstride, eul, TrigProvider.EXACT, stat, statoff);
+    }
+
+    /**
+     * Do a forward transformation on ncoord positions without allocating
+     * any arrays.  The k-th position is read from lng[lngoff+k*instride]
+     * and lat[latoff+k*instride]; its native coordinates are written to
+     * phi[phioff+k*outstride] and theta[thetaoff+k*outstride].  Each
+     * position is read before its result is written, so the output may
+     * overwrite the input. <p>
+     *
+     * The spherical transformation is defined everywhere, so the only
+     * positions flagged in stat are those with an undefined (NaN)
+     * coordinate--typically ones rejected by an earlier stage--which are
+     * marked UNDEFINED and returned as NaN.  All others are marked OK.
+     * @param eul  Euler angles for the transformation (see
+     *             fwd(double, double, double[]))
+     * @param stat array to receive a status code (see BatchStatus) for
+     *             each position, or null if no codes are wanted
+     * @param statoff index of the first status code in stat
+     * @param trig the trigonometric functions to use
+     */
+    public static void fwd(int ncoord, double[] lng, int lngoff,
+			   double[] lat, int latoff, int instride,
+			   double[] phi, int phioff,
+			   double[] theta, int thetaoff, int outstride,
+			   double[] eul, TrigProvider trig,
+			   byte[] stat, int statoff)
+    {
+	double coslat, coslng, dlng, dphi, sinlat, sinlng, x, y, z;
+	double lngv, latv, ph, th, tmp;
+	double[] sc = new double[2];
+
+	for (int k = 0; k < ncoord; k++) {
+	    lngv = lng[lngoff];
+	    latv = lat[latoff];
+	    lngoff += instride;    latoff += instride;
+
+	    if (stat != null) {
+		if (Double.isNaN(lngv) || Double.isNaN(latv)) {
+		    phi[phioff] = theta[thetaoff] = Double.NaN;
+		    stat[statoff+k] = BatchStatus.UNDEFINED;
+		    phioff += outstride;   thetaoff += outstride;
+		    continue;
+		}
+		stat[statoff+k] = BatchStatus.OK;
+	    }
+
+	    trig.sincos(latv, sc);
+	    coslat = sc[1];
+	    sinlat = sc[0];
+
+	    dlng = lngv - eul[0];
+	    trig.sincos(dlng, sc);
+	    coslng = sc[1];
+	    sinlng = sc[0];
+
+	    // Compute the native longitude.
+	    x = sinlat*eul[4] - coslat*eul[3]*coslng;
+	    if (Math.abs(x) < tol) {
+
+		// Rearange formula to reduce roundoff errors.
+		x = -trig.cos(latv+eul[1]) + coslat*eul[3]*(1.0 - coslng);
+	    }
+	    y = -coslat*sinlng;
+	    if (x != 0.0 || y != 0.0) {
+		dphi = trig.atan2(y,x);
+	    } else {
+
+		// Change of origin of longitude.
+		dphi = dlng - 180.0;
+	    }
+	    ph = eul[2] + dphi;
+
+	    // Normalize the native longitude.
+	    if (ph > 180.0) {
+		ph -= 360.0;
+	    } else if (ph < -180.0) {
+		ph += 360.0;
+	    }
+
+	    // Compute the native latitude.
+	    if (Math.IEEEremainder(dlng,180.0) == 0.0) {
+		th = latv + coslng*eul[1];
+		if (th >  90.0) th =  180.0 - th;
+		if (th < -90.0) th = -180.0 - th;
+	    } else {
+		z = sinlat*eul[3] + coslat*eul[4]*coslng;
+		if (Math.abs(z) > 0.99) {
+
+		    // Use an alternative formula for greater numerical
+		    // accuracy.
+		    tmp = trig.acos(Math.sqrt(x*x+y*y));
+		    th = (z < 0.0) ? -Math.abs(tmp) : Math.abs(tmp);
+		} else {
+		    th = trig.asin(z);
+		}
+	    }
+
+	    phi[phioff] = ph;
+	    theta[thetaoff] = th;
+	    phioff += outstride;   thetaoff += outstride;
+	}
+    }
+
+    /**
+     * same as rev(ncoord, phi, phioff, theta, thetaoff, instride, lng, lngoff,
+     * lat, latoff, outstride, eul, TrigProvider.EXACT, stat, statoff)
+     */
+    public static void rev(int ncoord, double[] phi, int phioff,
+			   double[] theta, int thetaoff, int instride,
+			   double[] lng, int lngoff,
+			   double[] lat, int latoff, int outstride,
+			   double[] eul, byte[] stat, int statoff)
+    {
+	rev(ncoord, phi, phioff, theta, thetaoff, instride, lng, lngoff,
+	    lat, latoff, outstride, eul, TrigProvider.EXACT, stat, statoff);
+    }
+
+    /**
+     * Do a reverse transformation on ncoord positions without allocating
+     * any arrays.  The k-th position is read from phi[phioff+k*instride]
+     * and theta[thetaoff+k*instride]; its celestial coordinates are
+     * written to lng[lngoff+k*outstride] and lat[latoff+k*outstride].
+     * Each position is read before its result is written, so the output
+     * may overwrite the input. <p>
+     *
+     * As with the forward transformation, the only positions flagged in
+     * stat are those with an undefined (NaN) coordinate.
+     * @param eul  Euler angles for the transformation (see
+     *             rev(double, double, double[]))
+     * @param stat array to receive a status code (see BatchStatus) for
+     *             each position, or null if no codes are wanted
+     * @param statoff index of the first status code in stat
+     * @param trig the trigonometric functions to use
+     */
+    public static void rev(int ncoord, double[] phi, int phioff,
+			   double[] theta, int thetaoff, int instride,
+			   double[] lng, int lngoff,
+			   double[] lat, int latoff, int outstride,
+			   double[] eul, TrigProvider trig,
+			   byte[] stat, int statoff)
+    {
+	double cosphi, costhe, dlng, dphi, sinphi, sinthe, x, y, z;
+	double ph, th, lngv, latv, tmp;
+	double[] sc = new double[2];
+
+	for (int k = 0; k < ncoord; k++) {
+	    ph = phi[phioff];
+	    th = theta[thetaoff];
+	    phioff += instride;    thetaoff += instride;
+
+	    if (stat != null) {
+		if (Double.isNaN(ph) || Double.isNaN(th)) {
+		    lng[lngoff] = lat[latoff] = Double.NaN;
+		    stat[statoff+k] = BatchStatus.UNDEFINED;
+		    lngoff += outstride;   latoff += outstride;
+		    continue;
+		}
+		stat[statoff+k] = BatchStatus.OK;
+	    }
+
+	    trig.sincos(th, sc);
+	    costhe = sc[1];
+	    sinthe = sc[0];
+
+	    dphi = ph - eul[2];
+	    trig.sincos(dphi, sc);
+	    cosphi = sc[1];
+	    sinphi = sc[0];
+
+	    // Compute the celestial longitude.
+	    x = sinthe*eul[4] - costhe*eul[3]*cosphi;
+	    if (Math.abs(x) < tol) {
+
+		// Rearrange formula to reduce roundoff errors.
+		x = - trig.cos(th+eul[1]) +
+		    costhe*eul[3]*(1.0 - cosphi);
+	    }
+	    y = -costhe*sinphi;
+	    if (x != 0.0 || y != 0.0) {
+		dlng = trig.atan2(y, x);
+	    } else {
+
+		// Change of origin of longitude.
+		dlng = dphi + 180.0;
+	    }
+	    lngv = eul[0] + dlng;
+
+	    // Normalize the celestial longitude.
+	    if (eul[0] >= 0.0) {
+		if (lngv < 0.0) lngv += 360.0;
+	    } else {
+		if (lngv > 0.0) lngv -= 360.0;
+	    }
+
+	    if (lngv > 360.0) {
+		lngv -= 360.0;
+	    } else if (lngv < -360.0) {
+		lngv += 360.0;
+	    }
+
+	    // Compute the celestial latitude.
+	    if (Math.IEEEremainder(dphi,180.0) == 0.0) {
+		latv = th + cosphi*eul[1];
+		if (latv >  90.0) latv =  180.0 - latv;
+		if (latv < -90.0) latv = -180.0 - latv;
+	    } else {
+		z = sinthe*eul[3] + costhe*eul[4]*cosphi;
+		if (Math.abs(z) > 0.99) {
+
+		    // Use an alternative formula for greater numerical
+		    // accuracy.
+		    tmp = trig.acos(Math.sqrt(x*x+y*y));
+		    latv = (z < 0.0) ? -Math.abs(tmp) : Math.abs(tmp);
+		} else {
+		    latv = trig.asin(z);
+		}
+	    }
+
+	    lng[lngoff] = lngv;
+	    lat[latoff] = latv;
+	    lngoff += outstride;   latoff += outstride;
+	}
+    }
+
+    /**
+     * Compute the rotation matrix equivalent to a set of Euler angles.
+     * The matrix, R, takes the unit vector of a position in the
+     * celestial system, (cos(lat)cos(lng), cos(lat)sin(lng), sin(lat)),
+     * to the unit vector of the same position in the native system,
+     * (cos(theta)cos(phi), cos(theta)sin(phi), sin(theta)).  R is
+     * orthogonal, so its transpose does the reverse transformation.
+     * @param eul  Euler angles for the transformation (see
+     *             fwd(double, double, double[]))
+     * @return double[] the 9 elements of R, stored by rows
+     */
+    public static double[] getRotationMatrix(double[] eul) {
+	double ca, sa, cb, sb, cg, sg;
+	double[] b = new double[9];
+	double[] r = new double[9];
+
+	ca = TrigD.cos(eul[0]);
+	sa = TrigD.sin(eul[0]);
+	cb = eul[3];
+	sb = eul[4];
+	cg = TrigD.cos(eul[2]);
+	sg = TrigD.sin(eul[2]);
+
+	// Rotate by -eul[0] about the celestial pole, then tilt the pole
+	// by eul[1] (reversing the sense of longitude)...
+	b[0] = -cb*ca;  b[1] = -cb*sa;  b[2] =  sb;
+	b[3] =  sa;     b[4] = -ca;     b[5] =  0.0;
+	b[6] =  sb*ca;  b[7] =  sb*sa;  b[8] =  cb;
+
+	// ...then rotate by eul[2] about the native pole.
+	for (int j = 0; j < 3; j++) {
+	    r[j]   = cg*b[j] - sg*b[3+j];
+	    r[3+j] = sg*b[j] + cg*b[3+j];
+	    r[6+j] = b[6+j];
+	}
+
+	return r;
+    }
+
+    /**
+     * same as fwdMatrix(ncoord, lng, lngoff, lat, latoff, instride, phi,
+     * phioff, theta, thetaoff, outstride, rot, TrigProvider.EXACT, stat,
+     * statoff)
+     */
+    public static void fwdMatrix(int ncoord, double[] lng, int lngoff,
+				 double[] lat, int latoff, int instride,
+				 double[] phi, int phioff,
+				 double[] theta, int thetaoff, int outstride,
+				 double[] rot, byte[] stat, int statoff)
+    {
+	fwdMatrix(ncoord, lng, lngoff, lat, latoff, instride, phi, phioff,
+		  theta, thetaoff, outstride, rot, TrigProvider.EXACT,
+		  stat, statoff);
+    }
+
+    /**
+     * Do a forward transformation on ncoord positions using a rotation
+     * matrix rather than the Euler angles directly.  The arguments are
+     * as for fwd(int, double[], int, double[], int, int, double[], int,
+     * double[], int, int, double[], byte[], int) except that rot is a
+     * matrix returned by getRotationMatrix().  The results agree with
+     * those of the Euler angle form to within roundoff, except that phi
+     * is 0 at the native poles where it is undefined.
+     * @param trig the trigonometric functions to use
+     */
+    public static void fwdMatrix(int ncoord, double[] lng, int lngoff,
+				 double[] lat, int latoff, int instride,
+				 double[] phi, int phioff,
+				 double[] theta, int thetaoff, int outstride,
+				 double[] rot, TrigProvider trig,
+				 byte[] stat, int statoff)
+    {
+	double coslat, cx, cy, cz, lngv, latv, nx, ny, nz;
+	double[] sc = new double[2];
+
+	for (int k = 0; k < ncoord; k++) {
+	    lngv = lng[lngoff];
+	    latv = lat[latoff];
+	    lngoff += instride;    latoff += instride;
+
+	    if (stat != null) {
+		if (Double.isNaN(lngv) || Double.isNaN(latv)) {
+		    phi[phioff] = theta[thetaoff] = Double.NaN;
+		    stat[statoff+k] = BatchStatus.UNDEFINED;
+		    phioff += outstride;   thetaoff += outstride;
+		    continue;
+		}
+		stat[statoff+k] = BatchStatus.OK;
+	    }
+
+	    trig.sincos(latv, sc);
+	    coslat = sc[1];
+	    cz = sc[0];
+	    trig.sincos(lngv, sc);
+	    cx = coslat*sc[1];
+	    cy = coslat*sc[0];
+
+	    nx = rot[0]*cx + rot[1]*cy + rot[2]*cz;
+	    ny = rot[3]*cx + rot[4]*cy + rot[5]*cz;
+	    nz = rot[6]*cx + rot[7]*cy + rot[8]*cz;
+
+	    phi[phioff] = trig.atan2(ny, nx);
+	    theta[thetaoff] = trig.atan2(nz, Math.sqrt(nx*nx + ny*ny));
+	    phioff += outstride;   thetaoff += outstride;
+	}
+    }
+
+    /**
+     * same as fwdCosines(ncoord, cel, celoff, instride, phi, phioff, theta,
+     * thetaoff, outstride, rot, TrigProvider.EXACT, stat, statoff)
+     */
+    public static void fwdCosines(int ncoord, double[] cel, int celoff,
+				  int instride, double[] phi, int phioff,
+				  double[] theta, int thetaoff, int outstride,
+				  double[] rot, byte[] stat, int statoff)
+    {
+	fwdCosines(ncoord, cel, celoff, instride, phi, phioff, theta,
+		   thetaoff, outstride, rot, TrigProvider.EXACT, stat, statoff);
+    }
+
+    /**
+     * Compute native coordinates for ncoord positions given as celestial
+     * direction cosines.  The unit vector of the k-th position is read
+     * from the three consecutive elements of cel starting at
+     * celoff+k*instride; its native coordinates are written to
+     * phi[phioff+k*outstride] and theta[thetaoff+k*outstride].  The
+     * vectors need not be normalized.
+     * @param rot  a rotation matrix returned by getRotationMatrix()
+     * @param stat array to receive a status code (see BatchStatus) for
+     *             each position, or null if no codes are wanted
+     * @param statoff index of the first status code in stat
+     * @param trig the trigonometric functions to use
+     */
+    public static void fwdCosines(int ncoord, double[] cel, int celoff,
+				  int instride, double[] phi, int phioff,
+				  double[] theta, int thetaoff, int outstride,
+				  double[] rot, TrigProvider trig,
+				  byte[] stat, int statoff)
+    {
+	double cx, cy, cz, nx, ny, nz;
+
+	for (int k = 0; k < ncoord; k++) {
+	    cx = cel[celoff];
+	    cy = cel[celoff+1];
+	    cz = cel[celoff+2];
+	    celoff += instride;
+
+	    nx = rot[0]*cx + rot[1]*cy + rot[2]*cz;
+	    ny = rot[3]*cx + rot[4]*cy + rot[5]*cz;
+	    nz = rot[6]*cx + rot[7]*cy + rot[8]*cz;
+
+	    if (stat != null) {
+		if (Double.isNaN(nx) || Double.isNaN(ny) || Double.isNaN(nz)) {
+		    phi[phioff] = theta[thetaoff] = Double.NaN;
+		    stat[statoff+k] = BatchStatus.UNDEFINED;
+		    phioff += outstride;   thetaoff += outstride;
+		    continue;
+		}
+		stat[statoff+k] = BatchStatus.OK;
+	    }
+
+	    phi[phioff] = trig.atan2(ny, nx);
+	    theta[thetaoff] = trig.atan2(nz, Math.sqrt(nx*nx + ny*ny));
+	    phioff += outstride;   thetaoff += outstride;
+	}
+    }
+
+    /**
+     * same as revMatrix(ncoord, phi, phioff, theta, thetaoff, instride, lng,
+     * lngoff, lat, latoff, outstride, rot, eul0, TrigProvider.EXACT, stat,
+     * statoff)
+     */
+    public static void revMatrix(int ncoord, double[] phi, int phioff,
+				 double[] theta, int thetaoff, int instride,
+				 double[] lng, int lngoff,
+				 double[] lat, int latoff, int outstride,
+				 double[] rot, double eul0,
+				 byte[] stat, int statoff)
+    {
+	revMatrix(ncoord, phi, phioff, theta, thetaoff, instride, lng, lngoff,
+		  lat, latoff, outstride, rot, eul0, TrigProvider.EXACT,
+		  stat, statoff);
+    }
+
+    /**
+     * Do a reverse transformation on ncoord positions using a rotation
+     * matrix rather than the Euler angles directly.  The arguments are
+     * as for rev(int, double[], int, double[], int, int, double[], int,
+     * double[], int, int, double[], byte[], int) except that rot is a
+     * matrix returned by getRotationMatrix() (not its transpose).  The
+     * celestial longitude is normalized as in the Euler angle form,
+     * with which the results agree to within roundoff, except that lng
+     * is eul[0] modulo 360 at the celestial poles.
+     * @param eul0 the first Euler angle, eul[0], which determines the
+     *             range of the returned longitudes
+     * @param trig the trigonometric functions to use
+     */
+    public static void revMatrix(int ncoord, double[] phi, int phioff,
+				 double[] theta, int thetaoff, int instride,
+				 double[] lng, int lngoff,
+				 double[] lat, int latoff, int outstride,
+				 double[] rot, double eul0, TrigProvider trig,
+				 byte[] stat, int statoff)
+    {
+	double costhe, cx, cy, cz, lngv, nx, ny, nz, ph, th;
+	double[] sc = new double[2];
+
+	for (int k = 0; k < ncoord; k++) {
+	    ph = phi[phioff];
+	    th = theta[thetaoff];
+	    phioff += instride;    thetaoff += instride;
+
+	    if (stat != null) {
+		if (Double.isNaN(ph) || Double.isNaN(th)) {
+		    lng[lngoff] = lat[latoff] = Double.NaN;
+		    stat[statoff+k] = BatchStatus.UNDEFINED;
+		    lngoff += outstride;   latoff += outstride;
+		    continue;
+		}
+		stat[statoff+k] = BatchStatus.OK;
+	    }
+
+	    trig.sincos(th, sc);
+	    costhe = sc[1];
+	    nz = sc[0];
+	    trig.sincos(ph, sc);
+	    nx = costhe*sc[1];
+	    ny = costhe*sc[0];
+
+	    cx = rot[0]*nx + rot[3]*ny + rot[6]*nz;
+	    cy = rot[1]*nx + rot[4]*ny + rot[7]*nz;
+	    cz = rot[2]*nx + rot[5]*ny + rot[8]*nz;
+
+	    lngv = (cx == 0.0 && cy == 0.0) ? eul0 : trig.atan2(cy, cx);
+
+	    // Normalize the celestial longitude.
+	    if (eul0 >= 0.0) {
+		if (lngv < 0.0) lngv += 360.0;
+	    } else {
+		if (lngv > 0.0) lngv -= 360.0;
+	    }
+
+	    lng[lngoff] = lngv;
+	    lat[latoff] = trig.atan2(cz, Math.sqrt(cx*cx + cy*cy));
+	    lngoff += outstride;   latoff += outstride;
+	}
+    }
+
+    /**
+     * same as revCosines(ncoord, phi, phioff, theta, thetaoff, instride, cel,
+     * celoff, outstride, rot, TrigProvider.EXACT, stat, statoff)
+     */
+    public static void revCosines(int ncoord, double[] phi, int phioff,
+				  double[] theta, int thetaoff, int instride,
+				  double[] cel, int celoff, int outstride,
+				  double[] rot, byte[] stat, int statoff)
+    {
+	revCosines(ncoord, phi, phioff, theta, thetaoff, instride, cel,
+		   celoff, outstride, rot, TrigProvider.EXACT, stat, statoff);
+    }
+
+    /**
+     * Compute celestial direction cosines for ncoord positions given in
+     * native coordinates.  The k-th position is read from
+     * phi[phioff+k*instride] and theta[thetaoff+k*instride]; its
+     * celestial unit vector is written to the three consecutive elements
+     * of cel starting at celoff+k*outstride.
+     * @param rot  a rotation matrix returned by getRotationMatrix() (not
+     *             its transpose)
+     * @param stat array to receive a status code (see BatchStatus) for
+     *             each position, or null if no codes are wanted
+     * @param statoff index of the first status code in stat
+     * @param trig the trigonometric functions to use
+     */
+    public static void revCosines(int ncoord, double[] phi, int phioff,
+				  double[] theta, int thetaoff, int instride,
+				  double[] cel, int celoff, int outstride,
+				  double[] rot, TrigProvider trig,
+				  byte[] stat, int statoff)
+    {
+	double costhe, nx, ny, nz, ph, th;
+	double[] sc = new double[2];
+
+	for (int k = 0; k < ncoord; k++) {
+	    ph = phi[phioff];
+	    th = theta[thetaoff];
+	    phioff += instride;    thetaoff += instride;
+
+	    if (stat != null) {
+		if (Double.isNaN(ph) || Double.isNaN(th)) {
+		    cel[celoff] = cel[celoff+1] = cel[celoff+2] = Double.NaN;
+		    stat[statoff+k] = BatchStatus.UNDEFINED;
+		    celoff += outstride;
+		    continue;
+		}
+		stat[statoff+k] = BatchStatus.OK;
+	    }
+
+	    trig.sincos(th, sc);
+	    costhe = sc[1];
+	    nz = sc[0];
+	    trig.sincos(ph, sc);
+	    nx = costhe*sc[1];
+	    ny = costhe*sc[0];
+
+	    cel[celoff]   = rot[0]*nx + rot[3]*ny + rot[6]*nz;
+	    cel[celoff+1] = rot[1]*nx + rot[4]*ny + rot[7]*nz;
+	    cel[celoff+2] = rot[2]*nx + rot[5]*ny + rot[8]*nz;
+	    celoff += outstride;
+	}
+    }
+
+    /**
+     * Rotate ncoord unit vectors between the celestial and native
+     * systems.  The k-th vector is read from the three consecutive
+     * elements of in starting at inoff+k*instride and the rotated vector
+     * is written to out starting at outoff+k*outstride; the output may
+     * overwrite the input.
+     * @param rot     a rotation matrix returned by getRotationMatrix()
+     * @param reverse if true, rotate from native to celestial; otherwise,
+     *                from celestial to native.
+     */
+    public static void rotate(int ncoord, double[] in, int inoff,
+			      int instride, double[] out, int outoff,
+			      int outstride, double[] rot, boolean reverse)
+    {
+	double ux, uy, uz;
+	int i = (reverse) ? 3 : 1;
+	int j = (reverse) ? 1 : 3;
+
+	// R[r][c] is at rot[r*j + c*i] (transposed when reversing)
+	for (int k = 0; k < ncoord; k++) {
+	    ux = in[inoff];
+	    uy = in[inoff+1];
+	    uz = in[inoff+2];
+	    inoff += instride;
+
+	    out[outoff]   = rot[0]*ux   + rot[i]*uy     + rot[2*i]*uz;
+	    out[outoff+1] = rot[j]*ux   + rot[j+i]*uy   + rot[j+2*i]*uz;
+	    out[outoff+2] = rot[2*j]*ux + rot[2*j+i]*uy + rot[2*j+2*i]*uz;
+	    outoff += outstride;
+	}
+    }
+
     /**
      * Compute the euler angles for a given set of reference angles
      * @param reflong  celestial longitude (usually right ascension) of 
@@ -662,16 +1462,11 @@ public class SphericalTransform {
     public static double getTheta0(String pcode) 
 	throws UnsupportedProjectionException
     {
-	int i;
-
-	for(i=0;
-	    i < ProjectionType.NTYPES && 
-	      ! pcode.equalsIgnoreCase(ProjectionType.code[i]);
-	    i++);
-	if (i >= ProjectionType.NTYPES) 
+	ProjectionRegistry.Entry type = ProjectionRegistry.lookup(pcode);
+	if (type == null) 
 		throw new UnsupportedProjectionException(
 		    "Unrecognized Projection code: " + pcode);
 
-	return ((i <= ProjectionType.AIR) ? 90.0 : 0.0);
+	return type.getTheta0();
     }
 }
@@ -0,0 +1,126 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS;
+
+/**
+ * a TrigProvider which interpolates linearly in precomputed tables. <p>
+ *
+ * The sine is tabulated over [0,90] degrees every 1/32 degree and serves
+ * for both the sine and the cosine; the absolute error is below 4e-8.
+ * The arctangent is tabulated over [0,1] in 2048 steps; the error in the
+ * angles returned by atan2(), asin(), acos() and atan() is below 2e-6
+ * degrees, except that asin() and acos() lose accuracy as the argument
+ * approaches 1 in the usual way.  Multiples of 90 degrees give exact
+ * results.  The two tables occupy about 40 kilobytes and are shared by
+ * all instances.
+ * @see TrigProvider#TABLE
+ */
+public class TableTrigProvider extends TrigProvider {
+
+    private final static double PI = Math.PI;
+
+    /**
+     * the number of sine table intervals per degree
+     */
+    public final static int SINRES = 32;
+
+    /**
+     * the number of arctangent table intervals over [0,1]
+     */
+    public final static int ATANRES = 2048;
+
+    /**
+     * sin(k/SINRES degrees) for k = 0..90*SINRES, plus one guard entry
+     */
+    private final static double[] SIN = new double[90*SINRES + 2];
+
+    /**
+     * atan(k/ATANRES) in radians for k = 0..ATANRES, plus one guard entry
+     */
+    private final static double[] ATAN = new double[ATANRES + 2];
+
+    static {
+	for (int k = 0; k < SIN.length; k++)
+	    SIN[k] = Math.sin(k*d2r/SINRES);
+	SIN[90*SINRES] = 1.0;
+	for (int k = 0; k < ATAN.length; k++)
+	    ATAN[k] = Math.atan(k/(double) ATANRES);
+    }
+
+    public void sincos(double angle, double[] sc) {
+
+	double c, f, s, x;
+	int i;
+	long q;
+
+	q = (long) Math.rint(angle*(1.0/90.0));
+	x = angle - 90.0*q;
+
+	f = Math.abs(x)*SINRES;
+	i = (int) f;
+	s = SIN[i] + (f - i)*(SIN[i+1] - SIN[i]);
+	if (x < 0.0) s = -s;
+
+	f = (90.0 - Math.abs(x))*SINRES;
+	i = (int) f;
+	c = SIN[i] + (f - i)*(SIN[i+1] - SIN[i]);
+
+	switch ((int) (q & 3)) {
+	case 0:
+	    sc[0] =  s;
+	    sc[1] =  c;
+	    break;
+	case 1:
+	    sc[0] =  c;
+	    sc[1] = -s;
+	    break;
+	case 2:
+	    sc[0] = -s;
+	    sc[1] = -c;
+	    break;
+	default:
+	    sc[0] = -c;
+	    sc[1] =  s;
+	}
+    }
+
+    public double atan2(double y, double x) {
+
+	double a, ax, ay, f;
+	int i;
+
+	if (y == 0.0) {
+	    if (x >= 0.0) {
+		return 0.0;
+	    } else if (x < 0.0) {
+		return 180.0;
+	    }
+	} else if (x == 0.0) {
+	    if (y > 0.0) {
+		return 90.0;
+	    } else if (y < 0.0) {
+		return -90.0;
+	    }
+	}
+
+	ax = Math.abs(x);
+	ay = Math.abs(y);
+	f = ((ay <= ax) ? ay/ax : ax/ay)*ATANRES;
+	i = (int) f;
+	a = ATAN[i] + (f - i)*(ATAN[i+1] - ATAN[i]);
+
+	if (ay > ax) a = PI/2.0 - a;
+	if (x < 0.0) a = PI - a;
+	if (y < 0.0) a = -a;
+
+	return a*r2d;
+    }
+}
@@ -91,6 +91,38 @@ public class TrigD {
 	return Math.sin(angle*d2r);
     }
 
+    /**
+     * compute the sine and cosine of the same angle together, reducing
+     * the angle only once.  Multiples of 90 degrees return exact results
+     * as with sin() and cos().
+     * @param angle  the angle in degrees
+     * @param sc     a buffer of at least two elements; sc[0] is set to
+     *               the sine and sc[1] to the cosine of angle.
+     */
+    public final static void sincos(double angle, double[] sc) {
+
+	double resid, a;
+
+	resid = Math.IEEEremainder(angle,360.0);
+	if (resid == 0.0) {
+	    sc[0] =  0.0;
+	    sc[1] =  1.0;
+	} else if (resid == 90.0) {
+	    sc[0] =  1.0;
+	    sc[1] =  0.0;
+	} else if (resid == -90.0) {
+	    sc[0] = -1.0;
+	    sc[1] =  0.0;
+	} else if (Math.abs(resid) == 180.0) {
+	    sc[0] =  0.0;
+	    sc[1] = -1.0;
+	} else {
+	    a = angle*d2r;
+	    sc[0] = Math.sin(a);
+	    sc[1] = Math.cos(a);
+	}
+    }
+
     public final static double tan(double angle) {
 
 	double resid;
@@ -0,0 +1,106 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS;
+
+/**
+ * a source of the trigonometric and inverse trigonometric functions,
+ * taking or returning angles in decimal degrees, used by the
+ * transformations.  Each SphericalTransform, CelestialTransform and
+ * Projection carries its own TrigProvider, so that an accuracy tier may
+ * be chosen for one transformation without affecting any other.  Three
+ * tiers are available: <p>
+ *
+ * <dl>
+ * <dt> EXACT <dd> the TrigD functions; the default everywhere.
+ * <dt> FAST  <dd> polynomial approximations (PolynomialTrigProvider).
+ * <dt> TABLE <dd> linear interpolation in tables (TableTrigProvider).
+ * </dl> <p>
+ *
+ * Only sincos() and atan2() need be provided by a subclass; the
+ * remaining functions are derived from them.  Providers hold no
+ * mutable state and may be shared by any number of threads.
+ */
+public abstract class TrigProvider {
+
+    /**
+     * the exact functions of TrigD
+     */
+    public final static TrigProvider EXACT = new ExactTrigProvider();
+
+    /**
+     * polynomial approximations; see PolynomialTrigProvider
+     */
+    public final static TrigProvider FAST = new PolynomialTrigProvider();
+
+    /**
+     * table interpolation; see TableTrigProvider
+     */
+    public final static TrigProvider TABLE = new TableTrigProvider();
+
+    protected final static double d2r = TrigD.d2r;
+    protected final static double r2d = TrigD.r2d;
+    protected final static double tol = 1e-10;
+
+    /**
+     * set sc[0] to the sine and sc[1] to the cosine of angle (in degrees)
+     */
+    public abstract void sincos(double angle, double[] sc);
+
+    /**
+     * return the angle, in degrees, whose tangent is y/x, as with
+     * TrigD.atan2()
+     */
+    public abstract double atan2(double y, double x);
+
+    public double sin(double angle) {
+	double[] sc = new double[2];
+	sincos(angle, sc);
+	return sc[0];
+    }
+
+    public double cos(double angle) {
+	double[] sc = new double[2];
+	sincos(angle, sc);
+	return sc[1];
+    }
+
+    public double tan(double angle) {
+	double[] sc = new double[2];
+	sincos(angle, sc);
+	return sc[0]/sc[1];
+    }
+
+    public double asin(double v) {
+
+	if (v <= -1.0) {
+	    return (v+1.0 > -tol) ? -90.0 : Double.NaN;
+	} else if (v >= 1.0) {
+	    return (v-1.0 <  tol) ?  90.0 : Double.NaN;
+	}
+
+	return atan2(v, Math.sqrt((1.0 - v)*(1.0 + v)));
+    }
+
+    public double acos(double v) {
+
+	if (v <= -1.0) {
+	    return (v+1.0 > -tol) ? 180.0 : Double.NaN;
+	} else if (v >= 1.0) {
+	    return (v-1.0 <  tol) ?   0.0 : Double.NaN;
+	}
+
+	return atan2(Math.sqrt((1.0 - v)*(1.0 + v)), v);
+    }
+
+    public double atan(double v) {
+	return atan2(v, 1.0);
+    }
+}
@@ -0,0 +1,882 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcs.c,v 2.4 1996/09/10 06:10:54 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS;
+
+import FITSWCS.exceptions.*;
+
+/**
+ *   This class provides the complete transformation between pixel
+ *   coordinates and world coordinates used by the FITS "World Coordinate
+ *   System" (WCS) convention, combining a LinearTransform, a Projection,
+ *   and a SphericalTransform into a single pipeline.  It takes the place
+ *   of wcs.c, the wrapper code of the WCSLIB C library. <p>
+ *
+ *   The FITSWCS package was translated from the WCSLIB C library
+ *   This original library was written in support for coordinate
+ *   systems used by astronomical data stored in FITS format.  For more
+ *   information on these coordinate systems, refer to the paper by Greisen
+ *   and Calabretta at:
+ *   <blockquote>
+ *       ftp://fits.cv.nrao.edu/fits/documents/wcs/wcs.all.ps.Z
+ *   </blockquote>
+ *
+ *   <b> Celestial Axes </b><p>
+ *
+ *   An image may have any number of axes, of which at most two, the
+ *   longitude (lng) and latitude (lat) axes, are celestial.  The image
+ *   coordinates of these two axes are the (x,y) coordinates in the plane
+ *   of projection, which are deprojected to native (phi,theta) and then
+ *   rotated to celestial (lng,lat).  The world coordinate of any other
+ *   axis is simply its image coordinate plus the reference value CRVALn
+ *   for that axis. <p>
+ *
+ *   When constructed from FITS CTYPEn values, the celestial axes are
+ *   identified as in wcsset(): the axis type (the first four characters)
+ *   must be "RA--" and "DEC-", "xLON" and "xLAT", or "xyLN" and "xyLT",
+ *   and the fifth character must be '-', followed by the 3-character
+ *   projection code, which must be the same for both axes. <p>
+ *
+ *   <b> Nomenclature </b><p>
+ *
+ *   In WCSLIB the "forward" direction is from world coordinates to pixel
+ *   coordinates, in keeping with the rest of the library; the "reverse"
+ *   direction is therefore from pixel coordinates to world coordinates.
+ *   World and pixel positions are both handled as naxis-length arrays,
+ *   or as consecutive groups of naxis elements within a larger array for
+ *   the batch forms of fwd() and rev(). <p>
+ *
+ *   <hr>
+ *
+ *   <b> COPYRIGHT NOTICE </b><p>
+ *
+ *   This library is free software; you can redistribute it and/or modify it
+ *   under the terms of the GNU Library General Public License as published
+ *   by the Free Software Foundation; either version 2 of the License, or (at
+ *   your option) any later version. <p>
+ *
+ *   This library is distributed in the hope that it will be useful, but
+ *   WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Library
+ *   General Public License for more details. <p>
+ *
+ *   You should have received a copy of the GNU Library General Public License
+ *   along with this library; if not, write to the Free Software Foundation,
+ *   Inc., 675 Mass Ave, Cambridge, MA 02139, USA. <p>
+ *
+ *   Correspondence concerning WCSLIB may be directed to:<pre>
+ *      Internet email: mcalabre@atnf.csiro.au
+ *      Postal address: Dr. Mark Calabretta,
+ *                      Australia Telescope National Facility,
+ *                      P.O. Box 76,
+ *                      Epping, NSW, 2121,
+ *                      AUSTRALIA</pre>
+ *   Correspondence concerning the Java implementation may be directed
+ *   to Raymond L. Plante (rplante@ncsa.uiuc.edu).
+ *
+ * @author Mark Calabretta
+ * @version 2.4
+ *---------------------------------------------------------------------------*/
+public class WCS {
+
+    /**
+     * the largest number of positions passed through each stage at a
+     * time by the batch methods
+     */
+    protected final static int CHUNK = 256;
+
+    /**
+     * the number of image axes
+     */
+    protected int naxis;
+
+    /**
+     * the indexes of the celestial longitude and latitude axes, or -1
+     * if the image has no celestial axes
+     */
+    protected int lng = -1, lat = -1;
+
+    /**
+     * the reference values (CRVALn) of the non-celestial axes; the
+     * elements for the celestial axes are not used.
+     */
+    protected double[] crval;
+
+    /**
+     * The projection type code (used only for error messages)
+     */
+    protected String pcode;
+
+    /**
+     * The LinearTransform object for pixel to image coordinates
+     */
+    protected LinearTransform lin;
+
+    /**
+     * The Projection transform object to use (null if there are no
+     * celestial axes)
+     */
+    protected Projection prj;
+
+    /**
+     * Euler angles and associated intermediaries for the spherical
+     * transformation (null if there are no celestial axes)
+     */
+    protected double[] euler;
+
+    /**
+     * the trigonometric functions used by the spherical transformation
+     */
+    protected TrigProvider trig = TrigProvider.EXACT;
+
+    /**
+     * Construct a WCS object from the values of the usual FITS keywords.
+     * @param ctype    naxis-length array of axis types (CTYPEn); naxis is
+     *                 taken from its length.
+     * @param crval    array containing the coordinate values at the
+     *                 reference pixel (CRVALn); missing elements default
+     *                 to 0.
+     * @param crpix    array containing the coordinate reference pixel
+     *                 (CRPIXn).
+     * @param pc       (naxis*naxis)-length array containing the elements
+     *                 of the PC matrix (see LinearTransform), or null for
+     *                 the unit matrix.
+     * @param cdelt    array containing the coordinate increments (CDELTn).
+     * @param longpole native longitude of the celestial pole (LONGPOLE),
+     *                 or 999.0 for the default.
+     * @param latpole  native latitude of the celestial pole (LATPOLE),
+     *                 or 999.0 for the default.
+     * @param p        array containing projection parameters (PROJPn);
+     *                 not used if there are no celestial axes.
+     * @exception BadReferenceParameterException if the celestial axes
+     *               are ambiguous, unpaired, or of inconsistent projection
+     *               type, or the reference values are bad
+     * @exception UnsupportedProjectionException if the projection code is
+     *               not recognized
+     * @exception BadProjectionParameterException if p contains one or more
+     *               bad values for the projection
+     * @exception SingularMatrixException if pc represents a singular
+     *               matrix.
+     */
+    public WCS(String[] ctype, double[] crval, double[] crpix, double[] pc,
+	       double[] cdelt, double longpole, double latpole, double[] p)
+	throws BadReferenceParameterException, UnsupportedProjectionException,
+	       BadProjectionParameterException, SingularMatrixException
+    {
+	this(ctype, crval, crpix, pc, cdelt, longpole, latpole, p, null);
+    }
+
+    /**
+     * Construct a WCS object from the values of the usual FITS keywords,
+     * taking the celestial transform from a cache.  The arguments are as
+     * for the constructor above, plus:
+     * @param cache    the cache from which to get the celestial
+     *                 transform, or null to create it afresh.
+     */
+    public WCS(String[] ctype, double[] crval, double[] crpix, double[] pc,
+	       double[] cdelt, double longpole, double latpole, double[] p,
+	       CelestialTransformCache cache)
+	throws BadReferenceParameterException, UnsupportedProjectionException,
+	       BadProjectionParameterException, SingularMatrixException
+    {
+	int j;
+	String code = null;
+
+	naxis = ctype.length;
+	this.crval = new double[naxis];
+	System.arraycopy(crval, 0, this.crval, 0,
+			 Math.min(crval.length, naxis));
+
+	// Parse the axis types to determine the celestial axes.
+	for (j = 0; j < naxis; j++) {
+	    if (ctype[j].length() < 8 || ctype[j].charAt(4) != '-') continue;
+
+	    String type = ctype[j].substring(0, 4);
+	    boolean islng = type.equals("RA--") ||
+		            type.substring(1).equals("LON") ||
+		            type.substring(2).equals("LN");
+	    boolean islat = type.equals("DEC-") ||
+		            type.substring(1).equals("LAT") ||
+		            type.substring(2).equals("LT");
+	    if (! islng && ! islat) continue;
+
+	    if (code == null) {
+		code = ctype[j].substring(5, 8);
+	    }
+	    else if (! code.equals(ctype[j].substring(5, 8))) {
+		throw new BadReferenceParameterException(
+		    "Inconsistent projection types: " + code + ", " +
+		    ctype[j].substring(5, 8));
+	    }
+
+	    if (islng) {
+		if (lng >= 0) throw new BadReferenceParameterException(
+		    "Ambiguous celestial longitude axis");
+		lng = j;
+	    }
+	    else {
+		if (lat >= 0) throw new BadReferenceParameterException(
+		    "Ambiguous celestial latitude axis");
+		lat = j;
+	    }
+	}
+	if ((lng < 0) != (lat < 0))
+	    throw new BadReferenceParameterException(
+		"Unpaired celestial axis");
+
+	if (pc == null)
+	    lin = new LinearTransform(naxis, crpix, cdelt);
+	else
+	    lin = new LinearTransform(naxis, crpix, pc, cdelt);
+
+	if (lng >= 0) {
+	    double[] ref = { this.crval[lng], this.crval[lat],
+			     longpole, latpole };
+	    CelestialTransform cel = (cache == null) ?
+		new CelestialTransform(code, ref, p) : cache.get(code, ref, p);
+	    pcode = cel.getProjectionCode();
+	    prj = cel.getProjection();
+	    euler = cel.getEuler();
+	}
+    }
+
+    /**
+     * Construct a WCS object from existing linear and celestial
+     * transforms.
+     * @param lin    the transform between pixel and image coordinates
+     * @param cel    the transform between image and celestial coordinates
+     *               for the lng and lat axes; null if there are no
+     *               celestial axes
+     * @param lng    the index of the celestial longitude axis (-1 if none)
+     * @param lat    the index of the celestial latitude axis (-1 if none)
+     * @param crval  array containing the reference values of the
+     *               non-celestial axes; may be null if there are none.
+     * @exception IllegalArgumentException if lng and lat are not two
+     *               distinct axes of lin, or are not both -1 when cel is
+     *               null
+     */
+    public WCS(LinearTransform lin, CelestialTransform cel, int lng, int lat,
+	       double[] crval)
+    {
+	init(lin, lng, lat, crval, (cel == null) ? null : cel.getProjection());
+	if (cel != null) {
+	    pcode = cel.getProjectionCode();
+	    euler = cel.getEuler();
+	    trig = cel.getTrigProvider();
+	}
+    }
+
+    /**
+     * Construct a WCS object from its three stages.
+     * @param lin    the transform between pixel and image coordinates
+     * @param prj    the projection for the lng and lat axes; null if there
+     *               are no celestial axes
+     * @param sph    the transform between native and celestial
+     *               coordinates; null if there are no celestial axes
+     * @param lng    the index of the celestial longitude axis (-1 if none)
+     * @param lat    the index of the celestial latitude axis (-1 if none)
+     * @param crval  array containing the reference values of the
+     *               non-celestial axes; may be null if there are none.
+     * @exception IllegalArgumentException if lng and lat are not two
+     *               distinct axes of lin, or are not both -1 when prj is
+     *               null, or if only one of prj and sph is null
+     */
+    public WCS(LinearTransform lin, Projection prj, SphericalTransform sph,
+	       int lng, int lat, double[] crval)
+    {
+	if ((prj == null) != (sph == null))
+	    throw new IllegalArgumentException(
+		"projection and spherical transform must be given together");
+	init(lin, lng, lat, crval, prj);
+	if (prj != null) {
+	    pcode = prj.getProjectionCode();
+	    euler = sph.getEuler();
+	    trig = sph.getTrigProvider();
+	}
+    }
+
+    private void init(LinearTransform lin, int lng, int lat, double[] crval,
+		      Projection prj)
+    {
+	this.lin = lin;
+	naxis = lin.getNaxis();
+	if (prj == null) {
+	    if (lng != -1 || lat != -1)
+		throw new IllegalArgumentException(
+		    "celestial axes given without a projection");
+	}
+	else if (lng < 0 || lng >= naxis || lat < 0 || lat >= naxis ||
+		 lng == lat)
+	{
+	    throw new IllegalArgumentException(
+		"bad celestial axes: " + lng + ", " + lat);
+	}
+	this.lng = lng;
+	this.lat = lat;
+	this.prj = prj;
+
+	this.crval = new double[naxis];
+	if (crval != null)
+	    System.arraycopy(crval, 0, this.crval, 0,
+			     Math.min(crval.length, naxis));
+    }
+
+    /**
+     * Compute pixel coordinates from world coordinates.
+     * @param world  naxis-length array containing the world coordinates;
+     *               celestial coordinates are in degrees
+     * @return double[] naxis-length array containing the pixel coordinates
+     * @exception InvalidCelestialTransformException if the celestial
+     *              coordinates are invalid for this system
+     */
+    public double[] fwd(double[] world)
+	throws InvalidCelestialTransformException
+    {
+	double[] pixcrd = new double[naxis];
+	fwdBatch(1, world, 0, naxis, pixcrd, 0, naxis, null, 0);
+	return pixcrd;
+    }
+
+    /**
+     * Compute world coordinates from pixel coordinates.
+     * @param pixcrd naxis-length array containing the pixel coordinates
+     * @return double[] naxis-length array containing the world coordinates;
+     *              celestial coordinates are in degrees
+     * @exception InvalidCelestialTransformException if the pixel lies
+     *              outside the projected sky
+     */
+    public double[] rev(double[] pixcrd)
+	throws InvalidCelestialTransformException
+    {
+	double[] world = new double[naxis];
+	revBatch(1, pixcrd, 0, naxis, world, 0, naxis, null, 0);
+	return world;
+    }
+
+    /**
+     * Compute pixel coordinates from world coordinates for ncoord
+     * positions without allocating an array for each position.  The
+     * naxis world coordinates of the k-th position are read from
+     * consecutive elements of world starting at woff+k*wstride, and its
+     * pixel coordinates are written to consecutive elements of pixcrd
+     * starting at pixoff+k*pixstride.  The output may overwrite the input
+     * provided both use the same offset and stride.
+     * @exception InvalidCelestialTransformException if any position is
+     *              invalid for this system; the results for the positions
+     *              preceding it will have been written.
+     */
+    public void fwd(int ncoord, double[] world, int woff, int wstride,
+		    double[] pixcrd, int pixoff, int pixstride)
+	throws InvalidCelestialTransformException
+    {
+	fwdBatch(ncoord, world, woff, wstride, pixcrd, pixoff, pixstride,
+		 null, 0);
+    }
+
+    /**
+     * same as fwd(world.length/naxis, world, 0, naxis, pixcrd, 0, naxis)
+     */
+    public void fwd(double[] world, double[] pixcrd)
+	throws InvalidCelestialTransformException
+    {
+	fwdBatch(world.length/naxis, world, 0, naxis, pixcrd, 0, naxis,
+		 null, 0);
+    }
+
+    /**
+     * Compute pixel coordinates from world coordinates for ncoord
+     * positions without throwing exceptions.  This behaves like
+     * fwd(int, double[], int, int, double[], int, int) except that a
+     * position that is invalid for this system has all of its pixel
+     * coordinates set to NaN and INVALID_CELESTIAL_COORD written to
+     * stat[statoff+k]; a position with any undefined (NaN) coordinate is
+     * marked UNDEFINED, and all others OK (see BatchStatus).
+     */
+    public void fwd(int ncoord, double[] world, int woff, int wstride,
+		    double[] pixcrd, int pixoff, int pixstride,
+		    byte[] stat, int statoff)
+    {
+	if (stat == null) throw new NullPointerException("null stat array");
+	try {
+	    fwdBatch(ncoord, world, woff, wstride, pixcrd, pixoff, pixstride,
+		     stat, statoff);
+	}
+	catch (InvalidCelestialTransformException ex) {
+	    throw Projection.statusError(ex);
+	}
+    }
+
+    /**
+     * same as fwd(world.length/naxis, world, 0, naxis, pixcrd, 0, naxis,
+     * stat, 0)
+     */
+    public void fwd(double[] world, double[] pixcrd, byte[] stat) {
+	fwd(world.length/naxis, world, 0, naxis, pixcrd, 0, naxis, stat, 0);
+    }
+
+    /**
+     * Compute world coordinates from pixel coordinates for ncoord
+     * positions without allocating an array for each position.  The
+     * naxis pixel coordinates of the k-th position are read from
+     * consecutive elements of pixcrd starting at pixoff+k*pixstride, and
+     * its world coordinates are written to consecutive elements of world
+     * starting at woff+k*wstride.  The output may overwrite the input
+     * provided both use the same offset and stride.
+     * @exception InvalidCelestialTransformException if any position lies
+     *              outside the projected sky; the results for the
+     *              positions preceding it will have been written.
+     */
+    public void rev(int ncoord, double[] pixcrd, int pixoff, int pixstride,
+		    double[] world, int woff, int wstride)
+	throws InvalidCelestialTransformException
+    {
+	revBatch(ncoord, pixcrd, pixoff, pixstride, world, woff, wstride,
+		 null, 0);
+    }
+
+    /**
+     * same as rev(pixcrd.length/naxis, pixcrd, 0, naxis, world, 0, naxis)
+     */
+    public void rev(double[] pixcrd, double[] world)
+	throws InvalidCelestialTransformException
+    {
+	revBatch(pixcrd.length/naxis, pixcrd, 0, naxis, world, 0, naxis,
+		 null, 0);
+    }
+
+    /**
+     * Compute world coordinates from pixel coordinates for ncoord
+     * positions without throwing exceptions.  This behaves like
+     * rev(int, double[], int, int, double[], int, int) except that a
+     * position outside the projected sky has all of its world
+     * coordinates set to NaN and INVALID_MAP_COORD written to
+     * stat[statoff+k]; a position with any undefined (NaN) coordinate is
+     * marked UNDEFINED, and all others OK (see BatchStatus).
+     */
+    public void rev(int ncoord, double[] pixcrd, int pixoff, int pixstride,
+		    double[] world, int woff, int wstride,
+		    byte[] stat, int statoff)
+    {
+	if (stat == null) throw new NullPointerException("null stat array");
+	try {
+	    revBatch(ncoord, pixcrd, pixoff, pixstride, world, woff, wstride,
+		     stat, statoff);
+	}
+	catch (InvalidCelestialTransformException ex) {
+	    throw Projection.statusError(ex);
+	}
+    }
+
+    /**
+     * same as rev(pixcrd.length/naxis, pixcrd, 0, naxis, world, 0, naxis,
+     * stat, 0)
+     */
+    public void rev(double[] pixcrd, double[] world, byte[] stat) {
+	rev(pixcrd.length/naxis, pixcrd, 0, naxis, world, 0, naxis, stat, 0);
+    }
+
+    /**
+     * Compute world coordinates for every pixel of a rectangular region
+     * of the image, writing each world axis as a separate plane.  The
+     * region spans pixel coordinates x0 to x1 (inclusive) along pixel
+     * axis xaxis and y0 to y1 along pixel axis yaxis; the pixel
+     * coordinates of any other axes are taken from pixcrd.  The world
+     * coordinates of axis i for pixel (x,y) are written to
+     * world[i][(y-y0)*(x1-x0+1) + (x-x0)]; world[i] may be null if
+     * axis i is not wanted. <p>
+     *
+     * This is much faster than transforming each pixel separately: the
+     * image coordinates change by a constant vector from one pixel to
+     * the next along a row, so the full linear transformation is only
+     * done once per row, and the projection and spherical stages are
+     * then applied to the whole row at once.  Results may therefore
+     * differ from those of rev(double[]) by a few units of roundoff.
+     * @param pixcrd naxis-length array giving the pixel coordinates of
+     *               the axes other than xaxis and yaxis
+     * @exception InvalidCelestialTransformException if any pixel in the
+     *              region lies outside the projected sky; the contents
+     *              of world are then undefined.
+     * @exception IllegalArgumentException if xaxis and yaxis are not
+     *              distinct axes.
+     */
+    public void revGrid(double[] pixcrd, int xaxis, int x0, int x1,
+			int yaxis, int y0, int y1, double[][] world)
+	throws InvalidCelestialTransformException
+    {
+	revGridBatch(pixcrd, xaxis, x0, x1, yaxis, y0, y1, world, null);
+    }
+
+    /**
+     * same as revGrid(pixcrd, 0, x0, x1, 1, y0, y1, world) where the
+     * pixel coordinates of any other axes are 1.0
+     */
+    public void revGrid(int x0, int x1, int y0, int y1, double[][] world)
+	throws InvalidCelestialTransformException
+    {
+	revGridBatch(defaultPixel(), 0, x0, x1, 1, y0, y1, world, null);
+    }
+
+    /**
+     * Compute world coordinates for every pixel of a rectangular region
+     * of the image without throwing exceptions.  This behaves like
+     * revGrid(double[], int, int, int, int, int, int, double[][])
+     * except that a pixel outside the projected sky has its world
+     * coordinates set to NaN and INVALID_MAP_COORD written to the
+     * corresponding element of stat; all others are marked OK (see
+     * BatchStatus).
+     */
+    public void revGrid(double[] pixcrd, int xaxis, int x0, int x1,
+			int yaxis, int y0, int y1, double[][] world,
+			byte[] stat)
+    {
+	if (stat == null) throw new NullPointerException("null stat array");
+	try {
+	    revGridBatch(pixcrd, xaxis, x0, x1, yaxis, y0, y1, world, stat);
+	}
+	catch (InvalidCelestialTransformException ex) {
+	    throw Projection.statusError(ex);
+	}
+    }
+
+    /**
+     * same as revGrid(pixcrd, 0, x0, x1, 1, y0, y1, world, stat) where
+     * the pixel coordinates of any other axes are 1.0
+     */
+    public void revGrid(int x0, int x1, int y0, int y1, double[][] world,
+			byte[] stat)
+    {
+	revGrid(defaultPixel(), 0, x0, x1, 1, y0, y1, world, stat);
+    }
+
+    private double[] defaultPixel() {
+	double[] pixcrd = new double[naxis];
+	for (int i = 0; i < naxis; i++) pixcrd[i] = 1.0;
+	return pixcrd;
+    }
+
+    /**
+     * the engine behind the forms of fwd().  If stat is null, the
+     * first invalid position causes an exception to be thrown; otherwise,
+     * failures are recorded in stat.  The positions are taken a chunk at
+     * a time through the spherical, projection and linear stages, so that
+     * each stage is applied to the whole chunk.
+     */
+    private void fwdBatch(int ncoord, double[] world, int woff, int wstride,
+			  double[] pixcrd, int pixoff, int pixstride,
+			  byte[] stat, int statoff)
+	throws InvalidCelestialTransformException
+    {
+	if (ncoord <= 0) return;
+
+	int size = Math.min(ncoord, CHUNK), m, k, i, w, n;
+	double[] imgcrd = new double[size*naxis];
+	double[] tmp = new double[naxis];
+	double[] phi = null, theta = null;
+	byte[] pst = null;
+
+	if (prj != null) {
+	    phi = new double[size];
+	    theta = new double[size];
+	    pst = new byte[size];
+	}
+
+	for (int done = 0; done < ncoord; done += m) {
+	    m = Math.min(size, ncoord - done);
+
+	    if (prj != null) {
+
+		// Compute native coordinates.
+		SphericalTransform.fwd(m, world, woff+lng, world, woff+lat,
+				       wstride, phi, 0, theta, 0, 1,
+				       euler, trig, null, 0);
+
+		// Apply forward projection.
+		prj.fwd(m, phi, 0, theta, 0, 1, phi, 0, theta, 0, 1, pst, 0);
+	    }
+
+	    // Offset from the reference values; the celestial axes are
+	    // replaced by the projected coordinates.
+	    for (k = 0, w = woff, n = 0; k < m; k++, w += wstride, n += naxis) {
+		for (i = 0; i < naxis; i++) {
+		    imgcrd[n+i] = world[w+i] - crval[i];
+		}
+		if (prj != null) {
+		    imgcrd[n+lng] = phi[k];
+		    imgcrd[n+lat] = theta[k];
+		}
+	    }
+
+	    // Apply the linear transformation.
+	    lin.fwdBatch(m, imgcrd, 0, naxis, imgcrd, 0, naxis, tmp);
+
+	    for (k = 0, n = 0; k < m; k++, n += naxis,
+		     woff += wstride, pixoff += pixstride)
+	    {
+		if (stat != null && undefined(world, woff)) {
+		    blank(pixcrd, pixoff);
+		    stat[statoff+k] = BatchStatus.UNDEFINED;
+		    continue;
+		}
+		if (prj != null && pst[k] != BatchStatus.OK) {
+		    if (stat == null)
+			throw new InvalidCelestialCoordException(pcode,
+			    world[woff+lng], world[woff+lat]);
+		    blank(pixcrd, pixoff);
+		    stat[statoff+k] = BatchStatus.INVALID_CELESTIAL_COORD;
+		    continue;
+		}
+
+		System.arraycopy(imgcrd, n, pixcrd, pixoff, naxis);
+		if (stat != null) stat[statoff+k] = BatchStatus.OK;
+	    }
+	    statoff += m;
+	}
+    }
+
+    /**
+     * the engine behind the forms of rev().  If stat is null, the
+     * first invalid position causes an exception to be thrown; otherwise,
+     * failures are recorded in stat.  As for fwd(), each stage is applied
+     * to a chunk of positions at a time.
+     */
+    private void revBatch(int ncoord, double[] pixcrd, int pixoff,
+			  int pixstride, double[] world, int woff, int wstride,
+			  byte[] stat, int statoff)
+	throws InvalidCelestialTransformException
+    {
+	if (ncoord <= 0) return;
+
+	int size = Math.min(ncoord, CHUNK), m, k, i, n;
+	double[] imgcrd = new double[size*naxis];
+	double[] tmp = new double[naxis];
+	double[] phi = null, theta = null;
+	byte[] pst = null;
+
+	if (prj != null) {
+	    phi = new double[size];
+	    theta = new double[size];
+	    pst = new byte[size];
+	}
+
+	for (int done = 0; done < ncoord; done += m) {
+	    m = Math.min(size, ncoord - done);
+
+	    // Apply the linear transformation.
+	    lin.revBatch(m, pixcrd, pixoff, pixstride, imgcrd, 0, naxis, tmp);
+
+	    if (prj != null) {
+
+		// Apply reverse projection.
+		prj.rev(m, imgcrd, lng, imgcrd, lat, naxis,
+			phi, 0, theta, 0, 1, pst, 0);
+
+		// Compute celestial coordinates.
+		SphericalTransform.rev(m, phi, 0, theta, 0, 1,
+				       phi, 0, theta, 0, 1, euler, trig,
+				       null, 0);
+	    }
+
+	    for (k = 0, n = 0; k < m; k++, n += naxis,
+		     pixoff += pixstride, woff += wstride)
+	    {
+		if (stat != null && undefined(pixcrd, pixoff)) {
+		    blank(world, woff);
+		    stat[statoff+k] = BatchStatus.UNDEFINED;
+		    continue;
+		}
+		if (prj != null && pst[k] != BatchStatus.OK) {
+		    if (stat == null)
+			throw new InvalidMapCoordException(pcode,
+			    imgcrd[n+lng], imgcrd[n+lat]);
+		    blank(world, woff);
+		    stat[statoff+k] = BatchStatus.INVALID_MAP_COORD;
+		    continue;
+		}
+
+		// Add the reference values; the celestial axes are
+		// overwritten below.
+		for (i = 0; i < naxis; i++) {
+		    world[woff+i] = imgcrd[n+i] + crval[i];
+		}
+		if (prj != null) {
+		    world[woff+lng] = phi[k];
+		    world[woff+lat] = theta[k];
+		}
+		if (stat != null) stat[statoff+k] = BatchStatus.OK;
+	    }
+	    statoff += m;
+	}
+    }
+
+    /**
+     * the engine behind revGrid().  If stat is null, the first pixel
+     * outside the projected sky causes an exception to be thrown;
+     * otherwise, failures are recorded in stat.
+     */
+    private void revGridBatch(double[] pixcrd, int xaxis, int x0, int x1,
+			      int yaxis, int y0, int y1, double[][] world,
+			      byte[] stat)
+	throws InvalidCelestialTransformException
+    {
+	int i, n, off, r;
+	int nx = x1 - x0 + 1, ny = y1 - y0 + 1;
+
+	if (xaxis == yaxis || xaxis < 0 || xaxis >= naxis ||
+	    yaxis < 0 || yaxis >= naxis)
+	    throw new IllegalArgumentException(
+		"bad grid axes: " + xaxis + ", " + yaxis);
+	if (nx <= 0 || ny <= 0) return;
+
+	double[] pix = new double[naxis];
+	double[] tmp = new double[naxis];
+	double[] base = new double[naxis];
+	double[] step = new double[naxis];
+	double[] xrow = null, yrow = null;
+	byte[] rstat = null;
+
+	System.arraycopy(pixcrd, 0, pix, 0, naxis);
+	pix[xaxis] = x0;
+
+	// The change in image coordinates from one pixel to the next
+	// along a row is the xaxis column of the pixel-to-image matrix.
+	for (i = 0; i < naxis; i++) {
+	    step[i] = lin.piximg[i*naxis+xaxis];
+	}
+
+	if (prj != null) {
+	    xrow = new double[nx];
+	    yrow = new double[nx];
+	    rstat = new byte[nx];
+	}
+
+	for (r = 0, off = 0; r < ny; r++, off += nx) {
+
+	    // Image coordinates of the first pixel of the row.
+	    pix[yaxis] = y0 + r;
+	    lin.revBatch(1, pix, 0, 0, base, 0, 0, tmp);
+
+	    for (i = 0; i < naxis; i++) {
+		if (i == lng || i == lat || world[i] == null) continue;
+		for (n = 0; n < nx; n++) {
+		    world[i][off+n] = (base[i] + n*step[i]) + crval[i];
+		}
+	    }
+
+	    if (prj != null) {
+		for (n = 0; n < nx; n++) {
+		    xrow[n] = base[lng] + n*step[lng];
+		    yrow[n] = base[lat] + n*step[lat];
+		}
+
+		// Apply reverse projection to the whole row.
+		prj.rev(nx, xrow, 0, yrow, 0, 1, xrow, 0, yrow, 0, 1, rstat, 0);
+		if (stat == null) {
+		    for (n = 0; n < nx; n++) {
+			if (rstat[n] != BatchStatus.OK)
+			    throw new InvalidMapCoordException(pcode,
+				base[lng] + n*step[lng], base[lat] + n*step[lat]);
+		    }
+		}
+
+		// Compute celestial coordinates.
+		SphericalTransform.rev(nx, xrow, 0, yrow, 0, 1,
+				       xrow, 0, yrow, 0, 1, euler, trig,
+				       null, 0);
+		if (world[lng] != null)
+		    System.arraycopy(xrow, 0, world[lng], off, nx);
+		if (world[lat] != null)
+		    System.arraycopy(yrow, 0, world[lat], off, nx);
+	    }
+
+	    if (stat != null) {
+		for (n = 0; n < nx; n++) {
+		    if (prj == null || rstat[n] == BatchStatus.OK) {
+			stat[off+n] = BatchStatus.OK;
+			continue;
+		    }
+		    for (i = 0; i < naxis; i++) {
+			if (world[i] != null) world[i][off+n] = Double.NaN;
+		    }
+		    stat[off+n] = BatchStatus.INVALID_MAP_COORD;
+		}
+	    }
+	}
+    }
+
+    /**
+     * return true if any of the naxis coordinates starting at off is NaN
+     */
+    private boolean undefined(double[] crd, int off) {
+	for (int i = 0; i < naxis; i++) {
+	    if (Double.isNaN(crd[off+i])) return true;
+	}
+	return false;
+    }
+
+    /**
+     * set the naxis coordinates starting at off to NaN
+     */
+    private void blank(double[] crd, int off) {
+	for (int i = 0; i < naxis; i++) {
+	    crd[off+i] = Double.NaN;
+	}
+    }
+
+    /**
+     * return the number of image axes
+     */
+    public int getNaxis() { return naxis; }
+
+    /**
+     * return the index of the celestial longitude axis, or -1 if there
+     * are no celestial axes
+     */
+    public int getLngAxis() { return lng; }
+
+    /**
+     * return the index of the celestial latitude axis, or -1 if there
+     * are no celestial axes
+     */
+    public int getLatAxis() { return lat; }
+
+    /**
+     * return a copy of the reference values
+     */
+    public double[] getCrval() {
+	double[] out = new double[naxis];
+	System.arraycopy(crval, 0, out, 0, naxis);
+	return out;
+    }
+
+    /**
+     * return the projection code, or null if there are no celestial axes
+     */
+    public String getProjectionCode() { return pcode; }
+
+    /**
+     * return the LinearTransform object in use
+     */
+    public LinearTransform getLinearTransform() { return lin; }
+
+    /**
+     * return the Projection object in use, or null if there are no
+     * celestial axes
+     */
+    public Projection getProjection() { return prj; }
+
+    /**
+     * return a SphericalTransform object equivalent to the one in use,
+     * or null if there are no celestial axes
+     */
+    public SphericalTransform getSphericalTransform() {
+	return (euler == null) ? null :
+	    new SphericalTransform(new SphericalTransform(euler), trig);
+    }
+}
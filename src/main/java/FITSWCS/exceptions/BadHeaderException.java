@@ -0,0 +1,22 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS.exceptions;
+
+/**
+ * an exception indicating a FITS header that cannot be read: a card that
+ * is not in the form required of it or a missing END card
+ */
+public class BadHeaderException extends FITSWCSException {
+    private final static long serialVersionUID = 1L;
+
+    public BadHeaderException(String s) { super(s); }
+    public BadHeaderException() { super(); }
+}
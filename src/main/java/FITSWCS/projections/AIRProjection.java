@@ -82,10 +82,26 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class AIRProjection extends Projection {
+public class AIRProjection extends ZenithalProjection {
 
     protected final static double tol = 1.0e-4;
 
+    /**
+     * the number of intervals in the table of xi against radius used 
+     * to start the inverse
+     */
+    protected final static int NTAB = 1024;
+
+    /**
+     * the largest xi = (90-theta)/2, in radians, covered by the table
+     */
+    protected final static double XIMAX = 80.0*D2R;
+
+    /**
+     * xi, in radians, at NTAB+1 equally-spaced radii from 0 to w[6].
+     */
+    protected double[] xitab;
+
     /**
      * Create an AIRProjection object
      * @param r0 sphere radius; if 0, it defaults to 180/PI 
@@ -161,6 +177,8 @@ public class AIRProjection extends Projection {
      *	             radians.                                           
      *	 w[4]   w[1]*tol                                                
      *	 w[5]   (180/pi)/w[1]                                           
+     *	 w[6]   radius, in units of r0, at xi = XIMAX
+     *	 xitab  xi tabulated against radius up to w[6]
      * </pre>
      */
     private void init(double r0, double[] p) 
@@ -173,7 +191,7 @@ public class AIRProjection extends Projection {
 
 	if (r0 == 0.0) r0 = R2D;
 	this.r0 = r0;
-	this.w = new double[6];
+	this.w = new double[7];
 	this.p = new double[p.length];
 	System.arraycopy(p, 0, this.p, 0, p.length);
 
@@ -193,8 +211,129 @@ public class AIRProjection extends Projection {
 	w[3] = tol;
 	w[4] = w[1]*tol;
 	w[5] = R2D/w[1];
+
+	// Tabulate xi against radius.
+	w[6] = radius(XIMAX);
+	xitab = new double[NTAB+1];
+	xitab[NTAB] = XIMAX;
+	for (int i = 1; i < NTAB; i++) {
+	    xitab[i] = solve(i*w[6]/NTAB, xitab[i-1], XIMAX, 
+			     0.5*(xitab[i-1] + XIMAX), null, null, false);
+	}
     }	
 
+    /**
+     * return the radius, in units of r0, at xi = (90-theta)/2 (in
+     * radians, 0 < xi < pi/2).
+     */
+    private double radius(double xi) {
+	double cxi = Math.cos(xi);
+	double txi = Math.sqrt(1.0-cxi*cxi)/cxi;
+	return -(Math.log(cxi)/txi + w[0]*txi);
+    }
+
+    /**
+     * solve radius(xi) = r for xi in the interval (xi1,xi2), where
+     * radius(xi1) < r <= radius(xi2), by Newton-Raphson iteration from 
+     * xi, falling back to bisection whenever a step would leave the
+     * interval.  If seed is not null, it is set to {xi, r, dr/dxi} for
+     * the solution; if stats is not null, the solution is recorded in 
+     * it, as seeded or not.
+     */
+    private double solve(double r, double xi1, double xi2, double xi,
+			 double[] seed, SolverStats stats, boolean seeded) 
+    {
+	int m;
+	double cxi, d, dr=0.0, lc, rt, sxi2, txi;
+	double tol = 1.0e-12;
+
+	for (m = 0; m < 100; m++) {
+	    cxi  = Math.cos(xi);
+	    sxi2 = 1.0 - cxi*cxi;
+	    txi  = Math.sqrt(sxi2)/cxi;
+	    lc   = Math.log(cxi);
+	    rt   = -(lc/txi + w[0]*txi);
+	    dr   = 1.0 + lc/sxi2 - w[0]/(cxi*cxi);
+
+	    if (rt < r) {
+		xi1 = xi;
+	    } else {
+		xi2 = xi;
+	    }
+
+	    d = (rt - r)/dr;
+	    if (dr > 0.0 && xi-d >= xi1 && xi-d <= xi2) {
+		xi -= d;
+		if (Math.abs(d) < tol) break;
+	    } else {
+		xi = 0.5*(xi1 + xi2);
+		if (xi2-xi1 < tol) break;
+	    }
+	}
+
+	if (seed != null) {
+	    seed[0] = xi;
+	    seed[1] = r;
+	    seed[2] = dr;
+	}
+	if (stats != null) stats.record((m < 100) ? m+1 : m, seeded);
+	return xi;
+    }
+
+    /**
+     * return xi = (90-theta)/2, in radians, at which the radius is r 
+     * (in units of r0, r >= w[4]), or NaN if no solution can be found.
+     * Within the table xitab provides a bracketing interval and, by 
+     * linear interpolation, a starting point for solve(); beyond it an
+     * interval is first found by successively halving the distance 
+     * to xi = 90 degrees.
+     */
+    protected double xiAt(double r) {
+	return xiAt(r, null, null);
+    }
+
+    /**
+     * same as xiAt(r), except that if seed is not null, a solution 
+     * within the table starts from a first-order prediction made from
+     * the previous one, seed = {xi, r, dr/dxi}, provided the prediction
+     * lies within the bracketing interval from the table.  seed is 
+     * updated for the next call.  If stats is not null, the solution is
+     * recorded in it.
+     */
+    protected double xiAt(double r, double[] seed, SolverStats stats) {
+	int i, j;
+	double f, r2, xi, xi1, xi2;
+
+	if (r < w[6]) {
+	    f = r*NTAB/w[6];
+	    i = (int) f;
+	    xi1 = xitab[i];
+	    xi2 = xitab[i+1];
+
+	    if (seed != null && seed[2] > 0.0) {
+		xi = seed[0] + (r - seed[1])/seed[2];
+		if (xi >= xi1 && xi <= xi2) 
+		    return solve(r, xi1, xi2, xi, seed, stats, true);
+		if (stats != null) stats.recordFallback();
+	    }
+	    return solve(r, xi1, xi2, xi1 + (f - i)*(xi2 - xi1), 
+			 seed, stats, false);
+	}
+
+	// Find a solution interval.
+	xi1 = XIMAX;
+	xi2 = XIMAX;
+	for (j = 0; j < 30; j++) {
+	    xi2 = 0.5*(xi1 + 0.5*PI);
+	    r2 = radius(xi2);
+	    if (r2 >= r) break;
+	    xi1 = xi2;
+	}
+	if (j == 30) return Double.NaN;
+
+	return solve(r, xi1, xi2, 0.5*(xi1 + xi2), seed, stats, false);
+    }
+
     /**
      * Compute (x,y) coordinates in the plane of projection from native 
      * spherical coordinates (phi,theta). 
@@ -205,6 +344,7 @@ public class AIRProjection extends Projection {
     {
 	double cxi, r, txi, xi;
 	double[] out = new double[2];
+	double[] sc = new double[2];
 	if (p == null) throw new UnsetProjectionParameterException();
 
 	if (theta == 90.0) {
@@ -214,7 +354,7 @@ public class AIRProjection extends Projection {
 	    if (xi < w[3]) {
 		r = xi*w[2];
 	    } else {
-		cxi = TrigD.cos((90.0 - theta)/2.0);
+		cxi = trig.cos((90.0 - theta)/2.0);
 		txi = Math.sqrt(1.0-cxi*cxi)/cxi;
 		r = -r0*(Math.log(cxi)/txi + w[0]*txi);
 	    }
@@ -224,8 +364,9 @@ public class AIRProjection extends Projection {
 						     theta);
 	}
 
-	out[0] =  r*TrigD.sin(phi);  // x
-	out[1] = -r*TrigD.cos(phi);  // y
+	trig.sincos(phi, sc);
+	out[0] =  r*sc[0];  // x
+	out[1] = -r*sc[1];  // y
 	return out;
     }
 
@@ -237,9 +378,7 @@ public class AIRProjection extends Projection {
     public double[] rev(double x, double y) 
 	throws PixelBeyondProjectionException
     {
-	int   j;
-	double cxi, lambda, r, r1, r2, rt, txi, x1, x2, xi;
-	double tol = 1.0e-12;
+	double r, xi;
 	double[] out = new double[2];
 	if (p == null) throw new UnsetProjectionParameterException();
 
@@ -250,61 +389,153 @@ public class AIRProjection extends Projection {
 	    xi = r*w[5];
 	} else {
 
-	    // Find a solution interval. 
-	    x1 = x2 = 1.0;
-	    r1 = r2 = 0.0;
-	    for (j = 0; j < 30; j++) {
-		x2 = x1/2.0;
-		txi = Math.sqrt(1.0-x2*x2)/x2;
-		r2 = -(Math.log(x2)/txi + w[0]*txi);
-
-		if (r2 >= r) break;
-		x1 = x2;
-		r1 = r2;
-	    }
-	    if (j == 30) 
+	    xi = xiAt(r);
+	    if (Double.isNaN(xi)) 
 		throw new PixelBeyondProjectionException(
 		            "AIR: No solution interval for (x,y)");
+	    xi *= R2D;
+	}
 
-	    cxi=0;
-	    for (j = 0; j < 100; j++) {
+	if (r == 0.0) {
+	    out[0] = 0.0;
+	} else {
+	    out[0] = trig.atan2(x, -y);
+	}
+	out[1] = 90.0 - 2.0*xi;
+	return out;
+    }
 
-		// Weighted division of the interval. 
-		lambda = (r2-r)/(r2-r1);
-		if (lambda < 0.1) {
-		    lambda = 0.1;
-		} else if (lambda > 0.9) {
-		    lambda = 0.9;
-		}
-		cxi = x2 - lambda*(x2-x1);
+    /**
+     * Compute (x,y) coordinates in the plane of projection for ncoord
+     * native spherical positions without allocating any arrays or
+     * using the radial tables.
+     * @see ZenithalProjection#fwdExact(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void fwdExact(int ncoord, double[] phi, int phioff,
+			    double[] theta, int thetaoff, int instride,
+			    double[] x, int xoff, double[] y, int yoff,
+			    int outstride, byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	double ph, th, cxi, r, txi, xi;
+	int i = 0, j = 0;
+	double[] sc = new double[2];
 
-		txi = Math.sqrt(1.0-cxi*cxi)/cxi;
-		rt = -(Math.log(cxi)/txi + w[0]*txi);
+	if (p == null) throw new UnsetProjectionParameterException();
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    ph = phi[phioff+i];
+	    th = theta[thetaoff+i];
 
-		if (rt < r) {
-		    if (r-rt < tol) break;
-		    r1 = rt;
-		    x1 = cxi;
+	    if (th == 90.0) {
+		r = 0.0;
+	    } else if (th > -90.0) {
+		xi = D2R*(90.0 - th)/2.0;
+		if (xi < w[3]) {
+		    r = xi*w[2];
 		} else {
-		    if (rt-r < tol) break;
-		    r2 = rt;
-		    x2 = cxi;
+		    cxi = trig.cos((90.0 - th)/2.0);
+		    txi = Math.sqrt(1.0-cxi*cxi)/cxi;
+		    r = -r0*(Math.log(cxi)/txi + w[0]*txi);
 		}
+	    } else {
+		if (stat == null)
+		    throw new PixelBeyondProjectionException("AIR: angle out of " +
+							     "bounds: theta = " +
+							     th);
+		reject(stat, statoff+k, x, xoff+j, y, yoff+j);
+		continue;
 	    }
-	    if (j == 100) 
-		throw new PixelBeyondProjectionException(
-		    "AIR: Weighted division for solution interval not found");
 
-	    xi = TrigD.acos(cxi);
+	    trig.sincos(ph, sc);
+	    x[xoff+j] =  r*sc[0];
+	    y[yoff+j] = -r*sc[1];
+
+	    if (stat != null) stat[statoff+k] = OK;
 	}
+    }
 
-	if (r == 0.0) {
-	    out[0] = 0.0;
-	} else {
-	    out[0] = TrigD.atan2(x, -y);
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection without allocating any arrays
+     * or using the radial tables.
+     * @see ZenithalProjection#revExact(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revExact(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	revBatch(ncoord, x, xoff, y, yoff, instride, phi, phioff,
+		 theta, thetaoff, outstride, stat, statoff, null, null);
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for a set of
+     * ncoord (x,y) positions, as rev(int, double[], int, double[], int, 
+     * int, double[], int, double[], int, int, byte[], int) does, except 
+     * that stat may be null, in which case the first position that
+     * cannot be deprojected causes an exception to be thrown.  If seed 
+     * is true, the iterative solution for each position starts from a 
+     * prediction made from that for the previous one; this saves 
+     * iterations when neighbouring positions are close together, as they
+     * are in raster order.  If stats is not null, each iterative 
+     * solution is recorded in it.
+     */
+    public void rev(int ncoord, double[] x, int xoff,
+		    double[] y, int yoff, int instride,
+		    double[] phi, int phioff, double[] theta, int thetaoff,
+		    int outstride, byte[] stat, int statoff,
+		    boolean seed, SolverStats stats)
+	throws PixelBeyondProjectionException
+    {
+	revBatch(ncoord, x, xoff, y, yoff, instride, phi, phioff,
+		 theta, thetaoff, outstride, stat, statoff,
+		 (seed) ? new double[3] : null, stats);
+    }
+
+    private void revBatch(int ncoord, double[] x, int xoff,
+			  double[] y, int yoff, int instride,
+			  double[] phi, int phioff, double[] theta,
+			  int thetaoff, int outstride,
+			  byte[] stat, int statoff, 
+			  double[] seed, SolverStats stats)
+	throws PixelBeyondProjectionException
+    {
+	double xv, yv, r, xi;
+	int i = 0, j = 0;
+
+	if (p == null) throw new UnsetProjectionParameterException();
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    xv = x[xoff+i];
+	    yv = y[yoff+i];
+
+	    r = Math.sqrt(xv*xv + yv*yv)/r0;
+	    if (r == 0.0) {
+		xi = 0.0;
+	    } else if (r < w[4]) {
+		xi = r*w[5];
+	    } else {
+
+		xi = xiAt(r, seed, stats);
+		if (Double.isNaN(xi)) {
+		    if (stat == null)
+			throw new PixelBeyondProjectionException(
+				    "AIR: No solution interval for (x,y)");
+		    reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+		    continue;
+		}
+		xi *= R2D;
+	    }
+
+	    phi[phioff+j] = (r == 0.0) ? 0.0 : trig.atan2(xv, -yv);
+	    theta[thetaoff+j] = 90.0 - 2.0*xi;
+
+	    if (stat != null) stat[statoff+k] = OK;
 	}
-	out[1] = 90.0 - 2.0*xi;
-	return out;
     }
 
     /**
@@ -81,7 +81,7 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class AITProjection extends Projection {
+public class AITProjection extends PseudocylindricalProjection {
 
     protected double tol = 1.0e-12;
 
@@ -151,10 +151,10 @@ public class AITProjection extends Projection {
 	double costhe, ww;
 	double[] out = new double[2];
 
-	costhe = TrigD.cos(theta);
-	ww = Math.sqrt(w[0]/(1.0 + costhe*TrigD.cos(phi/2.0)));
-	out[0] = 2.0*ww*costhe*TrigD.sin(phi/2.0);
-	out[1] = ww*TrigD.sin(theta);
+	costhe = trig.cos(theta);
+	ww = Math.sqrt(w[0]/(1.0 + costhe*trig.cos(phi/2.0)));
+	out[0] = 2.0*ww*costhe*trig.sin(phi/2.0);
+	out[1] = ww*trig.sin(theta);
 	return out;
     }
 
@@ -190,13 +190,82 @@ public class AITProjection extends Projection {
 	if (xp == 0.0 && yp == 0.0) {
 	    out[0] = 0.0;
 	} else {
-	    out[0] = 2.0*TrigD.atan2(yp, xp);
+	    out[0] = 2.0*trig.atan2(yp, xp);
 	}
-	out[1] = TrigD.asin(s);
+	out[1] = trig.asin(s);
 
 	return out;
     }
 
+    /**
+     * Compute (x,y) coordinates in the plane of projection for n native
+     * longitudes along the native latitude theta.
+     * @see PseudocylindricalProjection#fwdRow(double, int, double[], int, int, double[], int, double[], int, int)
+     */
+    protected void fwdRow(double theta, int n, double[] phi,
+			  int phioff, int phistride,
+			  double[] x, int xoff, double[] y, int yoff,
+			  int outstride)
+    {
+	final double c = w[0], costhe = trig.cos(theta), sinthe = trig.sin(theta);
+	double ph, ww;
+	int i = 0, j = 0;
+
+	for (int k = 0; k < n; k++, i += phistride, j += outstride) {
+	    ph = phi[phioff+i];
+
+	    ww = Math.sqrt(c/(1.0 + costhe*trig.cos(ph/2.0)));
+	    x[xoff+j] = 2.0*ww*costhe*trig.sin(ph/2.0);
+	    y[yoff+j] = ww*sinthe;
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection without allocating any arrays.
+     * @see Projection#revBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revBatch(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	double xv, yv, s, u, xp, yp, z;
+	int i = 0, j = 0;
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    xv = x[xoff+i];
+	    yv = y[yoff+i];
+
+	    u = 1.0 - xv*xv*w[2] - yv*yv*w[1];
+	    if (u < 0.0) {
+		if (stat == null)
+		    throw new PixelBeyondProjectionException(
+			    "AIT: Solution not defined for x,y: " + xv + ", " + yv);
+		reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+		continue;
+	    }
+	    z = Math.sqrt(u);
+	    s = z*yv/r0;
+	    if (s < -1.0 || s > 1.0) {
+		if (stat == null)
+		    throw new PixelBeyondProjectionException(
+			    "AIT: Solution not defined for x,y: " + xv + ", " + yv);
+		reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+		continue;
+	    }
+
+	    xp = 2.0*z*z - 1.0;
+	    yp = z*xv*w[3];
+	    phi[phioff+j] = (xp == 0.0 && yp == 0.0) ? 0.0 : 2.0*trig.atan2(yp, xp);
+	    theta[thetaoff+j] = trig.asin(s);
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
     /**
      * set the sphere radius 
      */
@@ -82,7 +82,7 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class ARCProjection extends Projection {
+public class ARCProjection extends ZenithalProjection {
 
     protected final static double tol = 1.0e-13;
 
@@ -145,10 +145,12 @@ public class ARCProjection extends Projection {
     {
 	double r;
 	double[] out = new double[2];
+	double[] sc = new double[2];
 
 	r =  w[0]*(90.0 - theta);
-	out[0] =  r*TrigD.sin(phi);
-	out[1] = -r*TrigD.cos(phi);
+	trig.sincos(phi, sc);
+	out[0] =  r*sc[0];
+	out[1] = -r*sc[1];
 
 	return out;
     }
@@ -173,7 +175,7 @@ public class ARCProjection extends Projection {
 	if (r == 0.0) {
 	    out[0] = 0.0;
 	} else {
-	    out[0] = TrigD.atan2(x, -y);
+	    out[0] = trig.atan2(x, -y);
 	}
 	out[1] = 90.0 - r*w[1];
 
@@ -185,6 +187,62 @@ public class ARCProjection extends Projection {
      */
     public double[] rev(double[] xy) { return rev(xy[0], xy[1]); }
 
+    /**
+     * Compute (x,y) coordinates in the plane of projection for ncoord
+     * native spherical positions without allocating any arrays or
+     * using the radial tables.
+     * @see ZenithalProjection#fwdExact(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void fwdExact(int ncoord, double[] phi, int phioff,
+			    double[] theta, int thetaoff, int instride,
+			    double[] x, int xoff, double[] y, int yoff,
+			    int outstride, byte[] stat, int statoff)
+    {
+	double ph, th, r;
+	int i = 0, j = 0;
+	double[] sc = new double[2];
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    ph = phi[phioff+i];
+	    th = theta[thetaoff+i];
+
+	    r =  w[0]*(90.0 - th);
+
+	    trig.sincos(ph, sc);
+	    x[xoff+j] =  r*sc[0];
+	    y[yoff+j] = -r*sc[1];
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection without allocating any arrays
+     * or using the radial tables.
+     * @see ZenithalProjection#revExact(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revExact(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+    {
+	double xv, yv, r;
+	int i = 0, j = 0;
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    xv = x[xoff+i];
+	    yv = y[yoff+i];
+
+	    r = Math.sqrt(xv*xv + yv*yv);
+	    phi[phioff+j] = (r == 0.0) ? 0.0 : trig.atan2(xv, -yv);
+	    theta[thetaoff+j] = 90.0 - r*w[1];
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
     /**
      * set the sphere radius 
      */
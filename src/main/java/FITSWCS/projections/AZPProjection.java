@@ -82,7 +82,7 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class AZPProjection extends Projection {
+public class AZPProjection extends ZenithalProjection {
 
     protected final static double tol = 1.0e-13;
 
@@ -184,16 +184,19 @@ public class AZPProjection extends Projection {
     {
 	double r, s;
 	double[] out = new double[2];
+	double[] sc = new double[2];
 	if (p == null) throw new UnsetProjectionParameterException();
 
-	s = p[1] + TrigD.sin(theta);
+	trig.sincos(theta, sc);
+	s = p[1] + sc[0];
 	if (s == 0.0) 
 	    throw new PixelBeyondProjectionException("AZP: theta = " + theta);
 
-	r =  w[0]*TrigD.cos(theta)/s;
+	r =  w[0]*sc[1]/s;
 
-	out[0] =  r*TrigD.sin(phi);     // x
-	out[1] = -r*TrigD.cos(phi);     // y
+	trig.sincos(phi, sc);
+	out[0] =  r*sc[0];     // x
+	out[1] = -r*sc[1];     // y
 	return out;
     }
 
@@ -213,7 +216,7 @@ public class AZPProjection extends Projection {
 	if (r == 0.0) {
 	    out[0] = 0.0;
 	} else {
-	    out[0] = TrigD.atan2(x, -y);
+	    out[0] = trig.atan2(x, -y);
 	}
 
 	rho = r*w[1];
@@ -225,14 +228,102 @@ public class AZPProjection extends Projection {
 						   ", " + y + ")");
 
 	    double tmp = (s < 0.0) ? -Math.abs(90.0) : Math.abs(90.0);
-	    out[1] = TrigD.atan2(1.0,rho) - tmp;               // theta
+	    out[1] = trig.atan2(1.0,rho) - tmp;               // theta
 	} else {
-	    out[1] = TrigD.atan2(1.0,rho) - TrigD.asin(s);     // theta
+	    out[1] = trig.atan2(1.0,rho) - trig.asin(s);     // theta
 	}
 
 	return out;
     }
 
+    /**
+     * Compute (x,y) coordinates in the plane of projection for ncoord
+     * native spherical positions without allocating any arrays or
+     * using the radial tables.
+     * @see ZenithalProjection#fwdExact(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void fwdExact(int ncoord, double[] phi, int phioff,
+			    double[] theta, int thetaoff, int instride,
+			    double[] x, int xoff, double[] y, int yoff,
+			    int outstride, byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	double ph, th, r, s;
+	int i = 0, j = 0;
+	double[] sc = new double[2];
+
+	if (p == null) throw new UnsetProjectionParameterException();
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    ph = phi[phioff+i];
+	    th = theta[thetaoff+i];
+
+	    trig.sincos(th, sc);
+	    s = p[1] + sc[0];
+	    if (s == 0.0) {
+		if (stat == null)
+		    throw new PixelBeyondProjectionException("AZP: theta = " + th);
+		reject(stat, statoff+k, x, xoff+j, y, yoff+j);
+		continue;
+	    }
+
+	    r =  w[0]*sc[1]/s;
+
+	    trig.sincos(ph, sc);
+	    x[xoff+j] =  r*sc[0];
+	    y[yoff+j] = -r*sc[1];
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection without allocating any arrays
+     * or using the radial tables.
+     * @see ZenithalProjection#revExact(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revExact(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	double xv, yv, r, rho, s, t;
+	int i = 0, j = 0;
+
+	if (p == null) throw new UnsetProjectionParameterException();
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    xv = x[xoff+i];
+	    yv = y[yoff+i];
+
+	    r = Math.sqrt(xv*xv + yv*yv);
+	    rho = r*w[1];
+	    s = rho*p[1]/Math.sqrt(rho*rho+1.0);
+	    if (Math.abs(s) > 1.0) {
+		if (Math.abs(s) > 1.0+tol) {
+		    if (stat == null)
+			throw new
+			    PixelBeyondProjectionException("AZP: (x,y) = (" + xv +
+							   ", " + yv + ")");
+		    reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+		    continue;
+		}
+
+		t = trig.atan2(1.0,rho) - ((s < 0.0) ? -90.0 : 90.0);
+	    } else {
+		t = trig.atan2(1.0,rho) - trig.asin(s);
+	    }
+
+	    phi[phioff+j] = (r == 0.0) ? 0.0 : trig.atan2(xv, -yv);
+	    theta[thetaoff+j] = t;
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
     /**
      * set the sphere radius 
      */
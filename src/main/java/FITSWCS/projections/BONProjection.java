@@ -82,7 +82,7 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class BONProjection extends Projection {
+public class BONProjection extends PseudocylindricalProjection {
 
     protected GLSProjection gls=null;
 
@@ -194,10 +194,10 @@ public class BONProjection extends Projection {
 	    out = new double[2];
 
 	    r = w[2] - theta*w[1];
-	    a = r0*phi*TrigD.cos(theta)/r;
+	    a = r0*phi*trig.cos(theta)/r;
 
-	    out[0] =        r*TrigD.sin(a);  // x
-	    out[1] = w[2] - r*TrigD.cos(a);  // y
+	    out[0] =        r*trig.sin(a);  // x
+	    out[1] = w[2] - r*trig.cos(a);  // y
 	}
 	return out;
     }
@@ -234,15 +234,15 @@ public class BONProjection extends Projection {
 	    if (r == 0.0) {
 		a = 0.0;
 	    } else {
-		a = TrigD.atan2(x/r, dy/r);
+		a = trig.atan2(x/r, dy/r);
 	    }
 
 	    out[1] = (w[2] - r)/w[1];
-	    costhe = TrigD.cos(out[1]);
+	    costhe = trig.cos(out[1]);
 	    if (costhe == 0.0) {
 		out[0] = 0.0;
 	    } else {
-		out[0] = a*(r/r0)/TrigD.cos(out[1]);
+		out[0] = a*(r/r0)/trig.cos(out[1]);
 	    }
 	}
 
@@ -254,6 +254,74 @@ public class BONProjection extends Projection {
      */
     public double[] rev(double[] xy) { return rev(xy[0], xy[1]); }
 
+    /**
+     * Compute (x,y) coordinates in the plane of projection for n native
+     * longitudes along the native latitude theta.
+     * @see PseudocylindricalProjection#fwdRow(double, int, double[], int, int, double[], int, double[], int, int)
+     */
+    protected void fwdRow(double theta, int n, double[] phi,
+			  int phioff, int phistride,
+			  double[] x, int xoff, double[] y, int yoff,
+			  int outstride)
+    {
+	if (p == null) throw new UnsetProjectionParameterException();
+	if (gls != null) {
+	    // Sanson-Flamsteed.
+	    gls.fwdRow(theta, n, phi, phioff, phistride,
+		       x, xoff, y, yoff, outstride);
+	    return;
+	}
+
+	final double y0 = w[2], r = w[2] - theta*w[1], cth = trig.cos(theta);
+	double a;
+	int i = 0, j = 0;
+
+	for (int k = 0; k < n; k++, i += phistride, j += outstride) {
+	    a = r0*phi[phioff+i]*cth/r;
+	    x[xoff+j] =      r*trig.sin(a);
+	    y[yoff+j] = y0 - r*trig.cos(a);
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection without allocating any arrays.
+     * @see Projection#revBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revBatch(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+    {
+	double xv, yv, a, dy, costhe, r, t;
+	int i = 0, j = 0;
+
+	if (p == null) throw new UnsetProjectionParameterException();
+	if (gls != null) {
+	    // Sanson-Flamsteed.
+	    gls.revBatch(ncoord, x, xoff, y, yoff, instride,
+			 phi, phioff, theta, thetaoff, outstride, stat, statoff);
+	    return;
+	}
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    xv = x[xoff+i];
+	    yv = y[yoff+i];
+
+	    dy = w[2] - yv;
+	    r = Math.sqrt(xv*xv + dy*dy);
+	    if (p[1] < 0.0) r = -r;
+	    a = (r == 0.0) ? 0.0 : trig.atan2(xv/r, dy/r);
+	    t = (w[2] - r)/w[1];
+	    costhe = trig.cos(t);
+	    phi[phioff+j] = (costhe == 0.0) ? 0.0 : a*(r/r0)/costhe;
+	    theta[thetaoff+j] = t;
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
     /**
      * set the sphere radius 
      */
@@ -82,7 +82,7 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class CEAProjection extends Projection {
+public class CEAProjection extends CylindricalProjection {
 
     protected final static double tol = 1.0e-13;
 
@@ -204,7 +204,7 @@ public class CEAProjection extends Projection {
 	if (p == null) throw new UnsetProjectionParameterException();
 
 	out[0] = w[0]*phi;                  // x
-	out[1] = w[2]*TrigD.sin(theta);     // y
+	out[1] = w[2]*trig.sin(theta);     // y
 	return out;
     }
 
@@ -233,11 +233,134 @@ public class CEAProjection extends Projection {
 						     1/w[3]);
 
 	out[0] = x*w[1];
-	out[1] = TrigD.asin(s);
+	out[1] = trig.asin(s);
 
 	return out;
     }
 
+    /**
+     * Compute (x,y) coordinates in the plane of projection for ncoord
+     * native spherical positions without allocating any arrays.
+     * @see Projection#fwdBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void fwdBatch(int ncoord, double[] phi, int phioff,
+			    double[] theta, int thetaoff, int instride,
+			    double[] x, int xoff, double[] y, int yoff,
+			    int outstride, byte[] stat, int statoff)
+    {
+	double ph, th;
+	int i = 0, j = 0;
+
+	if (p == null) throw new UnsetProjectionParameterException();
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    ph = phi[phioff+i];
+	    th = theta[thetaoff+i];
+
+	    x[xoff+j] = w[0]*ph;
+	    y[yoff+j] = w[2]*trig.sin(th);
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection without allocating any arrays.
+     * @see Projection#revBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revBatch(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	double xv, yv, s;
+	int i = 0, j = 0;
+
+	if (p == null) throw new UnsetProjectionParameterException();
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    xv = x[xoff+i];
+	    yv = y[yoff+i];
+
+	    s = yv*w[3];
+	    if (Math.abs(s) > 1.0) {
+		if (stat == null)
+		    throw new PixelBeyondProjectionException("CEA: y=" + yv + " < " +
+							     1/w[3]);
+		reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+		continue;
+	    }
+	    phi[phioff+j]   = xv*w[1];
+	    theta[thetaoff+j] = trig.asin(s);
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
+    /**
+     * compute x for n native longitudes
+     * @see CylindricalProjection#fwdPhi(int, double[], int, double[], int)
+     */
+    protected void fwdPhi(int n, double[] phi, int phioff,
+			  double[] x, int xoff)
+    {
+	if (p == null) throw new UnsetProjectionParameterException();
+
+	for (int k = 0; k < n; k++) x[xoff+k] = w[0]*phi[phioff+k];
+    }
+
+    /**
+     * compute y for n native latitudes
+     * @see CylindricalProjection#fwdTheta(int, double[], int, double[], int, byte[])
+     */
+    protected void fwdTheta(int n, double[] theta, int thetaoff,
+			    double[] y, int yoff, byte[] stat)
+    {
+	if (p == null) throw new UnsetProjectionParameterException();
+
+	for (int k = 0; k < n; k++) {
+	    y[yoff+k] = w[2]*trig.sin(theta[thetaoff+k]);
+	    stat[k] = OK;
+	}
+    }
+
+    /**
+     * compute phi for n values of x
+     * @see CylindricalProjection#revX(int, double[], int, double[], int)
+     */
+    protected void revX(int n, double[] x, int xoff,
+			double[] phi, int phioff)
+    {
+	if (p == null) throw new UnsetProjectionParameterException();
+
+	for (int k = 0; k < n; k++) phi[phioff+k] = x[xoff+k]*w[1];
+    }
+
+    /**
+     * compute theta for n values of y
+     * @see CylindricalProjection#revY(int, double[], int, double[], int, byte[])
+     */
+    protected void revY(int n, double[] y, int yoff,
+			double[] theta, int thetaoff, byte[] stat)
+    {
+	if (p == null) throw new UnsetProjectionParameterException();
+
+	double s;
+
+	for (int k = 0; k < n; k++) {
+	    s = y[yoff+k]*w[3];
+	    if (Math.abs(s) > 1.0) {
+		stat[k] = PIXEL_BEYOND_PROJECTION;
+		continue;
+	    }
+	    theta[thetaoff+k] = trig.asin(s);
+	    stat[k] = OK;
+	}
+    }
+
     /**
      * set the sphere radius 
      */
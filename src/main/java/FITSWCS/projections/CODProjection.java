@@ -82,7 +82,7 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class CODProjection extends Projection {
+public class CODProjection extends ConicProjection {
 
     /**
      * Create an CODProjection object with a given oblateness
@@ -204,13 +204,15 @@ public class CODProjection extends Projection {
     {
 	double a, r;
 	double[] out = new double[2];
+	double[] sc = new double[2];
 	if (p == null) throw new UnsetProjectionParameterException();
 
 	a = w[0]*phi;
 	r = w[3] - theta;
 
-	out[0] =        r*TrigD.sin(a);       
-	out[1] = w[2] - r*TrigD.cos(a);
+	trig.sincos(a, sc);
+	out[0] =        r*sc[0];
+	out[1] = w[2] - r*sc[1];
 	return out;
     }
 
@@ -240,7 +242,7 @@ public class CODProjection extends Projection {
 	if (r == 0.0) {
 	    a = 0.0;
 	} else {
-	    a = TrigD.atan2(x/r, dy/r);
+	    a = trig.atan2(x/r, dy/r);
 	}
 
 	out[0] = a*w[1];                          
@@ -248,6 +250,32 @@ public class CODProjection extends Projection {
 	return out;
     }
 
+    /**
+     * compute R(theta) for n native latitudes.
+     * @see ConicProjection#radius(int, double[], double[], byte[])
+     */
+    protected void radius(int n, double[] theta, double[] r, byte[] st) {
+	final double w3 = w[3];
+
+	for (int k = 0; k < n; k++) {
+	    r[k] = w3 - theta[k];
+	    st[k] = OK;
+	}
+    }
+
+    /**
+     * compute theta for n arc radii.
+     * @see ConicProjection#latitude(int, double[], double[], byte[])
+     */
+    protected void latitude(int n, double[] r, double[] theta, byte[] st) {
+	final double w3 = w[3];
+
+	for (int k = 0; k < n; k++) {
+	    theta[k] = w3 - r[k];
+	    st[k] = OK;
+	}
+    }
+
     /**
      * set the sphere radius 
      */
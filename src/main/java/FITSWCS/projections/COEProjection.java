@@ -82,7 +82,7 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class COEProjection extends Projection {
+public class COEProjection extends ConicProjection {
 
     protected double tol = 1.0e-12;
 
@@ -213,17 +213,19 @@ public class COEProjection extends Projection {
     {
 	double a, r;
 	double[] out = new double[2];
+	double[] sc = new double[2];
 	if (p == null) throw new UnsetProjectionParameterException();
 
 	a = phi*w[0];
 	if (theta == -90.0) {
 	    r = w[8];
 	} else {
-	    r = w[3]*Math.sqrt(w[4] - w[5]*TrigD.sin(theta));
+	    r = w[3]*Math.sqrt(w[4] - w[5]*trig.sin(theta));
 	}
 
-	out[0] =        r*TrigD.sin(a);       
-	out[1] = w[2] - r*TrigD.cos(a);
+	trig.sincos(a, sc);
+	out[0] =        r*sc[0];
+	out[1] = w[2] - r*sc[1];
 	return out;
     }
 
@@ -253,7 +255,7 @@ public class COEProjection extends Projection {
 	if (r == 0.0) {
 	    a = 0.0;
 	} else {
-	    a = TrigD.atan2(x/r, dy/r);
+	    a = trig.atan2(x/r, dy/r);
 	}
 
 	out[0] = a*w[1];                          
@@ -272,13 +274,59 @@ public class COEProjection extends Projection {
 		 "COE: Calculation failed for (x,y) = (" + x + ", " + y + ")");
 		}
 	    } else {
-		out[1] = TrigD.asin(ww);
+		out[1] = trig.asin(ww);
 	    }
 	}
 
 	return out;
     }
 
+    /**
+     * compute R(theta) for n native latitudes.
+     * @see ConicProjection#radius(int, double[], double[], byte[])
+     */
+    protected void radius(int n, double[] theta, double[] r, byte[] st) {
+	final double w3 = w[3], w4 = w[4], w5 = w[5], w8 = w[8];
+
+	for (int k = 0; k < n; k++) {
+	    if (theta[k] == -90.0) {
+		r[k] = w8;
+	    } else {
+		r[k] = w3*Math.sqrt(w4 - w5*trig.sin(theta[k]));
+	    }
+	    st[k] = OK;
+	}
+    }
+
+    /**
+     * compute theta for n arc radii.
+     * @see ConicProjection#latitude(int, double[], double[], byte[])
+     */
+    protected void latitude(int n, double[] r, double[] theta, byte[] st) {
+	final double w6 = w[6], w7 = w[7], w8 = w[8];
+	double ww;
+
+	for (int k = 0; k < n; k++) {
+	    st[k] = OK;
+	    if (Math.abs(r[k] - w8) < tol) {
+		theta[k] = -90.0;
+	    } else {
+		ww = (w6 - r[k]*r[k])*w7;
+		if (Math.abs(ww) > 1.0) {
+		    if (Math.abs(ww-1.0) < tol) {
+			theta[k] = 90.0;
+		    } else if (Math.abs(ww+1.0) < tol) {
+			theta[k] = -90.0;
+		    } else {
+			st[k] = PIXEL_BEYOND_PROJECTION;
+		    }
+		} else {
+		    theta[k] = trig.asin(ww);
+		}
+	    }
+	}
+    }
+
     /**
      * set the sphere radius 
      */
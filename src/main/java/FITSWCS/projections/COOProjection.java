@@ -82,7 +82,7 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class COOProjection extends Projection {
+public class COOProjection extends ConicProjection {
 
     protected double tol = 1.0e-12;
 
@@ -220,6 +220,7 @@ public class COOProjection extends Projection {
     {
 	double a, r;
 	double[] out = new double[2];
+	double[] sc = new double[2];
 	if (p == null) throw new UnsetProjectionParameterException();
 
 	a = w[0]*phi;
@@ -231,11 +232,12 @@ public class COOProjection extends Projection {
 		    "COO: no solution for theta = -90");
 	    }
 	} else {
-	    r = w[3]*Math.pow(TrigD.tan((90.0 - theta)/2.0),w[0]);
+	    r = w[3]*Math.pow(trig.tan((90.0 - theta)/2.0),w[0]);
 	}
 
-	out[0] =        r*TrigD.sin(a);       
-	out[1] = w[2] - r*TrigD.cos(a);
+	trig.sincos(a, sc);
+	out[0] =        r*sc[0];
+	out[1] = w[2] - r*sc[1];
 	return out;
     }
 
@@ -258,7 +260,7 @@ public class COOProjection extends Projection {
 	if (r == 0.0) {
 	    a = 0.0;
 	} else {
-	    a = TrigD.atan2(x/r, dy/r);
+	    a = trig.atan2(x/r, dy/r);
 	}
 
 	out[0] = a*w[1];                          
@@ -271,12 +273,54 @@ public class COOProjection extends Projection {
 		    "COO: no solution for (x,y) = (" + x + ", " + y + ")");
 	    }
 	} else {
-	    out[1] = 90.0 - 2.0*TrigD.atan(Math.pow(r*w[4],w[1]));
+	    out[1] = 90.0 - 2.0*trig.atan(Math.pow(r*w[4],w[1]));
 	}
 
 	return out;
     }
 
+    /**
+     * compute R(theta) for n native latitudes.
+     * @see ConicProjection#radius(int, double[], double[], byte[])
+     */
+    protected void radius(int n, double[] theta, double[] r, byte[] st) {
+	final double w0 = w[0], w3 = w[3];
+
+	for (int k = 0; k < n; k++) {
+	    st[k] = OK;
+	    if (theta[k] == -90.0) {
+		if (w0 < 0.0) {
+		    r[k] = 0.0;
+		} else {
+		    st[k] = PIXEL_BEYOND_PROJECTION;
+		}
+	    } else {
+		r[k] = w3*Math.pow(trig.tan((90.0 - theta[k])/2.0),w0);
+	    }
+	}
+    }
+
+    /**
+     * compute theta for n arc radii.
+     * @see ConicProjection#latitude(int, double[], double[], byte[])
+     */
+    protected void latitude(int n, double[] r, double[] theta, byte[] st) {
+	final double w0 = w[0], w1 = w[1], w4 = w[4];
+
+	for (int k = 0; k < n; k++) {
+	    st[k] = OK;
+	    if (r[k] == 0.0) {
+		if (w0 < 0.0) {
+		    theta[k] = -90.0;
+		} else {
+		    st[k] = PIXEL_BEYOND_PROJECTION;
+		}
+	    } else {
+		theta[k] = 90.0 - 2.0*trig.atan(Math.pow(r[k]*w4,w1));
+	    }
+	}
+    }
+
     /**
      * set the sphere radius 
      */
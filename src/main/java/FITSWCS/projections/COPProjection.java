@@ -82,7 +82,7 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class COPProjection extends Projection {
+public class COPProjection extends ConicProjection {
 
     /**
      * Create an COPProjection object with a given oblateness
@@ -208,13 +208,15 @@ public class COPProjection extends Projection {
     {
 	double a, r;
 	double[] out = new double[2];
+	double[] sc = new double[2];
 	if (p == null) throw new UnsetProjectionParameterException();
 
 	a = w[0]*phi;
-	r = w[2] - w[3]*TrigD.tan(theta-p[1]);
+	r = w[2] - w[3]*trig.tan(theta-p[1]);
 
-	out[0] = r*TrigD.sin(a);       
-	out[1] = w[2] - r*TrigD.cos(a);
+	trig.sincos(a, sc);
+	out[0] = r*sc[0];
+	out[1] = w[2] - r*sc[1];
 	return out;
     }
 
@@ -244,14 +246,40 @@ public class COPProjection extends Projection {
 	if (r == 0.0) {
 	    a = 0.0;
 	} else {
-	    a = TrigD.atan2(x/r, dy/r);
+	    a = trig.atan2(x/r, dy/r);
 	}
 
 	out[0] = a*w[1];                          
-	out[1] = p[1] + TrigD.atan(w[5] - r*w[4]);
+	out[1] = p[1] + trig.atan(w[5] - r*w[4]);
 	return out;
     }
 
+    /**
+     * compute R(theta) for n native latitudes.
+     * @see ConicProjection#radius(int, double[], double[], byte[])
+     */
+    protected void radius(int n, double[] theta, double[] r, byte[] st) {
+	final double w2 = w[2], w3 = w[3], p1 = p[1];
+
+	for (int k = 0; k < n; k++) {
+	    r[k] = w2 - w3*trig.tan(theta[k]-p1);
+	    st[k] = OK;
+	}
+    }
+
+    /**
+     * compute theta for n arc radii.
+     * @see ConicProjection#latitude(int, double[], double[], byte[])
+     */
+    protected void latitude(int n, double[] r, double[] theta, byte[] st) {
+	final double w4 = w[4], w5 = w[5], p1 = p[1];
+
+	for (int k = 0; k < n; k++) {
+	    theta[k] = p1 + trig.atan(w5 - r[k]*w4);
+	    st[k] = OK;
+	}
+    }
+
     /**
      * set the sphere radius 
      */
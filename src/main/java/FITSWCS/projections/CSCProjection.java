@@ -173,16 +173,109 @@ public class CSCProjection extends Projection {
      */
     public double[] fwd(double phi, double theta) 
 	throws PixelBeyondProjectionException
+    {
+	double[] out = new double[2];
+	project(phi, theta, out, 0, out, 1, new double[2]);
+	return out;
+    }
+
+    /**
+     * Compute (x,y) coordinates in the plane of projection for ncoord
+     * native spherical positions.  The positions are projected in chunks,
+     * face by face (see QuadCube), with the same results as the
+     * single-position form.
+     * @see Projection#fwdBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void fwdBatch(int ncoord, double[] phi, int phioff,
+			    double[] theta, int thetaoff, int instride,
+			    double[] x, int xoff, double[] y, int yoff,
+			    int outstride, byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	QuadCube q = new QuadCube(ncoord);
+	double rho;
+	float a, b, xf, yf;
+	int n;
+
+	for (; ncoord > 0; ncoord -= n) {
+	    n = Math.min(ncoord, q.size);
+	    q.sphere(n, phi, phioff, theta, thetaoff, instride, trig);
+	    q.sort(n);
+
+	    for (int f = 0; f < QuadCube.NFACE; f++) {
+		double[] vc = q.v[QuadCube.CI[f]], va = q.v[QuadCube.AI[f]],
+		         vb = q.v[QuadCube.BI[f]];
+		double cs = QuadCube.CS[f], as = QuadCube.AS[f],
+		       bs = QuadCube.BS[f];
+		float x0 = (float) QuadCube.X0[f], y0 = (float) QuadCube.Y0[f];
+
+		for (int j = q.start[f]; j < q.start[f+1]; j++) {
+		    int k = q.order[j];
+		    rho = cs*vc[k];
+		    a = (float) (as*va[k]/rho);
+		    b = (float) (bs*vb[k]/rho);
+		    xf = forward(a, b);
+		    yf = forward(b, a);
+
+		    if (Math.abs(xf) > 1.0) {
+			if (Math.abs(xf) > 1.0+tol) {
+			    q.st[k] = PIXEL_BEYOND_PROJECTION;
+			    continue;
+			}
+			xf = (xf < 0) ? -1.0f : 1.0f;
+		    }
+		    if (Math.abs(yf) > 1.0) {
+			if (Math.abs(yf) > 1.0+tol) {
+			    q.st[k] = PIXEL_BEYOND_PROJECTION;
+			    continue;
+			}
+			yf = (yf < 0) ? -1.0f : 1.0f;
+		    }
+
+		    q.u[k] = w[0]*(x0 + xf);
+		    q.t[k] = w[0]*(y0 + yf);
+		    q.st[k] = OK;
+		}
+	    }
+
+	    for (int k = 0; k < n; k++) {
+		if (q.st[k] == OK) {
+		    x[xoff] = q.u[k];
+		    y[yoff] = q.t[k];
+		    if (stat != null) stat[statoff] = OK;
+		} else {
+		    fwdFailed(q.in0[k], q.in1[k], stat, statoff,
+			      x, xoff, y, yoff);
+		}
+		xoff += outstride;   yoff += outstride;
+		statoff++;
+	    }
+	    phioff += n*instride;  thetaoff += n*instride;
+	}
+    }
+
+    /**
+     * Compute (x,y) coordinates in the plane of projection from native
+     * spherical coordinates (phi,theta), storing them in x[xoff] and
+     * y[yoff].  If the position cannot be projected, a
+     * PixelBeyondProjectionException is thrown.  sc is a two-element
+     * scratch buffer.
+     */
+    private void project(double phi, double theta,
+			 double[] x, int xoff, double[] y, int yoff,
+			 double[] sc)
+	throws PixelBeyondProjectionException
     {
 	int face;
 	double costhe, eta, l, m, n, rho, xi;
-	float a, a2, a2b2, a4, ab, b, b2, b4, ca2, cb2, x0, xf, y0, yf;
-	double[] out = new double[2];
+	float a, b, x0, xf, y0, yf;
 
-	costhe = TrigD.cos(theta);
-	l = costhe*TrigD.cos(phi);
-	m = costhe*TrigD.sin(phi);
-	n = TrigD.sin(theta);
+	trig.sincos(theta, sc);
+	costhe = sc[1];
+	n = sc[0];
+	trig.sincos(phi, sc);
+	l = costhe*sc[1];
+	m = costhe*sc[0];
 
 	face = 0;
 	rho  = n;
@@ -244,44 +337,54 @@ public class CSCProjection extends Projection {
 	a = (float)  (xi/rho);
 	b = (float) (eta/rho);
 
-	a2 = a*a;
-	b2 = b*b;
-	ca2 = 1.0f - a2;
-	cb2 = 1.0f - b2;
-
-	// Avoid floating underflows. 
-	ab   = Math.abs(a*b);
-	a4   = (a2 > 1.0e-16) ? a2*a2 : 0.0f;
-	b4   = (b2 > 1.0e-16) ? b2*b2 : 0.0f;
-	a2b2 = (ab > 1.0e-16) ? a2*b2 : 0.0f;
-
-	xf = a*(a2 + ca2*(gstar + b2*(gamma*ca2 + mm*a2 +
-          cb2*(c00 + c10*a2 + c01*b2 + c11*a2b2 + c20*a4 + c02*b4)) +
-          a2*(omega1 - ca2*(d0 + d1*a2))));
-	yf = b*(b2 + cb2*(gstar + a2*(gamma*cb2 + mm*b2 +
-          ca2*(c00 + c10*b2 + c01*a2 + c11*a2b2 + c20*b4 + c02*a4)) +
-          b2*(omega1 - cb2*(d0 + d1*b2))));
+	xf = forward(a, b);
+	yf = forward(b, a);
 
 	if (Math.abs(xf) > 1.0) {
-	    if (Math.abs(xf) > 1.0+tol) 
+	    if (Math.abs(xf) > 1.0+tol) {
 		throw new PixelBeyondProjectionException(
-		    "CSC: Solution not defined for phi, theta: " + phi + 
+		    "CSC: Solution not defined for phi, theta: " + phi +
 		    ", " + theta);
+	    }
 
 	    xf = (xf < 0) ? -1.0f : 1.0f;
 	}
 	if (Math.abs(yf) > 1.0) {
-	    if (Math.abs(yf) > 1.0+tol) 
+	    if (Math.abs(yf) > 1.0+tol) {
 		throw new PixelBeyondProjectionException(
-		    "CSC: Solution not defined for phi, theta: " + phi + 
+		    "CSC: Solution not defined for phi, theta: " + phi +
 		    ", " + theta);
+	    }
 
 	    yf = (yf < 0) ? -1.0f : 1.0f;
 	}
 
-	out[0] = w[0]*(x0 + xf);
-	out[1] = w[0]*(y0 + yf);
-	return out;
+	x[xoff] = w[0]*(x0 + xf);
+	y[yoff] = w[0]*(y0 + yf);
+    }
+
+    /**
+     * return the coordinate on a face, xf, of a point whose gnomonic
+     * coordinates on the face are (a,b); the other coordinate, yf, is
+     * forward(b, a).
+     */
+    static float forward(float a, float b) {
+	float a2, a2b2, a4, ab, b2, b4, ca2, cb2;
+
+	a2 = a*a;
+	b2 = b*b;
+	ca2 = 1.0f - a2;
+	cb2 = 1.0f - b2;
+
+	// Avoid floating underflows. 
+	ab   = Math.abs(a*b);
+	a4   = (a2 > 1.0e-16) ? a2*a2 : 0.0f;
+	b4   = (b2 > 1.0e-16) ? b2*b2 : 0.0f;
+	a2b2 = (ab > 1.0e-16) ? a2*b2 : 0.0f;
+
+	return a*(a2 + ca2*(gstar + b2*(gamma*ca2 + mm*a2 +
+          cb2*(c00 + c10*a2 + c01*b2 + c11*a2b2 + c20*a4 + c02*b4)) +
+          a2*(omega1 - ca2*(d0 + d1*a2))));
     }
 
     public static final float p00 = -0.27292696f;
@@ -313,6 +416,30 @@ public class CSCProjection extends Projection {
     public static final float p15 =  0.52032238f;
     public static final float p06 =  0.14381585f;
 
+    /**
+     * return the gnomonic coordinate on a face, a, of a point whose
+     * coordinates on the face are (xf,yf); the other gnomonic coordinate,
+     * b, is reverse(yf, xf).
+     */
+    static float reverse(float xf, float yf) {
+	float a, xx, yy, z0, z1, z2, z3, z4, z5, z6;
+
+	xx  =  xf*xf;
+	yy  =  yf*yf;
+
+	z0 = p00 + 
+	       xx*(p10 + xx*(p20 + xx*(p30 + xx*(p40 + xx*(p50 + xx*(p60))))));
+	z1 = p01 + xx*(p11 + xx*(p21 + xx*(p31 + xx*(p41 + xx*(p51)))));
+	z2 = p02 + xx*(p12 + xx*(p22 + xx*(p32 + xx*(p42))));
+	z3 = p03 + xx*(p13 + xx*(p23 + xx*(p33)));
+	z4 = p04 + xx*(p14 + xx*(p24));
+	z5 = p05 + xx*(p15);
+	z6 = p06;
+
+	a = z0 + yy*(z1 + yy*(z2 + yy*(z3 + yy*(z4 + yy*(z5 + yy*z6)))));
+	return xf + xf*(1.0f - xx)*a;
+    }
+
     /**
      * Compute native spherical coordinates (phi,theta) from the 
      * (x,y) coordinates in the plane of projection. 
@@ -320,11 +447,87 @@ public class CSCProjection extends Projection {
      */
     public double[] rev(double x, double y) 
 	throws PixelBeyondProjectionException
+    {
+	double[] out = new double[2];
+	deproject(x, y, out, 0, out, 1);
+	return out;
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection.  The positions are
+     * deprojected in chunks, face by face (see QuadCube), with the same
+     * results as the single-position form.
+     * @see Projection#revBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revBatch(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	QuadCube q = new QuadCube(ncoord);
+	double r;
+	float a, b, xf, yf;
+	int n;
+
+	for (; ncoord > 0; ncoord -= n) {
+	    n = Math.min(ncoord, q.size);
+	    q.plane(n, x, xoff, y, yoff, instride, w[1], true);
+	    q.sort(n);
+
+	    for (int f = 0; f < QuadCube.NFACE; f++) {
+		double[] vc = q.v[QuadCube.CI[f]], va = q.v[QuadCube.AI[f]],
+		         vb = q.v[QuadCube.BI[f]];
+		double cs = QuadCube.CS[f], as = QuadCube.AS[f],
+		       bs = QuadCube.BS[f];
+
+		for (int j = q.start[f]; j < q.start[f+1]; j++) {
+		    int k = q.order[j];
+		    xf = (float) q.u[k];
+		    yf = (float) q.t[k];
+		    a = reverse(xf, yf);
+		    b = reverse(yf, xf);
+
+		    r = 1.0/Math.sqrt(a*a + b*b + 1.0);
+		    vc[k] = cs*r;
+		    va[k] = as*(a*r);
+		    vb[k] = bs*(b*r);
+		    q.st[k] = OK;
+		}
+	    }
+	    q.angles(n, trig);
+
+	    for (int k = 0; k < n; k++) {
+		if (q.st[k] == OK) {
+		    phi[phioff]     = q.u[k];
+		    theta[thetaoff] = q.t[k];
+		    if (stat != null) stat[statoff] = OK;
+		} else {
+		    revFailed(q.in0[k], q.in1[k], stat, statoff,
+			      phi, phioff, theta, thetaoff);
+		}
+		phioff += outstride; thetaoff += outstride;
+		statoff++;
+	    }
+	    xoff += n*instride;    yoff += n*instride;
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) from the
+     * (x,y) coordinates in the plane of projection, storing them in
+     * phi[phioff] and theta[thetaoff].  If the position cannot be
+     * deprojected, a PixelBeyondProjectionException is thrown.
+     */
+    private void deproject(double x, double y,
+			   double[] phi, int phioff, double[] theta, int thetaoff)
+	throws PixelBeyondProjectionException
     {
 	int   face;
 	double l, m, n;
-	float     a, b, xf, xx, yf, yy, z0, z1, z2, z3, z4, z5, z6;
-	double[] out = new double[2];
+	float     a, b, xf, yf;
 
 	xf = (float) (x*w[1]);
 	yf = (float) (y*w[1]);
@@ -333,60 +536,43 @@ public class CSCProjection extends Projection {
 	if (xf > 7.0) {
 	    throw new PixelBeyondProjectionException("x = " + x);
 	} else if (xf > 5.0) {
-	    if (Math.abs(yf) > 1.0) 
+	    if (Math.abs(yf) > 1.0) {
 		throw new PixelBeyondProjectionException("y = " + y);
+	    }
 	    face = 4;
 	    xf = xf - 6.0f;
 	} else if (xf > 3.0) {
-	    if (Math.abs(yf) > 1.0) 
+	    if (Math.abs(yf) > 1.0) {
 		throw new PixelBeyondProjectionException("y = " + y);
+	    }
 	    face = 3;
 	    xf = xf - 4.0f;
 	} else if (xf > 1.0) {
-	    if (Math.abs(yf) > 1.0) 
+	    if (Math.abs(yf) > 1.0) {
 		throw new PixelBeyondProjectionException("y = " + y);
+	    }
 	    face = 2;
 	    xf = xf - 2.0f;
 	} else if (xf < -1.0) {
 	    throw new PixelBeyondProjectionException("x = " + x);
 	} else if (yf > 1.0) {
-	    if (yf > 3.0) throw new PixelBeyondProjectionException("y = " + y);
+	    if (yf > 3.0) {
+		throw new PixelBeyondProjectionException("y = " + y);
+	    }
 	    face = 0;
 	    yf = yf - 2.0f;
 	} else if (yf < -1.0) {
-	    if (yf < -3.0) throw new PixelBeyondProjectionException("y = " + y);
+	    if (yf < -3.0) {
+		throw new PixelBeyondProjectionException("y = " + y);
+	    }
 	    face = 5;
 	    yf = yf + 2.0f;
 	} else {
 	    face = 1;
 	}
 
-	xx  =  xf*xf;
-	yy  =  yf*yf;
-
-	z0 = p00 + 
-	       xx*(p10 + xx*(p20 + xx*(p30 + xx*(p40 + xx*(p50 + xx*(p60))))));
-	z1 = p01 + xx*(p11 + xx*(p21 + xx*(p31 + xx*(p41 + xx*(p51)))));
-	z2 = p02 + xx*(p12 + xx*(p22 + xx*(p32 + xx*(p42))));
-	z3 = p03 + xx*(p13 + xx*(p23 + xx*(p33)));
-	z4 = p04 + xx*(p14 + xx*(p24));
-	z5 = p05 + xx*(p15);
-	z6 = p06;
-
-	a = z0 + yy*(z1 + yy*(z2 + yy*(z3 + yy*(z4 + yy*(z5 + yy*z6)))));
-	a = xf + xf*(1.0f - xx)*a;
-
-	z0 = p00 + 
-	       yy*(p10 + yy*(p20 + yy*(p30 + yy*(p40 + yy*(p50 + yy*(p60))))));
-	z1 = p01 + yy*(p11 + yy*(p21 + yy*(p31 + yy*(p41 + yy*(p51)))));
-	z2 = p02 + yy*(p12 + yy*(p22 + yy*(p32 + yy*(p42))));
-	z3 = p03 + yy*(p13 + yy*(p23 + yy*(p33)));
-	z4 = p04 + yy*(p14 + yy*(p24));
-	z5 = p05 + yy*(p15);
-	z6 = p06;
-
-	b = z0 + xx*(z1 + xx*(z2 + xx*(z3 + xx*(z4 + xx*(z5 + xx*z6)))));
-	b = yf + yf*(1.0f - yy)*b;
+	a = reverse(xf, yf);
+	b = reverse(yf, xf);
 
 	l = m = n = 0.0;
 	if (face == 0) {
@@ -416,13 +602,11 @@ public class CSCProjection extends Projection {
 	}
 
 	if (l == 0.0 && m == 0.0) {
-	    out[0] = 0.0;
+	    phi[phioff] = 0.0;
 	} else {
-	    out[0] = TrigD.atan2(m, l);
+	    phi[phioff] = trig.atan2(m, l);
 	}
-	out[1] = TrigD.asin(n);
-
-	return out;
+	theta[thetaoff] = trig.asin(n);
     }
 
     /**
@@ -82,7 +82,7 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class CYPProjection extends Projection {
+public class CYPProjection extends CylindricalProjection {
 
     /**
      * Create an CYPProjection object with a given oblateness
@@ -211,14 +211,14 @@ public class CYPProjection extends Projection {
 	double[] out = new double[2];
 	if (p == null) throw new UnsetProjectionParameterException();
 
-	s = p[1] + TrigD.cos(theta);
+	s = p[1] + trig.cos(theta);
 	if (s == 0.0) 
 	    throw new 
 		PixelBeyondProjectionException("CYP: theta out of bounds: " +
 					       theta);
 
 	out[0] = w[0]*phi;
-	out[1] = w[2]*TrigD.sin(theta)/s;
+	out[1] = w[2]*trig.sin(theta)/s;
 	return out;
     }
 
@@ -236,12 +236,145 @@ public class CYPProjection extends Projection {
 
 	out[0] = x*w[1];
 	eta    = y*w[3];
-	out[1] = TrigD.atan2(eta,1.0) + 
-	    TrigD.asin(eta*p[1]/Math.sqrt(eta*eta+1.0));
+	out[1] = trig.atan2(eta,1.0) +
+	    trig.asin(eta*p[1]/Math.sqrt(eta*eta+1.0));
 
 	return out;
     }
 
+    /**
+     * Compute (x,y) coordinates in the plane of projection for ncoord
+     * native spherical positions without allocating any arrays.
+     * @see Projection#fwdBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void fwdBatch(int ncoord, double[] phi, int phioff,
+			    double[] theta, int thetaoff, int instride,
+			    double[] x, int xoff, double[] y, int yoff,
+			    int outstride, byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	double ph, th, s;
+	int i = 0, j = 0;
+
+	if (p == null) throw new UnsetProjectionParameterException();
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    ph = phi[phioff+i];
+	    th = theta[thetaoff+i];
+
+	    s = p[1] + trig.cos(th);
+	    if (s == 0.0) {
+		if (stat == null)
+		    throw new
+			PixelBeyondProjectionException("CYP: theta out of bounds: " +
+						       th);
+		reject(stat, statoff+k, x, xoff+j, y, yoff+j);
+		continue;
+	    }
+
+	    x[xoff+j] = w[0]*ph;
+	    y[yoff+j] = w[2]*trig.sin(th)/s;
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection without allocating any arrays.
+     * @see Projection#revBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revBatch(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	double xv, yv, eta;
+	int i = 0, j = 0;
+
+	if (p == null) throw new UnsetProjectionParameterException();
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    xv = x[xoff+i];
+	    yv = y[yoff+i];
+
+	    eta = yv*w[3];
+	    phi[phioff+j]   = xv*w[1];
+	    theta[thetaoff+j] = trig.atan2(eta,1.0) +
+		trig.asin(eta*p[1]/Math.sqrt(eta*eta+1.0));
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
+    /**
+     * compute x for n native longitudes
+     * @see CylindricalProjection#fwdPhi(int, double[], int, double[], int)
+     */
+    protected void fwdPhi(int n, double[] phi, int phioff,
+			  double[] x, int xoff)
+    {
+	if (p == null) throw new UnsetProjectionParameterException();
+
+	for (int k = 0; k < n; k++) x[xoff+k] = w[0]*phi[phioff+k];
+    }
+
+    /**
+     * compute y for n native latitudes
+     * @see CylindricalProjection#fwdTheta(int, double[], int, double[], int, byte[])
+     */
+    protected void fwdTheta(int n, double[] theta, int thetaoff,
+			    double[] y, int yoff, byte[] stat)
+    {
+	if (p == null) throw new UnsetProjectionParameterException();
+
+	double s, th;
+
+	for (int k = 0; k < n; k++) {
+	    th = theta[thetaoff+k];
+	    s = p[1] + trig.cos(th);
+	    if (s == 0.0) {
+		stat[k] = PIXEL_BEYOND_PROJECTION;
+		continue;
+	    }
+	    y[yoff+k] = w[2]*trig.sin(th)/s;
+	    stat[k] = OK;
+	}
+    }
+
+    /**
+     * compute phi for n values of x
+     * @see CylindricalProjection#revX(int, double[], int, double[], int)
+     */
+    protected void revX(int n, double[] x, int xoff,
+			double[] phi, int phioff)
+    {
+	if (p == null) throw new UnsetProjectionParameterException();
+
+	for (int k = 0; k < n; k++) phi[phioff+k] = x[xoff+k]*w[1];
+    }
+
+    /**
+     * compute theta for n values of y
+     * @see CylindricalProjection#revY(int, double[], int, double[], int, byte[])
+     */
+    protected void revY(int n, double[] y, int yoff,
+			double[] theta, int thetaoff, byte[] stat)
+    {
+	if (p == null) throw new UnsetProjectionParameterException();
+
+	double eta;
+
+	for (int k = 0; k < n; k++) {
+	    eta = y[yoff+k]*w[3];
+	    theta[thetaoff+k] = trig.atan2(eta,1.0) +
+		trig.asin(eta*p[1]/Math.sqrt(eta*eta+1.0));
+	    stat[k] = OK;
+	}
+    }
+
     /**
      * set the sphere radius 
      */
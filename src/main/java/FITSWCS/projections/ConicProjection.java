@@ -0,0 +1,167 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS.projections;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+
+/**
+ * the support common to the conic projections (COP, COD, COE and COO).
+ * Each maps native latitude theta to an arc of radius R(theta) about
+ * the apex of the cone, at (0, w[2]) in the plane of projection, and
+ * native longitude phi to the angle w[0]*phi along it, so that
+ * <pre>
+ *    x =        R(theta) sin(w[0]*phi)
+ *    y = w[2] - R(theta) cos(w[0]*phi)
+ * </pre>
+ * The subclasses therefore provide only R and its inverse, each
+ * evaluated over an array of values with the projection's constants
+ * held in local variables, and the batch methods here apply them a
+ * chunk of positions at a time.  Positions that cannot be transformed
+ * are flagged by the radial term in a status array rather than by
+ * exceptions; an exception is raised (by the single-position form) only
+ * when the caller has not supplied a status array of its own.  The
+ * results are the same as those of the single-position forms.
+ */
+public abstract class ConicProjection extends Projection {
+
+    /**
+     * the largest number of positions handled at a time by the batch
+     * methods
+     */
+    protected final static int CHUNK = 256;
+
+    /**
+     * Compute (x,y) coordinates in the plane of projection for ncoord
+     * native spherical positions, a chunk at a time.
+     * @see Projection#fwdBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void fwdBatch(int ncoord, double[] phi, int phioff,
+			    double[] theta, int thetaoff, int instride,
+			    double[] x, int xoff, double[] y, int yoff,
+			    int outstride, byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	if (p == null) throw new UnsetProjectionParameterException();
+	if (ncoord <= 0) return;
+
+	final double c = w[0], y0 = w[2];
+	int size = Math.min(ncoord, CHUNK), m, k, i, j;
+	double[] th = new double[size], r = new double[size];
+	double[] sc = new double[2];
+	byte[] st = new byte[size];
+	double ph;
+
+	for (int done = 0; done < ncoord; done += m) {
+	    m = Math.min(size, ncoord - done);
+
+	    for (k = 0, i = thetaoff; k < m; k++, i += instride)
+		th[k] = theta[i];
+	    radius(m, th, r, st);
+
+	    for (k = 0, i = phioff, j = 0; k < m; k++, i += instride,
+		     j += outstride)
+	    {
+		ph = phi[i];
+		if (st[k] != OK) {
+		    fwdFailed(ph, th[k], stat, statoff+k, x, xoff+j, y, yoff+j);
+		    continue;
+		}
+
+		trig.sincos(c*ph, sc);
+		x[xoff+j] =      r[k]*sc[0];
+		y[yoff+j] = y0 - r[k]*sc[1];
+
+		if (stat != null) stat[statoff+k] = OK;
+	    }
+
+	    phioff += m*instride;   thetaoff += m*instride;
+	    xoff   += m*outstride;  yoff     += m*outstride;
+	    statoff += m;
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection, a chunk at a time.
+     * @see Projection#revBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revBatch(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	if (p == null) throw new UnsetProjectionParameterException();
+	if (ncoord <= 0) return;
+
+	final double y0 = w[2], cinv = w[1];
+	final boolean south = (p[1] < 0.0);
+	int size = Math.min(ncoord, CHUNK), m, k, i, j;
+	double[] xv = new double[size], yv = new double[size];
+	double[] r = new double[size], a = new double[size];
+	double[] th = new double[size];
+	byte[] st = new byte[size];
+	double dy, rk;
+
+	for (int done = 0; done < ncoord; done += m) {
+	    m = Math.min(size, ncoord - done);
+
+	    for (k = 0, i = 0; k < m; k++, i += instride) {
+		xv[k] = x[xoff+i];
+		yv[k] = y[yoff+i];
+
+		dy = y0 - yv[k];
+		rk = Math.sqrt(xv[k]*xv[k] + dy*dy);
+		if (south) rk = -rk;
+		a[k] = (rk == 0.0) ? 0.0 : trig.atan2(xv[k]/rk, dy/rk);
+		r[k] = rk;
+	    }
+	    latitude(m, r, th, st);
+
+	    for (k = 0, j = 0; k < m; k++, j += outstride) {
+		if (st[k] != OK) {
+		    revFailed(xv[k], yv[k], stat, statoff+k,
+			      phi, phioff+j, theta, thetaoff+j);
+		    continue;
+		}
+
+		phi[phioff+j] = a[k]*cinv;
+		theta[thetaoff+j] = th[k];
+
+		if (stat != null) stat[statoff+k] = OK;
+	    }
+
+	    xoff   += m*instride;   yoff     += m*instride;
+	    phioff += m*outstride;  thetaoff += m*outstride;
+	    statoff += m;
+	}
+    }
+
+    /**
+     * compute the radius, R(theta[k]), of the arc of each of n native
+     * latitudes, writing it to r[k] and OK to st[k], or
+     * PIXEL_BEYOND_PROJECTION to st[k] if the latitude cannot be
+     * projected
+     */
+    protected abstract void radius(int n, double[] theta, double[] r,
+				   byte[] st);
+
+    /**
+     * compute the native latitude of each of n arcs of radius r[k]
+     * (negated if p[1] < 0), writing it to theta[k] and OK to st[k], or
+     * PIXEL_BEYOND_PROJECTION to st[k] if the radius cannot be
+     * deprojected
+     */
+    protected abstract void latitude(int n, double[] r, double[] theta,
+				     byte[] st);
+}
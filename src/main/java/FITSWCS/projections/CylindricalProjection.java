@@ -0,0 +1,262 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS.projections;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+
+/**
+ * the support common to the cylindrical projections (CYP, CAR, MER and
+ * CEA), in which x depends only on phi and y only on theta. <p>
+ *
+ * This allows a grid of positions, the Cartesian product of a set of
+ * native longitudes and a set of native latitudes (or of x and y values),
+ * to be transformed by computing each column and each row once:  an nphi
+ * by ntheta grid then costs nphi+ntheta evaluations of the projection
+ * rather than nphi*ntheta.  The results are the same as those of the
+ * single-position forms.
+ */
+public abstract class CylindricalProjection extends Projection {
+
+    /**
+     * Compute (x,y) coordinates in the plane of projection for a grid of
+     * native spherical coordinates.  The position of the grid formed by
+     * phi[phioff+i] and theta[thetaoff+j] is written to x[xoff+j*nphi+i]
+     * and y[yoff+j*nphi+i], so that each row of the output has a
+     * constant theta.  The outputs must not overlap the inputs.
+     *
+     * @param nphi      the number of native longitudes
+     * @param phi       array containing the native longitudes
+     * @param phioff    index of the first native longitude in phi
+     * @param ntheta    the number of native latitudes
+     * @param theta     array containing the native latitudes
+     * @param thetaoff  index of the first native latitude in theta
+     * @param x         array to receive the nphi*ntheta projected x values
+     * @param xoff      index of the first x value in x
+     * @param y         array to receive the nphi*ntheta projected y values
+     * @param yoff      index of the first y value in y
+     * @exception PixelBeyondProjectionException if any position cannot
+     *             be projected; the rows preceding it will have been
+     *             written.
+     */
+    public void fwdGrid(int nphi, double[] phi, int phioff,
+			int ntheta, double[] theta, int thetaoff,
+			double[] x, int xoff, double[] y, int yoff)
+	throws PixelBeyondProjectionException
+    {
+	fwdGridBatch(nphi, phi, phioff, ntheta, theta, thetaoff,
+		     x, xoff, y, yoff, null, 0);
+    }
+
+    /**
+     * same as fwdGrid(phi.length, phi, 0, theta.length, theta, 0, x, 0,
+     * y, 0)
+     */
+    public void fwdGrid(double[] phi, double[] theta, double[] x, double[] y)
+	throws PixelBeyondProjectionException
+    {
+	fwdGridBatch(phi.length, phi, 0, theta.length, theta, 0,
+		     x, 0, y, 0, null, 0);
+    }
+
+    /**
+     * Compute (x,y) coordinates in the plane of projection for a grid of
+     * native spherical coordinates without throwing exceptions.  This
+     * behaves like fwdGrid(int, double[], int, int, double[], int,
+     * double[], int, double[], int) except that a position that cannot
+     * be projected has its x and y set to NaN and PIXEL_BEYOND_PROJECTION
+     * written to stat[statoff+j*nphi+i]; the others have OK written
+     * there instead (see BatchStatus).
+     * @param stat      array to receive a status code for each position
+     * @param statoff   index of the first status code in stat
+     */
+    public void fwdGrid(int nphi, double[] phi, int phioff,
+			int ntheta, double[] theta, int thetaoff,
+			double[] x, int xoff, double[] y, int yoff,
+			byte[] stat, int statoff)
+    {
+	if (stat == null) throw new NullPointerException("null stat array");
+	try {
+	    fwdGridBatch(nphi, phi, phioff, ntheta, theta, thetaoff,
+			 x, xoff, y, yoff, stat, statoff);
+	}
+	catch (PixelBeyondProjectionException ex) {
+	    throw statusError(ex);
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for a grid of
+     * positions in the plane of projection.  The position of the grid
+     * formed by x[xoff+i] and y[yoff+j] is written to
+     * phi[phioff+j*nx+i] and theta[thetaoff+j*nx+i], so that each row
+     * of the output has a constant y.  The outputs must not overlap the
+     * inputs.
+     *
+     * @param nx        the number of x values
+     * @param x         array containing the projected x values
+     * @param xoff      index of the first x value in x
+     * @param ny        the number of y values
+     * @param y         array containing the projected y values
+     * @param yoff      index of the first y value in y
+     * @param phi       array to receive the nx*ny native longitudes
+     * @param phioff    index of the first native longitude in phi
+     * @param theta     array to receive the nx*ny native latitudes
+     * @param thetaoff  index of the first native latitude in theta
+     * @exception PixelBeyondProjectionException if any position cannot
+     *             be deprojected; the rows preceding it will have been
+     *             written.
+     */
+    public void revGrid(int nx, double[] x, int xoff,
+			int ny, double[] y, int yoff,
+			double[] phi, int phioff, double[] theta, int thetaoff)
+	throws PixelBeyondProjectionException
+    {
+	revGridBatch(nx, x, xoff, ny, y, yoff,
+		     phi, phioff, theta, thetaoff, null, 0);
+    }
+
+    /**
+     * same as revGrid(x.length, x, 0, y.length, y, 0, phi, 0, theta, 0)
+     */
+    public void revGrid(double[] x, double[] y, double[] phi, double[] theta)
+	throws PixelBeyondProjectionException
+    {
+	revGridBatch(x.length, x, 0, y.length, y, 0,
+		     phi, 0, theta, 0, null, 0);
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for a grid of
+     * positions in the plane of projection without throwing exceptions.
+     * This behaves like revGrid(int, double[], int, int, double[], int,
+     * double[], int, double[], int) except that a position that cannot
+     * be deprojected has its phi and theta set to NaN and
+     * PIXEL_BEYOND_PROJECTION written to stat[statoff+j*nx+i]; the
+     * others have OK written there instead (see BatchStatus).
+     * @param stat      array to receive a status code for each position
+     * @param statoff   index of the first status code in stat
+     */
+    public void revGrid(int nx, double[] x, int xoff,
+			int ny, double[] y, int yoff,
+			double[] phi, int phioff, double[] theta, int thetaoff,
+			byte[] stat, int statoff)
+    {
+	if (stat == null) throw new NullPointerException("null stat array");
+	try {
+	    revGridBatch(nx, x, xoff, ny, y, yoff,
+			 phi, phioff, theta, thetaoff, stat, statoff);
+	}
+	catch (PixelBeyondProjectionException ex) {
+	    throw statusError(ex);
+	}
+    }
+
+    /**
+     * compute x for n native longitudes, phi[phioff+k], writing them to
+     * x[xoff+k]
+     */
+    protected abstract void fwdPhi(int n, double[] phi, int phioff,
+				   double[] x, int xoff);
+
+    /**
+     * compute y for n native latitudes, theta[thetaoff+k], writing them
+     * to y[yoff+k] and OK to stat[k], or PIXEL_BEYOND_PROJECTION to
+     * stat[k] if the latitude cannot be projected
+     */
+    protected abstract void fwdTheta(int n, double[] theta, int thetaoff,
+				     double[] y, int yoff, byte[] stat);
+
+    /**
+     * compute phi for n values of x, x[xoff+k], writing them to
+     * phi[phioff+k]
+     */
+    protected abstract void revX(int n, double[] x, int xoff,
+				 double[] phi, int phioff);
+
+    /**
+     * compute theta for n values of y, y[yoff+k], writing them to
+     * theta[thetaoff+k] and OK to stat[k], or PIXEL_BEYOND_PROJECTION to
+     * stat[k] if the value cannot be deprojected
+     */
+    protected abstract void revY(int n, double[] y, int yoff,
+				 double[] theta, int thetaoff, byte[] stat);
+
+    /**
+     * the engine behind fwdGrid().  If stat is null, the first position
+     * that cannot be projected causes an exception to be thrown;
+     * otherwise, failures are recorded in stat.
+     */
+    private void fwdGridBatch(int nphi, double[] phi, int phioff,
+			      int ntheta, double[] theta, int thetaoff,
+			      double[] x, int xoff, double[] y, int yoff,
+			      byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	if (nphi <= 0 || ntheta <= 0) return;
+
+	double[] col = new double[nphi], row = new double[ntheta];
+	byte[] rstat = new byte[ntheta];
+
+	fwdPhi(nphi, phi, phioff, col, 0);
+	fwdTheta(ntheta, theta, thetaoff, row, 0, rstat);
+
+	for (int j = 0; j < ntheta; j++) {
+	    if (rstat[j] != OK) {
+		for (int i = 0; i < nphi; i++)
+		    fwdFailed(phi[phioff+i], theta[thetaoff+j], stat,
+			      statoff+i, x, xoff+i, y, yoff+i);
+	    } else {
+		System.arraycopy(col, 0, x, xoff, nphi);
+		for (int i = 0; i < nphi; i++) y[yoff+i] = row[j];
+		if (stat != null) {
+		    for (int i = 0; i < nphi; i++) stat[statoff+i] = OK;
+		}
+	    }
+	    xoff += nphi;  yoff += nphi;  statoff += nphi;
+	}
+    }
+
+    /**
+     * the engine behind revGrid().  If stat is null, the first position
+     * that cannot be deprojected causes an exception to be thrown;
+     * otherwise, failures are recorded in stat.
+     */
+    private void revGridBatch(int nx, double[] x, int xoff,
+			      int ny, double[] y, int yoff,
+			      double[] phi, int phioff, double[] theta,
+			      int thetaoff, byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	if (nx <= 0 || ny <= 0) return;
+
+	double[] col = new double[nx], row = new double[ny];
+	byte[] rstat = new byte[ny];
+
+	revX(nx, x, xoff, col, 0);
+	revY(ny, y, yoff, row, 0, rstat);
+
+	for (int j = 0; j < ny; j++) {
+	    if (rstat[j] != OK) {
+		for (int i = 0; i < nx; i++)
+		    revFailed(x[xoff+i], y[yoff+j], stat, statoff+i,
+			      phi, phioff+i, theta, thetaoff+i);
+	    } else {
+		System.arraycopy(col, 0, phi, phioff, nx);
+		for (int i = 0; i < nx; i++) theta[thetaoff+i] = row[j];
+		if (stat != null) {
+		    for (int i = 0; i < nx; i++) stat[statoff+i] = OK;
+		}
+	    }
+	    phioff += nx;  thetaoff += nx;  statoff += nx;
+	}
+    }
+}
@@ -82,7 +82,7 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class GLSProjection extends Projection {
+public class GLSProjection extends PseudocylindricalProjection {
 
     /**
      * Create an GLSProjection object
@@ -149,7 +149,7 @@ public class GLSProjection extends Projection {
     {
 	double[] out = new double[2];
 
-	out[0] = w[0]*phi*TrigD.cos(theta);  
+	out[0] = w[0]*phi*trig.cos(theta);
 	out[1] = w[0]*theta;
 	return out;
     }
@@ -185,6 +185,51 @@ public class GLSProjection extends Projection {
      */
     public double[] rev(double[] xy) { return rev(xy[0], xy[1]); }
 
+    /**
+     * Compute (x,y) coordinates in the plane of projection for n native
+     * longitudes along the native latitude theta.
+     * @see PseudocylindricalProjection#fwdRow(double, int, double[], int, int, double[], int, double[], int, int)
+     */
+    protected void fwdRow(double theta, int n, double[] phi,
+			  int phioff, int phistride,
+			  double[] x, int xoff, double[] y, int yoff,
+			  int outstride)
+    {
+	final double c = w[0], costhe = trig.cos(theta), yr = w[0]*theta;
+	int i = 0, j = 0;
+
+	for (int k = 0; k < n; k++, i += phistride, j += outstride) {
+	    x[xoff+j] = c*phi[phioff+i]*costhe;
+	    y[yoff+j] = yr;
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection without allocating any arrays.
+     * @see Projection#revBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revBatch(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+    {
+	double xv, yv, ww;
+	int i = 0, j = 0;
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    xv = x[xoff+i];
+	    yv = y[yoff+i];
+
+	    ww = Math.cos(yv/r0);
+	    phi[phioff+j] = (ww == 0.0) ? 0.0 : xv*w[1]/ww;
+	    theta[thetaoff+j] = yv*w[1];
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
     /**
      * set the sphere radius 
      */
@@ -81,7 +81,7 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class MERProjection extends Projection {
+public class MERProjection extends CylindricalProjection {
 
     protected final static double tol = 1.0e-13;
 
@@ -156,7 +156,7 @@ public class MERProjection extends Projection {
 	    throw new PixelBeyondProjectionException("MER: abs(theta=" + theta +
 						     ") > 90.0");
 	out[0] = w[0]*phi;                           
-	out[1] = r0*Math.log(TrigD.tan((90.0+theta)/2.0));
+	out[1] = r0*Math.log(trig.tan((90.0+theta)/2.0));
 	return out;
     }
 
@@ -169,7 +169,7 @@ public class MERProjection extends Projection {
 	double[] out = new double[2];
 
 	out[0] = w[1]*x;
-	out[1] = 2.0*TrigD.atan(Math.exp(y/r0)) - 90.0;
+	out[1] = 2.0*trig.atan(Math.exp(y/r0)) - 90.0;
 	return out;
     }
 
@@ -178,6 +178,116 @@ public class MERProjection extends Projection {
      */
     public double[] rev(double[] xy) { return rev(xy[0], xy[1]); }
 
+    /**
+     * Compute (x,y) coordinates in the plane of projection for ncoord
+     * native spherical positions without allocating any arrays.
+     * @see Projection#fwdBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void fwdBatch(int ncoord, double[] phi, int phioff,
+			    double[] theta, int thetaoff, int instride,
+			    double[] x, int xoff, double[] y, int yoff,
+			    int outstride, byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	double ph, th;
+	int i = 0, j = 0;
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    ph = phi[phioff+i];
+	    th = theta[thetaoff+i];
+
+	    if (th <= -90.0 || th >= 90.0) {
+		if (stat == null)
+		    throw new PixelBeyondProjectionException("MER: abs(theta=" + th +
+							     ") > 90.0");
+		reject(stat, statoff+k, x, xoff+j, y, yoff+j);
+		continue;
+	    }
+	    x[xoff+j] = w[0]*ph;
+	    y[yoff+j] = r0*Math.log(trig.tan((90.0+th)/2.0));
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection without allocating any arrays.
+     * @see Projection#revBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revBatch(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+    {
+	double xv, yv;
+	int i = 0, j = 0;
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    xv = x[xoff+i];
+	    yv = y[yoff+i];
+
+	    phi[phioff+j]   = w[1]*xv;
+	    theta[thetaoff+j] = 2.0*trig.atan(Math.exp(yv/r0)) - 90.0;
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
+    /**
+     * compute x for n native longitudes
+     * @see CylindricalProjection#fwdPhi(int, double[], int, double[], int)
+     */
+    protected void fwdPhi(int n, double[] phi, int phioff,
+			  double[] x, int xoff)
+    {
+	for (int k = 0; k < n; k++) x[xoff+k] = w[0]*phi[phioff+k];
+    }
+
+    /**
+     * compute y for n native latitudes
+     * @see CylindricalProjection#fwdTheta(int, double[], int, double[], int, byte[])
+     */
+    protected void fwdTheta(int n, double[] theta, int thetaoff,
+			    double[] y, int yoff, byte[] stat)
+    {
+	double th;
+
+	for (int k = 0; k < n; k++) {
+	    th = theta[thetaoff+k];
+	    if (th <= -90.0 || th >= 90.0) {
+		stat[k] = PIXEL_BEYOND_PROJECTION;
+		continue;
+	    }
+	    y[yoff+k] = r0*Math.log(trig.tan((90.0+th)/2.0));
+	    stat[k] = OK;
+	}
+    }
+
+    /**
+     * compute phi for n values of x
+     * @see CylindricalProjection#revX(int, double[], int, double[], int)
+     */
+    protected void revX(int n, double[] x, int xoff,
+			double[] phi, int phioff)
+    {
+	for (int k = 0; k < n; k++) phi[phioff+k] = w[1]*x[xoff+k];
+    }
+
+    /**
+     * compute theta for n values of y
+     * @see CylindricalProjection#revY(int, double[], int, double[], int, byte[])
+     */
+    protected void revY(int n, double[] y, int yoff,
+			double[] theta, int thetaoff, byte[] stat)
+    {
+	for (int k = 0; k < n; k++) {
+	    theta[thetaoff+k] = 2.0*trig.atan(Math.exp(y[yoff+k]/r0)) - 90.0;
+	    stat[k] = OK;
+	}
+    }
+
     /**
      * set the sphere radius 
      */
@@ -81,10 +81,32 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class MOLProjection extends Projection {
+public class MOLProjection extends PseudocylindricalProjection {
 
     protected double tol = 1.0e-13;
 
+    /**
+     * the value of |sin(theta)| beyond which rev() uses polar()
+     */
+    private final static double ZPOLE = 0.99;
+
+    /**
+     * the number of intervals in the table of the auxiliary angle
+     */
+    protected final static int NTAB = 180;
+
+    /**
+     * the auxiliary angle v = 2*alpha, solving v + sin(v) = pi*sin(theta),
+     * at NTAB+1 equally-spaced latitudes from 0 to 90 degrees
+     */
+    private final static double[] VTAB = new double[NTAB+1];
+
+    static {
+	for (int k = 0; k < NTAB; k++)
+	    VTAB[k] = solve(PI*Math.sin(k*(PI/2.0)/NTAB), 0.0, null, null, false);
+	VTAB[NTAB] = PI;
+    }
+
     /**
      * Create an MOLProjection object
      */
@@ -142,6 +164,102 @@ public class MOLProjection extends Projection {
 	this.r0 = r0;
     }
 
+    /**
+     * return the auxiliary angle v = 2*alpha, in radians, for latitude
+     * theta, where u = pi*sin(theta).  The starting point is interpolated
+     * from VTAB or, within the last interval of the pole, taken from the 
+     * series v + sin(v) = pi - (pi-v)^3/6 + ...; solve() then refines it.
+     */
+    protected static double auxiliary(double theta, double u) {
+	return auxiliary(theta, u, null, null);
+    }
+
+    /**
+     * same as auxiliary(theta, u), except that if seed is not null, the
+     * solution starts from a first-order prediction made from the 
+     * previous one, seed = {v, u, 1 + cos(v)}, provided the prediction
+     * lies between the entries of VTAB for the latitudes either side of
+     * theta.  seed is updated for the next call.  If stats is not null, 
+     * the solution is recorded in it.
+     */
+    protected static double auxiliary(double theta, double u, 
+				      double[] seed, SolverStats stats) 
+    {
+	int i;
+	double f, v;
+
+	f = Math.abs(theta)*NTAB/90.0;
+	i = (int) f;
+
+	if (seed != null && seed[2] > 0.0) {
+	    if (i > NTAB-1) i = NTAB-1;
+	    v = seed[0] + (u - seed[1])/seed[2];
+	    if (Math.abs(v) >= VTAB[i] && Math.abs(v) <= VTAB[i+1] && 
+		(v < 0.0) == (theta < 0.0)) 
+		return solve(u, v, seed, stats, true);
+	    if (stats != null) stats.recordFallback();
+	}
+
+	if (i >= NTAB-1) {
+	    v = PI - Math.cbrt(6.0*(PI - Math.abs(u)));
+	} else {
+	    v = VTAB[i] + (f - i)*(VTAB[i+1] - VTAB[i]);
+	}
+
+	return solve(u, (theta < 0.0) ? -v : v, seed, stats, false);
+    }
+
+    /**
+     * solve v + sin(v) = u for v in [-pi,pi] by Newton-Raphson iteration
+     * from v, keeping the bracketing interval of the original bisection
+     * and bisecting it whenever a step would leave it.  The iteration
+     * ends, as before, when the residual falls below tol.  If seed is 
+     * not null, it is set to {v, u, 1 + cos(v)} for the solution; if
+     * stats is not null, the solution is recorded in it, as seeded or not.
+     */
+    private static double solve(double u, double v, double[] seed,
+				SolverStats stats, boolean seeded) 
+    {
+	int   j;
+	double d, dv=0.0, resid, v0, v1;
+	double tol = 1.0e-13;
+
+	v0 = -PI;
+	v1 =  PI;
+	for (j = 0; j < 100; j++) {
+	    resid = (v - u) + Math.sin(v);
+	    dv = 1.0 + Math.cos(v);
+	    d = resid/dv;
+	    if (Math.abs(resid) < tol) {
+
+		// A last step costs nothing and matters near the poles,
+		// where a small residual still leaves a sizeable error in v.
+		if (v-d > v0 && v-d < v1) v -= d;
+		break;
+	    }
+
+	    if (resid < 0.0) {
+		v0 = v;
+	    } else {
+		v1 = v;
+	    }
+
+	    if (v-d > v0 && v-d < v1) {
+		v -= d;
+	    } else {
+		v = (v0 + v1)/2.0;
+	    }
+	}
+
+	if (seed != null) {
+	    seed[0] = v;
+	    seed[1] = u;
+	    seed[2] = dv;
+	}
+	if (stats != null) stats.record((j < 100) ? j+1 : j, seeded);
+	return v;
+    }
+
     /**
      * Compute (x,y) coordinates in the plane of projection from native 
      * spherical coordinates (phi,theta). 
@@ -149,9 +267,7 @@ public class MOLProjection extends Projection {
      */
     public double[] fwd(double phi, double theta) 
     {
-	int   j;
-	double alpha, resid, u, v, v0, v1;
-	double tol = 1.0e-13;
+	double alpha, u, v;
 	double[] out = new double[2];
 
 	if (Math.abs(theta) == 90.0) {
@@ -161,21 +277,8 @@ public class MOLProjection extends Projection {
 	    out[0] = w[1]*phi;
 	    out[1] = 0.0;
 	} else {
-	    u  = PI*TrigD.sin(theta);
-	    v0 = -PI;
-	    v1 =  PI;
-	    v  = u;
-	    for (j = 0; j < 100; j++) {
-		resid = (v - u) + Math.sin(v);
-		if (resid < 0.0) {
-		    if (resid > -tol) break;
-		    v0 = v;
-		} else {
-		    if (resid < tol) break;
-		    v1 = v;
-		}
-		v = (v0 + v1)/2.0;
-	    }
+	    u = PI*trig.sin(theta);
+	    v = auxiliary(theta, u);
 
 	    alpha = v/2.0;
 	    out[0] = w[1]*phi*Math.cos(alpha);
@@ -236,10 +339,206 @@ public class MOLProjection extends Projection {
 	    z = (z < 0.0) ? -1.0 : 1.0;
 	}
 
-	out[1] = TrigD.asin(z);
+	out[1] = (Math.abs(z) > ZPOLE) ? polar(y0, s) : trig.asin(z);
 	return out;
     }
 
+    /**
+     * Compute (x,y) coordinates in the plane of projection for n native
+     * longitudes along the native latitude theta, solving the auxiliary
+     * equation only once.
+     * @see PseudocylindricalProjection#fwdRow(double, int, double[], int, int, double[], int, double[], int, int)
+     */
+    protected void fwdRow(double theta, int n, double[] phi,
+			  int phioff, int phistride,
+			  double[] x, int xoff, double[] y, int yoff,
+			  int outstride)
+    {
+	final double c = w[1];
+	double cosa, yr, alpha;
+	int i = 0, j = 0;
+
+	if (Math.abs(theta) == 90.0) {
+	    yr = (theta < 0.0) ? -Math.abs(w[0]) : Math.abs(w[0]);
+	    for (int k = 0; k < n; k++, j += outstride) {
+		x[xoff+j] = 0.0;
+		y[yoff+j] = yr;
+	    }
+	    return;
+	}
+
+	if (theta == 0.0) {
+	    for (int k = 0; k < n; k++, i += phistride, j += outstride) {
+		x[xoff+j] = c*phi[phioff+i];
+		y[yoff+j] = 0.0;
+	    }
+	    return;
+	}
+
+	alpha = auxiliary(theta, PI*trig.sin(theta))/2.0;
+	cosa = Math.cos(alpha);
+	yr = w[0]*Math.sin(alpha);
+	for (int k = 0; k < n; k++, i += phistride, j += outstride) {
+	    x[xoff+j] = c*phi[phioff+i]*cosa;
+	    y[yoff+j] = yr;
+	}
+    }
+
+    /**
+     * Compute (x,y) coordinates in the plane of projection for a set of
+     * ncoord native spherical positions, as fwd(int, double[], int, 
+     * double[], int, int, double[], int, double[], int, int, byte[], int) 
+     * does, except that stat may be null.  If seed is true, the solution 
+     * of the auxiliary equation for each position starts from a 
+     * prediction made from that for the previous one; this saves 
+     * iterations when neighbouring positions have nearly the same 
+     * latitude, as they do in raster order.  If stats is not null, each
+     * solution is recorded in it.
+     */
+    public void fwd(int ncoord, double[] phi, int phioff,
+		    double[] theta, int thetaoff, int instride,
+		    double[] x, int xoff, double[] y, int yoff, int outstride,
+		    byte[] stat, int statoff, boolean seed, SolverStats stats)
+    {
+	fwdBatch(ncoord, phi, phioff, theta, thetaoff, instride,
+		 x, xoff, y, yoff, outstride, stat, statoff,
+		 (seed) ? new double[3] : null, stats);
+    }
+
+    private void fwdBatch(int ncoord, double[] phi, int phioff,
+			  double[] theta, int thetaoff, int instride,
+			  double[] x, int xoff, double[] y, int yoff,
+			  int outstride, byte[] stat, int statoff,
+			  double[] seed, SolverStats stats)
+    {
+	double ph, th, alpha, u, v;
+	int i = 0, j = 0;
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    ph = phi[phioff+i];
+	    th = theta[thetaoff+i];
+
+	    if (Math.abs(th) == 90.0) {
+		x[xoff+j] = 0.0;
+		y[yoff+j] = (th < 0.0) ? -Math.abs(w[0]) : Math.abs(w[0]);
+	    } else if (th == 0.0) {
+		x[xoff+j] = w[1]*ph;
+		y[yoff+j] = 0.0;
+	    } else {
+		u = PI*trig.sin(th);
+		v = auxiliary(th, u, seed, stats);
+
+		alpha = v/2.0;
+		x[xoff+j] = w[1]*ph*Math.cos(alpha);
+		y[yoff+j] = w[0]*Math.sin(alpha);
+	    }
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection without allocating any arrays.
+     * @see Projection#revBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revBatch(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	double xv, yv, s, y0, z, ph;
+	double tol = 1.0e-12;
+	int i = 0, j = 0;
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    xv = x[xoff+i];
+	    yv = y[yoff+i];
+
+	    y0 = yv/r0;
+	    s  = 2.0 - y0*y0;
+	    if (s <= tol) {
+		if (s < -tol) {
+		    if (stat == null)
+			throw new PixelBeyondProjectionException(
+			    "MOL: Solution not defined for y: " + yv);
+		    reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+		    continue;
+		}
+		s = 0.0;
+
+		if (Math.abs(xv) > tol) {
+		    if (stat == null)
+			throw new PixelBeyondProjectionException(
+			    "MOL: Solution not defined for x: " + xv);
+		    reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+		    continue;
+		}
+		ph = 0.0;
+	    } else {
+		s = Math.sqrt(s);
+		ph = w[3]*xv/s;
+	    }
+
+	    z = yv*w[2];
+	    if (Math.abs(z) > 1.0) {
+		if (Math.abs(z) > 1.0+tol) {
+		    if (stat == null)
+			throw new PixelBeyondProjectionException(
+			    "MOL: Solution not defined for y: " + yv);
+		    reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+		    continue;
+		}
+		z = ((z < 0.0) ? -1.0 : 1.0) + y0*s/PI;
+	    } else {
+		z = Math.asin(z)*w[4] + y0*s/PI;
+	    }
+
+	    if (Math.abs(z) > 1.0) {
+		if (Math.abs(z) > 1.0+tol) {
+		    if (stat == null)
+			throw new PixelBeyondProjectionException(
+			    "MOL: Solution not defined for x,y: " + xv + ", " + yv);
+		    reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+		    continue;
+		}
+		z = (z < 0.0) ? -1.0 : 1.0;
+	    }
+
+	    phi[phioff+j] = ph;
+	    theta[thetaoff+j] = (Math.abs(z) > ZPOLE) ? polar(y0, s) :
+		                                        trig.asin(z);
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
+    /**
+     * return the native latitude, in degrees, of a position near a pole,
+     * for y0 = y/r0 and s = sqrt(2 - y0*y0).  There asin(z) is
+     * ill-conditioned, and the error it leaves in theta is magnified by
+     * fwd(), so 1 - |sin(theta)| = (e - sin(e))/pi is computed instead
+     * from e = pi - |v|, which follows from s and y0 without cancellation.
+     */
+    private double polar(double y0, double s) {
+	double d, e, t;
+
+	e = 2.0*Math.atan2(s, Math.abs(y0));
+
+	// e - sin(e), summed as a series
+	d = 0.0;
+	t = e*e*e/6.0;
+	for (int n = 1; d + t != d; n++) {
+	    d += t;
+	    t *= -e*e/((2*n+2)*(2*n+3));
+	}
+
+	t = 90.0 - 2.0*trig.asin(Math.sqrt(d/(2.0*PI)));
+	return (y0 < 0.0) ? -t : t;
+    }
+
     /**
      * set the sphere radius 
      */
@@ -81,7 +81,7 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class PARProjection extends Projection {
+public class PARProjection extends PseudocylindricalProjection {
 
     protected double tol = 1.0e-12;
 
@@ -156,7 +156,7 @@ public class PARProjection extends Projection {
 	double s;
 	double[] out = new double[2];
 
-	s = TrigD.sin(theta/3.0);
+	s = trig.sin(theta/3.0);
 	out[0] = w[0]*phi*(1.0 - 4.0*s*s);
 	out[1] = w[2]*s;
 	return out;
@@ -197,10 +197,80 @@ public class PARProjection extends Projection {
 	    out[0] = w[1]*x/t;
 	}
 
-	out[1] = 3.0*TrigD.asin(s);
+	out[1] = 3.0*trig.asin(s);
 	return out;
     }
 
+    /**
+     * Compute (x,y) coordinates in the plane of projection for n native
+     * longitudes along the native latitude theta.
+     * @see PseudocylindricalProjection#fwdRow(double, int, double[], int, int, double[], int, double[], int, int)
+     */
+    protected void fwdRow(double theta, int n, double[] phi,
+			  int phioff, int phistride,
+			  double[] x, int xoff, double[] y, int yoff,
+			  int outstride)
+    {
+	final double c = w[0], s = trig.sin(theta/3.0);
+	final double f = 1.0 - 4.0*s*s, yr = w[2]*s;
+	int i = 0, j = 0;
+
+	for (int k = 0; k < n; k++, i += phistride, j += outstride) {
+	    x[xoff+j] = c*phi[phioff+i]*f;
+	    y[yoff+j] = yr;
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection without allocating any arrays.
+     * @see Projection#revBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revBatch(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	double xv, yv, s, t, ph;
+	int i = 0, j = 0;
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    xv = x[xoff+i];
+	    yv = y[yoff+i];
+
+	    s = yv*w[3];
+	    if (s > 1.0 || s < -1.0) {
+		if (stat == null)
+		    throw new PixelBeyondProjectionException(
+			"PAR: Solution not defined for y: " + yv);
+		reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+		continue;
+	    }
+
+	    t = 1.0 - 4.0*s*s;
+	    if (t == 0.0) {
+		if (xv == 0.0) {
+		    ph = 0.0;
+		} else {
+		    if (stat == null)
+			throw new PixelBeyondProjectionException(
+			    "PAR: Solution not defined for x,y: " + xv + ", " + yv);
+		    reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+		    continue;
+		}
+	    } else {
+		ph = w[1]*xv/t;
+	    }
+
+	    phi[phioff+j] = ph;
+	    theta[thetaoff+j] = 3.0*trig.asin(s);
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
     /**
      * set the sphere radius 
      */
@@ -81,10 +81,41 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class PCOProjection extends Projection {
+public class PCOProjection extends PseudocylindricalProjection {
 
     protected double tol = 1.0e-12;
 
+    /**
+     * the number of intervals in x (over [0,pi]) and in y (over [0,pi/2]),
+     * in units of r0, in the table of theta used to start the inverse
+     */
+    protected final static int NX = 64, NY = 64;
+
+    /**
+     * theta, in radians, at the (NX+1)*(NY+1) grid points (x,y), stored
+     * by rows of constant y.  In units of r0 the inverse does not depend 
+     * on r0, so a single table serves every instance.
+     */
+    private final static double[] THETAB = new double[(NX+1)*(NY+1)];
+
+    static {
+	double xx, yy;
+	for (int j = 0; j <= NY; j++) {
+	    yy = j*(PI/2.0)/NY;
+	    for (int i = 0; i <= NX; i++) {
+		xx = i*PI/NX;
+		THETAB[j*(NX+1)+i] = solve(xx*xx, yy, PI/4.0, 1.0e-12,
+					   null, null, false);
+	    }
+	}
+    }
+
+    /**
+     * whether rev() starts from the table rather than using the
+     * original weighted division of the interval
+     */
+    protected boolean tabulated = true;
+
     /**
      * Create an PCOProjection object
      */
@@ -144,6 +175,197 @@ public class PCOProjection extends Projection {
 	this.r0 = r0;
     }
 
+    /**
+     * return true if the inverse starts from a table of theta and refines 
+     * it by Newton-Raphson iteration (the default), or false if it 
+     * uses the original weighted division of the interval.
+     */
+    public boolean isTabulatedInverse() { return tabulated; }
+
+    /**
+     * choose between the tabulated inverse (the default) and the 
+     * original weighted division of the interval.  Both give theta to
+     * within the closure tolerance; the latter is kept for comparison.
+     */
+    public void setTabulatedInverse(boolean tabulated) {
+	this.tabulated = tabulated;
+    }
+
+    /**
+     * copy the choice of inverse to prj
+     */
+    protected void copyOptions(Projection prj) {
+	((PCOProjection) prj).tabulated = tabulated;
+    }
+
+    /**
+     * solve x^2 + (y - theta)(y - theta - 2 cot(theta)) = 0, with x, y
+     * in units of r0 and y > 0, for theta in (0,pi/2) by Newton-Raphson 
+     * iteration from theta, bisecting the bracketing interval whenever 
+     * a step would leave it.  If seed is not null, it is set to 
+     * {theta, x^2, y, df/dtheta, df/dy} for the solution; if stats is not
+     * null, the solution is recorded in it, as seeded or not.
+     * @param xx  the square of x
+     */
+    private static double solve(double xx, double y, double theta, 
+				double tol, double[] seed, SolverStats stats,
+				boolean seeded) 
+    {
+	int   j;
+	double cot=0.0, d, f, fd=0.0, s, the1, the2, ymthe=0.0;
+
+	the1 = 0.0;
+	the2 = PI/2.0;
+	for (j = 0; j < 64; j++) {
+	    s = Math.sin(theta);
+	    cot = Math.cos(theta)/s;
+	    ymthe = y - theta;
+	    f  = xx + ymthe*(ymthe - 2.0*cot);
+	    fd = 2.0*(cot - ymthe + ymthe/(s*s));
+
+	    if (f > 0.0) {
+		the2 = theta;
+	    } else {
+		the1 = theta;
+	    }
+
+	    d = f/fd;
+	    if (theta-d >= the1 && theta-d <= the2) {
+		theta -= d;
+		if (Math.abs(d) < tol) break;
+	    } else {
+		theta = (the1 + the2)/2.0;
+		if (the2-the1 < tol) break;
+	    }
+	}
+
+	if (seed != null) {
+	    seed[0] = theta;
+	    seed[1] = xx;
+	    seed[2] = y;
+	    seed[3] = fd;
+	    seed[4] = 2.0*(ymthe - cot);
+	}
+	if (stats != null) stats.record((j < 64) ? j+1 : j, seeded);
+	return theta;
+    }
+
+    /**
+     * return theta, in degrees, for (x,y) with y not on the equator,
+     * starting from the table THETAB.  If seed is not null, the solution
+     * instead starts from a first-order prediction made from the previous
+     * one, as recorded in seed by solve(), provided the prediction lies 
+     * within the range of the table at the corners of the cell; seed is
+     * updated for the next call.  If stats is not null, the solution is
+     * recorded in it.
+     */
+    private double tabulatedTheta(double x, double y, double[] seed,
+				  SolverStats stats) 
+    {
+	int i, j, k;
+	double fx, fy, t, t00, t01, t10, t11, xx, yy;
+
+	xx = Math.abs(x)/r0;
+	yy = Math.abs(y)/r0;
+
+	fx = xx*NX/PI;
+	i = (int) fx;
+	if (i >= NX) {
+	    i  = NX-1;
+	    fx = NX;
+	}
+	fy = yy*NY/(PI/2.0);
+	j = (int) fy;
+	if (j >= NY) {
+	    j  = NY-1;
+	    fy = NY;
+	}
+	fx -= i;
+	fy -= j;
+
+	k = j*(NX+1) + i;
+	t00 = THETAB[k];
+	t01 = THETAB[k+1];
+	t10 = THETAB[k+NX+1];
+	t11 = THETAB[k+NX+2];
+
+	if (seed != null && seed[3] > 0.0) {
+	    t = seed[0] - (xx*xx - seed[1] + seed[4]*(yy - seed[2]))/seed[3];
+	    if (t >= Math.min(Math.min(t00, t01), Math.min(t10, t11)) &&
+		t <= Math.max(Math.max(t00, t01), Math.max(t10, t11))) 
+	    {
+		t = solve(xx*xx, yy, t, tol, seed, stats, true)*R2D;
+		return (y < 0.0) ? -t : t;
+	    }
+	    if (stats != null) stats.recordFallback();
+	}
+
+	// Bilinear interpolation.
+	t = (1.0-fy)*((1.0-fx)*t00 + fx*t01) + fy*((1.0-fx)*t10 + fx*t11);
+
+	t = solve(xx*xx, yy, t, tol, seed, stats, false)*R2D;
+	return (y < 0.0) ? -t : t;
+    }
+
+    /**
+     * return theta, in degrees, for (x,y) with y not on the equator,
+     * using the original weighted division of the interval.
+     */
+    private double dividedTheta(double x, double y) {
+	int   j;
+	double f, fneg, fpos, lambda, tanthe, the=0.0, theneg, thepos, 
+	       xx, ymthe;
+
+	if (y > 0.0) {
+	    thepos =  90.0;
+	} else {
+	    thepos = -90.0;
+	}
+	theneg = 0.0;
+
+	xx = x*x;
+	ymthe = y - w[0]*thepos;
+	fpos = xx + ymthe*ymthe;
+	fneg = -999.0;
+
+	for (j = 0; j < 64; j++) {
+	    if (fneg < -100.0) {
+
+		// Equal division of the interval. 
+		the = (thepos+theneg)/2.0;
+	    } else {
+
+		// Weighted division of the interval. 
+		lambda = fpos/(fpos-fneg);
+		if (lambda < 0.1) {
+		    lambda = 0.1;
+		} else if (lambda > 0.9) {
+		    lambda = 0.9;
+		}
+		the = thepos - lambda*(thepos-theneg);
+	    }
+
+	    // Compute the residue. 
+	    ymthe = y - w[0]*the;
+	    tanthe = trig.tan(the);
+	    f = xx + ymthe*(ymthe - w[2]/tanthe);
+
+	    // Check for convergence. 
+	    if (Math.abs(f) < tol) break;
+	    if (Math.abs(thepos-theneg) < tol) break;
+
+	    // Redefine the interval. 
+	    if (f > 0.0) {
+		thepos = the;
+		fpos = f;
+	    } else {
+		theneg = the;
+		fneg = f;
+	    }
+	}
+	return the;
+    }
+
     /**
      * Compute (x,y) coordinates in the plane of projection from native 
      * spherical coordinates (phi,theta). 
@@ -154,8 +376,8 @@ public class PCOProjection extends Projection {
 	double a, costhe, cotthe, sinthe;
 	double[] out = new double[2];
 
-	costhe = TrigD.cos(theta);
-	sinthe = TrigD.sin(theta);
+	costhe = trig.cos(theta);
+	sinthe = trig.sin(theta);
 	a = phi*sinthe;
 
 	if (sinthe == 0.0) {
@@ -163,8 +385,8 @@ public class PCOProjection extends Projection {
 	    out[1] = 0.0;
 	} else {
 	    cotthe = costhe/sinthe;
-	    out[0] = r0*cotthe*TrigD.sin(a);
-	    out[1] = r0*(cotthe*(1.0 - TrigD.cos(a)) + theta*D2R);
+	    out[0] = r0*cotthe*trig.sin(a);
+	    out[1] = r0*(cotthe*(1.0 - trig.cos(a)) + theta*D2R);
 	}
 	return out;
     }
@@ -182,9 +404,7 @@ public class PCOProjection extends Projection {
      * @return double[] a two-element array containing phi,theta
      */
     public double[] rev(double x, double y) {
-	int   j;
-	double f, fneg, fpos, lambda, tanthe=1.0, theneg, thepos, ww, 
-	       xp, xx, ymthe, yp;
+	double tanthe, ww, xp, ymthe, yp;
 	double[] out = new double[2];
 
 	ww = Math.abs(y*w[1]);
@@ -195,62 +415,17 @@ public class PCOProjection extends Projection {
 	    out[0] = 0.0;
 	    out[1] = (y < 0.0) ? -90.0 : 90.0;
 	} else {
+	    out[1] = (tabulated) ? tabulatedTheta(x, y, null, null) 
+		                 : dividedTheta(x, y);
 
-	    // Iterative solution using weighted division of the interval. 
-	    if (y > 0.0) {
-		thepos =  90.0;
-	    } else {
-		thepos = -90.0;
-	    }
-	    theneg = 0.0;
-
-	    xx = x*x;
-	    ymthe = y - w[0]*thepos;
-	    fpos = xx + ymthe*ymthe;
-	    fneg = -999.0;
-
-	    for (j = 0; j < 64; j++) {
-		if (fneg < -100.0) {
-
-		    // Equal division of the interval. 
-		    out[1] = (thepos+theneg)/2.0;
-		} else {
-
-		    // Weighted division of the interval. 
-		    lambda = fpos/(fpos-fneg);
-		    if (lambda < 0.1) {
-			lambda = 0.1;
-		    } else if (lambda > 0.9) {
-			lambda = 0.9;
-		    }
-		    out[1] = thepos - lambda*(thepos-theneg);
-		}
-
-		// Compute the residue. 
-		ymthe = y - w[0]*(out[1]);
-		tanthe = TrigD.tan(out[1]);
-		f = xx + ymthe*(ymthe - w[2]/tanthe);
-
-		// Check for convergence. 
-		if (Math.abs(f) < tol) break;
-		if (Math.abs(thepos-theneg) < tol) break;
-
-		// Redefine the interval. 
-		if (f > 0.0) {
-		    thepos = out[1];
-		    fpos = f;
-		} else {
-		    theneg = out[1];
-		    fneg = f;
-		}
-	    }
-
+	    ymthe = y - w[0]*out[1];
+	    tanthe = trig.tan(out[1]);
 	    xp = r0 - ymthe*tanthe;
 	    yp = x*tanthe;
 	    if (xp == 0.0 && yp == 0.0) {
 		out[0] = 0.0;
 	    } else {
-		out[0] = TrigD.atan2(yp, xp)/TrigD.sin(out[1]);
+		out[0] = trig.atan2(yp, xp)/trig.sin(out[1]);
 	    }
 	}
 
@@ -262,6 +437,115 @@ public class PCOProjection extends Projection {
      */
     public double[] rev(double[] xy) { return rev(xy[0], xy[1]); }
 
+    /**
+     * Compute (x,y) coordinates in the plane of projection for n native
+     * longitudes along the native latitude theta.
+     * @see PseudocylindricalProjection#fwdRow(double, int, double[], int, int, double[], int, double[], int, int)
+     */
+    protected void fwdRow(double theta, int n, double[] phi,
+			  int phioff, int phistride,
+			  double[] x, int xoff, double[] y, int yoff,
+			  int outstride)
+    {
+	final double sinthe = trig.sin(theta);
+	double a, cotthe, rc, td;
+	int i = 0, j = 0;
+
+	if (sinthe == 0.0) {
+	    for (int k = 0; k < n; k++, i += phistride, j += outstride) {
+		x[xoff+j] = w[0]*phi[phioff+i];
+		y[yoff+j] = 0.0;
+	    }
+	    return;
+	}
+
+	cotthe = trig.cos(theta)/sinthe;
+	rc = r0*cotthe;
+	td = theta*D2R;
+	for (int k = 0; k < n; k++, i += phistride, j += outstride) {
+	    a = phi[phioff+i]*sinthe;
+	    x[xoff+j] = rc*trig.sin(a);
+	    y[yoff+j] = r0*(cotthe*(1.0 - trig.cos(a)) + td);
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection without allocating any arrays.
+     * @see Projection#revBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revBatch(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+    {
+	revBatch(ncoord, x, xoff, y, yoff, instride, phi, phioff,
+		 theta, thetaoff, outstride, stat, statoff, null, null);
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for a set of
+     * ncoord (x,y) positions, as rev(int, double[], int, double[], int, 
+     * int, double[], int, double[], int, int, byte[], int) does, except 
+     * that stat may be null.  With the tabulated inverse, if seed is 
+     * true, the iterative solution for each position starts from a 
+     * prediction made from that for the previous one; this saves 
+     * iterations when neighbouring positions are close together, as they
+     * are in raster order.  If stats is not null, each iterative 
+     * solution of the tabulated inverse is recorded in it.
+     */
+    public void rev(int ncoord, double[] x, int xoff,
+		    double[] y, int yoff, int instride,
+		    double[] phi, int phioff, double[] theta, int thetaoff,
+		    int outstride, byte[] stat, int statoff,
+		    boolean seed, SolverStats stats)
+    {
+	revBatch(ncoord, x, xoff, y, yoff, instride, phi, phioff,
+		 theta, thetaoff, outstride, stat, statoff,
+		 (seed) ? new double[5] : null, stats);
+    }
+
+    private void revBatch(int ncoord, double[] x, int xoff,
+			  double[] y, int yoff, int instride,
+			  double[] phi, int phioff, double[] theta,
+			  int thetaoff, int outstride,
+			  byte[] stat, int statoff, 
+			  double[] seed, SolverStats stats)
+    {
+	double xv, yv, tanthe, ww, xp, ymthe, yp, ph, th;
+	int i = 0, j = 0;
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    xv = x[xoff+i];
+	    yv = y[yoff+i];
+
+	    ww = Math.abs(yv*w[1]);
+	    if (ww < tol) {
+		ph = xv*w[1];
+		th = 0.0;
+	    } else if (Math.abs(ww-90.0) < tol) {
+		ph = 0.0;
+		th = (yv < 0.0) ? -90.0 : 90.0;
+	    } else {
+		th = (tabulated) ? tabulatedTheta(xv, yv, seed, stats) 
+		                 : dividedTheta(xv, yv);
+
+		ymthe = yv - w[0]*th;
+		tanthe = trig.tan(th);
+		xp = r0 - ymthe*tanthe;
+		yp = xv*tanthe;
+		ph = (xp == 0.0 && yp == 0.0) ? 0.0
+					      : trig.atan2(yp, xp)/trig.sin(th);
+	    }
+
+	    phi[phioff+j] = ph;
+	    theta[thetaoff+j] = th;
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
     /**
      * set the sphere radius 
      */
@@ -0,0 +1,114 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS.projections;
+
+import FITSWCS.*;
+
+/**
+ * the support common to the pseudocylindrical projections (GLS, PAR, AIT
+ * and MOL) and to BON and PCO, whose terms that depend on the native
+ * latitude are likewise constant along a row of constant theta. <p>
+ *
+ * The forward projection is computed a row at a time:  the
+ * latitude-dependent factors (for MOL, including the solution of its
+ * auxiliary equation) are computed once for each row and used for every
+ * longitude along it.  The batch forms of fwd() treat each run of
+ * consecutive positions with the same latitude as a row, so positions
+ * given in the order of a graticule or a raster of constant latitude
+ * benefit without any change; fwdGrid() computes a whole grid of
+ * longitudes and latitudes.  The results are the same as those of the
+ * single-position forms.  None of these projections has positions that
+ * cannot be projected.
+ */
+public abstract class PseudocylindricalProjection extends Projection {
+
+    /**
+     * Compute (x,y) coordinates in the plane of projection for a grid of
+     * native spherical coordinates.  The position of the grid formed by
+     * phi[phioff+i] and theta[thetaoff+j] is written to x[xoff+j*nphi+i]
+     * and y[yoff+j*nphi+i], so that each row of the output has a
+     * constant theta.  The outputs must not overlap the inputs.
+     *
+     * @param nphi      the number of native longitudes
+     * @param phi       array containing the native longitudes
+     * @param phioff    index of the first native longitude in phi
+     * @param ntheta    the number of native latitudes
+     * @param theta     array containing the native latitudes
+     * @param thetaoff  index of the first native latitude in theta
+     * @param x         array to receive the nphi*ntheta projected x values
+     * @param xoff      index of the first x value in x
+     * @param y         array to receive the nphi*ntheta projected y values
+     * @param yoff      index of the first y value in y
+     */
+    public void fwdGrid(int nphi, double[] phi, int phioff,
+			int ntheta, double[] theta, int thetaoff,
+			double[] x, int xoff, double[] y, int yoff)
+    {
+	if (nphi <= 0) return;
+
+	for (int j = 0; j < ntheta; j++) {
+	    fwdRow(theta[thetaoff+j], nphi, phi, phioff, 1, x, xoff, y, yoff, 1);
+	    xoff += nphi;  yoff += nphi;
+	}
+    }
+
+    /**
+     * same as fwdGrid(phi.length, phi, 0, theta.length, theta, 0, x, 0,
+     * y, 0)
+     */
+    public void fwdGrid(double[] phi, double[] theta, double[] x, double[] y)
+    {
+	fwdGrid(phi.length, phi, 0, theta.length, theta, 0, x, 0, y, 0);
+    }
+
+    /**
+     * Compute (x,y) coordinates in the plane of projection for ncoord
+     * native spherical positions, a row of equal latitudes at a time.
+     * @see Projection#fwdBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void fwdBatch(int ncoord, double[] phi, int phioff,
+			    double[] theta, int thetaoff, int instride,
+			    double[] x, int xoff, double[] y, int yoff,
+			    int outstride, byte[] stat, int statoff)
+    {
+	double th;
+	long bits;
+	int m;
+
+	for (int k = 0; k < ncoord; k += m) {
+	    th = theta[thetaoff];
+	    bits = Double.doubleToRawLongBits(th);
+	    for (m = 1; k+m < ncoord &&
+		     Double.doubleToRawLongBits(theta[thetaoff+m*instride]) == bits;
+		 m++);
+
+	    fwdRow(th, m, phi, phioff, instride, x, xoff, y, yoff, outstride);
+
+	    phioff += m*instride;   thetaoff += m*instride;
+	    xoff   += m*outstride;  yoff     += m*outstride;
+	}
+
+	if (stat != null) {
+	    for (int k = 0; k < ncoord; k++) stat[statoff+k] = OK;
+	}
+    }
+
+    /**
+     * compute (x,y) for n positions at native latitude theta and the
+     * native longitudes phi[phioff+k*phistride], writing them to
+     * x[xoff+k*outstride] and y[yoff+k*outstride].  Each longitude is
+     * read before the outputs for its position are written.
+     */
+    protected abstract void fwdRow(double theta, int n, double[] phi,
+				   int phioff, int phistride,
+				   double[] x, int xoff, double[] y, int yoff,
+				   int outstride);
+}
@@ -160,21 +160,127 @@ public class QSCProjection extends Projection {
     public double[] fwd(double phi, double theta) 
 	throws PixelBeyondProjectionException
     {
-	int face;
-	double chi, costhe, eta, l, m, n, p, psi, rho, rhu, t, x0, 
-	       xf, xi, y0, yf;
 	double[] out = new double[2];
+	project(phi, theta, out, 0, out, 1, new double[2]);
+	return out;
+    }
+
+    /**
+     * Compute (x,y) coordinates in the plane of projection for ncoord
+     * native spherical positions.  The positions are projected in chunks,
+     * face by face (see QuadCube), with the same results as the
+     * single-position form.
+     * @see Projection#fwdBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void fwdBatch(int ncoord, double[] phi, int phioff,
+			    double[] theta, int thetaoff, int instride,
+			    double[] x, int xoff, double[] y, int yoff,
+			    int outstride, byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	QuadCube q = new QuadCube(ncoord);
+	double[] sc = new double[2];
+	double eta, rho, rhu, xf, xi, yf;
+	int n;
+
+	for (; ncoord > 0; ncoord -= n) {
+	    n = Math.min(ncoord, q.size);
+	    q.sphere(n, phi, phioff, theta, thetaoff, instride, trig);
+	    for (int k = 0; k < n; k++) {
+		if (Math.abs(q.in1[k]) == 90.0) {
+		    q.face[k] = QuadCube.NFACE;
+		    q.u[k] = 0.0;
+		    q.t[k] = (q.in1[k] < 0.0) ? -Math.abs(2.0*w[0]) :
+		                                 Math.abs(2.0*w[0]);
+		    q.st[k] = OK;
+		}
+	    }
+	    q.sort(n);
+
+	    for (int f = 0; f < QuadCube.NFACE; f++) {
+		double[] vc = q.v[QuadCube.CI[f]], va = q.v[QuadCube.AI[f]],
+		         vb = q.v[QuadCube.BI[f]];
+		double cs = QuadCube.CS[f], as = QuadCube.AS[f],
+		       bs = QuadCube.BS[f];
+		double x0 = QuadCube.X0[f], y0 = QuadCube.Y0[f];
+
+		for (int j = q.start[f]; j < q.start[f+1]; j++) {
+		    int k = q.order[j];
+		    rho = cs*vc[k];
+		    xi  = as*va[k];
+		    eta = bs*vb[k];
+
+		    rhu = 1.0 - rho;
+		    if (rhu < 1.0e-8) rhu = smallAngle(f, q.in0[k], q.in1[k]);
+
+		    faceCoords(xi, eta, rhu, sc);
+		    xf = sc[0];
+		    yf = sc[1];
+
+		    if (Math.abs(xf) > 1.0) {
+			if (Math.abs(xf) > 1.0+tol) {
+			    q.st[k] = PIXEL_BEYOND_PROJECTION;
+			    continue;
+			}
+			xf = (xf < 0) ? -1.0 : 1.0;
+		    }
+		    if (Math.abs(yf) > 1.0) {
+			if (Math.abs(yf) > 1.0+tol) {
+			    q.st[k] = PIXEL_BEYOND_PROJECTION;
+			    continue;
+			}
+			yf = (yf < 0) ? -1.0 : 1.0;
+		    }
+
+		    q.u[k] = w[0]*(xf + x0);
+		    q.t[k] = w[0]*(yf + y0);
+		    q.st[k] = OK;
+		}
+	    }
+
+	    for (int k = 0; k < n; k++) {
+		if (q.st[k] == OK) {
+		    x[xoff] = q.u[k];
+		    y[yoff] = q.t[k];
+		    if (stat != null) stat[statoff] = OK;
+		} else {
+		    fwdFailed(q.in0[k], q.in1[k], stat, statoff,
+			      x, xoff, y, yoff);
+		}
+		xoff += outstride;   yoff += outstride;
+		statoff++;
+	    }
+	    phioff += n*instride;  thetaoff += n*instride;
+	}
+    }
+
+    /**
+     * Compute (x,y) coordinates in the plane of projection from native
+     * spherical coordinates (phi,theta), storing them in x[xoff] and
+     * y[yoff].  If the position cannot be projected, a
+     * PixelBeyondProjectionException is thrown.  sc is a two-element
+     * scratch buffer.
+     */
+    private void project(double phi, double theta,
+			 double[] x, int xoff, double[] y, int yoff,
+			 double[] sc)
+	throws PixelBeyondProjectionException
+    {
+	int face;
+	double costhe, eta, l, m, n, rho, rhu, x0, xf, xi, y0, yf;
 
 	if (Math.abs(theta) == 90.0) {
-	    out[0] = 0.0;
-	    out[1] = (theta < 0.0) ? -Math.abs(2.0*w[0]) : Math.abs(2.0*w[0]);
-	    return out;
+	    x[xoff] = 0.0;
+	    y[yoff] = (theta < 0.0) ? -Math.abs(2.0*w[0]) : Math.abs(2.0*w[0]);
+	    return;
 	}
 
-	costhe = TrigD.cos(theta);
-	l = costhe*TrigD.cos(phi);
-	m = costhe*TrigD.sin(phi);
-	n = TrigD.sin(theta);
+	trig.sincos(theta, sc);
+	costhe = sc[1];
+	n = sc[0];
+	trig.sincos(phi, sc);
+	l = costhe*sc[1];
+	m = costhe*sc[0];
 
 	face = 0;
 	rho  = n;
@@ -199,90 +305,120 @@ public class QSCProjection extends Projection {
 	    rho  = -n;
 	}
 
-	rhu = 1.0 - rho;
-
 	xi = eta = x0 = y0 = 0.0;
 	if (face == 0) {
 	    xi  =  m;
 	    eta = -l;
-	    if (rhu < 1.0e-8) {
-
-		// Small angle formula. 
-		t = (90.0 - theta)*D2R;
-		rhu = t*t/2.0;
-	    }
 	    x0  =  0.0;
 	    y0  =  2.0;
 	} else if (face == 1) {
 	    xi  =  m;
 	    eta =  n;
-	    if (rhu < 1.0e-8) {
-
-		// Small angle formula. 
-		t = theta*D2R;
-		p = Math.IEEEremainder(phi,360.0);
-		if (p < -180.0) p += 360.0;
-		if (p >  180.0) p -= 360.0;
-		p *= D2R;
-		rhu = (p*p + t*t)/2.0;
-	    }
 	    x0  =  0.0;
 	    y0  =  0.0;
 	} else if (face == 2) {
 	    xi  = -l;
 	    eta =  n;
-	    if (rhu < 1.0e-8) {
-
-		// Small angle formula. 
-		t = theta*D2R;
-		p = Math.IEEEremainder(phi,360.0);
-		if (p < -180.0) p += 360.0;
-		p = (90.0 - p)*D2R;
-		rhu = (p*p + t*t)/2.0;
-	    }
 	    x0  =  2.0;
 	    y0  =  0.0;
 	} else if (face == 3) {
 	    xi  = -m;
 	    eta =  n;
-	    if (rhu < 1.0e-8) {
-
-		// Small angle formula. 
-		t = theta*D2R;
-		p = Math.IEEEremainder(phi,360.0);
-		if (p < 0.0) p += 360.0;
-		p = (180.0 - p)*D2R;
-		rhu = (p*p + t*t)/2.0;
-	    }
 	    x0  =  4.0;
 	    y0  =  0.0;
 	} else if (face == 4) {
 	    xi  =  l;
 	    eta =  n;
-	    if (rhu < 1.0e-8) {
-
-		// Small angle formula. 
-		t = theta*D2R;
-		p = Math.IEEEremainder(phi,360.0);
-		if (p > 180.0) p -= 360.0;
-		p *= (90.0 + p)*D2R;
-		rhu = (p*p + t*t)/2.0;
-	    }
 	    x0  =  6;
 	    y0  =  0.0;
 	} else if (face == 5) {
 	    xi  =  m;
 	    eta =  l;
-	    if (rhu < 1.0e-8) {
-
-		// Small angle formula. 
-		t = (90.0 + theta)*D2R;
-		rhu = t*t/2.0;
-	    }
 	    x0  =  0.0;
 	    y0  = -2;
 	}
 
+	rhu = 1.0 - rho;
+	if (rhu < 1.0e-8) rhu = smallAngle(face, phi, theta);
+
+	faceCoords(xi, eta, rhu, sc);
+	xf = sc[0];
+	yf = sc[1];
+
+	if (Math.abs(xf) > 1.0) {
+	    if (Math.abs(xf) > 1.0+tol) {
+		throw new PixelBeyondProjectionException(
+		    "QSC: Solution not defined for phi, theta: " + phi +
+		    ", " + theta);
+	    }
+
+	    xf = (xf < 0) ? -1.0 : 1.0;
+	}
+	if (Math.abs(yf) > 1.0) {
+	    if (Math.abs(yf) > 1.0+tol) {
+		throw new PixelBeyondProjectionException(
+		    "QSC: Solution not defined for phi, theta: " + phi +
+		    ", " + theta);
+	    }
+
+	    yf = (yf < 0) ? -1.0 : 1.0;
+	}
+
+	x[xoff] = w[0]*(xf + x0);
+	y[yoff] = w[0]*(yf + y0);
+    }
+
+    /**
+     * return 1 - rho, where rho is the direction cosine towards the
+     * center of the given face, by the small angle formula for positions
+     * close to the center
+     */
+    private static double smallAngle(int face, double phi, double theta) {
+	double p, t;
+
+	if (face == 0) {
+	    t = (90.0 - theta)*D2R;
+	    return t*t/2.0;
+	} else if (face == 1) {
+	    t = theta*D2R;
+	    p = Math.IEEEremainder(phi,360.0);
+	    if (p < -180.0) p += 360.0;
+	    if (p >  180.0) p -= 360.0;
+	    p *= D2R;
+	    return (p*p + t*t)/2.0;
+	} else if (face == 2) {
+	    t = theta*D2R;
+	    p = Math.IEEEremainder(phi,360.0);
+	    if (p < -180.0) p += 360.0;
+	    p = (90.0 - p)*D2R;
+	    return (p*p + t*t)/2.0;
+	} else if (face == 3) {
+	    t = theta*D2R;
+	    p = Math.IEEEremainder(phi,360.0);
+	    if (p < 0.0) p += 360.0;
+	    p = (180.0 - p)*D2R;
+	    return (p*p + t*t)/2.0;
+	} else if (face == 4) {
+	    t = theta*D2R;
+	    p = Math.IEEEremainder(phi,360.0);
+	    if (p > 180.0) p -= 360.0;
+	    p *= (90.0 + p)*D2R;
+	    return (p*p + t*t)/2.0;
+	} else {
+	    t = (90.0 + theta)*D2R;
+	    return t*t/2.0;
+	}
+    }
+
+    /**
+     * set out[0] and out[1] to the coordinates (xf,yf) on a face of a
+     * position whose direction cosines along the xi and eta axes of the
+     * face are xi and eta, and towards its center, 1 - rhu
+     */
+    private void faceCoords(double xi, double eta, double rhu, double[] out)
+    {
+	double chi, psi, xf, yf;
+
 	xf = yf = 0.0;
 	if (xi == 0.0 && eta == 0.0) {
 	    xf  = 0.0;
@@ -291,48 +427,30 @@ public class QSCProjection extends Projection {
 	    psi = eta/xi;
 	    chi = 1.0 + psi*psi;
 	    xf  = -Math.sqrt(rhu/(1.0-1.0/Math.sqrt(1.0+chi)));
-	    yf  = (xf/15.0)*(TrigD.atan(psi) - 
-			     TrigD.asin(psi/Math.sqrt(chi+chi)));
+	    yf  = (xf/15.0)*(trig.atan(psi) -
+			     trig.asin(psi/Math.sqrt(chi+chi)));
 	} else if (xi >= Math.abs(eta)) {
 	    psi = eta/xi;
 	    chi = 1.0 + psi*psi;
 	    xf  =  Math.sqrt(rhu/(1.0-1.0/Math.sqrt(1.0+chi)));
-	    yf  = (xf/15.0)*(TrigD.atan(psi) - 
-			     TrigD.asin(psi/Math.sqrt(chi+chi)));
+	    yf  = (xf/15.0)*(trig.atan(psi) -
+			     trig.asin(psi/Math.sqrt(chi+chi)));
 	} else if (-eta > Math.abs(xi)) {
 	    psi = xi/eta;
 	    chi = 1.0 + psi*psi;
 	    yf  = -Math.sqrt(rhu/(1.0-1.0/Math.sqrt(1.0+chi)));
-	    xf  = (yf/15.0)*(TrigD.atan(psi) - 
-			     TrigD.asin(psi/Math.sqrt(chi+chi)));
+	    xf  = (yf/15.0)*(trig.atan(psi) -
+			     trig.asin(psi/Math.sqrt(chi+chi)));
 	} else if (eta > Math.abs(xi)) {
 	    psi = xi/eta;
 	    chi = 1.0 + psi*psi;
 	    yf  =  Math.sqrt(rhu/(1.0-1.0/Math.sqrt(1.0+chi)));
-	    xf  = (yf/15.0)*(TrigD.atan(psi) - 
-			     TrigD.asin(psi/Math.sqrt(chi+chi)));
-	}
-
-	if (Math.abs(xf) > 1.0) {
-	    if (Math.abs(xf) > 1.0+tol) 
-		throw new PixelBeyondProjectionException(
-		    "QSC: Solution not defined for phi, theta: " + phi + 
-		    ", " + theta);
-
-	    xf = (xf < 0) ? -1.0 : 1.0;
-	}
-	if (Math.abs(yf) > 1.0) {
-	    if (Math.abs(yf) > 1.0+tol) 
-		throw new PixelBeyondProjectionException(
-		    "QSC: Solution not defined for phi, theta: " + phi + 
-		    ", " + theta);
-
-	    yf = (yf < 0) ? -1.0 : 1.0;
+	    xf  = (yf/15.0)*(trig.atan(psi) -
+			     trig.asin(psi/Math.sqrt(chi+chi)));
 	}
 
-	out[0] = w[0]*(xf + x0);
-	out[1] = w[0]*(yf + y0);
-	return out;
+	out[0] = xf;
+	out[1] = yf;
     }
 
     /**
@@ -343,10 +461,84 @@ public class QSCProjection extends Projection {
     public double[] rev(double x, double y) 
 	throws PixelBeyondProjectionException
     {
-	int   face;
-	boolean direct;
-	double chi, l, m, n, psi, rho, rhu, xf, yf, ww;
 	double[] out = new double[2];
+	deproject(x, y, out, 0, out, 1, new double[3]);
+	return out;
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection.  The positions are
+     * deprojected in chunks, face by face (see QuadCube), with the same
+     * results as the single-position form.
+     * @see Projection#revBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revBatch(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	QuadCube q = new QuadCube(ncoord);
+	double[] sc = new double[3];
+	int n;
+
+	for (; ncoord > 0; ncoord -= n) {
+	    n = Math.min(ncoord, q.size);
+	    q.plane(n, x, xoff, y, yoff, instride, w[1], false);
+	    q.sort(n);
+
+	    for (int f = 0; f < QuadCube.NFACE; f++) {
+		double[] vc = q.v[QuadCube.CI[f]], va = q.v[QuadCube.AI[f]],
+		         vb = q.v[QuadCube.BI[f]];
+		double cs = QuadCube.CS[f], as = QuadCube.AS[f],
+		       bs = QuadCube.BS[f];
+
+		for (int j = q.start[f]; j < q.start[f+1]; j++) {
+		    int k = q.order[j];
+		    if (! cosines(q.u[k], q.t[k], sc)) {
+			q.st[k] = PIXEL_BEYOND_PROJECTION;
+			continue;
+		    }
+		    vc[k] = cs*sc[0];
+		    va[k] = as*sc[1];
+		    vb[k] = bs*sc[2];
+		    q.st[k] = OK;
+		}
+	    }
+	    q.angles(n, trig);
+
+	    for (int k = 0; k < n; k++) {
+		if (q.st[k] == OK) {
+		    phi[phioff]     = q.u[k];
+		    theta[thetaoff] = q.t[k];
+		    if (stat != null) stat[statoff] = OK;
+		} else {
+		    revFailed(q.in0[k], q.in1[k], stat, statoff,
+			      phi, phioff, theta, thetaoff);
+		}
+		phioff += outstride; thetaoff += outstride;
+		statoff++;
+	    }
+	    xoff += n*instride;    yoff += n*instride;
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) from the
+     * (x,y) coordinates in the plane of projection, storing them in
+     * phi[phioff] and theta[thetaoff].  If the position cannot be
+     * deprojected, a PixelBeyondProjectionException is thrown.  sc
+     * is a three-element scratch buffer.
+     */
+    private void deproject(double x, double y,
+			   double[] phi, int phioff, double[] theta, int thetaoff,
+			   double[] sc)
+	throws PixelBeyondProjectionException
+    {
+	int   face;
+	double a, b, l, m, n, rho, xf, yf;
 
 	xf = x*w[1];
 	yf = y*w[1];
@@ -355,34 +547,94 @@ public class QSCProjection extends Projection {
 	if (xf > 7.0) {
 	    throw new PixelBeyondProjectionException("x = " + x);
 	} else if (xf > 5.0) {
-	    if (Math.abs(yf) > 1.0) 
+	    if (Math.abs(yf) > 1.0) {
 		throw new PixelBeyondProjectionException("y = " + y);
+	    }
 	    face = 4;
 	    xf = xf - 6.0;
 	} else if (xf > 3.0) {
-	    if (Math.abs(yf) > 1.0) 
+	    if (Math.abs(yf) > 1.0) {
 		throw new PixelBeyondProjectionException("y = " + y);
+	    }
 	    face = 3;
 	    xf = xf - 4.0;
 	} else if (xf > 1.0) {
-	    if (Math.abs(yf) > 1.0) 
+	    if (Math.abs(yf) > 1.0) {
 		throw new PixelBeyondProjectionException("y = " + y);
+	    }
 	    face = 2;
 	    xf = xf - 2.0;
 	} else if (xf < -1.0) {
 	    throw new PixelBeyondProjectionException("x = " + x);
 	} else if (yf > 1.0) {
-	    if (yf > 3.0) throw new PixelBeyondProjectionException("y = " + y);
+	    if (yf > 3.0) {
+		throw new PixelBeyondProjectionException("y = " + y);
+	    }
 	    face = 0;
 	    yf = yf - 2.0;
 	} else if (yf < -1.0) {
-	    if (yf < -3.0) throw new PixelBeyondProjectionException("y = " + y);
+	    if (yf < -3.0) {
+		throw new PixelBeyondProjectionException("y = " + y);
+	    }
 	    face = 5;
 	    yf = yf + 2.0;
 	} else {
 	    face = 1;
 	}
 
+	if (! cosines(xf, yf, sc)) {
+	    throw new PixelBeyondProjectionException(
+		"QSC: Solution not defined for x, y: " + x + ", " + y);
+	}
+	rho = sc[0];
+	a = sc[1];
+	b = sc[2];
+
+	l = m = n = 0.0;
+	if (face == 0) {
+	    n =  rho;
+	    m =  a;
+	    l = -b;
+	} else if (face == 1) {
+	    l =  rho;
+	    m =  a;
+	    n =  b;
+	} else if (face == 2) {
+	    m =  rho;
+	    l = -a;
+	    n =  b;
+	} else if (face == 3) {
+	    l = -rho;
+	    m = -a;
+	    n =  b;
+	} else if (face == 4) {
+	    m = -rho;
+	    l =  a;
+	    n =  b;
+	} else if (face == 5) {
+	    n = -rho;
+	    m =  a;
+	    l =  b;
+	}
+
+	if (l == 0.0 && m == 0.0) {
+	    phi[phioff] = 0.0;
+	} else {
+	    phi[phioff] = trig.atan2(m, l);
+	}
+	theta[thetaoff] = trig.asin(n);
+    }
+
+    /**
+     * compute the direction cosines of the position (xf,yf) on a face,
+     * setting out[0] to that towards the center of the face and out[1]
+     * and out[2] to those along its xi and eta axes, and return false if
+     * there is no solution.  out is a three-element array.
+     */
+    private boolean cosines(double xf, double yf, double[] out) {
+	boolean direct;
+	double a, b, chi, psi, rho, rhu, ww;
+
 	direct = (Math.abs(xf) > Math.abs(yf));
 	if (direct) {
 	    if (xf == 0.0) {
@@ -392,7 +644,8 @@ public class QSCProjection extends Projection {
 		rhu = 0.0;
 	    } else {
 		ww = 15.0*yf/xf;
-		psi = TrigD.sin(ww)/(TrigD.cos(ww) - SQRT2INV);
+		trig.sincos(ww, out);
+		psi = out[0]/(out[1] - SQRT2INV);
 		chi = 1.0 + psi*psi;
 		rhu = xf*xf*(1.0 - 1.0/Math.sqrt(1.0 + chi));
 		rho = 1.0 - rhu;
@@ -405,7 +658,8 @@ public class QSCProjection extends Projection {
 		rhu = 0.0;
 	    } else {
 		ww = 15.0*xf/yf;
-		psi = TrigD.sin(ww)/(TrigD.cos(ww) - SQRT2INV);
+		trig.sincos(ww, out);
+		psi = out[0]/(out[1] - SQRT2INV);
 		chi = 1.0 + psi*psi;
 		rhu = yf*yf*(1.0 - 1.0/Math.sqrt(1.0 + chi));
 		rho = 1.0 - rhu;
@@ -413,9 +667,7 @@ public class QSCProjection extends Projection {
 	}
 
 	if (rho < -1.0) {
-	    if (rho < -1.0-tol) 
-		throw new PixelBeyondProjectionException(
-		    "QSC: Solution not defined for x, y: " + x + ", " + y);
+	    if (rho < -1.0-tol) return false;
 
 	    rho = -1.0;
 	    rhu =  2.0;
@@ -424,83 +676,18 @@ public class QSCProjection extends Projection {
 	    ww = Math.sqrt(rhu*(2.0-rhu)/chi);
 	}
 
-	l = m = n = 0.0;
-	if (face == 0) {
-	    n = rho;
-	    if (direct) {
-		m = ww;
-		if (xf < 0.0) m = -m;
-		l = -m*psi;
-	    } else {
-		l = ww;
-		if (yf > 0.0) l = -l;
-		m = -l*psi;
-	    }
-	} else if (face == 1) {
-	    l = rho;
-	    if (direct) {
-		m = ww;
-		if (xf < 0.0) m = -m;
-		n = m*psi;
-	    } else {
-		n = ww;
-		if (yf < 0.0) n = -n;
-		m = n*psi;
-	    }
-	} else if (face == 2) {
-	    m =  rho;
-	    if (direct) {
-		l = ww;
-		if (xf > 0.0) l = -l;
-		n = -l*psi;
-	    } else {
-		n = ww;
-		if (yf < 0.0) n = -n;
-		l = -n*psi;
-	    }
-	} else if (face == 3) {
-	    l = -rho;
-	    if (direct) {
-		m = ww;
-		if (xf > 0.0) m = -m;
-		n = -m*psi;
-	    } else {
-		n = ww;
-		if (yf < 0.0) n = -n;
-		m = -n*psi;
-	    }
-	} else if (face == 4) {
-	    m = -rho;
-	    if (direct) {
-		l = ww;
-		if (xf < 0.0) l = -l;
-		n = l*psi;
-	    } else {
-		n = ww;
-		if (yf < 0.0) n = -n;
-		l = n*psi;
-	    }
-	} else if (face == 5) {
-	    n = -rho;
-	    if (direct) {
-		m = ww;
-		if (xf < 0.0) m = -m;
-		l = m*psi;
-	    } else {
-		l = ww;
-		if (yf < 0.0) l = -l;
-		m = l*psi;
-	    }
-	}
-
-	if (l == 0.0 && m == 0.0) {
-	    out[0] = 0.0;
+	if (direct) {
+	    a = (xf < 0.0) ? -ww : ww;
+	    b = a*psi;
 	} else {
-	    out[0] = TrigD.atan2(m, l);
+	    b = (yf < 0.0) ? -ww : ww;
+	    a = b*psi;
 	}
-	out[1] = TrigD.asin(n);
 
-	return out;
+	out[0] = rho;
+	out[1] = a;
+	out[2] = b;
+	return true;
     }
 
     /**
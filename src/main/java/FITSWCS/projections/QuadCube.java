@@ -0,0 +1,261 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS.projections;
+
+import FITSWCS.*;
+
+/**
+ * the face geometry shared by the quadrilateralized spherical cube
+ * projections (TSC, CSC and QSC), and the scratch space their batch
+ * methods use to transform positions face by face. <p>
+ *
+ * On every face, the direction cosine towards the center of the face
+ * and those along its xi and eta axes are each one of (l,m,n), possibly
+ * negated.  A batch is therefore processed in chunks: the positions of
+ * a chunk are first assigned to faces, then sorted by face so that each
+ * face is handled by a loop in which the choice and signs of the
+ * direction cosines are constant, and finally the results are copied
+ * out in their original order.  A QuadCube is used by one thread only.
+ */
+final class QuadCube implements BatchStatus {
+
+    /**
+     * the number of positions in a chunk
+     */
+    final static int CHUNK = 512;
+
+    /**
+     * the number of faces; positions which need no further work (such
+     * as those that cannot be transformed) are put in an extra bucket,
+     * numbered NFACE, which is skipped
+     */
+    final static int NFACE = 6;
+
+    /**
+     * the index in (l,m,n) of the direction cosine towards the center of
+     * each face, and its sign
+     */
+    final static int[] CI = { 2, 0, 1, 0, 1, 2 };
+    final static double[] CS = { 1.0, 1.0, 1.0, -1.0, -1.0, -1.0 };
+
+    /**
+     * the index in (l,m,n) of the direction cosine along the xi axis of
+     * each face, and its sign
+     */
+    final static int[] AI = { 1, 1, 0, 1, 0, 1 };
+    final static double[] AS = { 1.0, 1.0, -1.0, -1.0, 1.0, 1.0 };
+
+    /**
+     * the index in (l,m,n) of the direction cosine along the eta axis of
+     * each face, and its sign
+     */
+    final static int[] BI = { 0, 2, 2, 2, 2, 0 };
+    final static double[] BS = { -1.0, 1.0, 1.0, 1.0, 1.0, 1.0 };
+
+    /**
+     * the offset of each face in the plane of projection, in units of
+     * half the width of a face
+     */
+    final static double[] X0 = { 0.0, 0.0, 2.0, 4.0, 6.0, 0.0 };
+    final static double[] Y0 = { 2.0, 0.0, 0.0, 0.0, 0.0, -2.0 };
+
+    /**
+     * the number of positions the scratch space can hold
+     */
+    final int size;
+
+    /**
+     * the input positions of the chunk, as given
+     */
+    final double[] in0, in1;
+
+    /**
+     * the direction cosines (l,m,n) of the positions
+     */
+    final double[][] v;
+
+    /**
+     * the coordinates of the positions in the plane of projection (or on
+     * their face), or their native longitudes and latitudes
+     */
+    final double[] u, t;
+
+    /**
+     * the face of each position, the positions sorted by face, and the
+     * start of each face's positions in order (with start[f+1] its end)
+     */
+    final int[] face, order;
+    final int[] start = new int[NFACE+2];
+
+    /**
+     * the status of each position
+     */
+    final byte[] st;
+
+    private final double[] sc = new double[2];
+
+    /**
+     * create the scratch space for a batch of ncoord positions:  it holds
+     * chunks of Math.min(ncoord, CHUNK) positions, so that a small batch
+     * (such as the single positions passed by CelestialTransform) does
+     * not pay for a whole chunk
+     */
+    QuadCube(int ncoord) {
+	size = Math.max(0, Math.min(ncoord, CHUNK));
+	in0   = new double[size];
+	in1   = new double[size];
+	v     = new double[3][size];
+	u     = new double[size];
+	t     = new double[size];
+	face  = new int[size];
+	order = new int[size];
+	st    = new byte[size];
+    }
+
+    /**
+     * return the face of the cube towards which the direction cosines
+     * (l,m,n) point
+     */
+    static int face(double l, double m, double n) {
+	int face = 0;
+	double rho = n;
+	if (l > rho) {
+	    face = 1;
+	    rho  = l;
+	}
+	if (m > rho) {
+	    face = 2;
+	    rho  = m;
+	}
+	if (-l > rho) {
+	    face = 3;
+	    rho  = -l;
+	}
+	if (-m > rho) {
+	    face = 4;
+	    rho  = -m;
+	}
+	if (-n > rho) face = 5;
+	return face;
+    }
+
+    /**
+     * read ncoord (<= size) native spherical positions and set their
+     * direction cosines and faces
+     */
+    void sphere(int ncoord, double[] phi, int phioff,
+		double[] theta, int thetaoff, int instride, TrigProvider trig)
+    {
+	double[] vl = v[0], vm = v[1], vn = v[2];
+	double costhe, n;
+
+	for (int k = 0; k < ncoord; k++) {
+	    in0[k] = phi[phioff];
+	    in1[k] = theta[thetaoff];
+	    phioff += instride;  thetaoff += instride;
+
+	    trig.sincos(in1[k], sc);
+	    costhe = sc[1];
+	    n = sc[0];
+	    trig.sincos(in0[k], sc);
+	    vl[k] = costhe*sc[1];
+	    vm[k] = costhe*sc[0];
+	    vn[k] = n;
+	    face[k] = face(vl[k], vm[k], n);
+	}
+    }
+
+    /**
+     * read ncoord (<= size) positions in the plane of projection, set
+     * their faces and their coordinates on them (x and y scaled by s,
+     * and rounded to single precision if single is true), and reject
+     * those that lie off the cube
+     */
+    void plane(int ncoord, double[] x, int xoff, double[] y, int yoff,
+	       int instride, double s, boolean single)
+    {
+	double xf, yf;
+	int f;
+
+	for (int k = 0; k < ncoord; k++) {
+	    in0[k] = x[xoff];
+	    in1[k] = y[yoff];
+	    xoff += instride;    yoff += instride;
+
+	    xf = in0[k]*s;
+	    yf = in1[k]*s;
+	    if (single) {
+		xf = (float) xf;
+		yf = (float) yf;
+	    }
+
+	    if (xf > 7.0) {
+		f = -1;
+	    } else if (xf > 5.0) {
+		f = (Math.abs(yf) > 1.0) ? -1 : 4;
+	    } else if (xf > 3.0) {
+		f = (Math.abs(yf) > 1.0) ? -1 : 3;
+	    } else if (xf > 1.0) {
+		f = (Math.abs(yf) > 1.0) ? -1 : 2;
+	    } else if (xf < -1.0) {
+		f = -1;
+	    } else if (yf > 1.0) {
+		f = (yf > 3.0) ? -1 : 0;
+	    } else if (yf < -1.0) {
+		f = (yf < -3.0) ? -1 : 5;
+	    } else {
+		f = 1;
+	    }
+
+	    if (f < 0) {
+		face[k] = NFACE;
+		st[k] = PIXEL_BEYOND_PROJECTION;
+	    } else {
+		face[k] = f;
+		u[k] = xf - X0[f];
+		t[k] = yf - Y0[f];
+	    }
+	}
+    }
+
+    /**
+     * sort the first ncoord positions by face, setting order and start
+     */
+    void sort(int ncoord) {
+	for (int f = 0; f < start.length; f++) start[f] = 0;
+	for (int k = 0; k < ncoord; k++) start[face[k]+1]++;
+	for (int f = 1; f < start.length; f++) start[f] += start[f-1];
+	for (int k = 0; k < ncoord; k++) order[start[face[k]]++] = k;
+
+	// the bucket ends were advanced past their positions; shift back
+	for (int f = start.length-1; f > 0; f--) start[f] = start[f-1];
+	start[0] = 0;
+    }
+
+    /**
+     * set u and t to the native longitude and latitude of those of the
+     * first ncoord positions with an OK status, from their direction
+     * cosines
+     */
+    void angles(int ncoord, TrigProvider trig) {
+	double[] vl = v[0], vm = v[1], vn = v[2];
+
+	for (int k = 0; k < ncoord; k++) {
+	    if (st[k] != OK) continue;
+	    if (vl[k] == 0.0 && vm[k] == 0.0) {
+		u[k] = 0.0;
+	    } else {
+		u[k] = trig.atan2(vm[k], vl[k]);
+	    }
+	    t[k] = trig.asin(vn[k]);
+	}
+    }
+}
@@ -0,0 +1,245 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS.projections;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+
+/**
+ * tables of the radial function R(theta) of a zenithal projection and
+ * of its inverse, interpolated by cubic Hermite splines. <p>
+ *
+ * R is tabulated at NTAB+1 equally spaced native latitudes over
+ * [-90,90], and theta at NTAB+1 equally spaced radii over [0,rmax];
+ * both are computed by the projection's own (exact) batch methods.  The
+ * slope at each node is estimated by a five-point difference taken
+ * from the neighbouring nodes.  Each interval is then compared with the
+ * exact function at three interior points, and it is used only if the
+ * spline agrees to within half of ZenithalProjection.RADIAL_TOL there;
+ * intervals that fail, or that touch a position that cannot be
+ * transformed, are marked so that their positions are computed exactly.
+ * A RadialTable is not changed once built.
+ */
+final class RadialTable {
+
+    /**
+     * the number of intervals in each table
+     */
+    final static int NTAB = 2048;
+
+    /**
+     * the largest radius tabulated, in units of r0
+     */
+    final static double RMAX = 4.0;
+
+    /**
+     * the points at which each interval is checked, as fractions of it
+     */
+    private final static double[] CHECK = { 0.25, 0.5, 0.75 };
+
+    /**
+     * the weights of the five-point differences giving the slope at the
+     * first, second, ..., fifth of five equally spaced nodes, times 12
+     */
+    private final static double[][] SLOPE = {
+	{ -25.0, 48.0, -36.0, 16.0, -3.0 },
+	{  -3.0, -10.0, 18.0, -6.0,  1.0 },
+	{   1.0,  -8.0,  0.0,  8.0, -1.0 },
+	{  -1.0,   6.0, -18.0, 10.0, 3.0 },
+	{   3.0, -16.0,  36.0, -48.0, 25.0 }
+    };
+
+    /**
+     * the coefficients of the cubic in each interval of R(theta) and of
+     * theta(R), four to an interval; the first is NaN for an interval
+     * that is computed exactly
+     */
+    private final double[] fwd, rev;
+
+    /**
+     * the number of intervals per degree of theta and per unit of R
+     */
+    private final double fscale, rscale;
+
+    /**
+     * the state of the projection the tables were built for:  its r0,
+     * parameters, intermediate values and TrigProvider
+     */
+    final double r0;
+    final double[] p, w;
+    final TrigProvider trig;
+
+    /**
+     * tabulate the radial function of prj, whose state is given by the
+     * remaining arguments (which are copied).  If it is not a radial
+     * projection, or its parameters are not set, the tables are left
+     * empty.
+     * @exception PixelBeyondProjectionException never:  the projection
+     *             records its failures in a status array
+     */
+    RadialTable(ZenithalProjection prj, double r0, double[] p, double[] w,
+		TrigProvider trig) 
+	throws PixelBeyondProjectionException
+    {
+	this.r0 = r0;
+	this.p = (p == null) ? null : p.clone();
+	this.w = (w == null) ? null : w.clone();
+	this.trig = trig;
+
+	double[] f = null, g = null;
+	double hf = 180.0/NTAB, hg = 0.0;
+	if (prj.isRadial()) {
+	    try {
+		int n = 4*NTAB + 1;
+		double[] zero = new double[n], arg = new double[n];
+		double[] x = new double[n], y = new double[n];
+		byte[] stat = new byte[n];
+
+		// R(theta), from the projection of the meridian phi = 0
+		nodes(-90.0, hf, arg);
+		prj.fwdExact(n, zero, 0, arg, 0, 1, x, 0, y, 0, 1, stat, 0);
+		double rmax = 0.0;
+		for (int i = 0; i < n; i++) {
+		    y[i] = -y[i];
+		    if (y[i] > rmax && y[i] < Double.POSITIVE_INFINITY) 
+			rmax = y[i];
+		}
+		f = spline(y, 0.5*ZenithalProjection.RADIAL_TOL*r0*
+			   Projection.D2R);
+
+		// theta(R), from the deprojection of the line x = 0, y < 0
+		hg = Math.min(rmax, RMAX*r0)/NTAB;
+		if (hg > 0.0) {
+		    nodes(0.0, hg, arg);
+		    for (int i = 0; i < n; i++) arg[i] = -arg[i];
+		    prj.revExact(n, zero, 0, arg, 0, 1, x, 0, y, 0, 1, stat, 0);
+		    g = spline(y, 0.5*ZenithalProjection.RADIAL_TOL);
+		}
+	    }
+	    catch (UnsetProjectionParameterException ex) {
+		f = g = null;
+	    }
+	}
+
+	fwd = f;
+	rev = g;
+	fscale = (f == null) ? 0.0 : 1.0/hf;
+	rscale = (g == null) ? 0.0 : 1.0/hg;
+    }
+
+    /**
+     * set out to the nodes start + i*h/4 (i = 0..4*NTAB), so that the
+     * nodes of the table have multiples of 4 as indices and the
+     * points at which they are checked lie between them
+     */
+    private static void nodes(double start, double h, double[] out) {
+	for (int i = 0; i < out.length; i++) {
+	    if (i % 4 == 0) {
+		out[i] = start + (i/4)*h;
+	    } else {
+		out[i] = start + ((i/4) + CHECK[i%4 - 1])*h;
+	    }
+	}
+    }
+
+    /**
+     * return the coefficients of the Hermite spline through the nodes
+     * f[4*i] (i = 0..NTAB), with the intervals that do not
+     * agree with the exact values f[4*i+1..4*i+3] to within tol marked as
+     * computed exactly
+     */
+    private static double[] spline(double[] f, double tol) {
+	double[] v = new double[NTAB+1], m = new double[NTAB+1];
+	double[] c = new double[4*NTAB];
+	int i, lo, hi, s, q;
+
+	for (i = 0; i <= NTAB; i++) v[i] = f[4*i];
+
+	// slopes, in units of the interval, from the run of finite nodes
+	// containing each node
+	for (lo = 0; lo <= NTAB; lo = hi) {
+	    for (hi = lo; hi <= NTAB && !Double.isNaN(v[hi]) &&
+		     !Double.isInfinite(v[hi]); hi++);
+	    for (i = lo; i < hi; i++) {
+		if (hi - lo < 5) {
+		    m[i] = Double.NaN;
+		    continue;
+		}
+		s = Math.max(lo, Math.min(i-2, hi-5));
+		m[i] = 0.0;
+		for (q = 0; q < 5; q++) m[i] += SLOPE[i-s][q]*v[s+q];
+		m[i] /= 12.0;
+	    }
+	    if (hi == lo) {
+		m[hi] = Double.NaN;
+		hi++;
+	    }
+	}
+
+	double a, b, d, e, t, u;
+	boolean ok;
+	for (i = 0; i < NTAB; i++) {
+	    a = v[i];
+	    b = m[i];
+	    d = 3.0*(v[i+1] - v[i]) - 2.0*m[i] - m[i+1];
+	    e = 2.0*(v[i] - v[i+1]) + m[i] + m[i+1];
+
+	    ok = !Double.isNaN(a + b + d + e) && !Double.isInfinite(a + b + d + e);
+	    for (q = 0; ok && q < CHECK.length; q++) {
+		t = CHECK[q];
+		u = a + t*(b + t*(d + t*e));
+		ok = Math.abs(u - f[4*i+q+1]) <= tol;
+	    }
+
+	    c[4*i]   = ok ? a : Double.NaN;
+	    c[4*i+1] = b;
+	    c[4*i+2] = d;
+	    c[4*i+3] = e;
+	}
+	return c;
+    }
+
+    /**
+     * return the value at u (in units of intervals from the first node)
+     * of the spline with coefficients c, or NaN if u lies outside the
+     * table or in an interval that is computed exactly
+     */
+    private static double value(double[] c, double u) {
+	if (!(u >= 0.0 && u <= NTAB)) return Double.NaN;
+	int i = Math.min((int) u, NTAB-1);
+	double t = u - i;
+	i *= 4;
+	return c[i] + t*(c[i+1] + t*(c[i+2] + t*c[i+3]));
+    }
+
+    /**
+     * return R for the native latitude theta, or NaN if it must be
+     * computed exactly
+     */
+    double radius(double theta) {
+	if (fwd == null) return Double.NaN;
+	return value(fwd, (theta + 90.0)*fscale);
+    }
+
+    /**
+     * return the native latitude for the radius r, or NaN if it must be
+     * computed exactly
+     */
+    double latitude(double r) {
+	if (rev == null) return Double.NaN;
+	return value(rev, r*rscale);
+    }
+
+    /**
+     * return true if neither table can be used
+     */
+    boolean isEmpty() { return fwd == null && rev == null; }
+}
@@ -88,7 +88,7 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class SINProjection extends Projection {
+public class SINProjection extends ZenithalProjection {
 
     protected final static double tol = 1.0e-13;
 
@@ -184,6 +184,12 @@ public class SINProjection extends Projection {
 	w[4] = w[1] - 1.0;
     }	
 
+    /**
+     * return true if p[1] and p[2] are zero (the orthographic case), 
+     * the only one in which the projection is radial
+     */
+    protected boolean isRadial() { return w != null && w[1] == 0.0; }
+
     /**
      * Compute (x,y) coordinates in the plane of projection from native 
      * spherical coordinates (phi,theta). 
@@ -193,6 +199,7 @@ public class SINProjection extends Projection {
     {
 	double cthe, t, z;
 	double[] out = new double[2];
+	double[] sc = new double[2];
 
 	t = (90.0 - Math.abs(theta))*D2R;
 	if (t < 1.0e-5) {
@@ -203,12 +210,14 @@ public class SINProjection extends Projection {
 	    }
 	    cthe = t;
 	} else {
-	    z =  TrigD.sin(theta) - 1.0;
-	    cthe = TrigD.cos(theta);
+	    trig.sincos(theta, sc);
+	    z =  sc[0] - 1.0;
+	    cthe = sc[1];
 	}
 
-	out[0] =  r0*(cthe*TrigD.sin(phi) + p[1]*z);
-	out[1] = -r0*(cthe*TrigD.cos(phi) + p[2]*z);
+	trig.sincos(phi, sc);
+	out[0] =  r0*(cthe*sc[0] + p[1]*z);
+	out[1] = -r0*(cthe*sc[1] + p[2]*z);
 	return out;
     }
 
@@ -240,15 +249,15 @@ public class SINProjection extends Projection {
 
 	    // Orthographic projection. 
 	    if (r2 != 0.0) {
-		out[0] = TrigD.atan2(x0, -y0);
+		out[0] = trig.atan2(x0, -y0);
 	    } else {
 		out[0] = 0.0;
 	    }
 
 	    if (r2 < 0.5) {
-		out[1] = TrigD.acos(Math.sqrt(r2));
+		out[1] = trig.acos(Math.sqrt(r2));
 	    } else if (r2 <= 1.0) {
-		out[1] = TrigD.asin(Math.sqrt(1.0 - r2));
+		out[1] = trig.asin(Math.sqrt(1.0 - r2));
 	    } else {
 		throw new PixelBeyondProjectionException("SIN: (x,y) = (" + x +
 						       ", " + y + ")");
@@ -293,7 +302,7 @@ public class SINProjection extends Projection {
 			PixelBeyondProjectionException("SIN: (x,y) = (" + x +
 						       ", " + y + ")");
 
-		out[1] = TrigD.asin(sth);
+		out[1] = trig.asin(sth);
 		z = sth - 1.0;
 	    }
 
@@ -303,13 +312,162 @@ public class SINProjection extends Projection {
 	    if (xp == 0.0 && yp == 0.0) {
 		out[0] = 0.0;
 	    } else {
-		out[0]   = TrigD.atan2(yp,xp);
+		out[0]   = trig.atan2(yp,xp);
 	    }
 
 	}
 	return out;
     }
 
+    /**
+     * Compute (x,y) coordinates in the plane of projection for ncoord
+     * native spherical positions without allocating any arrays or
+     * using the radial tables.
+     * @see ZenithalProjection#fwdExact(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void fwdExact(int ncoord, double[] phi, int phioff,
+			    double[] theta, int thetaoff, int instride,
+			    double[] x, int xoff, double[] y, int yoff,
+			    int outstride, byte[] stat, int statoff)
+    {
+	double ph, th, cthe, t, z;
+	int i = 0, j = 0;
+	double[] sc = new double[2];
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    ph = phi[phioff+i];
+	    th = theta[thetaoff+i];
+
+	    t = (90.0 - Math.abs(th))*D2R;
+	    if (t < 1.0e-5) {
+		if (th > 0.0) {
+		    z = -t*t/2.0;
+		} else {
+		    z = 2.0 - t*t/2.0;
+		}
+		cthe = t;
+	    } else {
+		trig.sincos(th, sc);
+		z =  sc[0] - 1.0;
+		cthe = sc[1];
+	    }
+
+	    trig.sincos(ph, sc);
+	    x[xoff+j] =  r0*(cthe*sc[0] + p[1]*z);
+	    y[yoff+j] = -r0*(cthe*sc[1] + p[2]*z);
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection without allocating any arrays
+     * or using the radial tables.
+     * @see ZenithalProjection#revExact(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revExact(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	double tol = 1.0e-13;
+	double xv, yv, a, b, c, d, r2, sth, sth1, sth2, sxy, x0, xp, y0, yp, z;
+	double ph, th;
+	int i = 0, j = 0;
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    xv = x[xoff+i];
+	    yv = y[yoff+i];
+
+	    x0 = xv*w[0];
+	    y0 = yv*w[0];
+	    r2 = x0*x0 + y0*y0;
+
+	    if (w[1] == 0.0) {
+
+		// Orthographic projection.
+		ph = (r2 != 0.0) ? trig.atan2(x0, -y0) : 0.0;
+
+		if (r2 < 0.5) {
+		    th = trig.acos(Math.sqrt(r2));
+		} else if (r2 <= 1.0) {
+		    th = trig.asin(Math.sqrt(1.0 - r2));
+		} else {
+		    if (stat == null)
+			throw new PixelBeyondProjectionException("SIN: (x,y) = (" + xv +
+							       ", " + yv + ")");
+		    reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+		    continue;
+		}
+
+	    } else {
+
+		// "Synthesis" projection.
+		if (r2 < 1.0e-10) {
+
+		    // Use small angle formula.
+		    z = -r2/2.0;
+		    th = 90.0 - R2D*Math.sqrt(r2/(1.0 - x0*p[1] + y0*p[2]));
+
+		} else {
+		    sxy = 2.0*(p[1]*x0 - p[2]*y0);
+
+		    a = w[3];
+		    b = -(sxy + w[2]);
+		    c = r2 + sxy + w[4];
+		    d = b*b - 2.0*a*c;
+
+		    // Check for a solution.
+		    if (d < 0.0) {
+			if (stat == null)
+			    throw new
+				PixelBeyondProjectionException("SIN: (x,y) = (" + xv +
+							       ", " + yv + ")");
+			reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+			continue;
+		    }
+		    d = Math.sqrt(d);
+
+		    // Choose solution closest to pole.
+		    sth1 = (-b + d)/a;
+		    sth2 = (-b - d)/a;
+		    sth = (sth1>sth2) ? sth1 : sth2;
+		    if (sth > 1.0) {
+			if (sth-1.0 < tol) {
+			    sth = 1.0;
+			} else {
+			    sth = (sth1<sth2) ? sth1 : sth2;
+			}
+		    }
+		    if (sth > 1.0 || sth < -1.0) {
+			if (stat == null)
+			    throw new
+				PixelBeyondProjectionException("SIN: (x,y) = (" + xv +
+							       ", " + yv + ")");
+			reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+			continue;
+		    }
+
+		    th = trig.asin(sth);
+		    z = sth - 1.0;
+		}
+
+		// Compute native coordinates.
+		xp = -y0 - p[2]*z;
+		yp =  x0 - p[1]*z;
+		ph = (xp == 0.0 && yp == 0.0) ? 0.0 : trig.atan2(yp,xp);
+	    }
+
+	    phi[phioff+j] = ph;
+	    theta[thetaoff+j] = th;
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
     /**
      * set the sphere radius 
      */
@@ -81,7 +81,7 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class TANProjection extends Projection {
+public class TANProjection extends ZenithalProjection {
 
     protected final static double tol = 1.0e-13;
 
@@ -140,14 +140,17 @@ public class TANProjection extends Projection {
     {
 	double r, s;
 	double[] out = new double[2];
+	double[] sc = new double[2];
 
-	s = TrigD.sin(theta);
+	trig.sincos(theta, sc);
+	s = sc[0];
 	if (s == 0.0) 
 	    throw new PixelBeyondProjectionException("TAN: theta = " + theta);
 
-	r =  r0*TrigD.cos(theta)/s;
-	out[0] =  r*TrigD.sin(phi);
-	out[1] = -r*TrigD.cos(phi);
+	r =  r0*sc[1]/s;
+	trig.sincos(phi, sc);
+	out[0] =  r*sc[0];
+	out[1] = -r*sc[1];
 
 	return out;
     }
@@ -165,9 +168,9 @@ public class TANProjection extends Projection {
 	if (r == 0.0) {
 	    out[0] = 0.0;
 	} else {
-	    out[0] = TrigD.atan2(x, -y);
+	    out[0] = trig.atan2(x, -y);
 	}
-	out[1] = TrigD.atan2(r0, r);
+	out[1] = trig.atan2(r0, r);
 
 	return out;
     }
@@ -177,6 +180,72 @@ public class TANProjection extends Projection {
      */
     public double[] rev(double[] xy) { return rev(xy[0], xy[1]); }
 
+    /**
+     * Compute (x,y) coordinates in the plane of projection for ncoord
+     * native spherical positions without allocating any arrays or
+     * using the radial tables.
+     * @see ZenithalProjection#fwdExact(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void fwdExact(int ncoord, double[] phi, int phioff,
+			    double[] theta, int thetaoff, int instride,
+			    double[] x, int xoff, double[] y, int yoff,
+			    int outstride, byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	double ph, th, r, s;
+	int i = 0, j = 0;
+	double[] sc = new double[2];
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    ph = phi[phioff+i];
+	    th = theta[thetaoff+i];
+
+	    trig.sincos(th, sc);
+	    s = sc[0];
+	    if (s == 0.0) {
+		if (stat == null)
+		    throw new PixelBeyondProjectionException("TAN: theta = " + th);
+		reject(stat, statoff+k, x, xoff+j, y, yoff+j);
+		continue;
+	    }
+
+	    r =  r0*sc[1]/s;
+
+	    trig.sincos(ph, sc);
+	    x[xoff+j] =  r*sc[0];
+	    y[yoff+j] = -r*sc[1];
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection without allocating any arrays
+     * or using the radial tables.
+     * @see ZenithalProjection#revExact(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revExact(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+    {
+	double xv, yv, r;
+	int i = 0, j = 0;
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    xv = x[xoff+i];
+	    yv = y[yoff+i];
+
+	    r = Math.sqrt(xv*xv + yv*yv);
+	    phi[phioff+j] = (r == 0.0) ? 0.0 : trig.atan2(xv, -yv);
+	    theta[thetaoff+j] = trig.atan2(r0, r);
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
     /**
      * set the sphere radius 
      */
@@ -160,15 +160,105 @@ public class TSCProjection extends Projection {
      */
     public double[] fwd(double phi, double theta) 
 	throws PixelBeyondProjectionException
+    {
+	double[] out = new double[2];
+	project(phi, theta, out, 0, out, 1, new double[2]);
+	return out;
+    }
+
+    /**
+     * Compute (x,y) coordinates in the plane of projection for ncoord
+     * native spherical positions.  The positions are projected in chunks,
+     * face by face (see QuadCube), with the same results as the
+     * single-position form.
+     * @see Projection#fwdBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void fwdBatch(int ncoord, double[] phi, int phioff,
+			    double[] theta, int thetaoff, int instride,
+			    double[] x, int xoff, double[] y, int yoff,
+			    int outstride, byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	QuadCube q = new QuadCube(ncoord);
+	double rho, xf, yf;
+	int n;
+
+	for (; ncoord > 0; ncoord -= n) {
+	    n = Math.min(ncoord, q.size);
+	    q.sphere(n, phi, phioff, theta, thetaoff, instride, trig);
+	    q.sort(n);
+
+	    for (int f = 0; f < QuadCube.NFACE; f++) {
+		double[] vc = q.v[QuadCube.CI[f]], va = q.v[QuadCube.AI[f]],
+		         vb = q.v[QuadCube.BI[f]];
+		double cs = QuadCube.CS[f], as = QuadCube.AS[f],
+		       bs = QuadCube.BS[f];
+		double x0 = QuadCube.X0[f], y0 = QuadCube.Y0[f];
+
+		for (int j = q.start[f]; j < q.start[f+1]; j++) {
+		    int k = q.order[j];
+		    rho = cs*vc[k];
+		    xf  = as*va[k]/rho;
+		    yf  = bs*vb[k]/rho;
+
+		    if (Math.abs(xf) > 1.0) {
+			if (Math.abs(xf) > 1.0+tol) {
+			    q.st[k] = PIXEL_BEYOND_PROJECTION;
+			    continue;
+			}
+			xf = (xf < 0) ? -1.0 : 1.0;
+		    }
+		    if (Math.abs(yf) > 1.0) {
+			if (Math.abs(yf) > 1.0+tol) {
+			    q.st[k] = PIXEL_BEYOND_PROJECTION;
+			    continue;
+			}
+			yf = (yf < 0) ? -1.0 : 1.0;
+		    }
+
+		    q.u[k] = w[0]*(xf + x0);
+		    q.t[k] = w[0]*(yf + y0);
+		    q.st[k] = OK;
+		}
+	    }
+
+	    for (int k = 0; k < n; k++) {
+		if (q.st[k] == OK) {
+		    x[xoff] = q.u[k];
+		    y[yoff] = q.t[k];
+		    if (stat != null) stat[statoff] = OK;
+		} else {
+		    fwdFailed(q.in0[k], q.in1[k], stat, statoff,
+			      x, xoff, y, yoff);
+		}
+		xoff += outstride;   yoff += outstride;
+		statoff++;
+	    }
+	    phioff += n*instride;  thetaoff += n*instride;
+	}
+    }
+
+    /**
+     * Compute (x,y) coordinates in the plane of projection from native
+     * spherical coordinates (phi,theta), storing them in x[xoff] and
+     * y[yoff].  If the position cannot be projected, a
+     * PixelBeyondProjectionException is thrown.  sc is a two-element
+     * scratch buffer.
+     */
+    private void project(double phi, double theta,
+			 double[] x, int xoff, double[] y, int yoff,
+			 double[] sc)
+	throws PixelBeyondProjectionException
     {
 	int face;
 	double costhe, l, m, n, rho, x0, xf, y0, yf;
-	double[] out = new double[2];
 
-	costhe = TrigD.cos(theta);
-	l = costhe*TrigD.cos(phi);
-	m = costhe*TrigD.sin(phi);
-	n = TrigD.sin(theta);
+	trig.sincos(theta, sc);
+	costhe = sc[1];
+	n = sc[0];
+	trig.sincos(phi, sc);
+	l = costhe*sc[1];
+	m = costhe*sc[0];
 
 	face = 0;
 	rho  = n;
@@ -227,25 +317,26 @@ public class TSCProjection extends Projection {
 	}
 
 	if (Math.abs(xf) > 1.0) {
-	    if (Math.abs(xf) > 1.0+tol) 
+	    if (Math.abs(xf) > 1.0+tol) {
 		throw new PixelBeyondProjectionException(
-		    "TSC: Solution not defined for phi, theta: " + phi + 
+		    "TSC: Solution not defined for phi, theta: " + phi +
 		    ", " + theta);
+	    }
 
 	    xf = (xf < 0) ? -1.0 : 1.0;
 	}
 	if (Math.abs(yf) > 1.0) {
-	    if (Math.abs(yf) > 1.0+tol) 
+	    if (Math.abs(yf) > 1.0+tol) {
 		throw new PixelBeyondProjectionException(
-		    "TSC: Solution not defined for phi, theta: " + phi + 
+		    "TSC: Solution not defined for phi, theta: " + phi +
 		    ", " + theta);
+	    }
 
 	    yf = (yf < 0) ? -1.0 : 1.0;
 	}
 
-	out[0] = w[0]*(xf + x0);
-	out[1] = w[0]*(yf + y0);
-	return out;
+	x[xoff] = w[0]*(xf + x0);
+	y[yoff] = w[0]*(yf + y0);
     }
 
     /**
@@ -255,11 +346,81 @@ public class TSCProjection extends Projection {
      */
     public double[] rev(double x, double y) 
 	throws PixelBeyondProjectionException
+    {
+	double[] out = new double[2];
+	deproject(x, y, out, 0, out, 1);
+	return out;
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection.  The positions are
+     * deprojected in chunks, face by face (see QuadCube), with the same
+     * results as the single-position form.
+     * @see Projection#revBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revBatch(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	QuadCube q = new QuadCube(ncoord);
+	double r;
+	int n;
+
+	for (; ncoord > 0; ncoord -= n) {
+	    n = Math.min(ncoord, q.size);
+	    q.plane(n, x, xoff, y, yoff, instride, w[1], false);
+	    q.sort(n);
+
+	    for (int f = 0; f < QuadCube.NFACE; f++) {
+		double[] vc = q.v[QuadCube.CI[f]], va = q.v[QuadCube.AI[f]],
+		         vb = q.v[QuadCube.BI[f]];
+		double cs = QuadCube.CS[f], as = QuadCube.AS[f],
+		       bs = QuadCube.BS[f];
+
+		for (int j = q.start[f]; j < q.start[f+1]; j++) {
+		    int k = q.order[j];
+		    r = 1.0/Math.sqrt(1.0 + q.u[k]*q.u[k] + q.t[k]*q.t[k]);
+		    vc[k] = cs*r;
+		    va[k] = as*(r*q.u[k]);
+		    vb[k] = bs*(r*q.t[k]);
+		    q.st[k] = OK;
+		}
+	    }
+	    q.angles(n, trig);
+
+	    for (int k = 0; k < n; k++) {
+		if (q.st[k] == OK) {
+		    phi[phioff]     = q.u[k];
+		    theta[thetaoff] = q.t[k];
+		    if (stat != null) stat[statoff] = OK;
+		} else {
+		    revFailed(q.in0[k], q.in1[k], stat, statoff,
+			      phi, phioff, theta, thetaoff);
+		}
+		phioff += outstride; thetaoff += outstride;
+		statoff++;
+	    }
+	    xoff += n*instride;    yoff += n*instride;
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) from the
+     * (x,y) coordinates in the plane of projection, storing them in
+     * phi[phioff] and theta[thetaoff].  If the position cannot be
+     * deprojected, a PixelBeyondProjectionException is thrown.
+     */
+    private void deproject(double x, double y,
+			   double[] phi, int phioff, double[] theta, int thetaoff)
+	throws PixelBeyondProjectionException
     {
 	int   face;
 	boolean direct;
 	double l, m, n,  xf, yf;
-	double[] out = new double[2];
 
 	xf = x*w[1];
 	yf = y*w[1];
@@ -269,8 +430,9 @@ public class TSCProjection extends Projection {
 	if (xf > 7.0) {
 	    throw new PixelBeyondProjectionException("x = " + x);
 	} else if (xf > 5.0) {
-	    if (Math.abs(yf) > 1.0) 
+	    if (Math.abs(yf) > 1.0) {
 		throw new PixelBeyondProjectionException("y = " + y);
+	    }
 
 	    // face = 4 
 	    xf = xf - 6.0;
@@ -279,8 +441,9 @@ public class TSCProjection extends Projection {
 	    n  = -m*yf;
 
 	} else if (xf > 3.0) {
-	    if (Math.abs(yf) > 1.0) 
+	    if (Math.abs(yf) > 1.0) {
 		throw new PixelBeyondProjectionException("y = " + y);
+	    }
 
 	    // face = 3 
 	    xf = xf - 4.0;
@@ -289,8 +452,9 @@ public class TSCProjection extends Projection {
 	    n  = -l*yf;
 
 	} else if (xf > 1.0) {
-	    if (Math.abs(yf) > 1.0) 
+	    if (Math.abs(yf) > 1.0) {
 		throw new PixelBeyondProjectionException("y = " + y);
+	    }
 
 	    // face = 2 
 	    xf = xf - 2.0;
@@ -302,7 +466,9 @@ public class TSCProjection extends Projection {
 	    throw new PixelBeyondProjectionException("x = " + x);
 
 	} else if (yf > 1.0) {
-	    if (yf > 3.0) throw new PixelBeyondProjectionException("y = " + y);
+	    if (yf > 3.0) {
+		throw new PixelBeyondProjectionException("y = " + y);
+	    }
 
 	    // face = 0 
 	    yf = yf - 2.0;
@@ -311,7 +477,9 @@ public class TSCProjection extends Projection {
 	    m  =  n*xf;
 
 	} else if (yf < -1.0) {
-	    if (yf < -3.0) throw new PixelBeyondProjectionException("y = " + y);
+	    if (yf < -3.0) {
+		throw new PixelBeyondProjectionException("y = " + y);
+	    }
 
 	    // face = 5 
 	    yf = yf + 2.0;
@@ -328,12 +496,11 @@ public class TSCProjection extends Projection {
 	}
 
 	if (l == 0.0 && m == 0.0) {
-	    out[0] = 0.0;
+	    phi[phioff] = 0.0;
 	} else {
-	    out[0] = TrigD.atan2(m, l);
+	    phi[phioff] = trig.atan2(m, l);
 	}
-	out[1] = TrigD.asin(n);
-	return out;
+	theta[thetaoff] = trig.asin(n);
     }
 
     /**
@@ -82,10 +82,22 @@ import FITSWCS.exceptions.*;
  * @author Mark Calabretta
  * @version 2.4
  *---------------------------------------------------------------------------*/
-public class ZPNProjection extends Projection {
+public class ZPNProjection extends ZenithalProjection {
 
     protected final static double tol = 1.0e-13;
 
+    /**
+     * the number of intervals in the table of zenith distance against
+     * radius used to start the inverse for polynomials of degree 3 or more
+     */
+    protected final static int NTAB = 128;
+
+    /**
+     * zenith distances, in radians, at NTAB+1 equally-spaced radii from
+     * p[0] to w[1] (N > 2).
+     */
+    protected double[] zdtab;
+
     /**
      * Create an ZPNProjection object
      * @param r0 sphere radius
@@ -124,6 +136,7 @@ public class ZPNProjection extends Projection {
      *   n     degree of polynomial
      *   w[0]  Co-latitude of the first point of inflection (N > 2).
      *   w[1]  Radius of the first point of inflection (N > 2).
+     *   zdtab Zenith distance tabulated against radius up to w[1] (N > 2).
      * </pre>
      */
     private void init(double r0, double[] p) 
@@ -202,9 +215,145 @@ public class ZPNProjection extends Projection {
 	    }
 	    w[0] = zd;
 	    w[1] = r;
+
+	    // Tabulate the zenith distance against radius up to the point
+	    // of inflection. 
+	    zdtab = new double[NTAB+1];
+	    zdtab[NTAB] = zd;
+	    zd1 = 0.0;
+	    d1  = p[0];
+	    for (i = 1; i < NTAB; i++) {
+		r = p[0] + i*(w[1] - p[0])/NTAB;
+		zdtab[i] = bisect(r, zd1, d1, w[0], w[1]);
+		zd1 = zdtab[i];
+		d1  = r;
+	    }
 	}
     }	
 
+    /**
+     * solve r = P(zd) for zd in [zd1,zd2], where r1 = P(zd1) and
+     * r2 = P(zd2), by weighted bisection; this is the original WCSLIB
+     * iteration.
+     */
+    private double bisect(double r, double zd1, double r1, 
+			  double zd2, double r2) 
+    {
+	int i, j;
+	double lambda, rt, zd = zd1;
+
+	for (j = 0; j < 100; j++) {
+	    lambda = (r2 - r)/(r2 - r1);
+	    if (lambda < 0.1) {
+		lambda = 0.1;
+	    } else if (lambda > 0.9) {
+		lambda = 0.9;
+	    }
+
+	    zd = zd2 - lambda*(zd2 - zd1);
+
+	    rt = 0.0;
+	    for (i = n; i >= 0; i--) {
+		rt = (rt * zd) + p[i];
+	    }
+
+	    if (rt < r) {
+		if (r-rt < tol) break;
+		r1 = rt;
+		zd1 = zd;
+	    } else {
+		if (rt-r < tol) break;
+		r2 = rt;
+		zd2 = zd;
+	    }
+
+	    if (Math.abs(zd2-zd1) < tol) break;
+	}
+	return zd;
+    }
+
+    /**
+     * return the zenith distance, in radians, at which a polynomial of
+     * degree 3 or more reaches the radius r (in units of r0), or NaN if
+     * r lies outside [p[0],w[1]] by more than tol.  The table zdtab
+     * provides a bracketing interval and, by linear interpolation, a
+     * starting point which Newton-Raphson iteration on the polynomial
+     * and its derivative then refines.  A step that would leave the
+     * bracket is replaced by a bisection, which takes care of the
+     * vanishing derivative at the point of inflection.
+     */
+    protected double zenith(double r) {
+	return zenith(r, null, null);
+    }
+
+    /**
+     * same as zenith(r), except that if seed is not null, the solution
+     * starts from a first-order prediction made from the previous one,
+     * seed = {zd, r, dr/dzd}, provided the prediction lies within the 
+     * bracketing interval from the table.  seed is updated for the next
+     * call.  If stats is not null, the solution is recorded in it.
+     */
+    protected double zenith(double r, double[] seed, SolverStats stats) {
+	int i, j, m;
+	double d, dr=0.0, f, rt, zd, zd1, zd2;
+	boolean seeded = false;
+
+	if (r < p[0]) {
+	    return (r < p[0]-tol) ? Double.NaN : 0.0;
+	} else if (r > w[1]) {
+	    return (r > w[1]+tol) ? Double.NaN : w[0];
+	}
+
+	f = (r - p[0])*NTAB/(w[1] - p[0]);
+	i = (int) f;
+	if (i >= NTAB) i = NTAB-1;
+	zd1 = zdtab[i];
+	zd2 = zdtab[i+1];
+	zd  = zd1 + (f - i)*(zd2 - zd1);
+
+	if (seed != null && seed[2] > 0.0) {
+	    d = seed[0] + (r - seed[1])/seed[2];
+	    if (d >= zd1 && d <= zd2) {
+		zd = d;
+		seeded = true;
+	    } else if (stats != null) {
+		stats.recordFallback();
+	    }
+	}
+
+	for (m = 0; m < 60; m++) {
+	    rt = p[n];
+	    dr = 0.0;
+	    for (j = n-1; j >= 0; j--) {
+		dr = dr*zd + rt;
+		rt = rt*zd + p[j];
+	    }
+
+	    if (rt < r) {
+		zd1 = zd;
+	    } else {
+		zd2 = zd;
+	    }
+
+	    d = (rt - r)/dr;
+	    if (dr > 0.0 && zd-d >= zd1 && zd-d <= zd2) {
+		zd -= d;
+		if (Math.abs(d) < tol) break;
+	    } else {
+		zd = 0.5*(zd1 + zd2);
+		if (zd2-zd1 < tol) break;
+	    }
+	}
+
+	if (seed != null) {
+	    seed[0] = zd;
+	    seed[1] = r;
+	    seed[2] = dr;
+	}
+	if (stats != null) stats.record((m < 60) ? m+1 : m, seeded);
+	return zd;
+    }
+
     /**
      * Compute (x,y) coordinates in the plane of projection from native 
      * spherical coordinates (phi,theta). 
@@ -215,6 +364,7 @@ public class ZPNProjection extends Projection {
 	int   j;
 	double r, s;
 	double[] out = new double[2];
+	double[] sc = new double[2];
 	if (p == null) throw new UnsetProjectionParameterException();
 
 	s = (90.0 - theta)*D2R;
@@ -224,8 +374,9 @@ public class ZPNProjection extends Projection {
 	}
 	r = r0*r;
 
-	out[0] =  r*TrigD.sin(phi);
-	out[1] = -r*TrigD.cos(phi);
+	trig.sincos(phi, sc);
+	out[0] =  r*sc[0];
+	out[1] = -r*sc[1];
 	return out;
     }
 
@@ -244,8 +395,7 @@ public class ZPNProjection extends Projection {
     public double[] rev(double x, double y) 
 	throws PixelBeyondProjectionException
     {
-	int i, j, k;
-	double a, b, c, d, lambda, r, r1, r2, rt, zd=0, zd1, zd2;
+	double a, b, c, d, r, zd=0, zd1, zd2;
 	double[] out = new double[2];
 	if (p == null) throw new UnsetProjectionParameterException();
 
@@ -288,62 +438,187 @@ public class ZPNProjection extends Projection {
 	} else {
 
 	    // Higher order - solve iteratively. 
-	    zd1 = 0.0;
-	    r1  = p[0];
-	    zd2 = w[0];
-	    r2  = w[1];
+	    zd = zenith(r);
+	    if (Double.isNaN(zd)) throw new
+		PixelBeyondProjectionException("ZPN: (x,y) = (" + x +
+					       ", " + y + ")");
+	}
 
-	    if (r < r1) {
-		if (r < r1-tol) throw new
-		    PixelBeyondProjectionException("ZPN: (x,y) = (" + x +
-						   ", " + y + ")");
-		zd = zd1;
-	    } else if (r > r2) {
-		if (r > r2+tol) throw new
-		    PixelBeyondProjectionException("ZPN: (x,y) = (" + x +
-						   ", " + y + ")");
-		zd = zd2;
-	    } else {
+	if (r == 0.0) {
+	    out[0] = 0.0;
+	} else {
+	    out[0] = trig.atan2(x, -y);
+	}
+	out[1] = 90.0 - zd*R2D;
 
-		// Disect the interval. 
-		for (j = 0; j < 100; j++) {
-		    lambda = (r2 - r)/(r2 - r1);
-		    if (lambda < 0.1) {
-			lambda = 0.1;
-		    } else if (lambda > 0.9) {
-			lambda = 0.9;
-		    }
+	return out;
+    }
 
-		    zd = zd2 - lambda*(zd2 - zd1);
+    /**
+     * Compute (x,y) coordinates in the plane of projection for ncoord
+     * native spherical positions without allocating any arrays or
+     * using the radial tables.
+     * @see ZenithalProjection#fwdExact(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void fwdExact(int ncoord, double[] phi, int phioff,
+			    double[] theta, int thetaoff, int instride,
+			    double[] x, int xoff, double[] y, int yoff,
+			    int outstride, byte[] stat, int statoff)
+    {
+	int   m;
+	double ph, th, r, s;
+	int i = 0, j = 0;
+	double[] sc = new double[2];
 
-		    rt = 0.0;
-		    for (i = n; i >= 0; i--) {
-			rt = (rt * zd) + p[i];
-		    }
+	if (p == null) throw new UnsetProjectionParameterException();
 
-		    if (rt < r) {
-			if (r-rt < tol) break;
-			r1 = rt;
-			zd1 = zd;
-		    } else {
-			if (rt-r < tol) break;
-			r2 = rt;
-			zd2 = zd;
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    ph = phi[phioff+i];
+	    th = theta[thetaoff+i];
+
+	    s = (90.0 - th)*D2R;
+	    r = 0.0;
+	    for (m = 9; m >= 0; m--) {
+		r = r*s + p[m];
+	    }
+	    r = r0*r;
+
+	    trig.sincos(ph, sc);
+	    x[xoff+j] =  r*sc[0];
+	    y[yoff+j] = -r*sc[1];
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection without allocating any arrays
+     * or using the radial tables.
+     * @see ZenithalProjection#revExact(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revExact(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	revBatch(ncoord, x, xoff, y, yoff, instride, phi, phioff,
+		 theta, thetaoff, outstride, stat, statoff, null, null);
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for a set of
+     * ncoord (x,y) positions, as rev(int, double[], int, double[], int, 
+     * int, double[], int, double[], int, int, byte[], int) does, except 
+     * that stat may be null, in which case the first position that
+     * cannot be deprojected causes an exception to be thrown.  For 
+     * polynomials of degree 3 or more, if seed is true, the iterative 
+     * solution for each position starts from a prediction made from that 
+     * for the previous one; this saves iterations when neighbouring 
+     * positions are close together, as they are in raster order.  If 
+     * stats is not null, each iterative solution is recorded in it.
+     */
+    public void rev(int ncoord, double[] x, int xoff,
+		    double[] y, int yoff, int instride,
+		    double[] phi, int phioff, double[] theta, int thetaoff,
+		    int outstride, byte[] stat, int statoff,
+		    boolean seed, SolverStats stats)
+	throws PixelBeyondProjectionException
+    {
+	revBatch(ncoord, x, xoff, y, yoff, instride, phi, phioff,
+		 theta, thetaoff, outstride, stat, statoff,
+		 (seed) ? new double[3] : null, stats);
+    }
+
+    private void revBatch(int ncoord, double[] x, int xoff,
+			  double[] y, int yoff, int instride,
+			  double[] phi, int phioff, double[] theta,
+			  int thetaoff, int outstride,
+			  byte[] stat, int statoff, 
+			  double[] seed, SolverStats stats)
+	throws PixelBeyondProjectionException
+    {
+	double xv, yv, a, b, c, d, r, zd=0, zd1, zd2;
+	int i = 0, j = 0;
+
+	if (p == null) throw new UnsetProjectionParameterException();
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    xv = x[xoff+i];
+	    yv = y[yoff+i];
+
+	    r = Math.sqrt(xv*xv + yv*yv)/r0;
+
+	    if (n == 1) {
+
+		// Linear.
+		zd = (r - p[0])/p[1];
+
+	    } else if (n == 2) {
+
+		// Quadratic.
+		a = p[2];
+		b = p[1];
+		c = p[0] - r;
+
+		d = b*b - 4.0*a*c;
+		if (d < 0.0) {
+		    if (stat == null)
+			throw new
+			PixelBeyondProjectionException("ZPN: (x,y) = (" + xv +
+						       ", " + yv + ")");
+		    reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+		    continue;
+		}
+		d = Math.sqrt(d);
+
+		// Choose solution closest to pole.
+		zd1 = (-b + d)/(2.0*a);
+		zd2 = (-b - d)/(2.0*a);
+		zd  = (zd1<zd2) ? zd1 : zd2;
+		if (zd < -tol) zd = (zd1>zd2) ? zd1 : zd2;
+		if (zd < 0.0) {
+		    if (zd < -tol) {
+			if (stat == null)
+			    throw new
+			    PixelBeyondProjectionException("ZPN: (x,y) = (" + xv +
+							   ", " + yv + ")");
+			reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+			continue;
+		    }
+		    zd = 0.0;
+		} else if (zd > PI) {
+		    if (zd > PI+tol) {
+			if (stat == null)
+			    throw new
+			    PixelBeyondProjectionException("ZPN: (x,y) = (" + xv +
+							   ", " + yv + ")");
+			reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+			continue;
 		    }
+		    zd = PI;
+		}
+	    } else {
 
-		    if (Math.abs(zd2-zd1) < tol) break;
+		// Higher order - solve iteratively.
+		zd = zenith(r, seed, stats);
+		if (Double.isNaN(zd)) {
+		    if (stat == null)
+			throw new
+			PixelBeyondProjectionException("ZPN: (x,y) = (" + xv +
+						       ", " + yv + ")");
+		    reject(stat, statoff+k, phi, phioff+j, theta, thetaoff+j);
+		    continue;
 		}
 	    }
-	}
 
-	if (r == 0.0) {
-	    out[0] = 0.0;
-	} else {
-	    out[0] = TrigD.atan2(x, -y);
-	}
-	out[1] = 90.0 - zd*R2D;
+	    phi[phioff+j] = (r == 0.0) ? 0.0 : trig.atan2(xv, -yv);
+	    theta[thetaoff+j] = 90.0 - zd*R2D;
 
-	return out;
+	    if (stat != null) stat[statoff+k] = OK;
+	}
     }
 
     /**
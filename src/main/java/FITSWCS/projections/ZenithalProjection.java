@@ -0,0 +1,220 @@
+/*============================================================================
+*
+*   FITSWCS - an implementation of the FITS WCS proposal.
+*   Copyright (C) 1995,1996 Mark Calabretta
+*   Translated into Java(TM) from WCSLIB (C impl) 8/1996
+*   by Raymond L. Plante, copyright (c) 1996
+*
+*   $Id: wcstrig.c,v 2.1 1996/05/07 20:05:10 mcalabre Exp $
+*===========================================================================*/
+
+package FITSWCS.projections;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import java.util.Arrays;
+
+/**
+ * the support common to the zenithal projections (AZP, TAN, SIN, STG,
+ * ARC, ZPN, ZEA and AIR), in which a position at native longitude phi
+ * lies at a distance R(theta) from the origin along the direction phi. <p>
+ *
+ * These projections may optionally use tables of R(theta) and of its
+ * inverse in their batch methods (see setRadialTable()), so that the
+ * cost of each position is a table lookup and a sincos() or an atan2(),
+ * however expensive R or its inverse is to compute (as for AIR and ZPN,
+ * whose inverses are found by iteration).  The tables are built from
+ * the projection itself and checked against it when they are built;
+ * positions for which they cannot be trusted to within RADIAL_TOL,
+ * including every position that cannot be transformed, are computed
+ * exactly.  The single-position forms of fwd() and rev() never use the
+ * tables.
+ */
+public abstract class ZenithalProjection extends Projection {
+
+    /**
+     * the largest error, in degrees, in positions computed from the
+     * radial tables:  theta is within RADIAL_TOL of its exact value, and
+     * R within the distance corresponding to RADIAL_TOL at the reference
+     * point, RADIAL_TOL*r0*pi/180.
+     */
+    public final static double RADIAL_TOL = 1.0e-10;
+
+    /**
+     * whether the batch methods use the radial tables
+     */
+    private boolean radial = false;
+
+    /**
+     * the radial tables, rebuilt whenever they no longer match the
+     * parameters of the projection
+     */
+    private volatile RadialTable table = null;
+
+    /**
+     * return true if the batch methods use tables of R(theta) and its
+     * inverse, or false (the default) if they compute every position
+     * exactly.
+     */
+    public boolean isRadialTable() { return radial; }
+
+    /**
+     * choose whether the batch methods use tables of R(theta) and its
+     * inverse.  The tables are built when they are chosen, which costs
+     * about as much as transforming 16,000 positions exactly, and again
+     * on first use after r0 or the projection parameters change.  A
+     * projection that is not radial for its current parameters (SIN with
+     * non-zero p[1] or p[2]) continues to compute every position exactly.
+     */
+    public void setRadialTable(boolean radial) {
+	this.radial = radial;
+	table = (radial) ? newTable() : null;
+    }
+
+    /**
+     * copy the choice of radial tables, and the tables themselves, to
+     * prj
+     */
+    protected void copyOptions(Projection prj) {
+	ZenithalProjection zen = (ZenithalProjection) prj;
+	zen.radial = radial;
+	zen.table = table;
+    }
+
+    /**
+     * return true if the position of a point depends only on R(theta)
+     * and phi for the current parameters.  This is true of every
+     * zenithal projection except SIN, which is radial only when p[1] and
+     * p[2] are zero.
+     */
+    protected boolean isRadial() { return true; }
+
+    /**
+     * return the radial tables, rebuilding them if needed, or null if
+     * they are not used or would be empty
+     */
+    private RadialTable tables() {
+	if (! radial) return null;
+	RadialTable tab = table;
+	if (tab == null || tab.r0 != r0 || tab.trig != trig ||
+	    ! Arrays.equals(tab.p, p) || ! Arrays.equals(tab.w, w)) {
+	    tab = newTable();
+	    table = tab;
+	}
+	return (tab.isEmpty()) ? null : tab;
+    }
+
+    /**
+     * build the radial tables for the current parameters
+     */
+    private RadialTable newTable() {
+	try {
+	    return new RadialTable(this, r0, p, w, trig);
+	}
+	catch (PixelBeyondProjectionException ex) {
+	    throw statusError(ex);
+	}
+    }
+
+    /**
+     * Compute (x,y) coordinates in the plane of projection for ncoord
+     * native spherical positions, using the radial tables if they have
+     * been chosen.
+     * @see Projection#fwdBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void fwdBatch(int ncoord, double[] phi, int phioff,
+			    double[] theta, int thetaoff, int instride,
+			    double[] x, int xoff, double[] y, int yoff,
+			    int outstride, byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	RadialTable tab = tables();
+	if (tab == null) {
+	    fwdExact(ncoord, phi, phioff, theta, thetaoff, instride,
+		     x, xoff, y, yoff, outstride, stat, statoff);
+	    return;
+	}
+
+	double r;
+	int i = 0, j = 0;
+	double[] sc = new double[2];
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    r = tab.radius(theta[thetaoff+i]);
+	    if (Double.isNaN(r)) {
+		fwdExact(1, phi, phioff+i, theta, thetaoff+i, instride,
+			 x, xoff+j, y, yoff+j, outstride, stat, statoff+k);
+		continue;
+	    }
+
+	    trig.sincos(phi[phioff+i], sc);
+	    x[xoff+j] =  r*sc[0];
+	    y[yoff+j] = -r*sc[1];
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
+    /**
+     * Compute native spherical coordinates (phi,theta) for ncoord
+     * positions in the plane of projection, using the radial tables if
+     * they have been chosen.
+     * @see Projection#revBatch(int, double[], int, double[], int, int, double[], int, double[], int, int, byte[], int)
+     */
+    protected void revBatch(int ncoord, double[] x, int xoff,
+			    double[] y, int yoff, int instride,
+			    double[] phi, int phioff, double[] theta,
+			    int thetaoff, int outstride,
+			    byte[] stat, int statoff)
+	throws PixelBeyondProjectionException
+    {
+	RadialTable tab = tables();
+	if (tab == null) {
+	    revExact(ncoord, x, xoff, y, yoff, instride, phi, phioff,
+		     theta, thetaoff, outstride, stat, statoff);
+	    return;
+	}
+
+	double xv, yv, r, t;
+	int i = 0, j = 0;
+
+	for (int k = 0; k < ncoord; k++, i += instride, j += outstride) {
+	    xv = x[xoff+i];
+	    yv = y[yoff+i];
+
+	    r = Math.sqrt(xv*xv + yv*yv);
+	    t = tab.latitude(r);
+	    if (Double.isNaN(t)) {
+		revExact(1, x, xoff+i, y, yoff+i, instride, phi, phioff+j,
+			 theta, thetaoff+j, outstride, stat, statoff+k);
+		continue;
+	    }
+
+	    phi[phioff+j] = (r == 0.0) ? 0.0 : trig.atan2(xv, -yv);
+	    theta[thetaoff+j] = t;
+
+	    if (stat != null) stat[statoff+k] = OK;
+	}
+    }
+
+    /**
+     * the batch forward projection computed without the radial tables,
+     * with the same arguments and behaviour as fwdBatch()
+     */
+    protected abstract void fwdExact(int ncoord, double[] phi, int phioff,
+				     double[] theta, int thetaoff, int instride,
+				     double[] x, int xoff, double[] y, int yoff,
+				     int outstride, byte[] stat, int statoff)
+	throws PixelBeyondProjectionException;
+
+    /**
+     * the batch reverse projection computed without the radial tables,
+     * with the same arguments and behaviour as revBatch()
+     */
+    protected abstract void revExact(int ncoord, double[] x, int xoff,
+				     double[] y, int yoff, int instride,
+				     double[] phi, int phioff, double[] theta,
+				     int thetaoff, int outstride,
+				     byte[] stat, int statoff)
+	throws PixelBeyondProjectionException;
+}
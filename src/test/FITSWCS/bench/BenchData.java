@@ -0,0 +1,168 @@
+/*===========================================================================
+ *
+ * Parameter sets and sample positions shared by the JMH benchmarks.  The
+ * projection parameters are those of FITSWCS/tests/TestProj.java, the
+ * celestial reference point that of FITSWCS/tests/TestCel.java and the
+ * linear transformation that of FITSWCS/tests/TestLin.java.
+ *===========================================================================*/
+
+package FITSWCS.bench;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+
+import java.util.Random;
+
+public class BenchData {
+
+    /**
+     * the number of positions transformed per benchmark invocation
+     */
+    public static final int NPOS = 1024;
+
+    /**
+     * the celestial reference parameters used by TestCel
+     */
+    public static final double[] REF = { 54.5, 32.125, 999.0, 999.0 };
+
+    /**
+     * return the celestial reference parameters used for pcode by
+     * TestCel, which moves the reference point towards the pole for
+     * the projections that are unstable far from it
+     */
+    public static double[] refParm(String pcode) {
+	double[] ref = REF.clone();
+
+	if (pcode.equals("TAN") || pcode.equals("STG") ||
+	    pcode.equals("COP"))
+	{
+	    ref[1] = 89.0;
+	} else if (pcode.equals("COD") || pcode.equals("COE") ||
+		   pcode.equals("COO"))
+	{
+	    ref[1] = 89.5;
+	}
+	return ref;
+    }
+
+    /**
+     * return the projection parameters used for pcode by TestProj
+     */
+    public static double[] projParm(String pcode) {
+	double[] p = new double[10];
+
+	if (pcode.equals("AZP")) {
+	    p[1] = 2.0;
+	} else if (pcode.equals("SIN")) {
+	    p[1] = 0.3;
+	    p[2] = 1.5;
+	} else if (pcode.equals("ZPN")) {
+	    double[] zpn = { 0.00000,  0.95000, -0.02500, -0.15833,  0.00208,
+			     0.00792, -0.00007, -0.00019,  0.00000,  0.00000 };
+	    System.arraycopy(zpn, 0, p, 0, zpn.length);
+	} else if (pcode.equals("AIR")) {
+	    p[1] = 45.0;
+	} else if (pcode.equals("CYP")) {
+	    p[1] = 3.0;
+	    p[2] = 0.8;
+	} else if (pcode.equals("CEA")) {
+	    p[1] = 0.75;
+	} else if (pcode.equals("COP") || pcode.equals("COE")) {
+	    p[1] = 60.0;
+	    p[2] = (pcode.equals("COP")) ? 15.0 : -15.0;
+	} else if (pcode.equals("COD") || pcode.equals("COO")) {
+	    p[1] = -60.0;
+	    p[2] = (pcode.equals("COD")) ? 15.0 : -15.0;
+	} else if (pcode.equals("BON")) {
+	    p[1] = 30.0;
+	}
+	return p;
+    }
+
+    /**
+     * return the projection named by pcode, set up as in TestProj
+     */
+    public static Projection projection(String pcode)
+	throws FITSWCSException
+    {
+	return Projection.getProjection(pcode, 0.0, projParm(pcode));
+    }
+
+    /**
+     * return NPOS native positions, {phi, theta}, drawn at random from
+     * those that prj can transform in both directions
+     */
+    public static double[][] nativePositions(Projection prj) {
+	double[][] out = new double[2][NPOS];
+	Random rnd = new Random(1L);
+
+	for (int k = 0; k < NPOS; ) {
+	    double phi = 360.0*(rnd.nextDouble() - 0.5);
+	    double theta = 180.0*(rnd.nextDouble() - 0.5);
+	    try {
+		double[] xy = prj.fwd(phi, theta);
+		prj.rev(xy);
+	    }
+	    catch (PixelBeyondProjectionException ex) {
+		continue;
+	    }
+	    out[0][k] = phi;
+	    out[1][k++] = theta;
+	}
+	return out;
+    }
+
+    /**
+     * return NPOS celestial positions, {lng, lat}, within 20 degrees of
+     * the reference point that cel can transform in both directions
+     */
+    public static double[][] celestialPositions(CelestialTransform cel) {
+	double[][] out = new double[2][NPOS];
+	double[] ref = cel.getRefParm();
+	Random rnd = new Random(1L);
+
+	for (int k = 0; k < NPOS; ) {
+	    double lng = ref[0] + 40.0*(rnd.nextDouble() - 0.5);
+	    double lat = ref[1] + 40.0*(rnd.nextDouble() - 0.5);
+	    if (Math.abs(lat) > 90.0) continue;
+	    try {
+		double[] xy = cel.fwd(lng, lat);
+		cel.rev(xy[0], xy[1]);
+	    }
+	    catch (InvalidCelestialTransformException ex) {
+		continue;
+	    }
+	    out[0][k] = lng;
+	    out[1][k++] = lat;
+	}
+	return out;
+    }
+
+    /**
+     * return the first naxis axes of the linear transformation used by
+     * TestLin
+     */
+    public static LinearTransform linear(int naxis)
+	throws SingularMatrixException
+    {
+	double[] crpix = { 256.0, 256.0, 64.0, 128.0, 1.0 };
+	double[] cdelt = {   1.2,   2.3,  3.4,   4.5, 5.6 };
+	double[] pc = new double[naxis*naxis];
+
+	for (int i = 0; i < naxis; i++) pc[i*naxis+i] = 1.0;
+	pc[1] = pc[naxis] = 0.5;
+	return new LinearTransform(naxis, crpix, pc, cdelt);
+    }
+
+    /**
+     * return NPOS pixel coordinate vectors of length naxis, stored one
+     * after another
+     */
+    public static double[] pixels(int naxis) {
+	double[] out = new double[NPOS*naxis];
+	Random rnd = new Random(1L);
+
+	for (int k = 0; k < out.length; k++) out[k] = 512.0*rnd.nextDouble();
+	return out;
+    }
+}
@@ -0,0 +1,98 @@
+/*===========================================================================
+ *
+ * JMH benchmark of the forward and reverse celestial transformations,
+ * one position at a time and in batches, for every projection with the
+ * reference points of TestCel and the projection parameters of TestProj.
+ * Each invocation transforms BenchData.NPOS positions.
+ *
+ * usage: mvn -Pjmh package
+ *        java -jar target/benchmarks.jar CelestialBench -prof gc
+ *===========================================================================*/
+
+package FITSWCS.bench;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CelestialBench {
+
+    @Param({ "AZP", "TAN", "SIN", "STG", "ARC", "ZPN", "ZEA", "AIR",
+	     "CYP", "CAR", "MER", "CEA", "COP", "COD", "COE", "COO",
+	     "BON", "PCO", "GLS", "PAR", "AIT", "MOL", "CSC", "QSC", "TSC" })
+    public String pcode;
+
+    CelestialTransform cel;
+    double[] lng, lat, x, y;
+    byte[] stat = new byte[BenchData.NPOS];
+
+    @Setup
+    public void setup() throws FITSWCSException {
+	cel = new CelestialTransform(pcode, BenchData.refParm(pcode),
+				     BenchData.projParm(pcode));
+	double[][] pos = BenchData.celestialPositions(cel);
+	lng = pos[0];
+	lat = pos[1];
+	x = new double[BenchData.NPOS];
+	y = new double[BenchData.NPOS];
+	cel.fwd(lng, lat, x, y);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public void fwd(Blackhole bh) throws FITSWCSException {
+	for (int k = 0; k < BenchData.NPOS; k++)
+	    bh.consume(cel.fwd(lng[k], lat[k]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public void rev(Blackhole bh) throws FITSWCSException {
+	for (int k = 0; k < BenchData.NPOS; k++)
+	    bh.consume(cel.rev(x[k], y[k]));
+    }
+
+    /**
+     * the batch form called for one position at a time, as by a caller
+     * that transforms positions as they arrive
+     */
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public byte[] fwdSingle() {
+	for (int k = 0; k < BenchData.NPOS; k++)
+	    cel.fwd(1, lng, k, lat, k, 1, x, k, y, k, 1, stat, k);
+	return stat;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public byte[] revSingle() {
+	for (int k = 0; k < BenchData.NPOS; k++)
+	    cel.rev(1, x, k, y, k, 1, lng, k, lat, k, 1, stat, k);
+	return stat;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public byte[] fwdBatch() {
+	cel.fwd(BenchData.NPOS, lng, 0, lat, 0, 1, x, 0, y, 0, 1, stat, 0);
+	return stat;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public byte[] revBatch() {
+	cel.rev(BenchData.NPOS, x, 0, y, 0, 1, lng, 0, lat, 0, 1, stat, 0);
+	return stat;
+    }
+}
@@ -0,0 +1,76 @@
+/*===========================================================================
+ *
+ * JMH benchmark of the forward and reverse linear transformations, one
+ * position at a time and in batches, for 2 to 5 axes of the
+ * transformation used by TestLin.  Each invocation transforms
+ * BenchData.NPOS positions.
+ *
+ * usage: mvn -Pjmh package
+ *        java -jar target/benchmarks.jar LinearBench -prof gc
+ *===========================================================================*/
+
+package FITSWCS.bench;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinearBench {
+
+    @Param({ "2", "3", "4", "5" })
+    public int naxis;
+
+    LinearTransform lin;
+    double[] pix, img, crd;
+
+    @Setup
+    public void setup() throws FITSWCSException {
+	lin = BenchData.linear(naxis);
+	pix = BenchData.pixels(naxis);
+	img = new double[pix.length];
+	lin.rev(pix, img);
+	crd = new double[naxis];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public void fwd(Blackhole bh) {
+	for (int k = 0; k < BenchData.NPOS; k++) {
+	    System.arraycopy(img, k*naxis, crd, 0, naxis);
+	    bh.consume(lin.fwd(crd));
+	}
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public void rev(Blackhole bh) {
+	for (int k = 0; k < BenchData.NPOS; k++) {
+	    System.arraycopy(pix, k*naxis, crd, 0, naxis);
+	    bh.consume(lin.rev(crd));
+	}
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public double[] fwdBatch() {
+	lin.fwd(BenchData.NPOS, img, 0, naxis, pix, 0, naxis);
+	return pix;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public double[] revBatch() {
+	lin.rev(BenchData.NPOS, pix, 0, naxis, img, 0, naxis);
+	return img;
+    }
+}
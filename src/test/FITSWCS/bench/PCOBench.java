@@ -0,0 +1,62 @@
+/*===========================================================================
+ *
+ * JMH benchmark comparing the tabulated Newton-Raphson inverse of the
+ * PCO projection with the original weighted division of the interval,
+ * one position at a time and in batches.
+ *
+ * usage: mvn -Pjmh package
+ *        java -jar target/benchmarks.jar PCOBench
+ *===========================================================================*/
+
+package FITSWCS.bench;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PCOBench {
+
+    @Param({ "true", "false" })
+    public boolean tabulated;
+
+    PCOProjection prj;
+    double[] x, y, p, t;
+    byte[] stat = new byte[BenchData.NPOS];
+
+    @Setup
+    public void setup() throws FITSWCSException {
+	prj = new PCOProjection();
+	prj.setTabulatedInverse(tabulated);
+	double[][] pos = BenchData.nativePositions(prj);
+	x = new double[BenchData.NPOS];
+	y = new double[BenchData.NPOS];
+	p = new double[BenchData.NPOS];
+	t = new double[BenchData.NPOS];
+	prj.fwd(pos[0], pos[1], x, y);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public void rev(Blackhole bh) {
+	for (int k = 0; k < BenchData.NPOS; k++)
+	    bh.consume(prj.rev(x[k], y[k]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public byte[] revBatch() {
+	prj.rev(BenchData.NPOS, x, 0, y, 0, 1, p, 0, t, 0, 1, stat, 0);
+	return stat;
+    }
+}
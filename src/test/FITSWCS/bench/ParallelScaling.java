@@ -0,0 +1,66 @@
+/*===========================================================================
+ *
+ * Times ParallelBatch over a large batch of celestial positions for
+ * increasing numbers of threads, to show how the transformations scale
+ * across cores.
+ *
+ * usage: java FITSWCS.bench.ParallelScaling [npos [pcode [reps]]]
+ *===========================================================================*/
+
+package FITSWCS.bench;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelScaling {
+
+    public static void main(String args[]) throws FITSWCSException {
+	int npos = (args.length > 0) ? Integer.parseInt(args[0]) : 4000000;
+	String pcode = (args.length > 1) ? args[1] : "TAN";
+	int reps = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+	int ncpu = Runtime.getRuntime().availableProcessors();
+
+	CelestialTransform cel = new CelestialTransform(pcode,
+	    new double[] { 150.0, 30.0, 999.0, 999.0 }, new double[10]);
+
+	// positions within 40 degrees of the reference point
+	Random rnd = new Random(1L);
+	double[] lng = new double[npos], lat = new double[npos];
+	for (int k = 0; k < npos; k++) {
+	    lng[k] = 150.0 + 80.0*(rnd.nextDouble() - 0.5);
+	    lat[k] = 30.0 + 80.0*(rnd.nextDouble() - 0.5);
+	}
+	double[] x = new double[npos], y = new double[npos];
+	byte[] stat = new byte[npos];
+
+	System.out.println("Transforming " + npos + " positions (" + pcode +
+			   "), best of " + reps + ", " + ncpu +
+			   " processors available");
+
+	double t1 = 0.0;
+	int nthr = 1;
+	while (true) {
+	    ForkJoinPool pool = new ForkJoinPool(nthr);
+	    ParallelBatch par = new ParallelBatch(pool,
+		ParallelBatch.DEFAULT_CHUNK, ParallelBatch.DEFAULT_CUTOFF);
+
+	    double best = Double.MAX_VALUE;
+	    for (int r = 0; r < reps; r++) {
+		long t = System.nanoTime();
+		par.fwd(cel, npos, lng, 0, lat, 0, 1, x, 0, y, 0, 1, stat, 0);
+		par.rev(cel, npos, x, 0, y, 0, 1, x, 0, y, 0, 1, stat, 0);
+		best = Math.min(best, (System.nanoTime() - t)*1.0e-6);
+	    }
+	    pool.shutdown();
+
+	    if (nthr == 1) t1 = best;
+	    System.out.println(String.format(
+		"%4d threads: %10.1f ms  speedup %6.2f", nthr, best, t1/best));
+	    if (nthr == ncpu) break;
+	    nthr = Math.min(2*nthr, ncpu);
+	}
+    }
+}
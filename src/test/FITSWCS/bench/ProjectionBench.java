@@ -0,0 +1,78 @@
+/*===========================================================================
+ *
+ * JMH benchmark of the forward and reverse projections, one position at
+ * a time and in batches, for every projection with the parameters used
+ * by TestProj.  Each invocation transforms BenchData.NPOS positions.
+ *
+ * usage: mvn -Pjmh package
+ *        java -jar target/benchmarks.jar ProjectionBench -prof gc
+ *===========================================================================*/
+
+package FITSWCS.bench;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectionBench {
+
+    @Param({ "AZP", "TAN", "SIN", "STG", "ARC", "ZPN", "ZEA", "AIR",
+	     "CYP", "CAR", "MER", "CEA", "COP", "COD", "COE", "COO",
+	     "BON", "PCO", "GLS", "PAR", "AIT", "MOL", "CSC", "QSC", "TSC" })
+    public String pcode;
+
+    Projection prj;
+    double[] phi, theta, x, y, p, t;
+    byte[] stat = new byte[BenchData.NPOS];
+
+    @Setup
+    public void setup() throws FITSWCSException {
+	prj = BenchData.projection(pcode);
+	double[][] pos = BenchData.nativePositions(prj);
+	phi = pos[0];
+	theta = pos[1];
+	x = new double[BenchData.NPOS];
+	y = new double[BenchData.NPOS];
+	p = new double[BenchData.NPOS];
+	t = new double[BenchData.NPOS];
+	prj.fwd(phi, theta, x, y);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public void fwd(Blackhole bh) throws PixelBeyondProjectionException {
+	for (int k = 0; k < BenchData.NPOS; k++)
+	    bh.consume(prj.fwd(phi[k], theta[k]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public void rev(Blackhole bh) throws PixelBeyondProjectionException {
+	for (int k = 0; k < BenchData.NPOS; k++)
+	    bh.consume(prj.rev(x[k], y[k]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public byte[] fwdBatch() {
+	prj.fwd(BenchData.NPOS, phi, 0, theta, 0, 1, x, 0, y, 0, 1, stat, 0);
+	return stat;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public byte[] revBatch() {
+	prj.rev(BenchData.NPOS, x, 0, y, 0, 1, p, 0, t, 0, 1, stat, 0);
+	return stat;
+    }
+}
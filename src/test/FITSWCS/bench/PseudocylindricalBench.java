@@ -0,0 +1,75 @@
+/*===========================================================================
+ *
+ * JMH benchmark of the forward transformation of the pseudocylindrical
+ * projections (GLS, PAR, AIT and MOL, with BON and PCO) over a 1-degree
+ * all-sky raster:  the single-position form, the batch form called with
+ * the positions in raster order, and fwdGrid().
+ *
+ * usage: mvn -Pjmh package
+ *        java -jar target/benchmarks.jar PseudocylindricalBench
+ *===========================================================================*/
+
+package FITSWCS.bench;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PseudocylindricalBench {
+
+    static final int NPHI = 361, NTHETA = 181, NPOS = NPHI*NTHETA;
+
+    @Param({ "GLS", "PAR", "AIT", "MOL", "BON", "PCO" })
+    public String pcode;
+
+    PseudocylindricalProjection prj;
+    double[] phi = new double[NPHI], theta = new double[NTHETA];
+    double[] rphi = new double[NPOS], rtheta = new double[NPOS];
+    double[] x = new double[NPOS], y = new double[NPOS];
+    byte[] stat = new byte[NPOS];
+
+    @Setup
+    public void setup() throws FITSWCSException {
+	prj = (PseudocylindricalProjection) BenchData.projection(pcode);
+	for (int i = 0; i < NPHI; i++) phi[i] = i - 180.0;
+	for (int j = 0; j < NTHETA; j++) theta[j] = j - 90.0;
+	for (int j = 0, k = 0; j < NTHETA; j++) {
+	    for (int i = 0; i < NPHI; i++, k++) {
+		rphi[k] = phi[i];
+		rtheta[k] = theta[j];
+	    }
+	}
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NPOS)
+    public void fwd(Blackhole bh) throws PixelBeyondProjectionException {
+	for (int k = 0; k < NPOS; k++)
+	    bh.consume(prj.fwd(rphi[k], rtheta[k]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NPOS)
+    public byte[] fwdRaster() {
+	prj.fwd(NPOS, rphi, 0, rtheta, 0, 1, x, 0, y, 0, 1, stat, 0);
+	return stat;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NPOS)
+    public double[] fwdGrid() {
+	prj.fwdGrid(NPHI, phi, 0, NTHETA, theta, 0, x, 0, y, 0);
+	return y;
+    }
+}
@@ -0,0 +1,94 @@
+/*===========================================================================
+ *
+ * JMH benchmark of the forward and reverse spherical rotations, one
+ * position at a time and in batches through both the Euler-angle and
+ * the rotation-matrix engines, using the reference point of TestCel.
+ * Each invocation transforms BenchData.NPOS positions.
+ *
+ * usage: mvn -Pjmh package
+ *        java -jar target/benchmarks.jar SphericalBench -prof gc
+ *===========================================================================*/
+
+package FITSWCS.bench;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SphericalBench {
+
+    @Param({ "TAN", "CAR" })
+    public String pcode;
+
+    SphericalTransform sph;
+    double[] lng, lat, phi, theta;
+
+    @Setup
+    public void setup() throws FITSWCSException {
+	sph = new SphericalTransform(BenchData.REF, pcode);
+
+	Random rnd = new Random(1L);
+	lng = new double[BenchData.NPOS];
+	lat = new double[BenchData.NPOS];
+	for (int k = 0; k < BenchData.NPOS; k++) {
+	    lng[k] = 360.0*rnd.nextDouble();
+	    lat[k] = 180.0*(rnd.nextDouble() - 0.5);
+	}
+	phi = new double[BenchData.NPOS];
+	theta = new double[BenchData.NPOS];
+	sph.fwd(lng, lat, phi, theta);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public void fwd(Blackhole bh) {
+	for (int k = 0; k < BenchData.NPOS; k++)
+	    bh.consume(sph.fwd(lng[k], lat[k]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public void rev(Blackhole bh) {
+	for (int k = 0; k < BenchData.NPOS; k++)
+	    bh.consume(sph.rev(phi[k], theta[k]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public double[] fwdBatch() {
+	sph.fwd(BenchData.NPOS, lng, 0, lat, 0, 1, phi, 0, theta, 0, 1);
+	return phi;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public double[] revBatch() {
+	sph.rev(BenchData.NPOS, phi, 0, theta, 0, 1, lng, 0, lat, 0, 1);
+	return lng;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public double[] fwdMatrix() {
+	sph.fwdMatrix(BenchData.NPOS, lng, 0, lat, 0, 1, phi, 0, theta, 0, 1);
+	return phi;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchData.NPOS)
+    public double[] revMatrix() {
+	sph.revMatrix(BenchData.NPOS, phi, 0, theta, 0, 1, lng, 0, lat, 0, 1);
+	return lng;
+    }
+}
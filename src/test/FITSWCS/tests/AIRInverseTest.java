@@ -0,0 +1,111 @@
+/*===========================================================================
+ *
+ * Checks the tabulated Newton-Raphson inverse of AIRProjection against
+ * the weighted division of WCSLIB, from which it was derived, both
+ * within the table and beyond it.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class AIRInverseTest {
+
+    /**
+     * the original WCSLIB solution for cos(xi), where r >= w[4]
+     */
+    static double divide(double w0, double r) {
+	double tol = 1.0e-12;
+	double x1 = 1.0, x2 = 1.0, r1 = 0.0, r2 = 0.0, cxi = 0.0, txi, rt;
+	int j;
+
+	for (j = 0; j < 30; j++) {
+	    x2 = x1/2.0;
+	    txi = Math.sqrt(1.0-x2*x2)/x2;
+	    r2 = -(Math.log(x2)/txi + w0*txi);
+	    if (r2 >= r) break;
+	    x1 = x2;
+	    r1 = r2;
+	}
+
+	for (j = 0; j < 100; j++) {
+	    double lambda = (r2-r)/(r2-r1);
+	    if (lambda < 0.1) {
+		lambda = 0.1;
+	    } else if (lambda > 0.9) {
+		lambda = 0.9;
+	    }
+	    cxi = x2 - lambda*(x2-x1);
+
+	    txi = Math.sqrt(1.0-cxi*cxi)/cxi;
+	    rt = -(Math.log(cxi)/txi + w0*txi);
+	    if (rt < r) {
+		if (r-rt < tol) break;
+		r1 = rt;
+		x1 = cxi;
+	    } else {
+		if (rt-r < tol) break;
+		r2 = rt;
+		x2 = cxi;
+	    }
+	}
+	return cxi;
+    }
+
+    static void check(double thetab) throws FITSWCSException {
+	AIRProjection prj = new AIRProjection(thetab);
+	double r0 = prj.getR0();
+	double cxi = TrigD.cos((90.0 - thetab)/2.0);
+	double w0 = (thetab == 90.0) ? -0.5
+	                             : Math.log(cxi)*(cxi*cxi)/(1.0-cxi*cxi);
+
+	// from just beyond the small angle approximation to theta = -89
+	int npos = 20000;
+	double[] x = new double[npos], y = new double[npos];
+	double[] phi = new double[npos], theta = new double[npos];
+	for (int k = 0; k < npos; k++) {
+	    double th = 89.99 - 178.98*k/(npos - 1.0);
+	    double[] xy = prj.fwd(0.37*k, th);
+	    x[k] = xy[0];
+	    y[k] = xy[1];
+
+	    double[] pt = prj.rev(x[k], y[k]);
+	    double r = Math.sqrt(x[k]*x[k] + y[k]*y[k])/r0;
+	    double th0 = 90.0 - 2.0*TrigD.acos(divide(w0, r));
+	    assertEquals("theta " + th, th, pt[1], 1.0e-9);
+	    assertEquals("theta " + th, th0, pt[1], 1.0e-9);
+	}
+
+	// the batch form gives the same answers
+	prj.rev(x, y, phi, theta);
+	for (int k = 0; k < npos; k++) {
+	    double[] pt = prj.rev(x[k], y[k]);
+	    assertEquals(pt[0], phi[k], 0.0);
+	    assertEquals(pt[1], theta[k], 0.0);
+	}
+    }
+
+    @Test
+    public void testTestProjParm() throws FITSWCSException {
+	check(45.0);
+    }
+
+    @Test
+    public void testPole() throws FITSWCSException {
+	check(90.0);
+    }
+
+    @Test
+    public void testWide() throws FITSWCSException {
+	check(-45.0);
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.AIRInverseTest");
+    }
+}
@@ -0,0 +1,263 @@
+/*===========================================================================
+ *
+ * Checks that the status-mask forms of the batch transformations flag
+ * exactly those positions for which the single-coordinate forms throw.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BatchStatusTest {
+
+    static final double[] ref = { 150.0, -30.0, 999.0, 999.0 };
+
+    /**
+     * an all-sky grid of (lng, lat) positions, half of which lie on the
+     * far side of the sky for the zenithal projections
+     */
+    static double[][] allSky() {
+	int n = 0;
+	double[][] out = new double[2][37*19];
+	for (double lat = -90.0; lat <= 90.0; lat += 10.0) {
+	    for (double lng = 0.0; lng <= 360.0; lng += 10.0) {
+		out[0][n] = lng;
+		out[1][n++] = lat;
+	    }
+	}
+	return out;
+    }
+
+    @Test
+    public void testProjection() throws BadProjectionParameterException {
+	Projection[] prjs = { new TANProjection(),
+			      new AZPProjection(new double[] { 0.0, 2.0 }),
+			      new TSCProjection() };
+	double[][] pt = allSky();
+	int n = pt[0].length;
+
+	for (int i = 0; i < prjs.length; i++) {
+	    Projection prj = prjs[i];
+	    double[] x = new double[n], y = new double[n];
+	    byte[] stat = new byte[n];
+
+	    // lat stands in for theta here
+	    prj.fwd(pt[0], pt[1], x, y, stat);
+	    int nbad = 0;
+	    for (int k = 0; k < n; k++) {
+		try {
+		    double[] xy = prj.fwd(pt[0][k], pt[1][k]);
+		    assertEquals(BatchStatus.OK, stat[k]);
+		    assertEquals(xy[0], x[k], 0.0);
+		    assertEquals(xy[1], y[k], 0.0);
+		}
+		catch (PixelBeyondProjectionException ex) {
+		    assertEquals(BatchStatus.PIXEL_BEYOND_PROJECTION, stat[k]);
+		    assertTrue(Double.isNaN(x[k]) && Double.isNaN(y[k]));
+		    nbad++;
+		}
+	    }
+
+	    // sweep (x,y) well beyond the projected sky
+	    double[] phi = new double[n], theta = new double[n];
+	    for (int k = 0; k < n; k++) {
+		x[k] = 0.5*(pt[0][k] - 180.0);
+		y[k] = pt[1][k];
+	    }
+	    prj.rev(x, y, phi, theta, stat);
+	    for (int k = 0; k < n; k++) {
+		try {
+		    double[] pt1 = prj.rev(x[k], y[k]);
+		    assertEquals(BatchStatus.OK, stat[k]);
+		    assertEquals(pt1[0], phi[k], 0.0);
+		    assertEquals(pt1[1], theta[k], 0.0);
+		}
+		catch (PixelBeyondProjectionException ex) {
+		    assertEquals(BatchStatus.PIXEL_BEYOND_PROJECTION, stat[k]);
+		    assertTrue(Double.isNaN(phi[k]) && Double.isNaN(theta[k]));
+		    nbad++;
+		}
+	    }
+	    if (! (prj instanceof AZPProjection))
+		assertTrue(prj.getClass().getName() + ": no failures",
+			   nbad > 0);
+	}
+    }
+
+    @Test
+    public void testCelestialTransform() throws FITSWCSException {
+	CelestialTransform cel =
+	    new CelestialTransform("TAN", ref, new double[10]);
+	double[][] pt = allSky();
+	int n = pt[0].length;
+	double[] x = new double[n], y = new double[n];
+	byte[] stat = new byte[n];
+	pt[0][3] = Double.NaN;
+
+	cel.fwd(pt[0], pt[1], x, y, stat);
+	assertEquals(BatchStatus.UNDEFINED, stat[3]);
+	int nbad = 0;
+	for (int k = 0; k < n; k++) {
+	    if (k == 3) continue;
+	    try {
+		double[] xy = cel.fwd(pt[0][k], pt[1][k]);
+		assertEquals(BatchStatus.OK, stat[k]);
+		assertEquals(xy[0], x[k], 0.0);
+		assertEquals(xy[1], y[k], 0.0);
+	    }
+	    catch (InvalidCelestialCoordException ex) {
+		assertEquals(BatchStatus.INVALID_CELESTIAL_COORD, stat[k]);
+		assertTrue(Double.isNaN(x[k]) && Double.isNaN(y[k]));
+		nbad++;
+	    }
+	}
+	assertTrue(nbad > 0);
+
+	// throwing form reports the first bad position
+	try {
+	    cel.fwd(pt[0], pt[1], x, y);
+	    fail("no exception thrown");
+	}
+	catch (InvalidCelestialCoordException ex) { }
+
+	// round trip, in place, through the good positions
+	double[] lng = new double[n], lat = new double[n];
+	cel.rev(x, y, lng, lat, stat);
+	for (int k = 0; k < n; k++) {
+	    if (Double.isNaN(x[k])) {
+		assertEquals(BatchStatus.UNDEFINED, stat[k]);
+		continue;
+	    }
+	    assertEquals(BatchStatus.OK, stat[k]);
+	    double[] ll = cel.rev(x[k], y[k]);
+	    assertEquals(ll[0], lng[k], 0.0);
+	    assertEquals(ll[1], lat[k], 0.0);
+	}
+    }
+
+    @Test
+    public void testCelestialChunks() throws FITSWCSException {
+
+	// a TAN projection about the pole fails only on the equator
+	CelestialTransform cel = new CelestialTransform("TAN",
+	    new double[] { 0.0, 90.0, 999.0, 999.0 }, new double[10]);
+	double[][] pt = allSky();
+
+	// more than one chunk, and not a whole number of them
+	int n = 3*pt[0].length;
+	double[] lng = new double[n], lat = new double[n];
+	for (int k = 0; k < n; k++) {
+	    lng[k] = pt[0][k % pt[0].length] + 0.5*(k/pt[0].length);
+	    lat[k] = pt[1][k % pt[0].length];
+	}
+	lat[600] = Double.NaN;
+
+	double[] x = new double[n], y = new double[n];
+	byte[] stat = new byte[n];
+	cel.fwd(lng, lat, x, y, stat);
+	int nbad = 0;
+	for (int k = 0; k < n; k++) {
+	    if (k == 600) {
+		assertEquals(BatchStatus.UNDEFINED, stat[k]);
+		continue;
+	    }
+	    try {
+		double[] xy = cel.fwd(lng[k], lat[k]);
+		assertEquals(BatchStatus.OK, stat[k]);
+		assertEquals(xy[0], x[k], 0.0);
+		assertEquals(xy[1], y[k], 0.0);
+	    }
+	    catch (InvalidCelestialCoordException ex) {
+		assertEquals(BatchStatus.INVALID_CELESTIAL_COORD, stat[k]);
+		assertTrue(Double.isNaN(x[k]) && Double.isNaN(y[k]));
+		nbad++;
+	    }
+	}
+	assertTrue(nbad > 0);
+
+	// interleaved and in place, through the same positions
+	double[] buf = new double[2*n];
+	for (int k = 0; k < n; k++) {
+	    buf[2*k] = lng[k];
+	    buf[2*k+1] = lat[k];
+	}
+	byte[] stat2 = new byte[n];
+	cel.fwd(n, buf, 0, buf, 1, 2, buf, 0, buf, 1, 2, stat2, 0);
+	assertArrayEquals(stat, stat2);
+	for (int k = 0; k < n; k++) {
+	    assertEquals(x[k], buf[2*k], 0.0);
+	    assertEquals(y[k], buf[2*k+1], 0.0);
+	}
+
+	// the throwing form writes the positions before the first failure,
+	// here in the third chunk, and no others
+	double[] lng3 = new double[n], lat3 = new double[n];
+	for (int k = 0; k < n; k++) {
+	    lng3[k] = 0.1*k;
+	    lat3[k] = 10.0 + 0.03*k;
+	}
+	lat3[600] = 0.0;
+	lat3[700] = 0.0;
+	double[] x3 = new double[n], y3 = new double[n];
+	java.util.Arrays.fill(x3, -999.0);
+	try {
+	    cel.fwd(lng3, lat3, x3, y3);
+	    fail("no exception thrown");
+	}
+	catch (InvalidCelestialCoordException ex) {
+	    assertEquals(new InvalidCelestialCoordException("TAN", lng3[600],
+		lat3[600]).getMessage(), ex.getMessage());
+	}
+	for (int k = 0; k < 600; k++)
+	    assertEquals(cel.fwd(lng3[k], lat3[k])[0], x3[k], 0.0);
+	for (int k = 600; k < n; k++)
+	    assertEquals(-999.0, x3[k], 0.0);
+
+	// and back again, chunk by chunk
+	double[] lng2 = new double[n], lat2 = new double[n];
+	cel.rev(x, y, lng2, lat2, stat2);
+	for (int k = 0; k < n; k++) {
+	    if (stat[k] != BatchStatus.OK) {
+		assertEquals(BatchStatus.UNDEFINED, stat2[k]);
+		continue;
+	    }
+	    double[] ll = cel.rev(x[k], y[k]);
+	    assertEquals(BatchStatus.OK, stat2[k]);
+	    assertEquals(ll[0], lng2[k], 0.0);
+	    assertEquals(ll[1], lat2[k], 0.0);
+	}
+    }
+
+    @Test
+    public void testSphericalTransform() throws FITSWCSException {
+	SphericalTransform sph = new SphericalTransform(ref, "TAN");
+	double[] lng = { 10.0, Double.NaN, 200.0 };
+	double[] lat = { 20.0, 30.0, -40.0 };
+	double[] phi = new double[3], theta = new double[3];
+	byte[] stat = new byte[3];
+
+	sph.fwd(3, lng, 0, lat, 0, 1, phi, 0, theta, 0, 1, stat, 0);
+	assertEquals(BatchStatus.OK, stat[0]);
+	assertEquals(BatchStatus.UNDEFINED, stat[1]);
+	assertEquals(BatchStatus.OK, stat[2]);
+	assertTrue(Double.isNaN(phi[1]) && Double.isNaN(theta[1]));
+
+	double[] pt = sph.fwd(lng[2], lat[2]);
+	assertEquals(pt[0], phi[2], 0.0);
+	assertEquals(pt[1], theta[2], 0.0);
+
+	sph.rev(3, phi, 0, theta, 0, 1, phi, 0, theta, 0, 1, stat, 0);
+	assertEquals(BatchStatus.UNDEFINED, stat[1]);
+	assertEquals(lng[0], phi[0], 1.0e-10);
+	assertEquals(lat[2], theta[2], 1.0e-10);
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.BatchStatusTest");
+    }
+}
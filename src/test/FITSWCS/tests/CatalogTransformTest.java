@@ -0,0 +1,169 @@
+/*===========================================================================
+ *
+ * Checks that CatalogTransform gives the same results as the sequential
+ * batch methods of WCS, in both directions and byte orders, sequentially
+ * and in parallel, for buffers and for mapped files.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CatalogTransformTest {
+
+    static final int NPOS = 100003;
+
+    static WCS sin() throws FITSWCSException {
+	return new WCS(new String[] { "RA---SIN", "DEC--SIN" },
+		       new double[] { 150.0, -30.0 },
+		       new double[] { 512.5, 512.5 },
+		       new double[] { 0.9, 0.1, -0.1, 0.9 },
+		       new double[] { -0.1, 0.1 }, 999.0, 999.0,
+		       new double[10]);
+    }
+
+    /**
+     * pixel positions, a few of them beyond the edge of the projection
+     */
+    static double[] pixels() {
+	Random rand = new Random(17L);
+	double[] pix = new double[2*NPOS];
+	for (int k = 0; k < pix.length; k++)
+	    pix[k] = 512.5 + 1400.0*(rand.nextDouble() - 0.5);
+	return pix;
+    }
+
+    static ByteBuffer buffer(double[] a, ByteOrder order) {
+	ByteBuffer buf = ByteBuffer.allocate(8*a.length).order(order);
+	buf.asDoubleBuffer().put(a);
+	return buf;
+    }
+
+    static double[] doubles(ByteBuffer buf, ByteOrder order) {
+	double[] out = new double[buf.capacity()/8];
+	ByteBuffer b = buf.duplicate();
+	b.clear();
+	b.order(order).asDoubleBuffer().get(out);
+	return out;
+    }
+
+    static void check(boolean reverse, ByteOrder order, ForkJoinPool pool)
+	throws FITSWCSException
+    {
+	WCS wcs = sin();
+	double[] in = pixels(), expect = new double[2*NPOS];
+	byte[] stat = new byte[NPOS];
+	if (! reverse) {
+	    wcs.rev(NPOS, in, 0, 2, expect, 0, 2, stat, 0);
+	    for (int k = 0; k < in.length; k++) in[k] = expect[k];
+	}
+
+	int nbad = 0;
+	if (reverse) {
+	    wcs.rev(NPOS, in, 0, 2, expect, 0, 2, stat, 0);
+	} else {
+	    wcs.fwd(NPOS, in, 0, 2, expect, 0, 2, stat, 0);
+	}
+	for (int k = 0; k < NPOS; k++)
+	    if (stat[k] != BatchStatus.OK) nbad++;
+	assertTrue(nbad > 0);
+
+	ByteBuffer src = buffer(in, order);
+	ByteBuffer dst = ByteBuffer.allocate(src.capacity());
+	CatalogTransform cat =
+	    new CatalogTransform(wcs, reverse, order, pool, 1000);
+	assertEquals(nbad, cat.transform(src, dst));
+	assertEquals(src.capacity(), src.position());
+	assertEquals(dst.capacity(), dst.position());
+
+	double[] got = doubles(dst, order);
+	for (int k = 0; k < got.length; k++) {
+	    if (Double.isNaN(expect[k])) {
+		assertTrue(Double.isNaN(got[k]));
+	    } else {
+		assertEquals(expect[k], got[k], 0.0);
+	    }
+	}
+    }
+
+    @Test
+    public void testSequential() throws FITSWCSException {
+	check(true, ByteOrder.BIG_ENDIAN, null);
+	check(false, ByteOrder.LITTLE_ENDIAN, null);
+    }
+
+    @Test
+    public void testParallel() throws FITSWCSException {
+	ForkJoinPool pool = new ForkJoinPool(4);
+	check(true, ByteOrder.LITTLE_ENDIAN, pool);
+	check(false, ByteOrder.BIG_ENDIAN, pool);
+	pool.shutdown();
+    }
+
+    @Test
+    public void testFile() throws Exception {
+	WCS wcs = sin();
+	double[] pix = pixels();
+	File in = File.createTempFile("CatalogTransformTest", ".in");
+	File out = File.createTempFile("CatalogTransformTest", ".out");
+	try {
+	    RandomAccessFile f = new RandomAccessFile(in, "rw");
+	    f.getChannel().write(buffer(pix, ByteOrder.LITTLE_ENDIAN));
+	    f.close();
+
+	    ForkJoinPool pool = new ForkJoinPool(3);
+	    CatalogTransform cat =
+		new CatalogTransform(wcs, true, ByteOrder.LITTLE_ENDIAN,
+				     pool, 4096);
+	    long nbad = cat.transform(in, out);
+	    pool.shutdown();
+	    assertEquals(in.length(), out.length());
+
+	    byte[] bytes = new byte[(int) out.length()];
+	    f = new RandomAccessFile(out, "r");
+	    f.readFully(bytes);
+	    f.close();
+	    double[] got = doubles(ByteBuffer.wrap(bytes),
+				   ByteOrder.LITTLE_ENDIAN);
+
+	    double[] expect = new double[2*NPOS];
+	    byte[] stat = new byte[NPOS];
+	    wcs.rev(NPOS, pix, 0, 2, expect, 0, 2, stat, 0);
+	    int n = 0;
+	    for (int k = 0; k < NPOS; k++) {
+		if (stat[k] != BatchStatus.OK) n++;
+		for (int i = 2*k; i < 2*k+2; i++) {
+		    if (Double.isNaN(expect[i])) {
+			assertTrue(Double.isNaN(got[i]));
+		    } else {
+			assertEquals(expect[i], got[i], 0.0);
+		    }
+		}
+	    }
+	    assertEquals(n, nbad);
+	} finally {
+	    in.delete();
+	    out.delete();
+	}
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testOddSize() throws FITSWCSException {
+	new CatalogTransform(sin(), true).transform(ByteBuffer.allocate(24),
+						    ByteBuffer.allocate(24));
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.CatalogTransformTest");
+    }
+}
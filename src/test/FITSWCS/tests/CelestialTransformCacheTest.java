@@ -0,0 +1,188 @@
+/*===========================================================================
+ *
+ * Checks CelestialTransformCache: equivalent arguments share one
+ * transform, which gives the same results as one made afresh; the least
+ * recently used entry is the one discarded; and concurrent callers all
+ * receive the same instance.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CelestialTransformCacheTest {
+
+    @Test
+    public void testShared() throws FITSWCSException {
+	CelestialTransformCache cache = new CelestialTransformCache();
+	double[] ref = { 150.0, 30.0, 999.0, 999.0 };
+	double[] p = new double[10];
+
+	ImmutableCelestialTransform cel = cache.get("TAN", ref, p);
+	assertEquals(1, cache.getMisses());
+	assertEquals(0, cache.getHits());
+
+	// equivalent forms of the same arguments
+	double[] ref2 = { 150.0, 30.0, 999.0, 999.0 };
+	double[] p2 = new double[10];
+	p2[3] = -0.0;
+	assertSame(cel, cache.get("tan", ref2, Projection.R2D, p2));
+	assertSame(cel, cache.get("TAN", ref2, 0.0, p2, null));
+	assertEquals(2, cache.getHits());
+	assertEquals(1, cache.size());
+
+	// a different pointing is a different transform
+	ref2[0] = 151.0;
+	assertNotSame(cel, cache.get("TAN", ref2, p2));
+	assertEquals(2, cache.size());
+
+	CelestialTransform fresh = new CelestialTransform("TAN", ref, p);
+	assertArrayEquals(fresh.getEuler(), cel.getEuler(), 0.0);
+	assertArrayEquals(fresh.fwd(152.0, 31.0), cel.fwd(152.0, 31.0), 0.0);
+	assertArrayEquals(fresh.rev(1.0, 2.0), cel.rev(1.0, 2.0), 0.0);
+
+	// a different TrigProvider is a different transform
+	TrigProvider table = new TableTrigProvider();
+	assertNotSame(cel, cache.get("TAN", ref, 0.0, p, table));
+	assertSame(table, cache.get("TAN", ref, 0.0, p, table)
+		   .getTrigProvider());
+    }
+
+    @Test
+    public void testParameters() throws FITSWCSException {
+	CelestialTransformCache cache = new CelestialTransformCache();
+	double[] ref = { 150.0, 45.0, 999.0, 999.0 };
+
+	// p with and without its trailing zeros
+	double[] p = { 0.0, 45.0 };
+	double[] p10 = new double[10];
+	p10[1] = 45.0;
+	ImmutableCelestialTransform cel = cache.get("COE", ref, p10);
+	assertSame(cel, cache.get("COE", ref, p));
+	assertNotSame(cel, cache.get("COE", ref, new double[] { 0.0, 45.0, 1.0 }));
+
+	// a null p is the same as any number of zeros
+	cel = cache.get("SIN", ref, null);
+	assertSame(cel, cache.get("SIN", ref, new double[1]));
+	assertSame(cel, cache.get("SIN", ref, new double[3]));
+	assertSame(cel, cache.get("SIN", ref, new double[10]));
+	assertEquals(3, cache.size());
+
+	// the same transform whichever form is seen first
+	cache.clear();
+	cel = cache.get("COE", ref, p);
+	CelestialTransform fresh = new CelestialTransform("COE", ref, p10);
+	assertArrayEquals(fresh.fwd(152.0, 31.0), cel.fwd(152.0, 31.0), 0.0);
+	assertSame(cel, cache.get("COE", ref, p10));
+    }
+
+    @Test
+    public void testEviction() throws FITSWCSException {
+	CelestialTransformCache cache = new CelestialTransformCache(3);
+	double[] p = new double[10];
+	ImmutableCelestialTransform[] cel = new ImmutableCelestialTransform[4];
+
+	for (int i = 0; i < 3; i++) {
+	    double[] ref = { 10.0*i, 20.0, 999.0, 999.0 };
+	    cel[i] = cache.get("TAN", ref, p);
+	}
+
+	// touch the first, so that the second is the eldest
+	double[] ref0 = { 0.0, 20.0, 999.0, 999.0 };
+	assertSame(cel[0], cache.get("TAN", ref0, p));
+
+	double[] ref3 = { 30.0, 20.0, 999.0, 999.0 };
+	cel[3] = cache.get("TAN", ref3, p);
+	assertEquals(3, cache.size());
+	assertEquals(1, cache.getEvictions());
+
+	assertSame(cel[0], cache.get("TAN", ref0, p));
+	assertSame(cel[3], cache.get("TAN", ref3, p));
+	double[] ref1 = { 10.0, 20.0, 999.0, 999.0 };
+	assertNotSame(cel[1], cache.get("TAN", ref1, p));
+
+	cache.clear();
+	assertEquals(0, cache.size());
+	assertEquals(0, cache.getHits());
+	assertEquals(0.0, cache.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void testFailure() throws FITSWCSException {
+	CelestialTransformCache cache = new CelestialTransformCache();
+	double[] ref = { 150.0, 30.0, 999.0, 999.0 };
+	double[] p = { 0.0, -1.0 };
+
+	for (int i = 0; i < 2; i++) {
+	    try {
+		cache.get("AZP", ref, p);
+		fail("AZP mu = -1 accepted");
+	    } catch (BadProjectionParameterException ex) { }
+	}
+	assertEquals(0, cache.size());
+	assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+	final CelestialTransformCache cache = new CelestialTransformCache(4);
+	final ImmutableCelestialTransform[][] got =
+	    new ImmutableCelestialTransform[8][200];
+	final Exception[] failed = new Exception[1];
+	Thread[] threads = new Thread[got.length];
+
+	for (int t = 0; t < threads.length; t++) {
+	    final int id = t;
+	    threads[t] = new Thread() {
+		public void run() {
+		    try {
+			for (int i = 0; i < got[id].length; i++) {
+			    double[] ref = { 100.0+i%2, 40.0, 999.0, 999.0 };
+			    got[id][i] = cache.get("SIN", ref, new double[3]);
+			}
+		    } catch (Exception ex) {
+			synchronized (failed) { failed[0] = ex; }
+		    }
+		}
+	    };
+	    threads[t].start();
+	}
+	for (int t = 0; t < threads.length; t++) threads[t].join();
+
+	assertNull(failed[0]);
+	assertEquals(2, cache.size());
+	for (int t = 0; t < got.length; t++)
+	    for (int i = 0; i < got[t].length; i++)
+		assertSame(got[0][i%2], got[t][i]);
+	assertEquals(got.length*got[0].length,
+		     cache.getHits() + cache.getMisses());
+    }
+
+    @Test
+    public void testWCS() throws FITSWCSException {
+	CelestialTransformCache cache = new CelestialTransformCache();
+	String[] ctype = { "RA---TAN", "DEC--TAN" };
+	double[] crval = { 150.0, 30.0 }, crpix = { 100.0, 100.0 };
+	double[] cdelt = { -0.001, 0.001 };
+	double[] pixel = { 10.0, 20.0 };
+
+	WCS plain = new WCS(ctype, crval, crpix, null, cdelt,
+			    999.0, 999.0, null);
+	for (int i = 0; i < 3; i++) {
+	    WCS wcs = new WCS(ctype, crval, crpix, null, cdelt,
+			      999.0, 999.0, null, cache);
+	    assertArrayEquals(plain.rev(pixel), wcs.rev(pixel), 0.0);
+	}
+	assertEquals(1, cache.getMisses());
+	assertEquals(2, cache.getHits());
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main(
+	    "FITSWCS.tests.CelestialTransformCacheTest");
+    }
+}
@@ -0,0 +1,113 @@
+/*===========================================================================
+ *
+ * Checks that the chunked batch transformations of the conic projections
+ * (COP, COD, COE and COO) give exactly the results of their
+ * single-position forms, including positions that cannot be transformed
+ * and batches that span several chunks.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ConicBatchTest {
+
+    // three of the 256-position chunks of ConicProjection and part of
+    // a fourth
+    static final int NPOS = 1000;
+
+    static Projection[] projections() throws FITSWCSException {
+	return new Projection[] {
+	    new COPProjection(60.0, 15.0), new CODProjection(-60.0, 15.0),
+	    new COEProjection(60.0, -15.0), new COOProjection(-60.0, -15.0),
+	    new COOProjection(45.0, 10.0), new COEProjection(1.0, -30.0, 20.0)
+	};
+    }
+
+    @Test
+    public void testForward() throws FITSWCSException {
+	Random rand = new Random(41L);
+	double[] phi = new double[NPOS], theta = new double[NPOS];
+	for (int k = 0; k < NPOS; k++) {
+	    phi[k] = 360.0*rand.nextDouble() - 180.0;
+	    theta[k] = 180.0*rand.nextDouble() - 90.0;
+	}
+	// the poles, which COE and COO treat specially
+	theta[0] = 90.0;
+	theta[1] = -90.0;
+	theta[300] = -90.0;
+
+	for (Projection prj : projections())
+	    ProjBulkTest.checkFwdBatch(prj, phi, theta);
+    }
+
+    @Test
+    public void testReverse() throws FITSWCSException {
+	Random rand = new Random(42L);
+
+	for (Projection prj : projections()) {
+	    double s = 2.0*prj.getR0();
+	    double[] x = new double[NPOS], y = new double[NPOS];
+	    for (int k = 0; k < NPOS; k++) {
+		x[k] = s*(2.0*rand.nextDouble() - 1.0);
+		y[k] = s*(2.0*rand.nextDouble() - 1.0);
+	    }
+	    // the apex of the cone
+	    double[] apex = prj.fwd(0.0, 90.0);
+	    x[5] = apex[0];
+	    y[5] = apex[1];
+
+	    ProjBulkTest.checkRevBatch(prj, x, y);
+	}
+    }
+
+    @Test
+    public void testException() throws FITSWCSException {
+	COEProjection prj = new COEProjection(60.0, -15.0);
+	Random rand = new Random(43L);
+	double[] x = new double[NPOS], y = new double[NPOS];
+	for (int k = 0; k < NPOS; k++) {
+	    x[k] = 40.0*rand.nextDouble() - 20.0;
+	    y[k] = 40.0*rand.nextDouble() - 20.0;
+	}
+	int bad = 700;
+	x[bad] = 1000.0;
+
+	double[] phi = new double[NPOS], theta = new double[NPOS];
+	java.util.Arrays.fill(phi, -999.0);
+	try {
+	    prj.rev(x, y, phi, theta);
+	    fail("no exception thrown");
+	} catch (PixelBeyondProjectionException ex) {
+	    assertEquals("COE: Calculation failed for (x,y) = (1000.0, " +
+			 y[bad] + ")", ex.getMessage());
+	}
+
+	// the positions before the failure were written
+	for (int k = 0; k < bad; k++)
+	    ProjBulkTest.checkRev(prj, x[k], y[k], phi[k], theta[k],
+				  BatchStatus.OK);
+	assertEquals(-999.0, phi[bad], 0.0);
+
+	COOProjection coo = new COOProjection(45.0, 10.0);
+	double[] p2 = { 10.0, 20.0 }, t2 = { 10.0, -90.0 };
+	double[] x2 = new double[2], y2 = new double[2];
+	try {
+	    coo.fwd(p2, t2, x2, y2);
+	    fail("no exception at theta = -90");
+	} catch (PixelBeyondProjectionException ex) {
+	    assertEquals("COO: no solution for theta = -90", ex.getMessage());
+	}
+	assertEquals(coo.fwd(10.0, 10.0)[0], x2[0], 0.0);
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.ConicBatchTest");
+    }
+}
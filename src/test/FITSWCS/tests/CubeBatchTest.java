@@ -0,0 +1,150 @@
+/*===========================================================================
+ *
+ * Checks that the face-by-face batch transformations of the quadcube
+ * projections (TSC, CSC and QSC) give exactly the results of their
+ * single-position forms for scattered all-sky positions, including
+ * positions that cannot be transformed.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CubeBatchTest {
+
+    // five of the 512-position chunks of QuadCube and part of a sixth
+    static final int NPOS = 3000;
+
+    static Projection[] projections() {
+	return new Projection[] {
+	    new TSCProjection(), new CSCProjection(), new QSCProjection(),
+	    new TSCProjection(1.0), new CSCProjection(1.0),
+	    new QSCProjection(1.0)
+	};
+    }
+
+    @Test
+    public void testForward() {
+	Random rand = new Random(21L);
+	double[] phi = new double[NPOS], theta = new double[NPOS];
+	for (int k = 0; k < NPOS; k++) {
+	    phi[k] = 720.0*rand.nextDouble() - 360.0;
+	    theta[k] = Math.asin(2.0*rand.nextDouble() - 1.0)*Projection.R2D;
+	}
+
+	// the poles, the centers of faces, and the edges between them
+	double[] special = { 0.0, 90.0,  0.0, -90.0,  0.0, 0.0,  90.0, 0.0,
+			     180.0, 0.0,  -90.0, 0.0,  45.0, 0.0,  135.0, 0.0,
+			     0.0, 45.0,  180.0, -45.0,  45.0, 35.2643896828 };
+	for (int k = 0; k < special.length/2; k++) {
+	    phi[k] = special[2*k];
+	    theta[k] = special[2*k+1];
+	}
+
+	for (Projection prj : projections())
+	    ProjBulkTest.checkFwdBatch(prj, phi, theta);
+    }
+
+    @Test
+    public void testReverse() {
+	Random rand = new Random(22L);
+	double[] xf = new double[NPOS], yf = new double[NPOS];
+	for (int k = 0; k < NPOS; k++) {
+	    // covers the whole layout of faces and some way beyond it
+	    xf[k] = 10.0*rand.nextDouble() - 2.5;
+	    yf[k] = 8.0*rand.nextDouble() - 4.0;
+	}
+
+	for (Projection prj : projections()) {
+	    double s = prj.getR0()*Projection.PI/4.0;
+	    double[] x = new double[NPOS], y = new double[NPOS];
+	    for (int k = 0; k < NPOS; k++) {
+		x[k] = s*xf[k];
+		y[k] = s*yf[k];
+	    }
+
+	    int nok = ProjBulkTest.checkRevBatch(prj, x, y);
+	    assertTrue(nok > 0 && nok < NPOS);
+	}
+    }
+
+    @Test
+    public void testException() {
+	Random rand = new Random(23L);
+	for (Projection prj : projections()) {
+	    double s = prj.getR0()*Projection.PI/4.0;
+	    double[] x = new double[NPOS], y = new double[NPOS];
+	    for (int k = 0; k < NPOS; k++) {
+		x[k] = s*(2.0*rand.nextDouble() - 1.0);
+		y[k] = s*(2.0*rand.nextDouble() - 1.0);
+	    }
+	    int bad = 1234;
+	    x[bad] = 8.0*s;
+
+	    double[] phi = new double[NPOS], theta = new double[NPOS];
+	    java.util.Arrays.fill(phi, -999.0);
+	    try {
+		prj.rev(x, y, phi, theta);
+		fail("no exception thrown");
+	    } catch (PixelBeyondProjectionException ex) {
+		assertEquals("x = " + x[bad], ex.getMessage());
+	    }
+
+	    // the positions before the failure were written
+	    for (int k = 0; k < bad; k++)
+		ProjBulkTest.checkRev(prj, x[k], y[k], phi[k], theta[k],
+				      BatchStatus.OK);
+	    assertEquals(-999.0, phi[bad], 0.0);
+	}
+    }
+
+    @Test
+    public void testCelestial() throws FITSWCSException {
+	// CelestialTransform passes its own chunks, and a caller may pass
+	// batches of a single position
+	Random rand = new Random(24L);
+	double[] ref = { 30.0, 40.0, 999.0, 999.0 };
+	String[] codes = { "TSC", "CSC", "QSC" };
+	int npos = 700;
+	double[] lng = new double[npos], lat = new double[npos];
+	for (int k = 0; k < npos; k++) {
+	    lng[k] = 360.0*rand.nextDouble();
+	    lat[k] = Math.asin(2.0*rand.nextDouble() - 1.0)*Projection.R2D;
+	}
+
+	for (String code : codes) {
+	    CelestialTransform cel = new CelestialTransform(code, ref, null);
+	    double[] x = new double[npos], y = new double[npos];
+	    double[] x1 = new double[1], y1 = new double[1];
+	    double[] lng1 = new double[1], lat1 = new double[1];
+	    byte[] stat = new byte[npos];
+	    cel.fwd(lng, lat, x, y, stat);
+	    for (int k = 0; k < npos; k++) {
+		double[] xy = cel.fwd(lng[k], lat[k]);
+		assertEquals(BatchStatus.OK, stat[k]);
+		assertEquals(xy[0], x[k], 0.0);
+		assertEquals(xy[1], y[k], 0.0);
+
+		cel.fwd(1, lng, k, lat, k, 1, x1, 0, y1, 0, 1, stat, k);
+		assertEquals(xy[0], x1[0], 0.0);
+		assertEquals(xy[1], y1[0], 0.0);
+
+		double[] lnglat = cel.rev(x[k], y[k]);
+		cel.rev(1, x, k, y, k, 1, lng1, 0, lat1, 0, 1, stat, k);
+		assertEquals(BatchStatus.OK, stat[k]);
+		assertEquals(lnglat[0], lng1[0], 0.0);
+		assertEquals(lnglat[1], lat1[0], 0.0);
+	    }
+	}
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.CubeBatchTest");
+    }
+}
@@ -0,0 +1,124 @@
+/*===========================================================================
+ *
+ * Checks the grid transformations of the cylindrical projections against
+ * their single-position forms, including rows that cannot be
+ * transformed.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CylindricalGridTest {
+
+    static CylindricalProjection[] projections() throws FITSWCSException {
+	return new CylindricalProjection[] {
+	    new CARProjection(), new MERProjection(),
+	    new CEAProjection(0.0, new double[] { 0.0, 0.7 }),
+	    new CYPProjection(0.0, new double[] { 0.0, 1.0, 0.7071 }),
+	    new CARProjection(1.0), new MERProjection(1.0),
+	    new CYPProjection(0.0, new double[] { 0.0, -0.5, 1.0 })
+	};
+    }
+
+    @Test
+    public void testForward() throws FITSWCSException {
+	double[] phi = ProjBulkTest.range(-180.0, 0.75, 481);
+	double[] theta = ProjBulkTest.range(-90.0, 0.5, 361);
+	int n = phi.length*theta.length;
+
+	for (CylindricalProjection prj : projections()) {
+	    double[] x = new double[n+3], y = new double[n+3];
+	    byte[] stat = new byte[n+3];
+	    prj.fwdGrid(phi.length, phi, 0, theta.length, theta, 0,
+			x, 3, y, 3, stat, 3);
+
+	    for (int j = 0, k = 3; j < theta.length; j++) {
+		for (int i = 0; i < phi.length; i++, k++) {
+		    String where = prj.getProjectionCode() + " at " + phi[i] +
+			", " + theta[j];
+		    try {
+			double[] xy = prj.fwd(phi[i], theta[j]);
+			assertEquals(where, BatchStatus.OK, stat[k]);
+			assertEquals(where, xy[0], x[k], 0.0);
+			assertEquals(where, xy[1], y[k], 0.0);
+		    } catch (PixelBeyondProjectionException ex) {
+			assertEquals(where, BatchStatus.PIXEL_BEYOND_PROJECTION,
+				     stat[k]);
+			assertTrue(Double.isNaN(x[k]) && Double.isNaN(y[k]));
+		    }
+		}
+	    }
+	}
+    }
+
+    @Test
+    public void testReverse() throws FITSWCSException {
+	double[] xv = ProjBulkTest.range(-200.0, 1.25, 321);
+	double[] yv = ProjBulkTest.range(-100.0, 0.625, 321);
+	int n = xv.length*yv.length;
+
+	for (CylindricalProjection prj : projections()) {
+	    double[] phi = new double[n], theta = new double[n];
+	    byte[] stat = new byte[n];
+	    prj.revGrid(xv.length, xv, 0, yv.length, yv, 0,
+			phi, 0, theta, 0, stat, 0);
+
+	    for (int j = 0, k = 0; j < yv.length; j++) {
+		for (int i = 0; i < xv.length; i++, k++) {
+		    String where = prj.getProjectionCode() + " at " + xv[i] +
+			", " + yv[j];
+		    try {
+			double[] pt = prj.rev(xv[i], yv[j]);
+			assertEquals(where, BatchStatus.OK, stat[k]);
+			assertEquals(where, pt[0], phi[k], 0.0);
+			assertEquals(where, pt[1], theta[k], 0.0);
+		    } catch (PixelBeyondProjectionException ex) {
+			assertEquals(where, BatchStatus.PIXEL_BEYOND_PROJECTION,
+				     stat[k]);
+			assertTrue(Double.isNaN(phi[k]) &&
+				   Double.isNaN(theta[k]));
+		    }
+		}
+	    }
+	}
+    }
+
+    @Test
+    public void testException() throws FITSWCSException {
+	MERProjection prj = new MERProjection();
+	double[] phi = ProjBulkTest.range(-10.0, 1.0, 21),
+	    theta = ProjBulkTest.range(60.0, 10.0, 4);
+	double[] x = new double[84], y = new double[84];
+	java.util.Arrays.fill(x, -999.0);
+
+	try {
+	    prj.fwdGrid(phi, theta, x, y);
+	    fail("no exception at theta = 90");
+	} catch (PixelBeyondProjectionException ex) {
+	    assertEquals("MER: abs(theta=90.0) > 90.0", ex.getMessage());
+	}
+
+	// the rows preceding the failure were written
+	assertEquals(prj.fwd(10.0, 80.0)[1], y[62], 0.0);
+	assertEquals(-999.0, x[63], 0.0);
+
+	CEAProjection cea = new CEAProjection(0.0, new double[] { 0.0, 1.0 });
+	double[] phi2 = new double[4], theta2 = new double[4];
+	try {
+	    cea.revGrid(new double[] { 0.0, 1.0 }, new double[] { 0.0, 60.0 },
+			phi2, theta2);
+	    fail("no exception beyond the edge of the projection");
+	} catch (PixelBeyondProjectionException ex) { }
+	assertEquals(1.0, phi2[1], 0.0);
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.CylindricalGridTest");
+    }
+}
@@ -0,0 +1,230 @@
+/*===========================================================================
+ *
+ * Checks HeaderParser against WCS objects built directly from the same
+ * keyword values, for the PC, CD and CROTA forms of the linear
+ * transformation, and its handling of consecutive headers in one buffer,
+ * of mapped files, and of malformed headers.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HeaderParserTest {
+
+    /**
+     * return the cards as a header, padded to whole blocks and followed
+     * by ndata bytes of data
+     */
+    static byte[] header(String[] cards, int ndata) {
+	int ncard = cards.length + 1;
+	int size = (ncard*80 + 2879)/2880*2880 + ndata;
+	byte[] out = new byte[size];
+	for (int k = 0; k < size; k++) out[k] = ' ';
+	for (int c = 0; c < ncard; c++) {
+	    String card = (c < cards.length) ? cards[c] : "END";
+	    for (int k = 0; k < card.length(); k++)
+		out[c*80 + k] = (byte) card.charAt(k);
+	}
+	for (int k = size-ndata; k < size; k++) out[k] = 0;
+	return out;
+    }
+
+    /**
+     * a card with a value, formatted as fixed-format FITS
+     */
+    static String card(String key, String value) {
+	StringBuilder s = new StringBuilder(key);
+	while (s.length() < 8) s.append(' ');
+	s.append("= ");
+	for (int k = value.length(); k < 20; k++) s.append(' ');
+	return s.append(value).append(" / comment").toString();
+    }
+
+    static void assertSameWCS(WCS expect, WCS got) throws FITSWCSException {
+	assertEquals(expect.getNaxis(), got.getNaxis());
+	assertEquals(expect.getProjectionCode(), got.getProjectionCode());
+	for (int i = 0; i < 5; i++) {
+	    double[] pix = new double[expect.getNaxis()];
+	    for (int j = 0; j < pix.length; j++) pix[j] = 7.0*i + 3.0*j;
+	    assertArrayEquals(expect.rev(pix), got.rev(pix), 1.0e-12);
+	}
+    }
+
+    static final String[] TAN = {
+	"SIMPLE  =                    T",
+	card("BITPIX", "-32"),
+	card("NAXIS", "2"),
+	card("NAXIS1", "100"),
+	card("NAXIS2", "50"),
+	"COMMENT   CTYPE1  = 'GLON-AIT'  is not a keyword here",
+	card("CTYPE1", "'RA---TAN'"),
+	card("CTYPE2", "'DEC--TAN'"),
+	card("CRVAL1", "150.0"),
+	card("CRVAL2", "30.0D0"),
+	card("CRPIX1", "50.5"),
+	card("CRPIX2", "25.5"),
+	card("CDELT1", "-1.0E-3"),
+	card("CDELT2", "0.001"),
+	card("PC1_2", "0.1"),
+	card("PC2_1", "-0.1"),
+	card("LONPOLE", "180.0"),
+	card("OBJECT", "'Bob''s galaxy'"),
+    };
+
+    @Test
+    public void testPC() throws FITSWCSException {
+	HeaderParser parser = new HeaderParser();
+	ByteBuffer buf = ByteBuffer.wrap(header(TAN, 0));
+	WCS got = parser.parse(buf);
+	assertEquals(2880, buf.position());
+	assertEquals(TAN.length + 1, parser.getCardCount());
+
+	double[] pc = { 1.0, 0.1, -0.1, 1.0 };
+	WCS expect = new WCS(new String[] { "RA---TAN", "DEC--TAN" },
+			     new double[] { 150.0, 30.0 },
+			     new double[] { 50.5, 25.5 }, pc,
+			     new double[] { -0.001, 0.001 }, 180.0, 999.0,
+			     new double[10]);
+	assertSameWCS(expect, got);
+    }
+
+    @Test
+    public void testCD() throws FITSWCSException {
+	String[] cards = {
+	    card("NAXIS", "3"),
+	    card("CTYPE1", "'FREQ'"),
+	    card("CTYPE2", "'GLON-ZPN'"),
+	    card("CTYPE3", "'GLAT-ZPN'"),
+	    card("CRVAL1", "1.4E9"),
+	    card("CRVAL2", "10.0"),
+	    card("CRVAL3", "-5.0"),
+	    card("CD001001", "1.0E5"),
+	    card("CD002002", "-0.002"),
+	    card("CD2_3", "0.0001"),
+	    card("CD003003", "0.002"),
+	    card("PROJP1", "1.0"),
+	    card("PROJP3", "0.2"),
+	    card("LATPOLE", "60.0"),
+	};
+	WCS got = new HeaderParser().parse(ByteBuffer.wrap(header(cards, 0)));
+
+	double[] cd = { 1.0e5, 0.0, 0.0,  0.0, -0.002, 0.0001,
+			0.0, 0.0, 0.002 };
+	double[] p = new double[10];
+	p[1] = 1.0;
+	p[3] = 0.2;
+	WCS expect = new WCS(new String[] { "FREQ", "GLON-ZPN", "GLAT-ZPN" },
+			     new double[] { 1.4e9, 10.0, -5.0 },
+			     new double[3], cd, new double[] { 1.0, 1.0, 1.0 },
+			     999.0, 60.0, p);
+	assertSameWCS(expect, got);
+    }
+
+    @Test
+    public void testCROTA() throws FITSWCSException {
+	String[] cards = {
+	    card("NAXIS", "2"),
+	    card("CTYPE1", "'RA---SIN'"),
+	    card("CTYPE2", "'DEC--SIN'"),
+	    card("CRVAL1", "45.0"),
+	    card("CRVAL2", "-60.0"),
+	    card("CDELT1", "-0.002"),
+	    card("CDELT2", "0.001"),
+	    card("CROTA2", "30.0"),
+	};
+	WCS got = new HeaderParser().parse(ByteBuffer.wrap(header(cards, 0)));
+
+	double c = Math.cos(Math.PI/6.0), s = Math.sin(Math.PI/6.0);
+	double[] pc = { c, -s*0.001/-0.002, s*-0.002/0.001, c };
+	WCS expect = new WCS(new String[] { "RA---SIN", "DEC--SIN" },
+			     new double[] { 45.0, -60.0 }, new double[2], pc,
+			     new double[] { -0.002, 0.001 }, 999.0, 999.0,
+			     new double[10]);
+	assertSameWCS(expect, got);
+    }
+
+    @Test
+    public void testConsecutive() throws Exception {
+	String[] ext = {
+	    "XTENSION= 'IMAGE   '",
+	    card("BITPIX", "16"),
+	    card("NAXIS", "2"),
+	    card("NAXIS1", "100"),
+	    card("NAXIS2", "50"),
+	    card("PCOUNT", "0"),
+	    card("GCOUNT", "1"),
+	    card("CTYPE1", "'RA---TAN'"),
+	    card("CTYPE2", "'DEC--TAN'"),
+	    card("CRVAL1", "150.0"),
+	    card("CRVAL2", "30.0"),
+	};
+	String[] empty = { "SIMPLE  =                    T",
+			   card("BITPIX", "8"), card("NAXIS", "0"),
+			   card("EXTEND", "T") };
+	byte[] h0 = header(empty, 0), h1 = header(TAN, 2880*7),
+	       h2 = header(ext, 0);
+	ByteBuffer buf = ByteBuffer.allocate(h0.length+h1.length+h2.length);
+	buf.put(h0).put(h1).put(h2).flip();
+
+	CelestialTransformCache cache = new CelestialTransformCache();
+	HeaderParser parser = new HeaderParser(cache);
+	assertNull(parser.parse(buf));
+	assertEquals(0, parser.getDataSize());
+
+	assertNotNull(parser.parse(buf));
+	assertEquals(2880*7, parser.getDataSize());
+	buf.position(buf.position() + (int) parser.getDataSize());
+
+	WCS wcs = parser.parse(buf);
+	assertEquals("TAN", wcs.getProjectionCode());
+	assertEquals(buf.limit(), buf.position());
+	assertEquals(2, cache.getMisses());
+
+	// the same, from a mapped file
+	File file = File.createTempFile("HeaderParserTest", ".fits");
+	try {
+	    FileOutputStream out = new FileOutputStream(file);
+	    out.write(h1);
+	    out.close();
+	    assertSameWCS(new HeaderParser().parse(ByteBuffer.wrap(h1)),
+			  new HeaderParser().parse(file));
+	} finally {
+	    file.delete();
+	}
+    }
+
+    @Test
+    public void testBad() throws FITSWCSException {
+	byte[] h = header(TAN, 0);
+	try {
+	    new HeaderParser().parse(ByteBuffer.wrap(h, 0, 80*TAN.length));
+	    fail("missing END accepted");
+	} catch (BadHeaderException ex) { }
+
+	String[] cards = { card("NAXIS", "2"), card("CRVAL1", "abc") };
+	try {
+	    new HeaderParser().parse(ByteBuffer.wrap(header(cards, 0)));
+	    fail("bad number accepted");
+	} catch (BadHeaderException ex) {
+	    assertTrue(ex.getMessage().indexOf("CRVAL1") >= 0);
+	}
+
+	cards = new String[] { "CRVAL1    150.0" };
+	try {
+	    new HeaderParser().parse(ByteBuffer.wrap(header(cards, 0)));
+	    fail("missing value indicator accepted");
+	} catch (BadHeaderException ex) { }
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.HeaderParserTest");
+    }
+}
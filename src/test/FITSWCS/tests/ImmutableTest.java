@@ -0,0 +1,216 @@
+/*===========================================================================
+ *
+ * Checks that ImmutableProjection and ImmutableCelestialTransform give
+ * the same results as the objects they are made from, cannot be
+ * changed, and can be shared between threads.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ImmutableTest {
+
+    @Test
+    public void testCopyOf() throws FITSWCSException {
+	Projection[] prjs = ProjBulkTest.projections();
+	for (int i = 0; i < prjs.length; i++) {
+	    Projection prj = prjs[i];
+	    String name = prj.getClass().getName();
+	    ImmutableProjection iprj = ImmutableProjection.copyOf(prj);
+	    assertSame(iprj, ImmutableProjection.copyOf(iprj));
+	    assertEquals(name, prj.getProjectionCode(),
+			 iprj.getProjectionCode());
+	    assertEquals(name, prj.getR0(), iprj.getR0(), 0.0);
+
+	    double[] pt = ProjBulkTest.goodPoints(prj);
+	    int n = pt.length/2;
+	    double[] x = new double[n], y = new double[n];
+	    iprj.fwd(n, pt, 0, pt, 1, 2, x, 0, y, 0, 1);
+	    for (int k = 0; k < n; k++) {
+		double[] xy = prj.fwd(pt[2*k], pt[2*k+1]);
+		assertEquals(name, xy[0], x[k], 0.0);
+		assertEquals(name, xy[1], y[k], 0.0);
+		double[] pt1 = iprj.rev(xy[0], xy[1]);
+		double[] pt2 = prj.rev(xy[0], xy[1]);
+		assertEquals(name, pt2[0], pt1[0], 0.0);
+		assertEquals(name, pt2[1], pt1[1], 0.0);
+	    }
+
+	    // changing the original does not affect the copy
+	    prj.setR0(2.0);
+	    assertEquals(name, Projection.R2D, iprj.getR0(), 0.0);
+	}
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testSetR0() throws FITSWCSException {
+	ImmutableProjection.create("TAN", null).setR0(1.0);
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testSetProjParm() throws FITSWCSException {
+	ImmutableProjection.create("AZP", new double[] { 0.0, 2.0 })
+	    .setProjParm(new double[] { 0.0, 3.0 });
+    }
+
+    @Test
+    public void testCopyOptions() throws FITSWCSException {
+	double[] pt = new double[2000];
+	for (int k = 0; k < 1000; k++) {
+	    pt[2*k] = 0.36*k - 180.0;
+	    pt[2*k+1] = 89.0 - 0.17*k;
+	}
+	double[] x1 = new double[1000], y1 = new double[1000];
+	double[] x2 = new double[1000], y2 = new double[1000];
+
+	// the radial tables chosen for the original are used by the copy
+	AIRProjection air = new AIRProjection(new double[] { 0.0, 45.0 });
+	air.setRadialTable(true);
+	ImmutableProjection iair = ImmutableProjection.copyOf(air);
+	air.fwd(1000, pt, 0, pt, 1, 2, x1, 0, y1, 0, 1);
+	iair.fwd(1000, pt, 0, pt, 1, 2, x2, 0, y2, 0, 1);
+	assertArrayEquals(x1, x2, 0.0);
+	assertArrayEquals(y1, y2, 0.0);
+	air.rev(x1, y1, x1, y1);
+	iair.rev(x2, y2, x2, y2);
+	assertArrayEquals(x1, x2, 0.0);
+	assertArrayEquals(y1, y2, 0.0);
+
+	// and so is the choice of inverse for PCO
+	PCOProjection pco = new PCOProjection();
+	pco.setTabulatedInverse(false);
+	ImmutableProjection ipco = ImmutableProjection.copyOf(pco);
+	pco.setTabulatedInverse(true);
+	PCOProjection ref = new PCOProjection();
+	ref.setTabulatedInverse(false);
+	ref.fwd(1000, pt, 0, pt, 1, 2, x1, 0, y1, 0, 1);
+	ref.rev(x1, y1, x2, y2);
+	ipco.rev(x1, y1, x1, y1);
+	assertArrayEquals(x2, x1, 0.0);
+	assertArrayEquals(y2, y1, 0.0);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testCopyOfSubclass() {
+	// the class of the projection cannot be reproduced
+	ImmutableProjection.copyOf(new TANProjection() { });
+    }
+
+    @Test
+    public void testSubclassForms() throws FITSWCSException {
+	double[] phi = { -170.0, -20.0, 35.0, 179.0 };
+	double[] theta = { -80.0, -5.0, 0.0, 45.0, 70.0 };
+	int n = phi.length*theta.length;
+	double[] x1 = new double[n], y1 = new double[n];
+	double[] x2 = new double[n], y2 = new double[n];
+
+	CARProjection car = new CARProjection();
+	ImmutableProjection icar = ImmutableProjection.copyOf(car);
+	car.fwdGrid(4, phi, 0, 5, theta, 0, x1, 0, y1, 0);
+	icar.fwdGrid(4, phi, 0, 5, theta, 0, x2, 0, y2, 0);
+	assertArrayEquals(x1, x2, 0.0);
+	assertArrayEquals(y1, y2, 0.0);
+	car.revGrid(4, x1, 0, 5, y1, 0, x2, 0, y2, 0);
+	icar.revGrid(4, x1, 0, 5, y1, 0, x1, 0, y1, 0);
+	assertArrayEquals(x2, x1, 0.0);
+	assertArrayEquals(y2, y1, 0.0);
+
+	MOLProjection mol = new MOLProjection();
+	ImmutableProjection imol = ImmutableProjection.copyOf(mol);
+	mol.fwdGrid(4, phi, 0, 5, theta, 0, x1, 0, y1, 0);
+	imol.fwdGrid(4, phi, 0, 5, theta, 0, x2, 0, y2, 0);
+	assertArrayEquals(x1, x2, 0.0);
+	assertArrayEquals(y1, y2, 0.0);
+	SolverStats stats = new SolverStats();
+	imol.fwd(4, phi, 0, theta, 0, 1, x2, 0, y2, 0, 1, null, 0,
+		 true, stats);
+	assertTrue(stats.getSolves() > 0);
+
+	PCOProjection pco = new PCOProjection();
+	ImmutableProjection ipco = ImmutableProjection.copyOf(pco);
+	stats.reset();
+	ipco.rev(4, x2, 0, y2, 0, 1, x1, 0, y1, 0, 1, null, 0, true, stats);
+	assertTrue(stats.getSolves() > 0);
+
+	try {
+	    ImmutableProjection.create("TAN", null)
+		.fwdGrid(4, phi, 0, 5, theta, 0, x1, 0, y1, 0);
+	    fail("TAN has no grid form");
+	} catch (UnsupportedOperationException ex) { }
+    }
+
+    @Test
+    public void testCelestial() throws FITSWCSException {
+	double[] ref = { 150.0, 45.0, 999.0, 999.0 };
+	double[] p = { 0.0, 45.0, 15.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0 };
+	String[] pcodes = { "AIR", "COD", "SIN", "MOL" };
+
+	for (int i = 0; i < pcodes.length; i++) {
+	    CelestialTransform cel = new CelestialTransform(pcodes[i], ref,
+							    1.0, p);
+	    ImmutableCelestialTransform icel =
+		ImmutableCelestialTransform.create(pcodes[i], ref, 1.0, p);
+	    assertTrue(icel.getProjection() instanceof ImmutableProjection);
+	    assertArrayEquals(cel.getEuler(), icel.getEuler(), 0.0);
+	    assertArrayEquals(cel.getRefParm(), icel.getRefParm(), 0.0);
+
+	    for (double lat = -60.0; lat <= 60.0; lat += 15.0) {
+		double[] xy1 = cel.fwd(160.0, lat);
+		double[] xy2 = icel.fwd(160.0, lat);
+		assertArrayEquals(pcodes[i], xy1, xy2, 0.0);
+		assertArrayEquals(pcodes[i], cel.rev(xy1[0], xy1[1]),
+				  icel.rev(xy2[0], xy2[1]), 0.0);
+	    }
+	}
+    }
+
+    @Test
+    public void testShared() throws Exception {
+	final ImmutableCelestialTransform cel =
+	    ImmutableCelestialTransform.create("ZPN",
+		new double[] { 10.0, -50.0, 999.0, 999.0 },
+		new double[] { 0.0, 1.0, 0.0, -0.05, 0.0, 0.0, 0.0, 0.0,
+			       0.0, 0.0 });
+	final int n = 20000;
+	final double[] lng = new double[n], lat = new double[n];
+	for (int k = 0; k < n; k++) {
+	    lng[k] = (k % 360) + 0.5;
+	    lat[k] = -20.0 - (k % 60);
+	}
+	final double[] x = new double[n], y = new double[n];
+	cel.fwd(lng, lat, x, y);
+
+	final int[] nbad = new int[4];
+	Thread[] thr = new Thread[4];
+	for (int t = 0; t < thr.length; t++) {
+	    final int id = t;
+	    thr[t] = new Thread() {
+		public void run() {
+		    double[] x1 = new double[n], y1 = new double[n];
+		    byte[] stat = new byte[n];
+		    for (int rep = 0; rep < 5; rep++) {
+			cel.fwd(lng, lat, x1, y1, stat);
+			for (int k = 0; k < n; k++) {
+			    if (x1[k] != x[k] || y1[k] != y[k]) nbad[id]++;
+			}
+		    }
+		}
+	    };
+	    thr[t].start();
+	}
+	for (int t = 0; t < thr.length; t++) {
+	    thr[t].join();
+	    assertEquals(0, nbad[t]);
+	}
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.ImmutableTest");
+    }
+}
@@ -0,0 +1,187 @@
+/*===========================================================================
+ *
+ * Checks InterpolatedTransform against the exact WCS on dense random
+ * samples: the error stays within the tolerance, positions beyond the
+ * edge of the projection are rejected exactly as before, and longitudes
+ * are continuous across 0.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class InterpolatedTransformTest {
+
+    static final int NPOS = 200000;
+
+    static WCS wcs(String code, double lng, double lat, double cdelt)
+	throws FITSWCSException
+    {
+	return new WCS(new String[] { "RA---" + code, "DEC--" + code },
+		       new double[] { lng, lat },
+		       new double[] { 512.5, 512.5 },
+		       new double[] { 0.95, 0.05, -0.05, 0.95 },
+		       new double[] { -cdelt, cdelt }, 999.0, 999.0,
+		       new double[10]);
+    }
+
+    static double[] random(double u0, double v0, double u1, double v1) {
+	Random rand = new Random(5L);
+	double[] out = new double[2*NPOS];
+	for (int k = 0; k < NPOS; k++) {
+	    out[2*k]   = u0 + (u1-u0)*rand.nextDouble();
+	    out[2*k+1] = v0 + (v1-v0)*rand.nextDouble();
+	}
+	return out;
+    }
+
+    /**
+     * return the largest angle, in degrees, between the world positions
+     * in a and b where both are valid, checking that the same positions
+     * are valid in both
+     */
+    static double maxAngle(double[] a, byte[] sa, double[] b, byte[] sb) {
+	double max = 0.0;
+	for (int k = 0; k < sa.length; k++) {
+	    assertEquals("status " + k, sb[k], sa[k]);
+	    if (sa[k] != BatchStatus.OK) continue;
+	    double dlng = a[2*k] - b[2*k];
+	    assertTrue(Math.abs(dlng) < 180.0);
+	    dlng *= Math.cos(b[2*k+1]*Projection.D2R);
+	    double dlat = a[2*k+1] - b[2*k+1];
+	    max = Math.max(max, Math.sqrt(dlng*dlng + dlat*dlat));
+	}
+	return max;
+    }
+
+    static double check(InterpolatedTransform approx, double[] in) {
+	WCS wcs = approx.getWCS();
+	double[] exact = new double[2*NPOS], got = new double[2*NPOS];
+	byte[] se = new byte[NPOS], sg = new byte[NPOS];
+
+	wcs.rev(NPOS, in, 0, 2, exact, 0, 2, se, 0);
+	approx.transform(in, got, sg);
+	return maxAngle(got, sg, exact, se);
+    }
+
+    @Test
+    public void testBicubic() throws FITSWCSException {
+	WCS wcs = wcs("TAN", 150.0, 30.0, 0.01);
+	double tol = 1.0e-6;
+	InterpolatedTransform approx =
+	    InterpolatedTransform.reverse(wcs, 0.5, 0.5, 1024.5, 1024.5, tol);
+
+	assertTrue(approx.getCellCount() > 0);
+	assertEquals(0, approx.getExactCellCount());
+	assertTrue(check(approx, random(0.5, 0.5, 1024.5, 1024.5)) <= tol);
+
+	// outside the region, the exact transformation is used
+	double[] in = random(-500.0, -500.0, 1500.0, 1500.0);
+	assertTrue(check(approx, in) <= tol);
+
+	double[] pix = { 100.0, 200.0 };
+	double[] a = approx.transform(pix), b = wcs.rev(pix);
+	assertEquals(b[0], a[0], 1.0e-5);
+	assertEquals(b[1], a[1], 1.0e-5);
+    }
+
+    static InterpolatedTransform reverse(WCS wcs, double tol, int order) {
+	return new InterpolatedTransform(wcs, true, 0.5, 0.5, 1024.5, 1024.5,
+					 tol, order,
+					 InterpolatedTransform.DEFAULT_MAX_DEPTH);
+    }
+
+    @Test
+    public void testOrders() throws FITSWCSException {
+	WCS wcs = wcs("SIN", 150.0, 30.0, 0.05);
+	double tol = 1.0e-3;
+	double[] in = random(0.5, 0.5, 1024.5, 1024.5);
+	InterpolatedTransform lin =
+	    reverse(wcs, tol, InterpolatedTransform.BILINEAR);
+	InterpolatedTransform quad =
+	    reverse(wcs, tol, InterpolatedTransform.BIQUADRATIC);
+	InterpolatedTransform cub =
+	    reverse(wcs, tol, InterpolatedTransform.BICUBIC);
+
+	assertEquals(0, lin.getExactCellCount());
+	assertTrue(quad.getCellCount() < lin.getCellCount());
+	assertTrue(cub.getCellCount() < quad.getCellCount());
+	assertTrue(check(lin, in) <= tol);
+	assertTrue(check(quad, in) <= tol);
+	assertTrue(check(cub, in) <= tol);
+    }
+
+    @Test
+    public void testUnreachable() throws FITSWCSException {
+	// bilinear cells cannot meet this tolerance at the maximum depth;
+	// the exact leaves merge into one
+	WCS wcs = wcs("SIN", 150.0, 30.0, 0.05);
+	InterpolatedTransform lin =
+	    reverse(wcs, 1.0e-7, InterpolatedTransform.BILINEAR);
+
+	assertEquals(0, lin.getCellCount());
+	assertEquals(1, lin.getExactCellCount());
+	assertEquals(0.0, check(lin, random(0.5, 0.5, 1024.5, 1024.5)), 0.0);
+    }
+
+    @Test
+    public void testForward() throws FITSWCSException {
+	WCS wcs = wcs("ARC", 150.0, 30.0, 0.01);
+	double tol = 1.0e-4;
+	InterpolatedTransform approx =
+	    InterpolatedTransform.forward(wcs, 146.0, 26.5, 154.0, 33.5, tol);
+
+	double[] in = random(146.0, 26.5, 154.0, 33.5);
+	double[] exact = new double[2*NPOS], got = new double[2*NPOS];
+	byte[] se = new byte[NPOS], sg = new byte[NPOS];
+	wcs.fwd(NPOS, in, 0, 2, exact, 0, 2, se, 0);
+	approx.transform(in, got, sg);
+
+	double max = 0.0;
+	for (int k = 0; k < 2*NPOS; k++)
+	    max = Math.max(max, Math.abs(got[k] - exact[k]));
+	assertTrue(max <= tol);
+    }
+
+    @Test
+    public void testEdge() throws FITSWCSException {
+	// the edge of the AIT ellipse runs through the region
+	WCS wcs = wcs("AIT", 0.0, 5.0, 0.5);
+	double tol = 1.0e-5;
+	InterpolatedTransform approx =
+	    InterpolatedTransform.reverse(wcs, -300.0, -300.0, 1300.0, 1300.0,
+					  tol);
+
+	assertTrue(approx.getExactCellCount() > 0);
+	assertTrue(approx.getCellCount() > 0);
+	assertTrue(check(approx, random(-300.0, -300.0, 1300.0, 1300.0))
+		   <= tol);
+    }
+
+    @Test
+    public void testWrap() throws FITSWCSException {
+	// longitude 0 runs through the region
+	WCS wcs = wcs("TAN", 0.0, 45.0, 0.01);
+	double tol = 1.0e-6;
+	InterpolatedTransform approx =
+	    InterpolatedTransform.reverse(wcs, 0.5, 0.5, 1024.5, 1024.5, tol);
+	double[] in = random(0.5, 0.5, 1024.5, 1024.5);
+	assertTrue(check(approx, in) <= tol);
+
+	double[] out = new double[2*NPOS];
+	byte[] stat = new byte[NPOS];
+	approx.transform(in, out, stat);
+	for (int k = 0; k < NPOS; k++)
+	    assertTrue(out[2*k] >= 0.0 && out[2*k] <= 360.0);
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main(
+	    "FITSWCS.tests.InterpolatedTransformTest");
+    }
+}
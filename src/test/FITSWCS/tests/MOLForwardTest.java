@@ -0,0 +1,118 @@
+/*===========================================================================
+ *
+ * Checks the Newton-Raphson solution of MOLProjection.fwd over the 
+ * full range of latitude against a reference solution that remains
+ * accurate at the poles, where the bisection of WCSLIB did not, and
+ * that rev() recovers those latitudes.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MOLForwardTest {
+
+    /**
+     * e - sin(e), summed as a series to avoid cancellation for small e
+     */
+    static double emsin(double e) {
+	double s = 0.0, t = e*e*e/6.0;
+	for (int n = 1; n < 30; n++) {
+	    s += t;
+	    t *= -e*e/((2*n+2)*(2*n+3));
+	}
+	return s;
+    }
+
+    /**
+     * the solution of v + sin(v) = pi*sin(theta) in terms of 
+     * e = pi - |v|, which satisfies e - sin(e) = 2*pi*sin^2(delta/2) 
+     * with delta = 90 - |theta|, and so stays accurate at the poles
+     */
+    static double aux(double theta) {
+	double delta = (90.0 - Math.abs(theta))*Projection.D2R;
+	double rhs = 2.0*Math.PI*Math.pow(Math.sin(delta/2.0), 2);
+	double e = Math.cbrt(6.0*rhs);
+	for (int i = 0; i < 50; i++) {
+	    double d = (emsin(e) - rhs)/(1.0 - Math.cos(e));
+	    if (Double.isNaN(d)) break;
+	    e -= d;
+	}
+	return (theta < 0.0) ? e - Math.PI : Math.PI - e;
+    }
+
+    static void check(double[] th) throws FITSWCSException {
+	MOLProjection prj = new MOLProjection();
+	double r0 = prj.getR0();
+	int npos = th.length;
+	double[] phi = new double[npos];
+	double[] x = new double[npos], y = new double[npos];
+
+	for (int k = 0; k < npos; k++) {
+	    phi[k] = -180.0 + 360.0*k/npos;
+
+	    // near the poles the error is bounded by the rounding of
+	    // pi*sin(theta) divided by the derivative 1 + cos(v)
+	    double[] xy = prj.fwd(phi[k], th[k]);
+	    double v = aux(th[k]);
+	    double dx = 1.0e-9 + 1.0e-12/(1.0 + Math.cos(v));
+	    assertEquals("x " + th[k],
+			 r0*Projection.SQRT2/90.0*phi[k]*Math.cos(v/2.0),
+			 xy[0], dx);
+	    assertEquals("y " + th[k],
+			 r0*Projection.SQRT2*Math.sin(v/2.0), xy[1], dx);
+	}
+
+	// the batch form gives the same answers
+	prj.fwd(phi, th, x, y);
+	for (int k = 0; k < npos; k++) {
+	    double[] xy = prj.fwd(phi[k], th[k]);
+	    assertEquals(xy[0], x[k], 0.0);
+	    assertEquals(xy[1], y[k], 0.0);
+	}
+    }
+
+    @Test
+    public void testAllSky() throws FITSWCSException {
+	double[] th = new double[18001];
+	for (int k = 0; k < th.length; k++) th[k] = -90.0 + 0.01*k;
+	check(th);
+    }
+
+    @Test
+    public void testPoles() throws FITSWCSException {
+	double[] th = new double[2000];
+	for (int k = 0; k < 1000; k++) {
+	    th[k]      =  90.0 - Math.pow(10.0, -k/100.0);
+	    th[k+1000] = -th[k];
+	}
+	check(th);
+    }
+
+    @Test
+    public void testReversePoles() throws FITSWCSException {
+	// rev() must not lose the latitudes that fwd() resolves near the
+	// poles, or the closure of a round trip suffers
+	MOLProjection prj = new MOLProjection();
+	for (int k = 0; k < 400; k++) {
+	    double delta = Math.pow(10.0, -k/100.0);
+	    for (int sign = -1; sign <= 1; sign += 2) {
+		double th = sign*(90.0 - delta);
+		double[] xy = prj.fwd(45.0, th);
+		double[] pt = prj.rev(xy[0], xy[1]);
+		// what remains is the rounding of pi*sin(theta) in fwd()
+		assertEquals("theta " + th, th, pt[1], 1.0e-11 +
+			     5.0e-16/(delta*Projection.D2R)*Projection.R2D);
+	    }
+	}
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.MOLForwardTest");
+    }
+}
@@ -0,0 +1,71 @@
+/*===========================================================================
+ *
+ * Checks the tabulated Newton-Raphson inverse of PCOProjection against
+ * the original weighted division of the interval, for which it can be
+ * exchanged with setTabulatedInverse().
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PCOInverseTest {
+
+    static void check(double r0) throws FITSWCSException {
+	PCOProjection prj = new PCOProjection(r0);
+	assertTrue(prj.isTabulatedInverse());
+
+	int npos = 179*359;
+	double[] phi = new double[npos], theta = new double[npos];
+	double[] x = new double[npos], y = new double[npos];
+	double[] phi1 = new double[npos], theta1 = new double[npos];
+	double[] phi2 = new double[npos], theta2 = new double[npos];
+	for (int k = 0; k < npos; k++) {
+	    phi[k] = -179.0 + k%359;
+	    theta[k] = -89.0 + k/359;
+	}
+	prj.fwd(phi, theta, x, y);
+
+	prj.rev(x, y, phi1, theta1);
+	prj.setTabulatedInverse(false);
+	prj.rev(x, y, phi2, theta2);
+	for (int k = 0; k < npos; k++) {
+	    assertEquals("theta", theta[k], theta1[k], 1.0e-10);
+	    assertEquals("phi", phi[k], phi1[k], 1.0e-10);
+	}
+
+	// the weighted division tests its residual in units of r0^2, so
+	// it is less precise for small r0
+	for (int k = 0; k < npos; k++) {
+	    assertEquals("theta", theta2[k], theta1[k], 1.0e-8);
+	    assertEquals("phi", phi2[k], phi1[k], 1.0e-8);
+	}
+
+	// the single-position form gives the same answers
+	prj.setTabulatedInverse(true);
+	for (int k = 0; k < npos; k++) {
+	    double[] pt = prj.rev(x[k], y[k]);
+	    assertEquals(pt[0], phi1[k], 0.0);
+	    assertEquals(pt[1], theta1[k], 0.0);
+	}
+    }
+
+    @Test
+    public void testDefaultRadius() throws FITSWCSException {
+	check(0.0);
+    }
+
+    @Test
+    public void testUnitRadius() throws FITSWCSException {
+	check(1.0);
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.PCOInverseTest");
+    }
+}
@@ -0,0 +1,119 @@
+/*===========================================================================
+ *
+ * Checks that ParallelBatch gives results identical to the sequential
+ * batch methods it wraps, including the exception thrown for a batch
+ * containing invalid positions.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ParallelBatchTest {
+
+    static final int N = 50000;
+    static final String[] pcodes = { "AZP", "ZPN", "AIT", "COE", "TSC" };
+
+    ParallelBatch par;
+    double[] lng, lat;
+
+    @Before
+    public void setUp() {
+	// small chunks, no cutoff, so that every batch is split
+	par = new ParallelBatch(new ForkJoinPool(4), 777, 0);
+
+	Random rnd = new Random(13L);
+	lng = new double[N];
+	lat = new double[N];
+	for (int k = 0; k < N; k++) {
+	    lng[k] = 360.0*rnd.nextDouble();
+	    lat[k] = Math.toDegrees(Math.asin(2.0*rnd.nextDouble() - 1.0));
+	}
+    }
+
+    @Test
+    public void testCelestial() throws FITSWCSException {
+	double[] ref = { 150.0, 30.0, 999.0, 999.0 };
+	double[] p = { 0.0, 0.5, 0.9, 0.0, -0.02, 0.0, 0.0, 0.0, 0.0, 0.0 };
+
+	for (int i = 0; i < pcodes.length; i++) {
+	    CelestialTransform cel = new CelestialTransform(pcodes[i], ref, p);
+	    double[] x1 = new double[N], y1 = new double[N];
+	    double[] x2 = new double[N], y2 = new double[N];
+	    byte[] stat1 = new byte[N], stat2 = new byte[N];
+
+	    cel.fwd(lng, lat, x1, y1, stat1);
+	    par.fwd(cel, N, lng, 0, lat, 0, 1, x2, 0, y2, 0, 1, stat2, 0);
+	    assertArrayEquals(pcodes[i], x1, x2, 0.0);
+	    assertArrayEquals(pcodes[i], y1, y2, 0.0);
+	    assertArrayEquals(pcodes[i], stat1, stat2);
+
+	    cel.rev(x1, y1, x1, y1, stat1);
+	    par.rev(cel, N, x2, 0, y2, 0, 1, x2, 0, y2, 0, 1, stat2, 0);
+	    assertArrayEquals(pcodes[i], x1, x2, 0.0);
+	    assertArrayEquals(pcodes[i], y1, y2, 0.0);
+	    assertArrayEquals(pcodes[i], stat1, stat2);
+	}
+    }
+
+    @Test
+    public void testFirstFailure() throws FITSWCSException {
+	CelestialTransform cel = new CelestialTransform("TAN",
+	    new double[] { 0.0, 90.0, 999.0, 999.0 }, new double[10]);
+	double[] x = new double[N], y = new double[N];
+	String msg1 = null, msg2 = null;
+
+	// TAN fails only on the native equator; put two such positions
+	// late in the batch
+	for (int k = 0; k < N; k++) lat[k] = 0.9*Math.abs(lat[k]) + 1.0;
+	lat[N-1000] = 0.0;
+	lat[N-10] = 0.0;
+
+	try {
+	    cel.fwd(lng, lat, x, y);
+	}
+	catch (InvalidCelestialCoordException ex) { msg1 = ex.getMessage(); }
+	try {
+	    par.fwd(cel, N, lng, 0, lat, 0, 1, x, 0, y, 0, 1);
+	}
+	catch (InvalidCelestialCoordException ex) { msg2 = ex.getMessage(); }
+	assertNotNull(msg1);
+	assertEquals(msg1, msg2);
+    }
+
+    @Test
+    public void testLinear() throws FITSWCSException {
+	int naxis = 3;
+	LinearTransform lin = new LinearTransform(naxis,
+	    new double[] { 10.0, 20.0, 30.0 },
+	    new double[] { 0.8, 0.2, 0.0, -0.2, 0.8, 0.1, 0.0, 0.0, 1.0 },
+	    new double[] { 0.5, 2.0, 1.5 });
+	double[] pix = new double[naxis*N];
+	for (int k = 0; k < N; k++) {
+	    pix[3*k] = lng[k];
+	    pix[3*k+1] = lat[k];
+	    pix[3*k+2] = k;
+	}
+
+	double[] img1 = new double[naxis*N], img2 = new double[naxis*N];
+	lin.rev(pix, img1);
+	par.rev(lin, N, pix, 0, naxis, img2, 0, naxis);
+	assertArrayEquals(img1, img2, 0.0);
+
+	lin.fwd(img1, img1);
+	par.fwd(lin, N, img2, 0, naxis, img2, 0, naxis);
+	assertArrayEquals(img1, img2, 0.0);
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.ParallelBatchTest");
+    }
+}
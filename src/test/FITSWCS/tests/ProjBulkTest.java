@@ -0,0 +1,249 @@
+/*===========================================================================
+ *
+ * Checks that the bulk (array) forms of Projection.fwd() and
+ * Projection.rev() agree with the single-coordinate forms for every
+ * projection exercised by FITSWCS/tests/TestProj.java, and provides the
+ * checks of batches against the single-coordinate forms shared by the
+ * tests of the batch methods of particular families of projections.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.BatchStatus;
+import FITSWCS.Projection;
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ProjBulkTest {
+
+    static Projection[] projections() throws BadProjectionParameterException {
+	double[] p = new double[10];
+	double[] zpn = { 0.00000,  0.95000, -0.02500, -0.15833,  0.00208,
+			 0.00792, -0.00007, -0.00019,  0.00000,  0.00000 };
+
+	return new Projection[] {
+	    new AZPProjection(new double[] { 0.0, 2.0 }),
+	    new TANProjection(),
+	    new SINProjection(new double[] { 0.0, 0.3, 1.5 }),
+	    new STGProjection(p),
+	    new ARCProjection(p),
+	    new ZPNProjection(zpn),
+	    new ZEAProjection(p),
+	    new AIRProjection(new double[] { 0.0, 45.0 }),
+	    new CYPProjection(new double[] { 0.0, 3.0, 0.8 }),
+	    new CARProjection(),
+	    new MERProjection(),
+	    new CEAProjection(0.75),
+	    new COPProjection(60.0, 15.0),
+	    new CODProjection(-60.0, 15.0),
+	    new COEProjection(60.0, -15.0),
+	    new COOProjection(-60.0, -15.0),
+	    new BONProjection(new double[] { 0.0, 30.0 }),
+	    new PCOProjection(p),
+	    new GLSProjection(p),
+	    new PARProjection(p),
+	    new AITProjection(p),
+	    new MOLProjection(p),
+	    new CSCProjection(p),
+	    new QSCProjection(p),
+	    new TSCProjection(p)
+	};
+    }
+
+    /**
+     * check one position from a batch forward transformation against
+     * the single-position form:  the same x and y to the bit, or NaN
+     * and PIXEL_BEYOND_PROJECTION where the single-position form throws
+     */
+    static void checkFwd(Projection prj, double phi, double theta,
+			 double x, double y, byte stat)
+    {
+	String where = prj.getProjectionCode() + " at " + phi + ", " + theta;
+	try {
+	    double[] xy = prj.fwd(phi, theta);
+	    assertEquals(where, BatchStatus.OK, stat);
+	    assertEquals(where, Double.doubleToLongBits(xy[0]),
+			 Double.doubleToLongBits(x));
+	    assertEquals(where, Double.doubleToLongBits(xy[1]),
+			 Double.doubleToLongBits(y));
+	} catch (PixelBeyondProjectionException ex) {
+	    assertEquals(where, BatchStatus.PIXEL_BEYOND_PROJECTION, stat);
+	    assertTrue(where, Double.isNaN(x) && Double.isNaN(y));
+	}
+    }
+
+    /**
+     * check one position from a batch reverse transformation against
+     * the single-position form, as checkFwd() does
+     */
+    static void checkRev(Projection prj, double x, double y,
+			 double phi, double theta, byte stat)
+    {
+	String where = prj.getProjectionCode() + " at " + x + ", " + y;
+	try {
+	    double[] pt = prj.rev(x, y);
+	    assertEquals(where, BatchStatus.OK, stat);
+	    assertEquals(where, Double.doubleToLongBits(pt[0]),
+			 Double.doubleToLongBits(phi));
+	    assertEquals(where, Double.doubleToLongBits(pt[1]),
+			 Double.doubleToLongBits(theta));
+	} catch (PixelBeyondProjectionException ex) {
+	    assertEquals(where, BatchStatus.PIXEL_BEYOND_PROJECTION, stat);
+	    assertTrue(where, Double.isNaN(phi) && Double.isNaN(theta));
+	}
+    }
+
+    /**
+     * transform phi and theta forward in one batch and check every
+     * position against the single-position form; then transform them
+     * again interleaved, in place, offset and strided, and check that
+     * the results are the same.  Return the number of positions that
+     * could be transformed.
+     */
+    static int checkFwdBatch(Projection prj, double[] phi, double[] theta) {
+	int n = phi.length, nok = 0;
+	double[] x = new double[n], y = new double[n];
+	byte[] stat = new byte[n];
+	prj.fwd(phi, theta, x, y, stat);
+	for (int k = 0; k < n; k++) {
+	    checkFwd(prj, phi[k], theta[k], x[k], y[k], stat[k]);
+	    if (stat[k] == BatchStatus.OK) nok++;
+	}
+
+	double[] buf = interleave(phi, theta);
+	byte[] stat2 = new byte[n];
+	prj.fwd(n, buf, 1, buf, 2, 3, buf, 1, buf, 2, 3, stat2, 0);
+	checkInterleaved(x, y, stat, buf, stat2);
+	return nok;
+    }
+
+    /**
+     * the same as checkFwdBatch(), for the reverse transformation of x
+     * and y
+     */
+    static int checkRevBatch(Projection prj, double[] x, double[] y) {
+	int n = x.length, nok = 0;
+	double[] phi = new double[n], theta = new double[n];
+	byte[] stat = new byte[n];
+	prj.rev(x, y, phi, theta, stat);
+	for (int k = 0; k < n; k++) {
+	    checkRev(prj, x[k], y[k], phi[k], theta[k], stat[k]);
+	    if (stat[k] == BatchStatus.OK) nok++;
+	}
+
+	double[] buf = interleave(x, y);
+	byte[] stat2 = new byte[n];
+	prj.rev(n, buf, 1, buf, 2, 3, buf, 1, buf, 2, 3, stat2, 0);
+	checkInterleaved(phi, theta, stat, buf, stat2);
+	return nok;
+    }
+
+    private static double[] interleave(double[] a, double[] b) {
+	double[] buf = new double[3*a.length+1];
+	for (int k = 0; k < a.length; k++) {
+	    buf[1+3*k] = a[k];
+	    buf[2+3*k] = b[k];
+	}
+	return buf;
+    }
+
+    private static void checkInterleaved(double[] a, double[] b, byte[] stat,
+					 double[] buf, byte[] stat2)
+    {
+	for (int k = 0; k < a.length; k++) {
+	    assertEquals(stat[k], stat2[k]);
+	    assertEquals(Double.doubleToLongBits(a[k]),
+			 Double.doubleToLongBits(buf[1+3*k]));
+	    assertEquals(Double.doubleToLongBits(b[k]),
+			 Double.doubleToLongBits(buf[2+3*k]));
+	}
+    }
+
+    /**
+     * return the n values start, start+step, start+2*step, ...
+     */
+    static double[] range(double start, double step, int n) {
+	double[] out = new double[n];
+	for (int i = 0; i < n; i++) out[i] = start + i*step;
+	return out;
+    }
+
+    /**
+     * collect the (phi, theta) grid points that the single-coordinate
+     * forms can transform in both directions, interleaved.
+     */
+    static double[] goodPoints(Projection prj) {
+	double[] buf = new double[2*73*35];
+	int n = 0;
+	for (double theta = -85.0; theta <= 85.0; theta += 5.0) {
+	    for (double phi = -180.0; phi <= 180.0; phi += 5.0) {
+		try {
+		    double[] xy = prj.fwd(phi, theta);
+		    prj.rev(xy);
+		}
+		catch (PixelBeyondProjectionException ex) { continue; }
+		buf[n++] = phi;
+		buf[n++] = theta;
+	    }
+	}
+	double[] out = new double[n];
+	System.arraycopy(buf, 0, out, 0, n);
+	return out;
+    }
+
+    @Test
+    public void testBulkMatchesSingle()
+	throws BadProjectionParameterException, PixelBeyondProjectionException
+    {
+	Projection[] prjs = projections();
+	for (int i = 0; i < prjs.length; i++) {
+	    Projection prj = prjs[i];
+	    String name = prj.getClass().getName();
+	    double[] pt = goodPoints(prj);
+	    int n = pt.length/2;
+	    assertTrue(name + ": no usable points", n > 0);
+
+	    // interleaved input, separate outputs
+	    double[] x = new double[n], y = new double[n];
+	    prj.fwd(n, pt, 0, pt, 1, 2, x, 0, y, 0, 1);
+
+	    // separate input, interleaved output
+	    double[] pt2 = new double[2*n];
+	    prj.rev(n, x, 0, y, 0, 1, pt2, 0, pt2, 1, 2);
+
+	    for (int k = 0; k < n; k++) {
+		double[] xy = prj.fwd(pt[2*k], pt[2*k+1]);
+		assertEquals(name + ": x", xy[0], x[k], 0.0);
+		assertEquals(name + ": y", xy[1], y[k], 0.0);
+
+		double[] pt1 = prj.rev(xy[0], xy[1]);
+		assertEquals(name + ": phi", pt1[0], pt2[2*k], 0.0);
+		assertEquals(name + ": theta", pt1[1], pt2[2*k+1], 0.0);
+	    }
+
+	    // in-place transformation
+	    double[] xy = new double[2*n];
+	    System.arraycopy(pt, 0, xy, 0, 2*n);
+	    prj.fwd(n, xy, 0, xy, 1, 2, xy, 0, xy, 1, 2);
+	    for (int k = 0; k < n; k++) {
+		assertEquals(name + ": in-place x", x[k], xy[2*k], 0.0);
+		assertEquals(name + ": in-place y", y[k], xy[2*k+1], 0.0);
+	    }
+	}
+    }
+
+    @Test(expected=PixelBeyondProjectionException.class)
+    public void testBulkFailure() throws PixelBeyondProjectionException {
+	double[] theta = { 45.0, 0.0, 45.0 };
+	double[] phi   = {  0.0, 0.0,  0.0 };
+	double[] x = new double[3], y = new double[3];
+	new TANProjection().fwd(phi, theta, x, y);
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.ProjBulkTest");
+    }
+}
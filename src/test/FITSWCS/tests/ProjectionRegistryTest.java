@@ -0,0 +1,120 @@
+/*===========================================================================
+ *
+ * Checks the ProjectionRegistry: the standard projections are found by
+ * code without regard to case, with the same reference latitudes and
+ * results as before, and a new projection may be registered and used
+ * through CelestialTransform.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ProjectionRegistryTest {
+
+    @Test
+    public void testStandard() throws FITSWCSException {
+	double[] p = new double[10], pcea = { 0.0, 1.0 };
+	p[1] = 45.0;
+	p[2] = 10.0;
+
+	for (int i = 0; i < ProjectionType.NTYPES; i++) {
+	    String code = ProjectionType.code[i];
+	    ProjectionRegistry.Entry e = ProjectionRegistry.lookup(code);
+	    assertNotNull(code, e);
+	    assertSame(e, ProjectionRegistry.lookup(code.toLowerCase()));
+	    assertEquals(code, e.getCode());
+	    assertEquals(i, e.getType());
+	    assertEquals(i, Projection.projectionType(code.toLowerCase()));
+	    assertEquals(code, (i <= ProjectionType.AIR) ? 90.0 : 0.0,
+			 SphericalTransform.getTheta0(code), 0.0);
+	    if (i == ProjectionType.NON) {
+		assertNull(e.getFactory());
+		continue;
+	    }
+
+	    Projection prj = Projection.getProjection(code, 2.0,
+			       (i == ProjectionType.CEA) ? pcea : p);
+	    assertEquals(code, prj.getProjectionCode());
+	    assertEquals(2.0, prj.getR0(), 0.0);
+	}
+
+	assertEquals(45.0, ProjectionRegistry.lookup("COE").getTheta0(p), 0.0);
+	assertEquals(90.0, ProjectionRegistry.lookup("TAN").getTheta0(p), 0.0);
+    }
+
+    @Test
+    public void testUnknown() {
+	assertNull(ProjectionRegistry.lookup("XYZ"));
+	assertNull(ProjectionRegistry.lookup("TA"));
+	assertNull(ProjectionRegistry.lookup("TANX"));
+	assertNull(ProjectionRegistry.lookup(null));
+	assertEquals(-1, Projection.projectionType("XYZ"));
+
+	try {
+	    Projection.getProjection("NON", null);
+	    fail("NON has no projection");
+	} catch (FITSWCSException ex) {
+	    assertTrue(ex instanceof UnsupportedProjectionException);
+	}
+	try {
+	    SphericalTransform.getTheta0("XYZ");
+	    fail("XYZ is not registered");
+	} catch (UnsupportedProjectionException ex) { }
+    }
+
+    @Test
+    public void testBadParameters() throws FITSWCSException {
+	double[] p = { 0.0, -1.0 };
+	try {
+	    Projection.getProjection("azp", p);
+	    fail("AZP mu = -1 accepted");
+	} catch (BadProjectionParameterException ex) {
+	    assertTrue(ex.getMessage().startsWith("AZP"));
+	}
+    }
+
+    @Test
+    public void testRegister() throws FITSWCSException {
+	ProjectionRegistry.register("tnx", 90.0,
+				    new ProjectionRegistry.Factory() {
+	    public Projection create(double r0, double[] p)
+		throws BadProjectionParameterException
+	    {
+		return (p == null) ? new TANProjection()
+		                   : new TANProjection(r0, p);
+	    }
+	});
+
+	ProjectionRegistry.Entry e = ProjectionRegistry.lookup("TNX");
+	assertEquals("TNX", e.getCode());
+	assertEquals(-1, e.getType());
+	assertEquals(-1, Projection.projectionType("TNX"));
+	assertEquals(90.0, SphericalTransform.getTheta0("TNX"), 0.0);
+	assertTrue(Projection.getProjection("TNX", null)
+		   instanceof TANProjection);
+
+	double[] ref = { 150.0, 30.0, 999.0, 999.0 };
+	CelestialTransform tnx = new CelestialTransform("TNX", ref, null);
+	CelestialTransform tan = new CelestialTransform("TAN", ref, null);
+	assertArrayEquals(tan.fwd(152.0, 31.0), tnx.fwd(152.0, 31.0), 0.0);
+
+	// the standard entries are still there
+	for (int i = 0; i < ProjectionType.NTYPES; i++)
+	    assertEquals(i, Projection.projectionType(ProjectionType.code[i]));
+
+	try {
+	    ProjectionRegistry.register("TN", 90.0, e.getFactory());
+	    fail("2-character code accepted");
+	} catch (IllegalArgumentException ex) { }
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.ProjectionRegistryTest");
+    }
+}
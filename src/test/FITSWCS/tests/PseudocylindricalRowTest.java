@@ -0,0 +1,85 @@
+/*===========================================================================
+ *
+ * Checks that the row-oriented transformations of the pseudocylindrical
+ * projections (GLS, PAR, AIT and MOL, with BON and PCO) give exactly the
+ * results of their single-position forms, for grids and for batches
+ * whose latitudes come in runs.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PseudocylindricalRowTest {
+
+    static PseudocylindricalProjection[] projections()
+	throws FITSWCSException
+    {
+	return new PseudocylindricalProjection[] {
+	    new GLSProjection(), new PARProjection(), new AITProjection(),
+	    new MOLProjection(), new PCOProjection(),
+	    new BONProjection(45.0), new BONProjection(-30.0),
+	    new MOLProjection(1.0), new PCOProjection(1.0)
+	};
+    }
+
+    @Test
+    public void testGrid() throws FITSWCSException {
+	double[] phi = ProjBulkTest.range(-180.0, 0.75, 481);
+	double[] theta = ProjBulkTest.range(-90.0, 0.5, 361);
+	int n = phi.length*theta.length;
+
+	for (PseudocylindricalProjection prj : projections()) {
+	    double[] x = new double[n+2], y = new double[n+2];
+	    prj.fwdGrid(phi.length, phi, 0, theta.length, theta, 0,
+			x, 2, y, 2);
+
+	    for (int j = 0, k = 2; j < theta.length; j++) {
+		for (int i = 0; i < phi.length; i++, k++)
+		    ProjBulkTest.checkFwd(prj, phi[i], theta[j], x[k], y[k],
+					  BatchStatus.OK);
+	    }
+	}
+    }
+
+    @Test
+    public void testRuns() throws FITSWCSException {
+	Random rand = new Random(51L);
+	int npos = 2000;
+	double[] phi = new double[npos], theta = new double[npos];
+	double[] special = { 90.0, -90.0, 0.0, -0.0, 1.0e-300 };
+	double th = 0.0;
+	for (int k = 0; k < npos; k++) {
+	    // runs of random lengths, some of a single position
+	    if (k == 0 || rand.nextInt(8) == 0) {
+		th = (rand.nextInt(4) == 0) ? special[rand.nextInt(5)] :
+		    180.0*rand.nextDouble() - 90.0;
+	    }
+	    phi[k] = 360.0*rand.nextDouble() - 180.0;
+	    theta[k] = th;
+	}
+
+	for (PseudocylindricalProjection prj : projections())
+	    assertEquals(npos, ProjBulkTest.checkFwdBatch(prj, phi, theta));
+    }
+
+    @Test
+    public void testUnset() {
+	double[] phi = { 10.0 }, theta = { 20.0 }, x = new double[1],
+	    y = new double[1];
+	try {
+	    new BONProjection().fwdGrid(phi, theta, x, y);
+	    fail("no exception for unset parameters");
+	} catch (UnsetProjectionParameterException ex) { }
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.PseudocylindricalRowTest");
+    }
+}
@@ -0,0 +1,193 @@
+/*===========================================================================
+ *
+ * Checks the batch transformations of the zenithal projections that use
+ * tables of R(theta) and its inverse against the exact batch
+ * transformations:  the same positions fail, and the others agree to
+ * within the stated error bound.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RadialTableTest {
+
+    static final int NPOS = 20000;
+
+    static final double TOL = ZenithalProjection.RADIAL_TOL;
+
+    static ZenithalProjection[] projections() throws FITSWCSException {
+	return new ZenithalProjection[] {
+	    new AZPProjection(0.0, 2.0), new AZPProjection(0.0, 0.5),
+	    new TANProjection(), new SINProjection(), new STGProjection(),
+	    new ARCProjection(), new ZEAProjection(),
+	    new AIRProjection(45.0), new AIRProjection(1.0, -30.0),
+	    new ZPNProjection(new double[] { 0.0, 1.0, 0.0, -0.05, 0.0,
+					     0.0, 0.0, 0.0, 0.0, 0.0 }),
+	    new ZPNProjection(new double[] { 0.0, 1.0, 0.1, 0.0, 0.0,
+					     0.0, 0.0, 0.0, 0.0, 0.0 }),
+	    new TANProjection(1.0), new ZEAProjection(1.0)
+	};
+    }
+
+    /**
+     * check that a batch using the tables agrees with the exact batch
+     */
+    static void compare(String where, double a0, double a1, byte astat,
+			double b0, double b1, byte bstat, double tol)
+    {
+	assertEquals(where, bstat, astat);
+	if (Double.isNaN(b0) || Double.isNaN(b1)) {
+	    assertTrue(where, Double.isNaN(a0) || Double.isNaN(a1));
+	} else {
+	    assertEquals(where, b0, a0, tol);
+	    assertEquals(where, b1, a1, tol);
+	}
+    }
+
+    @Test
+    public void testForward() throws FITSWCSException {
+	Random rand = new Random(31L);
+	double[] phi = new double[NPOS], theta = new double[NPOS];
+	for (int k = 0; k < NPOS; k++) {
+	    phi[k] = 360.0*rand.nextDouble() - 180.0;
+	    theta[k] = 180.0*rand.nextDouble() - 90.0;
+	}
+	theta[0] = 90.0;
+	theta[1] = -90.0;
+	theta[2] = 0.0;
+
+	for (ZenithalProjection prj : projections()) {
+	    double[] x = new double[NPOS], y = new double[NPOS];
+	    double[] xt = new double[NPOS], yt = new double[NPOS];
+	    byte[] stat = new byte[NPOS], statt = new byte[NPOS];
+	    double tol = TOL*prj.getR0()*Projection.D2R;
+
+	    prj.fwd(phi, theta, x, y, stat);
+	    prj.setRadialTable(true);
+	    assertTrue(prj.isRadialTable());
+	    prj.fwd(phi, theta, xt, yt, statt);
+
+	    for (int k = 0; k < NPOS; k++) {
+		compare(prj.getProjectionCode() + " at " + phi[k] + ", " +
+			theta[k], xt[k], yt[k], statt[k], x[k], y[k], stat[k],
+			tol);
+	    }
+
+	    // the single-position forms are unaffected
+	    for (int k = 0; k < 100; k++) {
+		if (stat[k] != BatchStatus.OK) continue;
+		double[] xy = prj.fwd(phi[k], theta[k]);
+		assertEquals(x[k], xy[0], 0.0);
+		assertEquals(y[k], xy[1], 0.0);
+	    }
+	}
+    }
+
+    @Test
+    public void testReverse() throws FITSWCSException {
+	Random rand = new Random(32L);
+	double[] xf = new double[NPOS], yf = new double[NPOS];
+	for (int k = 0; k < NPOS; k++) {
+	    xf[k] = 8.0*rand.nextDouble() - 4.0;
+	    yf[k] = 8.0*rand.nextDouble() - 4.0;
+	}
+	xf[0] = yf[0] = 0.0;
+
+	for (ZenithalProjection prj : projections()) {
+	    double[] x = new double[NPOS], y = new double[NPOS];
+	    for (int k = 0; k < NPOS; k++) {
+		x[k] = xf[k]*prj.getR0();
+		y[k] = yf[k]*prj.getR0();
+	    }
+
+	    double[] phi = new double[NPOS], theta = new double[NPOS];
+	    double[] phit = new double[NPOS], thetat = new double[NPOS];
+	    byte[] stat = new byte[NPOS], statt = new byte[NPOS];
+	    prj.setRadialTable(false);
+	    prj.rev(x, y, phi, theta, stat);
+	    prj.setRadialTable(true);
+	    prj.rev(x, y, phit, thetat, statt);
+
+	    int ndiff = 0;
+	    for (int k = 0; k < NPOS; k++) {
+		compare(prj.getProjectionCode() + " at " + x[k] + ", " + y[k],
+			phit[k], thetat[k], statt[k], phi[k], theta[k], stat[k],
+			TOL);
+		if (thetat[k] != theta[k]) ndiff++;
+	    }
+
+	    // the table was actually used
+	    assertTrue(prj.getProjectionCode(), ndiff > 0);
+	}
+    }
+
+    @Test
+    public void testException() throws FITSWCSException {
+	SINProjection prj = new SINProjection();
+	prj.setRadialTable(true);
+
+	double[] x = { 10.0, -20.0, 30.0, 80.0, 0.0 };
+	double[] y = { 10.0, 5.0, -40.0, 80.0, 0.0 };
+	double[] phi = new double[5], theta = new double[5];
+	java.util.Arrays.fill(phi, -999.0);
+	try {
+	    prj.rev(x, y, phi, theta);
+	    fail("no exception beyond the edge of the projection");
+	} catch (PixelBeyondProjectionException ex) {
+	    assertEquals("SIN: (x,y) = (80.0, 80.0)", ex.getMessage());
+	}
+
+	// the positions before the failure were written
+	for (int k = 0; k < 3; k++) {
+	    double[] pt = prj.rev(x[k], y[k]);
+	    assertEquals(pt[0], phi[k], 1.0e-12);
+	    assertEquals(pt[1], theta[k], TOL);
+	}
+	assertEquals(-999.0, phi[3], 0.0);
+    }
+
+    @Test
+    public void testParameters() throws FITSWCSException {
+	double[] x = { 10.0, 50.0, 100.0, 150.0 }, y = { -5.0, 0.0, 5.0, 20.0 };
+	double[] phi = new double[4], theta = new double[4];
+
+	// the tables follow changes to the projection parameters
+	AIRProjection air = new AIRProjection(45.0);
+	air.setRadialTable(true);
+	air.rev(x, y, phi, theta);
+	air.setProjParm(new double[] { 0.0, -20.0 });
+	air.rev(x, y, phi, theta);
+	for (int k = 0; k < 4; k++)
+	    assertEquals(air.rev(x[k], y[k])[1], theta[k], TOL);
+
+	// a SIN projection that is not radial is always computed exactly
+	SINProjection sin = new SINProjection(0.2, -0.1);
+	sin.setRadialTable(true);
+	double[] xs = { 10.0, 20.0, -30.0, 0.0 }, ys = { 15.0, -5.0, 0.0, 0.0 };
+	sin.rev(xs, ys, phi, theta);
+	for (int k = 0; k < 4; k++) {
+	    double[] pt = sin.rev(xs[k], ys[k]);
+	    assertEquals(pt[0], phi[k], 0.0);
+	    assertEquals(pt[1], theta[k], 0.0);
+	}
+
+	// and so is a projection whose parameters are not yet set
+	ZPNProjection zpn = new ZPNProjection();
+	zpn.setRadialTable(true);
+	try {
+	    zpn.rev(xs, ys, phi, theta);
+	    fail("no exception for unset parameters");
+	} catch (UnsetProjectionParameterException ex) { }
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.RadialTableTest");
+    }
+}
@@ -0,0 +1,136 @@
+/*===========================================================================
+ *
+ * Checks the seeded batch transformations of the projections that solve
+ * iteratively (ZPN, AIR, PCO in reverse; MOL forward): on a raster they
+ * must give the same results as the unseeded forms for no more work.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SeededSolveTest {
+
+    static final int NX = 200, NPOS = NX*NX;
+
+    /**
+     * return {x, y} for a raster of NX by NX positions of the given
+     * spacing with its first corner at (x0,y0)
+     */
+    static double[][] raster(double x0, double y0, double step) {
+	double[][] out = new double[2][NPOS];
+	for (int k = 0; k < NPOS; k++) {
+	    out[0][k] = x0 + step*(k%NX);
+	    out[1][k] = y0 + step*(k/NX);
+	}
+	return out;
+    }
+
+    static void compare(double[] a1, double[] a2, double[] b1, double[] b2,
+			SolverStats plain, SolverStats seeded)
+    {
+	assertArrayEquals(a1, a2, 1.0e-10);
+	assertArrayEquals(b1, b2, 1.0e-10);
+
+	assertEquals(plain.getSolves(), seeded.getSolves());
+	assertEquals(0, plain.getSeeded());
+	assertTrue(seeded.getSeeded() > seeded.getSolves()*9/10);
+
+	// AIR already starts within a step of the solution, so seeding
+	// need not save anything there, but it must not cost much either
+	assertTrue(seeded.getIterations() <= 
+		   plain.getIterations() + plain.getSolves()/100);
+    }
+
+    static void checkRev(Projection prj, double[][] xy)
+	throws FITSWCSException
+    {
+	double[] phi1 = new double[NPOS], theta1 = new double[NPOS];
+	double[] phi2 = new double[NPOS], theta2 = new double[NPOS];
+	byte[] stat1 = new byte[NPOS], stat2 = new byte[NPOS];
+	SolverStats plain = new SolverStats(), seeded = new SolverStats();
+
+	if (prj instanceof ZPNProjection) {
+	    ZPNProjection zpn = (ZPNProjection) prj;
+	    zpn.rev(NPOS, xy[0], 0, xy[1], 0, 1, phi1, 0, theta1, 0, 1,
+		    stat1, 0, false, plain);
+	    zpn.rev(NPOS, xy[0], 0, xy[1], 0, 1, phi2, 0, theta2, 0, 1,
+		    stat2, 0, true, seeded);
+	} else if (prj instanceof AIRProjection) {
+	    AIRProjection air = (AIRProjection) prj;
+	    air.rev(NPOS, xy[0], 0, xy[1], 0, 1, phi1, 0, theta1, 0, 1,
+		    stat1, 0, false, plain);
+	    air.rev(NPOS, xy[0], 0, xy[1], 0, 1, phi2, 0, theta2, 0, 1,
+		    stat2, 0, true, seeded);
+	} else {
+	    PCOProjection pco = (PCOProjection) prj;
+	    pco.rev(NPOS, xy[0], 0, xy[1], 0, 1, phi1, 0, theta1, 0, 1,
+		    stat1, 0, false, plain);
+	    pco.rev(NPOS, xy[0], 0, xy[1], 0, 1, phi2, 0, theta2, 0, 1,
+		    stat2, 0, true, seeded);
+	}
+
+	assertArrayEquals(stat1, stat2);
+	compare(phi1, phi2, theta1, theta2, plain, seeded);
+
+	// the ordinary batch form gives the same answers
+	prj.rev(xy[0], xy[1], phi1, theta1, stat1);
+	assertArrayEquals(stat1, stat2);
+	assertArrayEquals(phi1, phi2, 1.0e-10);
+	assertArrayEquals(theta1, theta2, 1.0e-10);
+    }
+
+    @Test
+    public void testZPN() throws FITSWCSException {
+	double[] p = { 0.00000,  0.95000, -0.02500, -0.15833,  0.00208,
+		       0.00792, -0.00007, -0.00019,  0.00000,  0.00000 };
+	checkRev(new ZPNProjection(p), raster(20.0, 10.0, 0.01));
+    }
+
+    @Test
+    public void testAIR() throws FITSWCSException {
+	checkRev(new AIRProjection(45.0), raster(20.0, 10.0, 0.01));
+    }
+
+    @Test
+    public void testPCO() throws FITSWCSException {
+	checkRev(new PCOProjection(), raster(20.0, 10.0, 0.01));
+    }
+
+    @Test
+    public void testMOL() {
+	MOLProjection prj = new MOLProjection();
+	double[][] pt = raster(-100.0, -89.5, 0.9);
+	double[] x1 = new double[NPOS], y1 = new double[NPOS];
+	double[] x2 = new double[NPOS], y2 = new double[NPOS];
+	byte[] stat = new byte[NPOS];
+	SolverStats plain = new SolverStats(), seeded = new SolverStats();
+
+	prj.fwd(NPOS, pt[0], 0, pt[1], 0, 1, x1, 0, y1, 0, 1,
+		stat, 0, false, plain);
+	prj.fwd(NPOS, pt[0], 0, pt[1], 0, 1, x2, 0, y2, 0, 1,
+		stat, 0, true, seeded);
+	compare(x1, x2, y1, y2, plain, seeded);
+	assertTrue(seeded.getIterations() < plain.getIterations());
+    }
+
+    @Test(expected=PixelBeyondProjectionException.class)
+    public void testNullStat() throws FITSWCSException {
+	double[] x = { 0.0, 1000.0 }, y = { 10.0, 1000.0 };
+	double[] phi = new double[2], theta = new double[2];
+	double[] p = { 0.00000,  0.95000, -0.02500, -0.15833,  0.00208,
+		       0.00792, -0.00007, -0.00019,  0.00000,  0.00000 };
+
+	new ZPNProjection(p).rev(2, x, 0, y, 0, 1, phi, 0, theta, 0, 1,
+				 null, 0, true, null);
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.SeededSolveTest");
+    }
+}
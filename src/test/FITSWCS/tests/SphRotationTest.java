@@ -0,0 +1,133 @@
+/*===========================================================================
+ *
+ * Checks the rotation-matrix engine of SphericalTransform against the
+ * Euler angle engine and for closure, to the tolerance used by
+ * FITSWCS/tests/TestSph.java.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SphRotationTest {
+
+    static final double tol = 1.0e-12;
+
+    static double[][] eulers() {
+	double[][] ang = { {  90.0,  30.0, -90.0 },
+			   {   0.0,   0.0, 180.0 },
+			   { 150.0, 120.0,  37.5 },
+			   { -45.0, 180.0,   0.0 },
+			   { 266.4,  61.3, 192.9 } };
+	double[][] out = new double[ang.length][5];
+	for (int i = 0; i < ang.length; i++) {
+	    System.arraycopy(ang[i], 0, out[i], 0, 3);
+	    out[i][3] = TrigD.cos(ang[i][1]);
+	    out[i][4] = TrigD.sin(ang[i][1]);
+	}
+	return out;
+    }
+
+    /**
+     * the TestSph grid plus its near-pole points
+     */
+    static double[][] grid() {
+	int n = 0;
+	double[][] out = new double[2][181*361 + 24];
+	for (int lat = 90; lat >= -90; lat--) {
+	    for (int lng = -180; lng <= 180; lng++) {
+		out[0][n] = lng;
+		out[1][n++] = lat;
+	    }
+	}
+	for (int j = -1; j <= 1; j += 2) {
+	    double zeta = 1.0, lng1 = -180.0;
+	    for (int i = 0; i < 12; i++) {
+		out[0][n] = lng1;
+		out[1][n++] = j*(90.0 - zeta);
+		zeta /= 10.0;
+		lng1 += 30.0;
+	    }
+	}
+	return out;
+    }
+
+    static void assertSameLng(String msg, double lng1, double lng2,
+			      double lat)
+    {
+	double d = Math.abs(Math.IEEEremainder(lng1 - lng2, 360.0));
+	assertTrue(msg + ": " + lng1 + " != " + lng2,
+		   d*Math.cos(Math.toRadians(lat)) <= tol);
+    }
+
+    @Test
+    public void testAgreesWithEuler() {
+	double[][] eul = eulers();
+	double[][] pt = grid();
+	int n = pt[0].length;
+	double[] phi1 = new double[n], theta1 = new double[n];
+	double[] phi2 = new double[n], theta2 = new double[n];
+	double[] lng = new double[n], lat = new double[n];
+
+	for (int i = 0; i < eul.length; i++) {
+	    double[] rot = SphericalTransform.getRotationMatrix(eul[i]);
+	    SphericalTransform.fwd(n, pt[0], 0, pt[1], 0, 1, phi1, 0,
+				   theta1, 0, 1, eul[i], null, 0);
+	    SphericalTransform.fwdMatrix(n, pt[0], 0, pt[1], 0, 1, phi2, 0,
+					 theta2, 0, 1, rot, null, 0);
+	    SphericalTransform.revMatrix(n, phi2, 0, theta2, 0, 1, lng, 0,
+					 lat, 0, 1, rot, eul[i][0], null, 0);
+	    for (int k = 0; k < n; k++) {
+		String msg = "eul " + i + " at " + pt[0][k] + "," + pt[1][k];
+		assertEquals(msg, theta1[k], theta2[k], tol);
+		assertSameLng(msg, phi1[k], phi2[k], theta1[k]);
+
+		// closure
+		assertEquals(msg, pt[1][k], lat[k], tol);
+		assertSameLng(msg, pt[0][k], lng[k], lat[k]);
+		if (eul[i][0] >= 0.0)
+		    assertTrue(msg, lng[k] >= 0.0 && lng[k] <= 360.0);
+		else
+		    assertTrue(msg, lng[k] <= 0.0 && lng[k] >= -360.0);
+	    }
+	}
+    }
+
+    @Test
+    public void testCosines() {
+	SphericalTransform sph = new SphericalTransform(eulers()[4]);
+	double[][] pt = grid();
+	int n = pt[0].length;
+	double[] phi1 = new double[n], theta1 = new double[n];
+	double[] phi2 = new double[n], theta2 = new double[n];
+	double[] cel = new double[3*n], nat = new double[3*n];
+
+	for (int k = 0; k < n; k++) {
+	    double coslat = TrigD.cos(pt[1][k]);
+	    cel[3*k]   = coslat*TrigD.cos(pt[0][k]);
+	    cel[3*k+1] = coslat*TrigD.sin(pt[0][k]);
+	    cel[3*k+2] = TrigD.sin(pt[1][k]);
+	}
+
+	sph.fwdMatrix(n, pt[0], 0, pt[1], 0, 1, phi1, 0, theta1, 0, 1);
+	sph.fwdCosines(n, cel, 0, 3, phi2, 0, theta2, 0, 1);
+	assertArrayEquals(phi1, phi2, 0.0);
+	assertArrayEquals(theta1, theta2, 0.0);
+
+	// back to celestial vectors, both ways
+	sph.revCosines(n, phi2, 0, theta2, 0, 1, nat, 0, 3);
+	assertArrayEquals(cel, nat, 1.0e-14);
+
+	double[] rot = sph.getRotationMatrix();
+	SphericalTransform.rotate(n, cel, 0, 3, nat, 0, 3, rot, false);
+	SphericalTransform.rotate(n, nat, 0, 3, nat, 0, 3, rot, true);
+	assertArrayEquals(cel, nat, 1.0e-15);
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.SphRotationTest");
+    }
+}
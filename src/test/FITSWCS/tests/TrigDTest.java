@@ -0,0 +1,47 @@
+/*===========================================================================
+ *
+ * Checks that TrigD.sincos() agrees with TrigD.sin() and TrigD.cos()
+ * and returns exact results for multiples of 90 degrees.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.TrigD;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TrigDTest {
+
+    @Test
+    public void testMatchesSinCos() {
+	double[] sc = new double[2];
+	for (double a = -1000.0; a <= 1000.0; a += 0.625) {
+	    if (Math.IEEEremainder(a, 90.0) == 0.0) continue;
+	    TrigD.sincos(a, sc);
+	    assertEquals("sin " + a, TrigD.sin(a), sc[0], 0.0);
+	    assertEquals("cos " + a, TrigD.cos(a), sc[1], 0.0);
+	}
+
+	TrigD.sincos(Double.NaN, sc);
+	assertTrue(Double.isNaN(sc[0]) && Double.isNaN(sc[1]));
+    }
+
+    @Test
+    public void testExact() {
+	double[] sc = new double[2];
+	double[] sin = { 0.0, 1.0, 0.0, -1.0 };
+	double[] cos = { 1.0, 0.0, -1.0, 0.0 };
+	for (int k = -12; k <= 12; k++) {
+	    int q = ((k % 4) + 4) % 4;
+	    TrigD.sincos(90.0*k, sc);
+	    assertEquals("sin " + 90*k, sin[q], sc[0], 0.0);
+	    assertEquals("cos " + 90*k, cos[q], sc[1], 0.0);
+	    assertEquals("cos " + 90*k, TrigD.cos(90.0*k), sc[1], 0.0);
+	}
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.TrigDTest");
+    }
+}
@@ -0,0 +1,112 @@
+/*===========================================================================
+ *
+ * Checks the approximate TrigProvider implementations against their
+ * documented error bounds, and that a provider chosen for one
+ * transformation is used by it alone.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TrigProviderTest {
+
+    static void checkBounds(TrigProvider trig, double sctol, double atol) {
+	String name = trig.getClass().getName();
+	double[] sc = new double[2];
+	java.util.Random rnd = new java.util.Random(17L);
+
+	for (int i = 0; i < 200000; i++) {
+	    double a = 1440.0*(rnd.nextDouble() - 0.5);
+	    trig.sincos(a, sc);
+	    assertEquals(name + ": sin " + a, Math.sin(a*TrigD.d2r), sc[0], sctol);
+	    assertEquals(name + ": cos " + a, Math.cos(a*TrigD.d2r), sc[1], sctol);
+
+	    double y = rnd.nextGaussian(), x = rnd.nextGaussian();
+	    assertEquals(name + ": atan2", TrigD.atan2(y, x),
+			 trig.atan2(y, x), atol);
+
+	    double v = 1.8*rnd.nextDouble() - 0.9;
+	    assertEquals(name + ": asin", TrigD.asin(v), trig.asin(v), atol);
+	    assertEquals(name + ": acos", TrigD.acos(v), trig.acos(v), atol);
+	}
+
+	// multiples of 90 degrees are exact
+	for (int k = -8; k <= 8; k++) {
+	    trig.sincos(90.0*k, sc);
+	    assertEquals(name + ": cos " + 90*k, TrigD.cos(90.0*k), sc[1], 0.0);
+	    assertEquals(name + ": sin " + 90*k,
+			 Math.rint(Math.sin(90.0*k*TrigD.d2r)), sc[0], 0.0);
+	}
+	assertEquals(180.0, trig.atan2(0.0, -1.0), 0.0);
+	assertEquals(-90.0, trig.atan2(-1.0, 0.0), 0.0);
+	assertEquals(90.0, trig.asin(1.0), 0.0);
+	assertTrue(Double.isNaN(trig.asin(1.5)));
+
+	trig.sincos(Double.NaN, sc);
+	assertTrue(Double.isNaN(sc[0]) && Double.isNaN(sc[1]));
+    }
+
+    @Test
+    public void testPolynomial() {
+	checkBounds(TrigProvider.FAST, 2.0e-9, 1.0e-10);
+    }
+
+    @Test
+    public void testTable() {
+	checkBounds(TrigProvider.TABLE, 4.0e-8, 2.0e-6);
+    }
+
+    @Test
+    public void testCelestialTransform() throws FITSWCSException {
+	double[] ref = { 150.0, 30.0, 999.0, 999.0 };
+	double[] p = new double[10];
+	CelestialTransform exact = new CelestialTransform("TAN", ref, p);
+	CelestialTransform fast =
+	    new CelestialTransform("TAN", ref, 0.0, p, TrigProvider.FAST);
+
+	assertSame(TrigProvider.EXACT, exact.getTrigProvider());
+	assertSame(TrigProvider.EXACT, exact.getProjection().getTrigProvider());
+	assertSame(TrigProvider.FAST, fast.getTrigProvider());
+	assertSame(TrigProvider.FAST, fast.getProjection().getTrigProvider());
+	assertSame(TrigProvider.FAST, ImmutableCelestialTransform.copyOf(fast)
+		   .getProjection().getTrigProvider());
+
+	for (double lat = 0.0; lat <= 60.0; lat += 5.0) {
+	    for (double lng = 110.0; lng <= 190.0; lng += 5.0) {
+		double[] xy0 = exact.fwd(lng, lat);
+		double[] xy = fast.fwd(lng, lat);
+		assertEquals(xy0[0], xy[0], 1.0e-6);
+		assertEquals(xy0[1], xy[1], 1.0e-6);
+
+		double[] ll = fast.rev(xy[0], xy[1]);
+		assertEquals(lng, ll[0], 1.0e-6);
+		assertEquals(lat, ll[1], 1.0e-6);
+	    }
+	}
+    }
+
+    @Test
+    public void testSphericalTransform() throws FITSWCSException {
+	SphericalTransform exact =
+	    new SphericalTransform(new double[] { 150.0, 30.0, 999.0, 999.0 },
+				   "TAN");
+	SphericalTransform table =
+	    new SphericalTransform(exact, TrigProvider.TABLE);
+	assertSame(TrigProvider.TABLE, table.getTrigProvider());
+	assertSame(TrigProvider.EXACT, exact.getTrigProvider());
+
+	double[] pt0 = exact.fwd(160.0, 20.0);
+	double[] pt = table.fwd(160.0, 20.0);
+	assertEquals(pt0[0], pt[0], 1.0e-5);
+	assertEquals(pt0[1], pt[1], 1.0e-5);
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.TrigProviderTest");
+    }
+}
@@ -0,0 +1,244 @@
+/*===========================================================================
+ *
+ * Checks that the WCS pipeline agrees with LinearTransform and
+ * CelestialTransform applied by hand, for a 3-axis image whose
+ * celestial axes are not the first two.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class WCSTest {
+
+    static final String[] ctype = { "DEC--SIN", "FREQ", "RA---SIN" };
+    static final double[] crval = { -30.0, 1.4e9, 150.0 };
+    static final double[] crpix = { 64.5, 1.0, 128.5 };
+    static final double[] cdelt = { 0.01, 1.0e5, -0.01 };
+    static final double[] pc = {  0.9, 0.0, 0.1,
+				   0.0, 1.0, 0.0,
+				  -0.1, 0.0, 0.9 };
+    WCS wcs;
+    LinearTransform lin;
+    CelestialTransform cel;
+
+    @Before
+    public void setUp() throws FITSWCSException {
+	wcs = new WCS(ctype, crval, crpix, pc, cdelt, 999.0, 999.0,
+		      new double[10]);
+	lin = new LinearTransform(3, crpix, pc, cdelt);
+	cel = new CelestialTransform("SIN",
+				     new double[] { 150.0, -30.0, 999.0, 999.0 },
+				     new double[10]);
+    }
+
+    double[] byHand(double[] pix) throws InvalidCelestialTransformException {
+	double[] img = lin.rev(pix);
+	double[] lnglat = cel.rev(img[2], img[0]);
+	return new double[] { lnglat[1], img[1] + crval[1], lnglat[0] };
+    }
+
+    @Test
+    public void testAxes() {
+	assertEquals(3, wcs.getNaxis());
+	assertEquals(2, wcs.getLngAxis());
+	assertEquals(0, wcs.getLatAxis());
+	assertEquals("SIN", wcs.getProjectionCode());
+    }
+
+    @Test
+    public void testMatchesByHand() throws InvalidCelestialTransformException {
+	int n = 0;
+	double[] pix = new double[3*100];
+	for (int i = 0; i < 10; i++) {
+	    for (int j = 0; j < 10; j++) {
+		pix[n++] = 13.0*i;
+		pix[n++] = i - j;
+		pix[n++] = 25.0*j;
+	    }
+	}
+	double[] world = new double[pix.length];
+	wcs.rev(pix, world);
+
+	for (int k = 0; k < 100; k++) {
+	    double[] p = { pix[3*k], pix[3*k+1], pix[3*k+2] };
+	    double[] w = byHand(p);
+	    double[] w1 = wcs.rev(p);
+	    for (int i = 0; i < 3; i++) {
+		assertEquals(w[i], world[3*k+i], 0.0);
+		assertEquals(w[i], w1[i], 0.0);
+	    }
+
+	    // and back again
+	    double[] p1 = wcs.fwd(w1);
+	    assertArrayEquals(p, p1, 1.0e-8);
+	}
+
+	// in place, with the positions spread out
+	double[] buf = new double[4*100];
+	for (int k = 0; k < 100; k++) {
+	    System.arraycopy(pix, 3*k, buf, 4*k+1, 3);
+	}
+	wcs.rev(100, buf, 1, 4, buf, 1, 4);
+	wcs.fwd(100, buf, 1, 4, buf, 1, 4);
+	for (int k = 0; k < 100; k++) {
+	    for (int i = 0; i < 3; i++) {
+		assertEquals(pix[3*k+i], buf[4*k+1+i], 1.0e-8);
+	    }
+	}
+    }
+
+    @Test
+    public void testStatus() throws InvalidCelestialTransformException {
+	double[] pix = { 64.5,       1.0, 128.5,
+			 64.5+9000.0, 1.0, 128.5,
+			 Double.NaN, 1.0, 128.5 };
+	double[] world = new double[9];
+	byte[] stat = new byte[3];
+	wcs.rev(pix, world, stat);
+	assertEquals(BatchStatus.OK, stat[0]);
+	assertEquals(BatchStatus.INVALID_MAP_COORD, stat[1]);
+	assertEquals(BatchStatus.UNDEFINED, stat[2]);
+	assertEquals(-30.0, world[0], 1.0e-10);
+	assertEquals(150.0, world[2], 1.0e-10);
+	for (int i = 3; i < 9; i++) assertTrue(Double.isNaN(world[i]));
+
+	try {
+	    wcs.rev(pix, world);
+	    fail("no exception thrown");
+	}
+	catch (InvalidMapCoordException ex) { }
+    }
+
+    @Test
+    public void testChunks() throws InvalidCelestialTransformException {
+
+	// more than one chunk, and not a whole number of them, with some
+	// pixels beyond the edge of the projected sky
+	int n = 1000;
+	double[] pix = new double[3*n];
+	for (int k = 0; k < n; k++) {
+	    pix[3*k]   = 64.5 + 7.0*(k % 40) - 100.0;
+	    pix[3*k+1] = k % 7;
+	    pix[3*k+2] = 128.5 + 8.0*(k / 40) - 100.0;
+	}
+	pix[3*300] = 64.5 + 9000.0;
+	pix[3*500+1] = Double.NaN;
+
+	double[] world = new double[3*n];
+	byte[] stat = new byte[n];
+	wcs.rev(pix, world, stat);
+	int first = -1;
+	for (int k = 0; k < n; k++) {
+	    double[] p = { pix[3*k], pix[3*k+1], pix[3*k+2] };
+	    if (k == 500) {
+		assertEquals(BatchStatus.UNDEFINED, stat[k]);
+		continue;
+	    }
+	    try {
+		double[] w = wcs.rev(p);
+		assertEquals(BatchStatus.OK, stat[k]);
+		for (int i = 0; i < 3; i++)
+		    assertEquals(w[i], world[3*k+i], 0.0);
+	    }
+	    catch (InvalidMapCoordException ex) {
+		assertEquals(BatchStatus.INVALID_MAP_COORD, stat[k]);
+		for (int i = 0; i < 3; i++)
+		    assertTrue(Double.isNaN(world[3*k+i]));
+		if (first < 0) first = k;
+	    }
+	}
+	assertEquals(300, first);
+
+	// in place and back again
+	double[] buf = new double[4*n];
+	for (int k = 0; k < n; k++) {
+	    System.arraycopy(world, 3*k, buf, 4*k+1, 3);
+	}
+	byte[] stat2 = new byte[n];
+	wcs.fwd(n, buf, 1, 4, buf, 1, 4, stat2, 0);
+	for (int k = 0; k < n; k++) {
+	    if (stat[k] != BatchStatus.OK) {
+		assertEquals(BatchStatus.UNDEFINED, stat2[k]);
+		continue;
+	    }
+	    double[] p = wcs.fwd(new double[] { world[3*k], world[3*k+1],
+						world[3*k+2] });
+	    assertEquals(BatchStatus.OK, stat2[k]);
+	    for (int i = 0; i < 3; i++)
+		assertEquals(p[i], buf[4*k+1+i], 0.0);
+	}
+
+	// the throwing form writes the positions before the first failure
+	// and no others
+	double[] world2 = new double[3*n];
+	java.util.Arrays.fill(world2, -999.0);
+	try {
+	    wcs.rev(pix, world2);
+	    fail("no exception thrown");
+	}
+	catch (InvalidMapCoordException ex) { }
+	for (int k = 0; k < 3*first; k++)
+	    assertEquals(world[k], world2[k], 0.0);
+	for (int k = 3*first; k < 3*n; k++)
+	    assertEquals(-999.0, world2[k], 0.0);
+    }
+
+    @Test
+    public void testGrid() throws InvalidCelestialTransformException {
+	int nx = 41, ny = 31;
+	double[][] world = new double[3][nx*ny];
+	double[] pix = { 0.0, 3.0, 0.0 };
+	wcs.revGrid(pix, 2, -20, 20, 0, 50, 80, world);
+
+	for (int y = 50; y <= 80; y++) {
+	    for (int x = -20; x <= 20; x++) {
+		int k = (y-50)*nx + (x+20);
+		double[] w = wcs.rev(new double[] { y, 3.0, x });
+		for (int i = 0; i < 3; i++) {
+		    assertEquals(w[i], world[i][k], 1.0e-9*Math.abs(w[i]));
+		}
+	    }
+	}
+
+	// a region running off the sky, with only the celestial planes
+	byte[] stat = new byte[nx*ny];
+	world[1] = null;
+	wcs.revGrid(pix, 2, -20, 20, 0, 9000, 9030, world, stat);
+	int nbad = 0;
+	for (int k = 0; k < nx*ny; k++) {
+	    if (stat[k] == BatchStatus.OK) continue;
+	    assertEquals(BatchStatus.INVALID_MAP_COORD, stat[k]);
+	    assertTrue(Double.isNaN(world[0][k]) && Double.isNaN(world[2][k]));
+	    nbad++;
+	}
+	assertEquals(nx*ny, nbad);
+    }
+
+    @Test(expected=BadReferenceParameterException.class)
+    public void testUnpaired() throws FITSWCSException {
+	new WCS(new String[] { "RA---TAN", "FREQ" }, crval, crpix, null,
+		cdelt, 999.0, 999.0, new double[10]);
+    }
+
+    @Test
+    public void testLinearOnly() throws FITSWCSException {
+	WCS w = new WCS(new String[] { "FREQ", "STOKES" },
+			new double[] { 1.4e9, 1.0 }, new double[] { 1.0, 1.0 },
+			null, new double[] { 1.0e5, 1.0 },
+			999.0, 999.0, null);
+	assertEquals(-1, w.getLngAxis());
+	double[] world = w.rev(new double[] { 11.0, 2.0 });
+	assertEquals(1.401e9, world[0], 1.0e-3);
+	assertEquals(2.0, world[1], 0.0);
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.WCSTest");
+    }
+}
@@ -0,0 +1,140 @@
+/*===========================================================================
+ *
+ * Checks the tabulated Newton-Raphson inverse of ZPNProjection against
+ * the weighted bisection of WCSLIB, from which it was derived, over the
+ * whole range of radius up to the point of inflection.
+ *===========================================================================*/
+
+package FITSWCS.tests;
+
+import FITSWCS.*;
+import FITSWCS.exceptions.*;
+import FITSWCS.projections.*;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ZPNInverseTest {
+
+    static final double tol = 1.0e-13;
+
+    static double poly(double[] p, double zd) {
+	double r = 0.0;
+	for (int j = 9; j >= 0; j--) r = r*zd + p[j];
+	return r;
+    }
+
+    static double deriv(double[] p, double zd) {
+	double d = 0.0;
+	for (int j = 9; j > 0; j--) d = d*zd + j*p[j];
+	return d;
+    }
+
+    /**
+     * the original WCSLIB solution for r in [p[0],w1]
+     */
+    static double bisect(double[] p, double r, double w0, double w1) {
+	double zd1 = 0.0, r1 = p[0], zd2 = w0, r2 = w1, zd = 0.0;
+
+	for (int j = 0; j < 100; j++) {
+	    double lambda = (r2 - r)/(r2 - r1);
+	    if (lambda < 0.1) {
+		lambda = 0.1;
+	    } else if (lambda > 0.9) {
+		lambda = 0.9;
+	    }
+	    zd = zd2 - lambda*(zd2 - zd1);
+
+	    double rt = poly(p, zd);
+	    if (rt < r) {
+		if (r-rt < tol) break;
+		r1 = rt;
+		zd1 = zd;
+	    } else {
+		if (rt-r < tol) break;
+		r2 = rt;
+		zd2 = zd;
+	    }
+	    if (Math.abs(zd2-zd1) < tol) break;
+	}
+	return zd;
+    }
+
+    static void check(double[] p) throws FITSWCSException {
+	ZPNProjection prj = new ZPNProjection(p);
+	double r0 = prj.getR0();
+
+	// locate the point of inflection, where the derivative vanishes
+	double zd1 = 0.0, zd2 = Math.PI;
+	for (double zd = 0.0; zd < Math.PI; zd += 0.01) {
+	    if (deriv(p, zd) <= 0.0) {
+		zd2 = zd;
+		break;
+	    }
+	    zd1 = zd;
+	}
+	if (zd2 < Math.PI) {
+	    for (int i = 0; i < 100; i++) {
+		double zd = 0.5*(zd1 + zd2);
+		if (deriv(p, zd) > 0.0) {
+		    zd1 = zd;
+		} else {
+		    zd2 = zd;
+		}
+	    }
+	}
+	double w0 = zd2, w1 = poly(p, w0);
+
+	int npos = 20000;
+	double[] x = new double[npos], y = new double[npos];
+	double[] phi = new double[npos], theta = new double[npos];
+	for (int k = 0; k < npos; k++) {
+	    double r = p[0] + (w1 - p[0])*k/(npos - 1.0);
+	    x[k] = r0*r*Math.sin(0.37*k);
+	    y[k] = -r0*r*Math.cos(0.37*k);
+
+	    double[] pt = prj.rev(x[k], y[k]);
+	    double zd = (90.0 - pt[1])*Projection.D2R;
+	    double zd0 = bisect(p, r, w0, w1);
+	    assertEquals("r " + r, r, poly(p, zd), 2.0*tol);
+	    assertEquals("zd " + r, zd0, zd, 1.0e-6);
+	    assertEquals("zd " + r, zd0, zd,
+			 1.0e-9 + 1.0e-11/Math.abs(poly(p, zd+1e-6) - r));
+	}
+
+	// the batch form gives the same answers
+	prj.rev(x, y, phi, theta);
+	for (int k = 0; k < npos; k++) {
+	    double[] pt = prj.rev(x[k], y[k]);
+	    assertEquals(pt[0], phi[k], 0.0);
+	    assertEquals(pt[1], theta[k], 0.0);
+	}
+
+	// beyond the point of inflection
+	try {
+	    prj.rev(0.0, -r0*(w1 + 1.0e-6));
+	    fail("no exception beyond the point of inflection");
+	}
+	catch (PixelBeyondProjectionException ex) { }
+    }
+
+    @Test
+    public void testTestProjParms() throws FITSWCSException {
+	check(new double[] { 0.00000,  0.95000, -0.02500, -0.15833,  0.00208,
+			     0.00792, -0.00007, -0.00019,  0.00000,  0.00000 });
+    }
+
+    @Test
+    public void testCubic() throws FITSWCSException {
+	check(new double[] { 0.0, 1.0, 0.0, -0.2, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0 });
+    }
+
+    @Test
+    public void testMonotonic() throws FITSWCSException {
+	check(new double[] { 0.01, 1.0, 0.1, 0.01, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0 });
+    }
+
+    public static void main(String args[]) {
+	org.junit.runner.JUnitCore.main("FITSWCS.tests.ZPNInverseTest");
+    }
+}